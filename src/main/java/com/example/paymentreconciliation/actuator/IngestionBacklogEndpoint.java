@@ -0,0 +1,74 @@
+package com.example.paymentreconciliation.actuator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.example.paymentreconciliation.entity.ImportRun;
+import com.example.paymentreconciliation.repository.ImportRunRepository;
+import com.example.paymentreconciliation.service.BaseIngestionService;
+
+/**
+ * {@code /actuator/ingestion}: per feed, the files waiting in the inbox and processing
+ * directories, the worker pool's load, and the outcomes of the most recent import runs.
+ * Meant for sizing the worker pool and spotting stalls (a growing backlog with no new runs).
+ *
+ * It lists file names and error messages, so it is only exposed over HTTP by the dev and
+ * test profiles; elsewhere the ingestion.* metrics carry the same signals for alerting.
+ */
+@Component
+@Endpoint(id = "ingestion")
+public class IngestionBacklogEndpoint {
+
+    private static final int DEFAULT_RECENT_RUNS = 20;
+    private static final int MAX_RECENT_RUNS = 200;
+
+    private final List<BaseIngestionService> ingestionServices;
+    private final ImportRunRepository importRunRepository;
+
+    public IngestionBacklogEndpoint(List<BaseIngestionService> ingestionServices, ImportRunRepository importRunRepository) {
+        this.ingestionServices = ingestionServices;
+        this.importRunRepository = importRunRepository;
+    }
+
+    @ReadOperation
+    public Map<String, Object> backlog(@Nullable Integer recent) {
+        int limit = recent == null ? DEFAULT_RECENT_RUNS : Math.max(1, Math.min(recent, MAX_RECENT_RUNS));
+        Map<String, Object> feeds = new LinkedHashMap<>();
+        for (BaseIngestionService service : ingestionServices) {
+            String feed = service.getFeedName();
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("backlog", service.getBacklog());
+            body.put("recentRuns", recentRuns(feed, limit));
+            feeds.put(feed, body);
+        }
+        return feeds;
+    }
+
+    private List<Map<String, Object>> recentRuns(String feed, int limit) {
+        List<ImportRun> runs = importRunRepository.findByFileTypeOrderByIdDesc(feed, PageRequest.of(0, limit));
+        List<Map<String, Object>> result = new ArrayList<>(runs.size());
+        for (ImportRun run : runs) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", run.getId());
+            item.put("filename", run.getFilename());
+            item.put("receivedAt", run.getReceivedAt());
+            item.put("status", run.getStatus());
+            item.put("totalRecords", run.getTotalRecords());
+            item.put("processedRecords", run.getProcessedRecords());
+            item.put("failedRecords", run.getFailedRecords());
+            item.put("duplicateRecords", run.getDuplicateRecords());
+            item.put("checkpointOffset", run.getCheckpointOffset());
+            item.put("errorMessage", run.getErrorMessage());
+            result.add(item);
+        }
+        return result;
+    }
+}
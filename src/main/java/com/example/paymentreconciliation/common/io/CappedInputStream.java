@@ -0,0 +1,61 @@
+package com.example.paymentreconciliation.common.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read through it and fails once more than {@code limit} bytes have
+ * been read. Used to bound decompressed zip entries, whose declared sizes cannot be trusted.
+ */
+public class CappedInputStream extends FilterInputStream {
+
+    private final long limit;
+    private long count;
+
+    public CappedInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            advance(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        advance(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void advance(long n) throws IOException {
+        count += n;
+        if (count > limit) {
+            throw new IOException("Stream exceeds limit of " + limit + " bytes");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.paymentreconciliation.common.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive of ingested files keyed by their SHA-256: a file lives at
+ * {@code <root>/<h0h1>/<h2h3>/<sha256>.gz}, so lookups never list a directory and no
+ * directory grows past 256 entries per level (65536 leaf directories in total).
+ *
+ * Content is stored gzip-compressed. Inputs that are already compressed (zip) are
+ * stored rather than deflated again. Storing the same content twice keeps the first
+ * copy and just removes the source.
+ */
+public class ContentAddressedArchive {
+
+    private static final String SUFFIX = ".gz";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+
+    public ContentAddressedArchive(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Archive path of a digest, relative to the archive root.
+     */
+    public static String relativePath(String sha256) {
+        if (sha256 == null || sha256.length() < 4) {
+            throw new IllegalArgumentException("Not a SHA-256 hex digest: " + sha256);
+        }
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + SUFFIX;
+    }
+
+    public Path resolve(String relativePath) {
+        return root.resolve(relativePath);
+    }
+
+    /**
+     * Compress source into the archive under its digest and delete source.
+     *
+     * @return the archive path relative to the root
+     * @throws IOException if the source cannot be read, the archive cannot be written, or
+     *         the bytes read do not hash to {@code sha256}
+     */
+    public String store(Path source, String sha256) throws IOException {
+        String relative = relativePath(sha256);
+        Path target = root.resolve(relative);
+        if (Files.exists(target)) {
+            Files.delete(source);
+            return relative;
+        }
+        Files.createDirectories(target.getParent());
+        Path partial = target.resolveSibling(target.getFileName() + "." + Thread.currentThread().getId() + ".part");
+        MessageDigest digest = FileDigests.sha256();
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(Files.newInputStream(source), BUFFER_SIZE), digest);
+             OutputStream out = new LeveledGzipOutputStream(Files.newOutputStream(partial), level(source))) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        String actual = FileDigests.toHex(digest.digest());
+        if (!actual.equals(sha256)) {
+            Files.deleteIfExists(partial);
+            throw new IOException("Content of " + source + " changed before archiving: expected " + sha256 + ", read " + actual);
+        }
+        try {
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Another worker archived the same content first
+            Files.deleteIfExists(partial);
+            if (!Files.exists(target)) {
+                throw e;
+            }
+        }
+        Files.delete(source);
+        return relative;
+    }
+
+    /**
+     * Open an archived file, decompressed.
+     */
+    public InputStream open(String relativePath) throws IOException {
+        return new GZIPInputStream(Files.newInputStream(root.resolve(relativePath)), BUFFER_SIZE);
+    }
+
+    private static int level(Path source) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            byte[] magic = in.readNBytes(4);
+            boolean zip = magic.length == 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4;
+            return zip ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION;
+        }
+    }
+
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+}
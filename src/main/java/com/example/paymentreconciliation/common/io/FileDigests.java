@@ -0,0 +1,148 @@
+package com.example.paymentreconciliation.common.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 helpers shared by the ingestion and upload services.
+ *
+ * Digests are reused per thread and hex-encoded through a lookup table instead of
+ * String.format per byte. {@link #moveAndDigest(Path, Path)} hashes a file in the same
+ * pass as the copy when a move has to cross filesystems.
+ */
+public final class FileDigests {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private FileDigests() {
+    }
+
+    /**
+     * @return this thread's SHA-256 digest, reset and ready for use
+     */
+    public static MessageDigest sha256() {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest;
+    }
+
+    public static String sha256Hex(byte[] content) {
+        return toHex(sha256().digest(content));
+    }
+
+    public static String sha256Hex(String content) {
+        return sha256Hex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha256Hex(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Move source to target, replacing it. A same-filesystem move is a rename and reads
+     * nothing, so null is returned and the caller hashes the file itself. A cross-filesystem
+     * move is copied with FileChannel.transferTo through a digesting channel, and the
+     * digest of the copied bytes is returned.
+     */
+    public static String moveAndDigest(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            return null;
+        } catch (AtomicMoveNotSupportedException e) {
+            // Different filesystem: copy + delete, hashing on the way
+        }
+        MessageDigest digest = sha256();
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DigestingChannel sink = new DigestingChannel(out, digest);
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long transferred = in.transferTo(position, size - position, sink);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            out.force(false);
+        } catch (IOException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(source);
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xff;
+            out[i * 2] = HEX[v >>> 4];
+            out[i * 2 + 1] = HEX[v & 0x0f];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Writes through to a file channel, feeding every written byte to the digest.
+     */
+    private static final class DigestingChannel implements WritableByteChannel {
+        private final FileChannel target;
+        private final MessageDigest digest;
+
+        DigestingChannel(FileChannel target, MessageDigest digest) {
+            this.target = target;
+            this.digest = digest;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            ByteBuffer view = src.duplicate();
+            int written = target.write(src);
+            view.limit(view.position() + written);
+            digest.update(view);
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return target.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // The underlying channel is owned by the caller
+        }
+    }
+}
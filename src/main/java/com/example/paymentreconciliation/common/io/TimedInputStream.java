@@ -0,0 +1,52 @@
+package com.example.paymentreconciliation.common.io;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Accumulates the time spent inside reads of the wrapped stream, e.g. to measure
+ * decompression separately from the parsing that consumes it.
+ */
+public class TimedInputStream extends FilterInputStream {
+
+    private long nanos;
+
+    public TimedInputStream(InputStream in) {
+        super(in);
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long started = System.nanoTime();
+        try {
+            return super.read();
+        } finally {
+            nanos += System.nanoTime() - started;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        long started = System.nanoTime();
+        try {
+            return super.read(b, off, len);
+        } finally {
+            nanos += System.nanoTime() - started;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long started = System.nanoTime();
+        try {
+            return super.skip(n);
+        } finally {
+            nanos += System.nanoTime() - started;
+        }
+    }
+}
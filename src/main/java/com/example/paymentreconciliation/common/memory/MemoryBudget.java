@@ -0,0 +1,231 @@
+package com.example.paymentreconciliation.common.memory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import com.example.paymentreconciliation.config.MemoryBudgetProperties;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Heap admission control for work that holds whole files, or their parsed rows, in memory.
+ *
+ * Each operation reserves file size times its expansion factor before it starts and gives
+ * it back when done; work that does not fit waits until earlier work finishes. Waiters are
+ * admitted in arrival order, so a large upload is not starved by a stream of small ones.
+ * An estimate larger than the whole budget is capped at the budget: such a file runs
+ * alone instead of never.
+ *
+ * <ul>
+ *   <li>{@code memory.budget.limit.bytes} / {@code memory.budget.used.bytes} (gauges)</li>
+ *   <li>{@code memory.budget.waiting} (gauge): operations waiting for budget</li>
+ *   <li>{@code memory.budget.wait} (timer): time to admission, by operation</li>
+ *   <li>{@code memory.budget.rejected} (counter): operations turned away, by operation</li>
+ * </ul>
+ */
+@Component
+public class MemoryBudget {
+    private static final Logger log = LoggerFactoryProvider.getLogger(MemoryBudget.class);
+
+    private final MemoryBudgetProperties properties;
+    private final MeterRegistry registry;
+    private final long limitBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    // Guarded by lock
+    private final ArrayDeque<Object> waiters = new ArrayDeque<>();
+    private long usedBytes;
+
+    public MemoryBudget(MemoryBudgetProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        this.limitBytes = properties.getBudgetBytes() > 0
+                ? properties.getBudgetBytes()
+                : (long) (Runtime.getRuntime().maxMemory() * properties.getHeapFraction());
+        Gauge.builder("memory.budget.limit.bytes", () -> limitBytes)
+                .description("Heap budget for admitted uploads and file ingestion")
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("memory.budget.used.bytes", this::getUsedBytes)
+                .description("Estimated heap held by admitted uploads and file ingestion")
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("memory.budget.waiting", this::getWaiting)
+                .description("Operations waiting for heap budget")
+                .strongReference(true)
+                .register(registry);
+        log.info("Memory budget of {} bytes (enabled={})", limitBytes, properties.isEnabled());
+    }
+
+    /**
+     * Reserve budget for an HTTP request, waiting at most maxWaitMillis.
+     *
+     * @param operation expansion factor key, e.g. TXN_CSV or MT940
+     * @throws BudgetExhaustedException if the budget did not free up in time
+     */
+    public Permit tryAcquire(String operation, long fileBytes) {
+        long bytes = estimate(operation, fileBytes);
+        long started = System.nanoTime();
+        try {
+            if (reserve(bytes, TimeUnit.MILLISECONDS.toNanos(properties.getMaxWaitMillis()))) {
+                recordWait(operation, started);
+                return new Permit(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Counter.builder("memory.budget.rejected").tag("operation", operation).register(registry).increment();
+        log.warn("Rejected {} of {} bytes: memory budget exhausted ({} of {} bytes in use)",
+                operation, fileBytes, getUsedBytes(), limitBytes);
+        throw new BudgetExhaustedException("Server is busy; memory budget exhausted for " + operation,
+                properties.getRetryAfterSeconds());
+    }
+
+    /**
+     * Reserve budget for background work, waiting as long as it takes.
+     *
+     * @param operation expansion factor key, e.g. TXN_CSV or MT940
+     */
+    public Permit acquire(String operation, long fileBytes) throws InterruptedException {
+        long bytes = estimate(operation, fileBytes);
+        long started = System.nanoTime();
+        reserve(bytes, -1);
+        recordWait(operation, started);
+        return new Permit(bytes);
+    }
+
+    private long estimate(String operation, long fileBytes) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        double factor = properties.getExpansionFactors().getOrDefault(operation, properties.getDefaultExpansionFactor());
+        return Math.min(limitBytes, (long) Math.ceil(Math.max(0, fileBytes) * factor));
+    }
+
+    /**
+     * @param timeoutNanos negative to wait without a timeout
+     * @return false if the timeout elapsed first
+     */
+    private boolean reserve(long bytes, long timeoutNanos) throws InterruptedException {
+        if (bytes == 0) {
+            return true;
+        }
+        Object ticket = new Object();
+        long remaining = timeoutNanos;
+        lock.lock();
+        try {
+            waiters.addLast(ticket);
+            try {
+                while (waiters.peekFirst() != ticket || usedBytes + bytes > limitBytes) {
+                    if (timeoutNanos < 0) {
+                        released.await();
+                    } else if (remaining <= 0) {
+                        return false;
+                    } else {
+                        remaining = released.awaitNanos(remaining);
+                    }
+                }
+                usedBytes += bytes;
+                return true;
+            } finally {
+                waiters.remove(ticket);
+                // The next waiter may now be at the head, or fit where this one did not
+                released.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long bytes) {
+        lock.lock();
+        try {
+            usedBytes -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordWait(String operation, long started) {
+        Timer.builder("memory.budget.wait")
+                .description("Time until an operation was admitted to the memory budget")
+                .tag("operation", operation)
+                .register(registry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    public long getUsedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Budget held by one operation; closing it gives the budget back.
+     */
+    public class Permit implements AutoCloseable {
+        private long bytes;
+
+        private Permit(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            long held;
+            synchronized (this) {
+                held = bytes;
+                bytes = 0;
+            }
+            if (held > 0) {
+                release(held);
+            }
+        }
+    }
+
+    /**
+     * The budget stayed exhausted for maxWaitMillis; the caller should retry later.
+     */
+    public static class BudgetExhaustedException extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public BudgetExhaustedException(String message, int retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
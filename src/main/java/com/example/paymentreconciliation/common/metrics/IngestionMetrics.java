@@ -0,0 +1,135 @@
+package com.example.paymentreconciliation.common.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters for file ingestion, tagged by feed (MT940, VAN, ...).
+ *
+ * <ul>
+ *   <li>{@code ingestion.stage.duration} (timer): time per stage; discover, move, hash,
+ *       decompress, parse, validate, persist, archive</li>
+ *   <li>{@code ingestion.items} (counter): statements or rows handled, by unit; rate() gives items/sec</li>
+ *   <li>{@code ingestion.items.per.second} (gauge): throughput of the last finished file</li>
+ *   <li>{@code ingestion.files} (counter): files by outcome</li>
+ *   <li>{@code ingestion.quarantined} (counter): quarantined files by reason</li>
+ *   <li>{@code ingestion.directory.depth} (gauge): files waiting in the inbox and processing directories</li>
+ *   <li>{@code ingestion.lane.wait} (timer): time a file waited for a worker, by scheduler lane</li>
+ *   <li>{@code ingestion.lane.queued} (gauge): files waiting for a worker, by scheduler lane</li>
+ * </ul>
+ */
+@Component
+public class IngestionMetrics {
+
+    public static final String STAGE_DISCOVER = "discover";
+    public static final String STAGE_RECEIVE = "receive";
+    public static final String STAGE_MOVE = "move";
+    public static final String STAGE_HASH = "hash";
+    public static final String STAGE_DECOMPRESS = "decompress";
+    public static final String STAGE_PARSE = "parse";
+    public static final String STAGE_VALIDATE = "validate";
+    public static final String STAGE_PERSIST = "persist";
+    public static final String STAGE_ARCHIVE = "archive";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> laneWaitTimers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> throughput = new ConcurrentHashMap<>();
+
+    public IngestionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordStage(String feed, String stage, long nanos) {
+        stageTimers.computeIfAbsent(feed + '|' + stage, k -> Timer.builder("ingestion.stage.duration")
+                        .description("Time spent per ingestion stage")
+                        .tag("feed", feed)
+                        .tag("stage", stage)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit "statements" or "rows"
+     */
+    public void countItems(String feed, String unit, long count) {
+        if (count > 0) {
+            Counter.builder("ingestion.items").tag("feed", feed).tag("unit", unit).register(registry).increment(count);
+        }
+    }
+
+    public void recordFileThroughput(String feed, String unit, long count, long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        AtomicLong perSecond = throughput.computeIfAbsent(feed + '|' + unit, k -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder("ingestion.items.per.second", value, AtomicLong::get)
+                    .description("Items per second of the last finished file")
+                    .tag("feed", feed)
+                    .tag("unit", unit)
+                    .register(registry);
+            return value;
+        });
+        perSecond.set(count * TimeUnit.SECONDS.toNanos(1) / nanos);
+    }
+
+    public void countFile(String feed, String outcome) {
+        Counter.builder("ingestion.files").tag("feed", feed).tag("outcome", outcome).register(registry).increment();
+    }
+
+    /**
+     * @param reason a fixed reason code, never free text (it becomes a tag value)
+     */
+    public void countQuarantine(String feed, String reason) {
+        Counter.builder("ingestion.quarantined").tag("feed", feed).tag("reason", reason).register(registry).increment();
+    }
+
+    /**
+     * @param directory "inbox" or "processing"
+     */
+    public void registerDirectoryDepth(String feed, String directory, Supplier<Number> depth) {
+        Gauge.builder("ingestion.directory.depth", depth)
+                .description("Files waiting in an ingestion directory")
+                .tag("feed", feed)
+                .tag("directory", directory)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    /**
+     * @param lane "fast" or "bulk"
+     */
+    public void recordLaneWait(String feed, String lane, long nanos) {
+        laneWaitTimers.computeIfAbsent(feed + '|' + lane, k -> Timer.builder("ingestion.lane.wait")
+                        .description("Time a file waited for an ingestion worker")
+                        .tag("feed", feed)
+                        .tag("lane", lane)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registerLaneDepth(String feed, String lane, Supplier<Number> depth) {
+        Gauge.builder("ingestion.lane.queued", depth)
+                .description("Files waiting for an ingestion worker")
+                .tag("feed", feed)
+                .tag("lane", lane)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    public void registerGauge(String name, String feed, Supplier<Number> value) {
+        Gauge.builder(name, value).tag("feed", feed).strongReference(true).register(registry);
+    }
+}
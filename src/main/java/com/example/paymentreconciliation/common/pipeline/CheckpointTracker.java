@@ -0,0 +1,48 @@
+package com.example.paymentreconciliation.common.pipeline;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Low watermark over completed ranges of a sequence (statement ordinals, row offsets).
+ *
+ * Ranges may complete out of order when a pipeline stage has several workers; the
+ * watermark only advances over a contiguous prefix, so everything before it is done
+ * and resuming from it never skips unfinished work.
+ */
+public final class CheckpointTracker {
+
+    private long watermark;
+    // Completed ranges beyond the watermark: start -> end (exclusive)
+    private final TreeMap<Long, Long> ahead = new TreeMap<>();
+
+    public CheckpointTracker(long start) {
+        this.watermark = start;
+    }
+
+    /**
+     * Mark [start, end) as done.
+     *
+     * @return the watermark after this completion
+     */
+    public synchronized long complete(long start, long end) {
+        if (end <= watermark) {
+            return watermark;
+        }
+        if (start > watermark) {
+            ahead.merge(start, end, Math::max);
+            return watermark;
+        }
+        watermark = end;
+        Map.Entry<Long, Long> next;
+        while ((next = ahead.firstEntry()) != null && next.getKey() <= watermark) {
+            ahead.pollFirstEntry();
+            watermark = Math.max(watermark, next.getValue());
+        }
+        return watermark;
+    }
+
+    public synchronized long watermark() {
+        return watermark;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.paymentreconciliation.common.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Three-stage pipeline: a producer running on the calling thread, a transform stage and a
+ * sink stage, each stage with its own number of workers, connected by bounded queues.
+ *
+ * A full queue blocks the stage feeding it, so a slow sink throttles the transform stage,
+ * which in turn throttles the producer; nothing buffers more than {@code queueCapacity}
+ * items per queue. With one worker per stage, items reach the sink in production order.
+ *
+ * When the producer fails, items it already emitted are still drained through the sink
+ * before its exception is rethrown. When a transform or sink fails, the pipeline is
+ * aborted (the producer's next emit throws {@link CancellationException}) and that
+ * failure is rethrown instead.
+ *
+ * @param <I> items emitted by the producer
+ * @param <O> items handed from the transform stage to the sink
+ */
+public final class StagedPipeline<I, O> {
+
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 100;
+
+    @FunctionalInterface
+    public interface Producer<I> {
+        void produce(Consumer<I> emitter) throws Exception;
+    }
+
+    /**
+     * Transform one item; returning null drops it.
+     */
+    @FunctionalInterface
+    public interface Transform<I, O> {
+        O apply(I item) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Sink<O> {
+        void accept(O item) throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final int queueCapacity;
+    private final int transformThreads;
+    private final int sinkThreads;
+    private final Transform<I, O> transform;
+    private final Sink<O> sink;
+
+    public StagedPipeline(ExecutorService executor, int queueCapacity, int transformThreads, int sinkThreads,
+            Transform<I, O> transform, Sink<O> sink) {
+        this.executor = executor;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.transformThreads = Math.max(1, transformThreads);
+        this.sinkThreads = Math.max(1, sinkThreads);
+        this.transform = transform;
+        this.sink = sink;
+    }
+
+    /**
+     * Run the producer to completion and wait until every emitted item has left the pipeline.
+     */
+    public void run(Producer<I> producer) throws Exception {
+        BlockingQueue<Object> inbound = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> outbound = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicInteger transformersLeft = new AtomicInteger(transformThreads);
+        List<Future<?>> workers = new ArrayList<>(transformThreads + sinkThreads);
+
+        Exception producerError = null;
+        try {
+            for (int i = 0; i < sinkThreads; i++) {
+                workers.add(executor.submit(() -> sinkLoop(outbound, failure)));
+            }
+            for (int i = 0; i < transformThreads; i++) {
+                workers.add(executor.submit(() -> {
+                    try {
+                        transformLoop(inbound, outbound, failure);
+                    } finally {
+                        // The last transform worker out tells the sink workers no more items are coming
+                        if (transformersLeft.decrementAndGet() == 0) {
+                            endAll(outbound, sinkThreads, failure);
+                        }
+                    }
+                }));
+            }
+            producer.produce(item -> {
+                if (!enqueue(inbound, item, failure)) {
+                    throw new CancellationException("Pipeline aborted by a downstream failure");
+                }
+            });
+        } catch (Exception e) {
+            if (workers.size() < transformThreads + sinkThreads) {
+                // Could not start every worker (e.g. executor shut down): stop the ones that did start
+                failure.compareAndSet(null, e);
+            }
+            producerError = e;
+        }
+        endAll(inbound, transformThreads, failure);
+        awaitAll(workers, failure);
+
+        Throwable stageError = failure.get();
+        if (stageError instanceof Exception) {
+            throw (Exception) stageError;
+        }
+        if (stageError instanceof Error) {
+            throw (Error) stageError;
+        }
+        if (producerError != null) {
+            throw producerError;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void transformLoop(BlockingQueue<Object> inbound, BlockingQueue<Object> outbound,
+            AtomicReference<Throwable> failure) {
+        try {
+            Object item;
+            while ((item = take(inbound, failure)) != END && item != null) {
+                O out = transform.apply((I) item);
+                if (out != null && !enqueue(outbound, out, failure)) {
+                    return;
+                }
+            }
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sinkLoop(BlockingQueue<Object> outbound, AtomicReference<Throwable> failure) {
+        try {
+            Object item;
+            while ((item = take(outbound, failure)) != END && item != null) {
+                sink.accept((O) item);
+            }
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    /**
+     * Put with backpressure; gives up (returning false) once the pipeline has failed.
+     */
+    private static boolean enqueue(BlockingQueue<Object> queue, Object item, AtomicReference<Throwable> failure) {
+        try {
+            while (failure.get() == null) {
+                if (queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        return false;
+    }
+
+    /**
+     * @return the next item, or null once the pipeline has failed
+     */
+    private static Object take(BlockingQueue<Object> queue, AtomicReference<Throwable> failure) throws InterruptedException {
+        while (failure.get() == null) {
+            Object item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private static void endAll(BlockingQueue<Object> queue, int workers, AtomicReference<Throwable> failure) {
+        for (int i = 0; i < workers; i++) {
+            if (!enqueue(queue, END, failure)) {
+                return;
+            }
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> workers, AtomicReference<Throwable> failure) {
+        boolean interrupted = false;
+        for (Future<?> worker : workers) {
+            while (true) {
+                try {
+                    worker.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // Workers stop promptly once failed; keep waiting so none outlives run()
+                    interrupted = true;
+                    failure.compareAndSet(null, e);
+                } catch (ExecutionException e) {
+                    failure.compareAndSet(null, e.getCause());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
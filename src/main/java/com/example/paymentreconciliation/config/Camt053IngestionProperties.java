@@ -0,0 +1,14 @@
+package com.example.paymentreconciliation.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "camt053")
+public class Camt053IngestionProperties extends StatementIngestionProperties {
+    /** Skip entries whose status is pending or informational; only booked entries move the balance. */
+    private boolean bookedEntriesOnly = true;
+
+    public boolean isBookedEntriesOnly() { return bookedEntriesOnly; }
+    public void setBookedEntriesOnly(boolean bookedEntriesOnly) { this.bookedEntriesOnly = bookedEntriesOnly; }
+}
@@ -0,0 +1,19 @@
+package com.example.paymentreconciliation.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "import-errors")
+public class ImportErrorProperties {
+    /** import_error rows stored per import run; further errors are only counted. */
+    private int maxErrorsPerRun = 1000;
+
+    /** Errors buffered per run before they are written in one JDBC batch. */
+    private int batchSize = 500;
+
+    public int getMaxErrorsPerRun() { return maxErrorsPerRun; }
+    public void setMaxErrorsPerRun(int maxErrorsPerRun) { this.maxErrorsPerRun = maxErrorsPerRun; }
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+}
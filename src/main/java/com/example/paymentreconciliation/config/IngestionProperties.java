@@ -0,0 +1,114 @@
+package com.example.paymentreconciliation.config;
+
+/**
+ * Settings shared by every file-based ingestion feed (MT940, VAN, ...).
+ */
+public abstract class IngestionProperties {
+    private String baseDir;
+    private String inboxDir;
+    private String processingDir;
+    private String archiveDir;
+    private String quarantineDir;
+    /**
+     * Files larger than this are quarantined without being parsed.
+     */
+    private long maxFileSizeBytes = 50L * 1024 * 1024;
+    /**
+     * Bulk-lane workers: files above fastLaneMaxFileSizeBytes.
+     */
+    private int workerThreads = 4;
+    /**
+     * Files queued per lane before further files run on the submitting thread.
+     */
+    private int workerQueueCapacity = 100;
+    /**
+     * Fast-lane workers, reserved for small and intraday files so a bulk backfill cannot delay them.
+     */
+    private int fastLaneThreads = 2;
+    /**
+     * Files up to this size go to the fast lane.
+     */
+    private long fastLaneMaxFileSizeBytes = 1024L * 1024;
+    /**
+     * Watch the inbox with a WatchService and dispatch files as soon as they are complete.
+     */
+    private boolean watchEnabled = false;
+    /**
+     * Only accept a file once a companion "<name>.done" marker exists.
+     */
+    private boolean doneMarkerRequired = false;
+    /**
+     * Upper bound on inbox entries examined per poll.
+     */
+    private int maxFilesPerPoll = 500;
+    /**
+     * Interval between the two size/mtime samples used to decide a file is complete.
+     */
+    private long settleMillis = 500;
+    /**
+     * Items buffered between the parse, validate and persist stages of one file.
+     */
+    private int pipelineQueueCapacity = 16;
+    /**
+     * Validation workers per file.
+     */
+    private int validateThreads = 1;
+    /**
+     * Persistence workers per file; above 1, the items of one file are persisted out of order.
+     */
+    private int persistThreads = 1;
+    /**
+     * On startup, resume files left in the processing directory by an interrupted run.
+     */
+    private boolean recoverOnStartup = true;
+    /**
+     * Lease each file in the database before processing it, so several nodes can share one
+     * inbox and processing directory; a dead node's files are recovered once its leases expire.
+     */
+    private boolean claimsEnabled = false;
+    /**
+     * Lease duration; renewed every third of it while a file is in progress.
+     */
+    private int claimLeaseSeconds = 120;
+
+    public String getBaseDir() { return baseDir; }
+    public void setBaseDir(String baseDir) { this.baseDir = baseDir; }
+    public String getInboxDir() { return inboxDir; }
+    public void setInboxDir(String inboxDir) { this.inboxDir = inboxDir; }
+    public String getProcessingDir() { return processingDir; }
+    public void setProcessingDir(String processingDir) { this.processingDir = processingDir; }
+    public String getArchiveDir() { return archiveDir; }
+    public void setArchiveDir(String archiveDir) { this.archiveDir = archiveDir; }
+    public String getQuarantineDir() { return quarantineDir; }
+    public void setQuarantineDir(String quarantineDir) { this.quarantineDir = quarantineDir; }
+    public long getMaxFileSizeBytes() { return maxFileSizeBytes; }
+    public void setMaxFileSizeBytes(long maxFileSizeBytes) { this.maxFileSizeBytes = maxFileSizeBytes; }
+    public int getWorkerThreads() { return workerThreads; }
+    public void setWorkerThreads(int workerThreads) { this.workerThreads = workerThreads; }
+    public int getWorkerQueueCapacity() { return workerQueueCapacity; }
+    public void setWorkerQueueCapacity(int workerQueueCapacity) { this.workerQueueCapacity = workerQueueCapacity; }
+    public int getFastLaneThreads() { return fastLaneThreads; }
+    public void setFastLaneThreads(int fastLaneThreads) { this.fastLaneThreads = fastLaneThreads; }
+    public long getFastLaneMaxFileSizeBytes() { return fastLaneMaxFileSizeBytes; }
+    public void setFastLaneMaxFileSizeBytes(long fastLaneMaxFileSizeBytes) { this.fastLaneMaxFileSizeBytes = fastLaneMaxFileSizeBytes; }
+    public boolean isWatchEnabled() { return watchEnabled; }
+    public void setWatchEnabled(boolean watchEnabled) { this.watchEnabled = watchEnabled; }
+    public boolean isDoneMarkerRequired() { return doneMarkerRequired; }
+    public void setDoneMarkerRequired(boolean doneMarkerRequired) { this.doneMarkerRequired = doneMarkerRequired; }
+    public int getMaxFilesPerPoll() { return maxFilesPerPoll; }
+    public void setMaxFilesPerPoll(int maxFilesPerPoll) { this.maxFilesPerPoll = maxFilesPerPoll; }
+    public long getSettleMillis() { return settleMillis; }
+    public void setSettleMillis(long settleMillis) { this.settleMillis = settleMillis; }
+    public int getPipelineQueueCapacity() { return pipelineQueueCapacity; }
+    public void setPipelineQueueCapacity(int pipelineQueueCapacity) { this.pipelineQueueCapacity = pipelineQueueCapacity; }
+    public int getValidateThreads() { return validateThreads; }
+    public void setValidateThreads(int validateThreads) { this.validateThreads = validateThreads; }
+    public int getPersistThreads() { return persistThreads; }
+    public void setPersistThreads(int persistThreads) { this.persistThreads = persistThreads; }
+    public boolean isRecoverOnStartup() { return recoverOnStartup; }
+    public void setRecoverOnStartup(boolean recoverOnStartup) { this.recoverOnStartup = recoverOnStartup; }
+    public boolean isClaimsEnabled() { return claimsEnabled; }
+    public void setClaimsEnabled(boolean claimsEnabled) { this.claimsEnabled = claimsEnabled; }
+    public int getClaimLeaseSeconds() { return claimLeaseSeconds; }
+    public void setClaimLeaseSeconds(int claimLeaseSeconds) { this.claimLeaseSeconds = claimLeaseSeconds; }
+}
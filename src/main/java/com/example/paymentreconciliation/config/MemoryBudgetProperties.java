@@ -0,0 +1,57 @@
+package com.example.paymentreconciliation.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "memory-budget")
+public class MemoryBudgetProperties {
+    /** Admit uploads and file ingestion only while their estimated heap use fits the budget. */
+    private boolean enabled = true;
+
+    /** Budget in bytes; 0 derives it from the max heap and heapFraction. */
+    private long budgetBytes = 0;
+
+    /** Share of the max heap (-Xmx) given to the budget when budgetBytes is 0. */
+    private double heapFraction = 0.5;
+
+    /** How long an HTTP upload waits for budget before it is rejected with 429. */
+    private long maxWaitMillis = 2000;
+
+    /** Retry-After sent with a 429. */
+    private int retryAfterSeconds = 5;
+
+    /** Heap bytes per file byte for operations without an entry in expansionFactors. */
+    private double defaultExpansionFactor = 4.0;
+
+    /**
+     * Heap bytes per file byte by operation: the upload kinds (TXN_CSV, MANUAL_CSV) and the
+     * ingestion feeds (MT940, MT942, CAMT53, VAN). Whole-file readers hold the bytes, their
+     * decoded text and the parsed rows; streaming parsers hold about one message at a time.
+     */
+    private Map<String, Double> expansionFactors = new HashMap<>(Map.of(
+            "TXN_CSV", 6.0,
+            "MANUAL_CSV", 6.0,
+            "VAN", 4.0,
+            "MT940", 1.0,
+            "MT942", 1.0,
+            "CAMT53", 0.5));
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public long getBudgetBytes() { return budgetBytes; }
+    public void setBudgetBytes(long budgetBytes) { this.budgetBytes = budgetBytes; }
+    public double getHeapFraction() { return heapFraction; }
+    public void setHeapFraction(double heapFraction) { this.heapFraction = heapFraction; }
+    public long getMaxWaitMillis() { return maxWaitMillis; }
+    public void setMaxWaitMillis(long maxWaitMillis) { this.maxWaitMillis = maxWaitMillis; }
+    public int getRetryAfterSeconds() { return retryAfterSeconds; }
+    public void setRetryAfterSeconds(int retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+    public double getDefaultExpansionFactor() { return defaultExpansionFactor; }
+    public void setDefaultExpansionFactor(double defaultExpansionFactor) { this.defaultExpansionFactor = defaultExpansionFactor; }
+    public Map<String, Double> getExpansionFactors() { return expansionFactors; }
+    public void setExpansionFactors(Map<String, Double> expansionFactors) { this.expansionFactors = expansionFactors; }
+}
@@ -5,20 +5,25 @@ import org.springframework.context.annotation.Configuration;
 
 @Configuration
 @ConfigurationProperties(prefix = "mt940")
-public class Mt940IngestionProperties {
-    private String baseDir;
-    private String inboxDir;
-    private String processingDir;
-    private String archiveDir;
-    private String quarantineDir;
-    public String getBaseDir() { return baseDir; }
-    public void setBaseDir(String baseDir) { this.baseDir = baseDir; }
-    public String getInboxDir() { return inboxDir; }
-    public void setInboxDir(String inboxDir) { this.inboxDir = inboxDir; }
-    public String getProcessingDir() { return processingDir; }
-    public void setProcessingDir(String processingDir) { this.processingDir = processingDir; }
-    public String getArchiveDir() { return archiveDir; }
-    public void setArchiveDir(String archiveDir) { this.archiveDir = archiveDir; }
-    public String getQuarantineDir() { return quarantineDir; }
-    public void setQuarantineDir(String quarantineDir) { this.quarantineDir = quarantineDir; }
+public class Mt940IngestionProperties extends StatementIngestionProperties {
+    /** Tokenize common single-line messages without Prowide; unusual messages still go through MT940.parse. */
+    private boolean fastTokenizerEnabled = false;
+
+    /** Record every tagged line in raw_statement_line (audit trail). */
+    private boolean rawLinesEnabled = false;
+
+    /** Maximum number of .mt940/.sta entries accepted in one zip. */
+    private int maxZipEntries = 1000;
+
+    /** Maximum total uncompressed bytes read from one zip (real bytes, not the declared entry sizes). */
+    private long maxZipUncompressedBytes = 1024L * 1024 * 1024; // 1GB
+
+    public boolean isFastTokenizerEnabled() { return fastTokenizerEnabled; }
+    public void setFastTokenizerEnabled(boolean fastTokenizerEnabled) { this.fastTokenizerEnabled = fastTokenizerEnabled; }
+    public boolean isRawLinesEnabled() { return rawLinesEnabled; }
+    public void setRawLinesEnabled(boolean rawLinesEnabled) { this.rawLinesEnabled = rawLinesEnabled; }
+    public int getMaxZipEntries() { return maxZipEntries; }
+    public void setMaxZipEntries(int maxZipEntries) { this.maxZipEntries = maxZipEntries; }
+    public long getMaxZipUncompressedBytes() { return maxZipUncompressedBytes; }
+    public void setMaxZipUncompressedBytes(long maxZipUncompressedBytes) { this.maxZipUncompressedBytes = maxZipUncompressedBytes; }
 }
@@ -0,0 +1,14 @@
+package com.example.paymentreconciliation.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "mt942")
+public class Mt942IngestionProperties extends StatementIngestionProperties {
+    /** Each report repeats the day's earlier entries (cumulative) instead of listing only new ones (incremental). */
+    private boolean cumulativeReports = false;
+
+    public boolean isCumulativeReports() { return cumulativeReports; }
+    public void setCumulativeReports(boolean cumulativeReports) { this.cumulativeReports = cumulativeReports; }
+}
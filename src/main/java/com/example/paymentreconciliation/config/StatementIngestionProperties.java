@@ -0,0 +1,22 @@
+package com.example.paymentreconciliation.config;
+
+/**
+ * Settings shared by the feeds that import bank statements into the statement tables (MT940, MT942, CAMT.053).
+ */
+public abstract class StatementIngestionProperties extends IngestionProperties {
+    /** Rows per multi-row insert when writing the statement graph. */
+    private int persistBatchSize = 500;
+
+    /** Skip transactions (and reuse statement files) that an earlier, overlapping file already imported. */
+    private boolean mergeDuplicates = true;
+
+    /** Move transactions already imported from an MT942 intraday report into the final statement instead of inserting them again. */
+    private boolean reconcileIntraday = true;
+
+    public int getPersistBatchSize() { return persistBatchSize; }
+    public void setPersistBatchSize(int persistBatchSize) { this.persistBatchSize = persistBatchSize; }
+    public boolean isMergeDuplicates() { return mergeDuplicates; }
+    public void setMergeDuplicates(boolean mergeDuplicates) { this.mergeDuplicates = mergeDuplicates; }
+    public boolean isReconcileIntraday() { return reconcileIntraday; }
+    public void setReconcileIntraday(boolean reconcileIntraday) { this.reconcileIntraday = reconcileIntraday; }
+}
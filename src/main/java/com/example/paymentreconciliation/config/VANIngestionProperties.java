@@ -5,21 +5,17 @@ import org.springframework.context.annotation.Configuration;
 
 @Configuration
 @ConfigurationProperties(prefix = "van")
-public class VANIngestionProperties {
-    private String baseDir;
-    private String inboxDir;
-    private String processingDir;
-    private String archiveDir;
-    private String quarantineDir;
+public class VANIngestionProperties extends IngestionProperties {
+    /** Rows parsed, persisted and committed together; bounds memory regardless of file size. */
+    private int chunkSize = 1000;
+    /**
+     * Load files through COPY into a staging table and a set-based merge instead of chunked JPA inserts.
+     * Requires sql/reconciliation/ddl/van_transaction_stage.sql to be applied.
+     */
+    private boolean copyLoadEnabled = false;
 
-    public String getBaseDir() { return baseDir; }
-    public void setBaseDir(String baseDir) { this.baseDir = baseDir; }
-    public String getInboxDir() { return inboxDir; }
-    public void setInboxDir(String inboxDir) { this.inboxDir = inboxDir; }
-    public String getProcessingDir() { return processingDir; }
-    public void setProcessingDir(String processingDir) { this.processingDir = processingDir; }
-    public String getArchiveDir() { return archiveDir; }
-    public void setArchiveDir(String archiveDir) { this.archiveDir = archiveDir; }
-    public String getQuarantineDir() { return quarantineDir; }
-    public void setQuarantineDir(String quarantineDir) { this.quarantineDir = quarantineDir; }
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+    public boolean isCopyLoadEnabled() { return copyLoadEnabled; }
+    public void setCopyLoadEnabled(boolean copyLoadEnabled) { this.copyLoadEnabled = copyLoadEnabled; }
 }
@@ -1,5 +1,6 @@
 package com.example.paymentreconciliation.controller;
 
+import com.example.paymentreconciliation.common.memory.MemoryBudget;
 import com.example.paymentreconciliation.model.ManualTransactionUploadRequest;
 import com.example.paymentreconciliation.model.ManualTransactionUploadResponse;
 import com.example.paymentreconciliation.model.ManualTransactionUploadBatchResponse;
@@ -39,11 +40,14 @@ public class ManualTransactionUploadController {
 
     private final ManualTransactionUploadService service;
     private final ManualTransactionPdfConversionService pdfConversionService;
+    private final MemoryBudget memoryBudget;
 
     public ManualTransactionUploadController(ManualTransactionUploadService service,
-            ManualTransactionPdfConversionService pdfConversionService) {
+            ManualTransactionPdfConversionService pdfConversionService,
+            MemoryBudget memoryBudget) {
         this.service = service;
         this.pdfConversionService = pdfConversionService;
+        this.memoryBudget = memoryBudget;
     }
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -68,10 +72,15 @@ public class ManualTransactionUploadController {
     @Operation(summary = "Upload manual transactions CSV", description = "CSV headers: txn_ref, txn_date (yyyy-MM-dd), txn_amount, dr_cr_flag (CR/DR), txn_type (NEFT/RTGS/IMPS only, optional), payer (optional), description (optional).")
     public ResponseEntity<?> uploadCsv(@RequestParam("file") MultipartFile file,
             @RequestParam(required = false) String createdBy) {
-        try {
+        // Admit before the transaction starts, so waiting for budget never holds a connection
+        try (MemoryBudget.Permit permit = memoryBudget.tryAcquire("MANUAL_CSV", file.getSize())) {
             ManualTransactionUploadBatchResponse response = service.uploadCsv(file, createdBy);
             HttpStatus status = response.getFailedRows() > 0 ? HttpStatus.BAD_REQUEST : HttpStatus.CREATED;
             return ResponseEntity.status(status).body(response);
+        } catch (MemoryBudget.BudgetExhaustedException ex) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                    .body(Map.of("error", ex.getMessage()));
         } catch (DuplicateManualTransactionException ex) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", ex.getMessage()));
         } catch (IllegalArgumentException ex) {
@@ -0,0 +1,62 @@
+package com.example.paymentreconciliation.controller;
+
+import java.net.URI;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.paymentreconciliation.model.IngestionJobResponse;
+import com.example.paymentreconciliation.service.IngestionJobService;
+import com.example.paymentreconciliation.service.Mt942IngestionService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/recon-service/api/mt942")
+@Tag(name = "MT942 Ingestion", description = "APIs for MT942 intraday report ingestion and processing")
+@SecurityRequirement(name = "Bearer Authentication")
+public class Mt942IngestionController {
+    @Autowired
+    private Mt942IngestionService mt942IngestionService;
+    @Autowired
+    private IngestionJobService ingestionJobService;
+
+    @PostMapping("/ingest")
+    @Operation(summary = "Trigger MT942 ingestion", description = "Starts an asynchronous job that polls and processes MT942 files in the inbox. Returns 202 with the job id; a trigger while a job is running is coalesced into that job")
+    public ResponseEntity<IngestionJobResponse> ingest() {
+        IngestionJobResponse job = ingestionJobService.trigger(mt942IngestionService);
+        return ResponseEntity.accepted()
+                .location(URI.create("/recon-service/api/mt942/ingest/jobs/" + job.getJobId()))
+                .body(job);
+    }
+
+    @GetMapping("/ingest/jobs/{jobId}")
+    @Operation(summary = "Get MT942 ingestion job status", description = "Returns the job status with per-file progress, record counts and the first import errors of each file")
+    public ResponseEntity<IngestionJobResponse> getJob(@PathVariable String jobId) {
+        return ingestionJobService.getJob(mt942IngestionService.getFeedName(), jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/ingest/runs/{importRunId}/file")
+    @Operation(summary = "Download archived MT942 file", description = "Streams the original file of an import run from the archive, decompressed")
+    public ResponseEntity<InputStreamResource> getArchivedFile(@PathVariable Long importRunId) {
+        return mt942IngestionService.findArchivedRun(importRunId)
+                .map(run -> ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(run.getFilename()).build().toString())
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(new InputStreamResource(mt942IngestionService.openArchivedFile(run))))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
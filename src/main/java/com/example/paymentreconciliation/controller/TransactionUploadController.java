@@ -3,6 +3,7 @@ package com.example.paymentreconciliation.controller;
 import java.util.Map;
 
 import org.slf4j.Logger;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.paymentreconciliation.common.memory.MemoryBudget;
 import com.example.paymentreconciliation.dto.TransactionMatchResponse;
 import com.example.paymentreconciliation.dto.TransactionUploadResponse;
 import com.example.paymentreconciliation.service.TransactionMatchService;
@@ -33,11 +35,14 @@ public class TransactionUploadController {
 
     private final TransactionUploadService uploadService;
     private final TransactionMatchService matchService;
+    private final MemoryBudget memoryBudget;
 
     public TransactionUploadController(TransactionUploadService uploadService,
-            TransactionMatchService matchService) {
+            TransactionMatchService matchService,
+            MemoryBudget memoryBudget) {
         this.uploadService = uploadService;
         this.matchService = matchService;
+        this.memoryBudget = memoryBudget;
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -46,7 +51,11 @@ public class TransactionUploadController {
             @RequestParam("file") MultipartFile file,
             @RequestParam(required = false) String uploadedBy) {
         try {
-            TransactionUploadResponse uploadResponse = uploadService.upload(file, uploadedBy);
+            TransactionUploadResponse uploadResponse;
+            // Admit before the transaction starts, so waiting for budget never holds a connection
+            try (MemoryBudget.Permit permit = memoryBudget.tryAcquire("TXN_CSV", file.getSize())) {
+                uploadResponse = uploadService.upload(file, uploadedBy);
+            }
             if (!"LOADED".equalsIgnoreCase(uploadResponse.getStatus())) {
                 return ResponseEntity.badRequest().body(uploadResponse);
             }
@@ -54,6 +63,10 @@ public class TransactionUploadController {
             uploadResponse.setMatchedRows(matchResponse.getMatched());
             uploadResponse.setNotFoundRows(matchResponse.getMarkedNotFound());
             return ResponseEntity.ok(uploadResponse);
+        } catch (MemoryBudget.BudgetExhaustedException ex) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                    .body(Map.of("error", ex.getMessage()));
         } catch (DuplicateFileException ex) {
             return ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(Map.of(
@@ -1,12 +1,34 @@
 package com.example.paymentreconciliation.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+
+import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
+import com.example.paymentreconciliation.common.memory.MemoryBudget;
+import com.example.paymentreconciliation.model.IngestionJobFileResponse;
+import com.example.paymentreconciliation.model.IngestionJobResponse;
+import com.example.paymentreconciliation.service.BaseIngestionService;
+import com.example.paymentreconciliation.service.IngestionJob;
+import com.example.paymentreconciliation.service.IngestionJobService;
 import com.example.paymentreconciliation.service.VANIngestionService;
+import com.shared.utilities.logger.LoggerFactoryProvider;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -17,13 +39,89 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "VAN Ingestion", description = "APIs for VAN CSV file ingestion and processing")
 @SecurityRequirement(name = "Bearer Authentication")
 public class VANIngestionController {
+    private static final Logger log = LoggerFactoryProvider.getLogger(VANIngestionController.class);
     @Autowired
     private VANIngestionService vanIngestionService;
+    @Autowired
+    private IngestionJobService ingestionJobService;
 
     @PostMapping("/ingest")
-    @Operation(summary = "Trigger VAN ingestion", description = "Triggers polling and processing of VAN CSV files in the inbox")
-    public ResponseEntity<String> ingest() {
-        vanIngestionService.pollAndProcessInbox();
-        return ResponseEntity.ok("VAN ingestion triggered");
+    @Operation(summary = "Trigger VAN ingestion", description = "Starts an asynchronous job that polls and processes VAN CSV files in the inbox. Returns 202 with the job id; a trigger while a job is running is coalesced into that job")
+    public ResponseEntity<IngestionJobResponse> ingest() {
+        IngestionJobResponse job = ingestionJobService.trigger(vanIngestionService);
+        return ResponseEntity.accepted()
+                .location(URI.create("/recon-service/api/van/ingest/jobs/" + job.getJobId()))
+                .body(job);
+    }
+
+    @PostMapping(value = "/ingest/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Upload VAN CSV file", description = "Ingests the uploaded VAN CSV file right away, without the inbox, and returns its outcome and import run id. Subject to the multipart size limit; use /ingest/stream for large files")
+    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            return toUploadResponse(ingestionJobService.upload(vanIngestionService, file.getOriginalFilename(), in));
+        } catch (IOException ex) {
+            log.error("Failed to read uploaded VAN file {}", file.getOriginalFilename(), ex);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Unable to read the uploaded file"));
+        } catch (RuntimeException ex) {
+            return toUploadError(file.getOriginalFilename(), ex);
+        }
+    }
+
+    @PostMapping(value = "/ingest/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Stream VAN CSV file", description = "Ingests the raw request body as a VAN CSV file named by the filename parameter, streaming it straight into processing, and returns its outcome and import run id")
+    public ResponseEntity<?> stream(@RequestParam("filename") String filename, InputStream body) {
+        try {
+            return toUploadResponse(ingestionJobService.upload(vanIngestionService, filename, body));
+        } catch (RuntimeException ex) {
+            return toUploadError(filename, ex);
+        }
+    }
+
+    @GetMapping("/ingest/jobs/{jobId}")
+    @Operation(summary = "Get VAN ingestion job status", description = "Returns the job status with per-file progress, record counts and the first import errors of each file")
+    public ResponseEntity<IngestionJobResponse> getJob(@PathVariable String jobId) {
+        return ingestionJobService.getJob(vanIngestionService.getFeedName(), jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/ingest/runs/{importRunId}/file")
+    @Operation(summary = "Download archived VAN file", description = "Streams the original file of an import run from the archive, decompressed")
+    public ResponseEntity<InputStreamResource> getArchivedFile(@PathVariable Long importRunId) {
+        return vanIngestionService.findArchivedRun(importRunId)
+                .map(run -> ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(run.getFilename()).build().toString())
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(new InputStreamResource(vanIngestionService.openArchivedFile(run))))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 200 for an imported (or already imported) file, 422 when the import failed.
+     */
+    private ResponseEntity<?> toUploadResponse(IngestionJobFileResponse response) {
+        if (IngestionJob.FileState.FAILED.name().equals(response.getState())) {
+            return ResponseEntity.unprocessableEntity().body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<?> toUploadError(String filename, RuntimeException ex) {
+        if (ex instanceof MemoryBudget.BudgetExhaustedException busy) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(busy.getRetryAfterSeconds()))
+                    .body(Map.of("error", ex.getMessage()));
+        }
+        if (ex instanceof BaseIngestionService.UploadTooLargeException) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", ex.getMessage()));
+        }
+        if (ex instanceof BaseIngestionService.UploadInProgressException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", ex.getMessage()));
+        }
+        if (ex instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage()));
+        }
+        log.error("Failed to ingest uploaded VAN file {}", filename, ex);
+        return ResponseEntity.internalServerError().body(Map.of("error", "Unable to ingest the uploaded file right now"));
     }
 }
@@ -0,0 +1,91 @@
+package com.example.paymentreconciliation.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Leases on ingestion files, one row per (feed, file name) currently owned by a node.
+ *
+ * A claim inserts the row, or takes it over when the current lease has expired; the
+ * conflict check and the takeover are one statement, so two nodes racing for the same
+ * file cannot both win. Expiry is judged by the database clock, not the nodes'.
+ */
+@Repository
+public class FileLeaseDao {
+
+    private static final String CLAIM_SQL = """
+            INSERT INTO reconciliation.ingestion_file_lease AS l
+                   (feed, file_name, owner_id, claimed_at, lease_expires_at)
+            VALUES (:feed, :fileName, :ownerId, now(), now() + make_interval(secs => :leaseSeconds))
+            ON CONFLICT (feed, file_name) DO UPDATE
+               SET owner_id = EXCLUDED.owner_id,
+                   claimed_at = EXCLUDED.claimed_at,
+                   lease_expires_at = EXCLUDED.lease_expires_at
+             WHERE l.lease_expires_at < now()
+            RETURNING l.owner_id
+            """;
+
+    private static final String RENEW_SQL = """
+            UPDATE reconciliation.ingestion_file_lease
+               SET lease_expires_at = now() + make_interval(secs => :leaseSeconds)
+             WHERE feed = :feed
+               AND owner_id = :ownerId
+               AND file_name IN (:fileNames)
+            """;
+
+    private static final String RELEASE_SQL = """
+            DELETE FROM reconciliation.ingestion_file_lease
+             WHERE feed = :feed
+               AND file_name = :fileName
+               AND owner_id = :ownerId
+            """;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public FileLeaseDao(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    /**
+     * @return true if this owner now holds the lease; false if another owner's lease is still live
+     */
+    public boolean claim(String feed, String fileName, String ownerId, int leaseSeconds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("feed", feed)
+                .addValue("fileName", fileName)
+                .addValue("ownerId", ownerId)
+                .addValue("leaseSeconds", leaseSeconds);
+        List<String> owners = namedParameterJdbcTemplate.queryForList(CLAIM_SQL, params, String.class);
+        return !owners.isEmpty();
+    }
+
+    /**
+     * Extend this owner's leases on the given files of the feed; leases on any other file are
+     * left to expire.
+     *
+     * @return number of leases renewed
+     */
+    public int renew(String feed, String ownerId, Collection<String> fileNames, int leaseSeconds) {
+        if (fileNames.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("feed", feed)
+                .addValue("ownerId", ownerId)
+                .addValue("fileNames", fileNames)
+                .addValue("leaseSeconds", leaseSeconds);
+        return namedParameterJdbcTemplate.update(RENEW_SQL, params);
+    }
+
+    public void release(String feed, String fileName, String ownerId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("feed", feed)
+                .addValue("fileName", fileName)
+                .addValue("ownerId", ownerId);
+        namedParameterJdbcTemplate.update(RELEASE_SQL, params);
+    }
+}
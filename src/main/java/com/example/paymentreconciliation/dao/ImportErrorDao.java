@@ -0,0 +1,80 @@
+package com.example.paymentreconciliation.dao;
+
+import java.sql.Types;
+import java.util.List;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC-batched inserts into import_error, for the error volumes of badly formatted files.
+ * Runs in the caller's transaction when there is one.
+ */
+@Repository
+public class ImportErrorDao {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO reconciliation.import_error (import_run_id, line_no, code, message, created_at)
+            VALUES (:importRunId, :lineNo, :code, :message, now())
+            """;
+
+    private static final String COUNT_BY_RUN_SQL = """
+            SELECT count(*)
+              FROM reconciliation.import_error
+             WHERE import_run_id = :importRunId
+            """;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public ImportErrorDao(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    public void insertBatch(Long importRunId, List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = new SqlParameterSource[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("importRunId", importRunId, Types.BIGINT)
+                    .addValue("lineNo", row.lineNo, Types.INTEGER)
+                    .addValue("code", row.code, Types.VARCHAR)
+                    .addValue("message", row.message, Types.VARCHAR);
+        }
+        namedParameterJdbcTemplate.batchUpdate(INSERT_SQL, batch);
+    }
+
+    public long countByRun(Long importRunId) {
+        Long count = namedParameterJdbcTemplate.queryForObject(COUNT_BY_RUN_SQL,
+                new MapSqlParameterSource("importRunId", importRunId), Long.class);
+        return count != null ? count : 0;
+    }
+
+    public static class Row {
+        final String code;
+        final String message;
+        final Integer lineNo;
+
+        public Row(String code, String message, Integer lineNo) {
+            this.code = code;
+            this.message = message;
+            this.lineNo = lineNo;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Integer getLineNo() {
+            return lineNo;
+        }
+    }
+}
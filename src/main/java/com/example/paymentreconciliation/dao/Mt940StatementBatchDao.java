@@ -0,0 +1,305 @@
+package com.example.paymentreconciliation.dao;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import com.example.paymentreconciliation.entity.RawStatementLine;
+import com.example.paymentreconciliation.entity.StatementBalance;
+import com.example.paymentreconciliation.entity.StatementTransaction;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Bulk writer for the MT940 statement graph.
+ *
+ * The entities use IDENTITY ids, so Hibernate inserts them one row per round trip.
+ * Here transactions go out as multi-row INSERT ... RETURNING (ids are matched back by
+ * statement_file_id + line_no), and leaf tables go through JDBC batches, which the
+ * driver rewrites into multi-row inserts when reWriteBatchedInserts is on.
+ */
+@Repository
+public class Mt940StatementBatchDao {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(Mt940StatementBatchDao.class);
+
+    private static final String INSERT_BALANCE_SQL = """
+            INSERT INTO reconciliation.statement_balance
+                   (statement_file_id, bal_type, dc, bal_date, currency, amount)
+            VALUES (:statementFileId, :balType, :dc, :balDate, :currency, :amount)
+            """;
+
+    private static final String INSERT_RAW_LINE_SQL = """
+            INSERT INTO reconciliation.raw_statement_line
+                   (statement_file_id, line_no, tag, raw_text)
+            VALUES (:statementFileId, :lineNo, :tag, :rawText)
+            """;
+
+    private static final String INSERT_TRANSACTION_PREFIX = """
+            INSERT INTO reconciliation.statement_transaction
+                   (statement_file_id, line_no, value_date, entry_date, dc, amount, signed_amount, currency,
+                    txn_type_code, bank_reference, customer_reference, entry_reference, narrative,
+                    narrative_tokens, ext_idempotency_hash, intraday_key, intraday_base_key, created_at)
+            VALUES
+            """;
+
+    private static final String INSERT_TRANSACTION_SUFFIX = " RETURNING id, statement_file_id, line_no";
+
+    private static final String SKIP_DUPLICATES_CLAUSE = " ON CONFLICT (ext_idempotency_hash) DO NOTHING";
+
+    private static final String LOCK_INTRADAY_ACCOUNT_SQL = """
+            SELECT pg_advisory_xact_lock(hashtext('intraday:' || :accountNo))
+            """;
+
+    // Rows still carrying their intraday key as ext_idempotency_hash came from a report; the others from a final statement
+    private static final String COUNT_INTRADAY_ROWS_SQL = """
+            SELECT intraday_base_key,
+                   count(*) AS stored_rows,
+                   count(*) FILTER (WHERE ext_idempotency_hash <> intraday_key) AS final_rows
+              FROM reconciliation.statement_transaction
+             WHERE intraday_base_key IN (:baseKeys)
+             GROUP BY intraday_base_key
+            """;
+
+    // An intraday row still carries its intraday key as ext_idempotency_hash; promotion gives it the final one
+    private static final String PROMOTE_INTRADAY_PREFIX = """
+            UPDATE reconciliation.statement_transaction t
+               SET statement_file_id = v.statement_file_id,
+                   line_no = v.line_no,
+                   ext_idempotency_hash = v.ext_idempotency_hash,
+                   entry_date = v.entry_date,
+                   txn_type_code = v.txn_type_code,
+                   entry_reference = v.entry_reference,
+                   narrative = v.narrative,
+                   narrative_tokens = CAST(v.narrative_tokens AS jsonb)
+              FROM (VALUES
+            """;
+
+    private static final String PROMOTE_INTRADAY_SUFFIX = """
+            ) AS v(intraday_key, statement_file_id, line_no, ext_idempotency_hash, entry_date, txn_type_code,
+                   entry_reference, narrative, narrative_tokens)
+             WHERE t.intraday_key = v.intraday_key
+               AND t.ext_idempotency_hash = t.intraday_key
+            RETURNING t.id, v.intraday_key
+            """;
+
+    // 18 bind parameters per row; keeps a single statement well under PostgreSQL's 32767 limit
+    private static final int MAX_TRANSACTION_ROWS_PER_INSERT = 1000;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public Mt940StatementBatchDao(NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+    }
+
+    public void insertBalances(List<StatementBalance> balances, int batchSize) {
+        for (int from = 0; from < balances.size(); from += batchSize) {
+            List<StatementBalance> chunk = balances.subList(from, Math.min(from + batchSize, balances.size()));
+            SqlParameterSource[] batch = new SqlParameterSource[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                StatementBalance b = chunk.get(i);
+                batch[i] = new MapSqlParameterSource()
+                        .addValue("statementFileId", b.getStatementFile().getId(), Types.BIGINT)
+                        .addValue("balType", b.getBalType(), Types.VARCHAR)
+                        .addValue("dc", b.getDc(), Types.VARCHAR)
+                        .addValue("balDate", b.getBalDate(), Types.DATE)
+                        .addValue("currency", b.getCurrency(), Types.VARCHAR)
+                        .addValue("amount", b.getAmount(), Types.NUMERIC);
+            }
+            namedParameterJdbcTemplate.batchUpdate(INSERT_BALANCE_SQL, batch);
+        }
+    }
+
+    /**
+     * Insert transactions in multi-row statements and assign the generated ids back onto the entities.
+     *
+     * With skipDuplicates, rows whose ext_idempotency_hash already exists are left out
+     * (their entities keep a null id) instead of failing the statement.
+     *
+     * @return number of rows actually inserted
+     */
+    public int insertTransactions(List<StatementTransaction> transactions, int batchSize, boolean skipDuplicates) {
+        int inserted = 0;
+        batchSize = Math.max(1, Math.min(batchSize, MAX_TRANSACTION_ROWS_PER_INSERT));
+        for (int from = 0; from < transactions.size(); from += batchSize) {
+            List<StatementTransaction> chunk = transactions.subList(from, Math.min(from + batchSize, transactions.size()));
+            StringBuilder sql = new StringBuilder(INSERT_TRANSACTION_PREFIX);
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            Map<String, StatementTransaction> byKey = new HashMap<>(chunk.size() * 2);
+            for (int i = 0; i < chunk.size(); i++) {
+                StatementTransaction t = chunk.get(i);
+                Long statementFileId = t.getStatementFile().getId();
+                if (i > 0) {
+                    sql.append(",\n");
+                }
+                sql.append("(:sf").append(i).append(", :ln").append(i).append(", :vd").append(i)
+                        .append(", :ed").append(i).append(", :dc").append(i).append(", :am").append(i)
+                        .append(", :sa").append(i).append(", :cu").append(i).append(", :tt").append(i)
+                        .append(", :br").append(i).append(", :cr").append(i).append(", :er").append(i)
+                        .append(", :na").append(i).append(", CAST(:nt").append(i).append(" AS jsonb)")
+                        .append(", :eh").append(i).append(", :ik").append(i).append(", :ib").append(i)
+                        .append(", :ca").append(i).append(')');
+                params.addValue("sf" + i, statementFileId, Types.BIGINT)
+                        .addValue("ln" + i, t.getLineNo(), Types.INTEGER)
+                        .addValue("vd" + i, t.getValueDate(), Types.DATE)
+                        .addValue("ed" + i, t.getEntryDate(), Types.DATE)
+                        .addValue("dc" + i, t.getDc(), Types.VARCHAR)
+                        .addValue("am" + i, t.getAmount(), Types.NUMERIC)
+                        .addValue("sa" + i, t.getSignedAmount(), Types.NUMERIC)
+                        .addValue("cu" + i, t.getCurrency(), Types.VARCHAR)
+                        .addValue("tt" + i, t.getTxnTypeCode(), Types.VARCHAR)
+                        .addValue("br" + i, t.getBankReference(), Types.VARCHAR)
+                        .addValue("cr" + i, t.getCustomerReference(), Types.VARCHAR)
+                        .addValue("er" + i, t.getEntryReference(), Types.VARCHAR)
+                        .addValue("na" + i, t.getNarrative(), Types.VARCHAR)
+                        .addValue("nt" + i, t.getNarrativeTokens(), Types.VARCHAR)
+                        .addValue("eh" + i, t.getExtIdempotencyHash(), Types.VARCHAR)
+                        .addValue("ik" + i, t.getIntradayKey(), Types.VARCHAR)
+                        .addValue("ib" + i, t.getIntradayBaseKey(), Types.VARCHAR)
+                        .addValue("ca" + i, t.getCreatedAt(), Types.TIMESTAMP);
+                byKey.put(statementFileId + ":" + t.getLineNo(), t);
+            }
+            if (skipDuplicates) {
+                sql.append(SKIP_DUPLICATES_CLAUSE);
+            }
+            sql.append(INSERT_TRANSACTION_SUFFIX);
+            int[] chunkInserted = {0};
+            namedParameterJdbcTemplate.query(sql.toString(), params, rs -> {
+                chunkInserted[0]++;
+                StatementTransaction t = byKey.get(rs.getLong("statement_file_id") + ":" + rs.getInt("line_no"));
+                if (t != null) {
+                    t.setId(rs.getLong("id"));
+                }
+            });
+            inserted += chunkInserted[0];
+            log.debug("Inserted {} of {} statement transactions in one statement", chunkInserted[0], chunk.size());
+        }
+        return inserted;
+    }
+
+    /**
+     * Serialize intraday numbering of one account until the current transaction ends, so two
+     * reports (or a report and the final statement) of the account do not number the same
+     * entries concurrently. Must be called inside the statement's transaction.
+     */
+    public void lockIntradayAccount(String accountNo) {
+        namedParameterJdbcTemplate.query(LOCK_INTRADAY_ACCOUNT_SQL,
+                new MapSqlParameterSource("accountNo", accountNo != null ? accountNo.trim() : ""), rs -> { });
+    }
+
+    /**
+     * @return stored rows per intraday base key, for those of the given keys that have any
+     */
+    public Map<String, IntradayRows> countIntradayRows(Collection<String> baseKeys) {
+        Map<String, IntradayRows> counts = new HashMap<>();
+        List<String> all = new ArrayList<>(baseKeys);
+        for (int from = 0; from < all.size(); from += MAX_TRANSACTION_ROWS_PER_INSERT) {
+            List<String> chunk = all.subList(from, Math.min(from + MAX_TRANSACTION_ROWS_PER_INSERT, all.size()));
+            namedParameterJdbcTemplate.query(COUNT_INTRADAY_ROWS_SQL, new MapSqlParameterSource("baseKeys", chunk),
+                    rs -> {
+                        counts.put(rs.getString("intraday_base_key"),
+                                new IntradayRows(rs.getInt("stored_rows"), rs.getInt("final_rows")));
+                    });
+        }
+        return counts;
+    }
+
+    /**
+     * Move intraday (MT942) rows into the final statement: each row whose intraday key
+     * matches one of the given transactions takes that transaction's statement file, line
+     * and idempotency hash, keeping its id so matches already made against it stand.
+     * Promoted entities get the row's id; the others keep a null id and still need inserting.
+     *
+     * Reports number each entry against the rows already stored for the account and day, so
+     * the n-th stored copy of an entry has the same key as the n-th copy in the final
+     * statement, however many reports the copies arrived in.
+     *
+     * @return number of rows promoted
+     */
+    public int promoteIntradayTransactions(List<StatementTransaction> transactions, int batchSize) {
+        int promoted = 0;
+        batchSize = Math.max(1, Math.min(batchSize, MAX_TRANSACTION_ROWS_PER_INSERT));
+        for (int from = 0; from < transactions.size(); from += batchSize) {
+            List<StatementTransaction> chunk = transactions.subList(from, Math.min(from + batchSize, transactions.size()));
+            StringBuilder sql = new StringBuilder(PROMOTE_INTRADAY_PREFIX);
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            Map<String, StatementTransaction> byKey = new HashMap<>(chunk.size() * 2);
+            for (int i = 0; i < chunk.size(); i++) {
+                StatementTransaction t = chunk.get(i);
+                if (i > 0) {
+                    sql.append(",\n");
+                }
+                sql.append("(:ik").append(i).append(", CAST(:sf").append(i).append(" AS bigint)")
+                        .append(", CAST(:ln").append(i).append(" AS integer), :eh").append(i)
+                        .append(", CAST(:ed").append(i).append(" AS date), :tt").append(i)
+                        .append(", :er").append(i).append(", :na").append(i).append(", :nt").append(i).append(')');
+                params.addValue("ik" + i, t.getIntradayKey(), Types.VARCHAR)
+                        .addValue("sf" + i, t.getStatementFile().getId(), Types.BIGINT)
+                        .addValue("ln" + i, t.getLineNo(), Types.INTEGER)
+                        .addValue("eh" + i, t.getExtIdempotencyHash(), Types.VARCHAR)
+                        .addValue("ed" + i, t.getEntryDate(), Types.DATE)
+                        .addValue("tt" + i, t.getTxnTypeCode(), Types.VARCHAR)
+                        .addValue("er" + i, t.getEntryReference(), Types.VARCHAR)
+                        .addValue("na" + i, t.getNarrative(), Types.VARCHAR)
+                        .addValue("nt" + i, t.getNarrativeTokens(), Types.VARCHAR);
+                byKey.put(t.getIntradayKey(), t);
+            }
+            sql.append(PROMOTE_INTRADAY_SUFFIX);
+            int[] chunkPromoted = {0};
+            namedParameterJdbcTemplate.query(sql.toString(), params, rs -> {
+                chunkPromoted[0]++;
+                StatementTransaction t = byKey.get(rs.getString("intraday_key"));
+                if (t != null) {
+                    t.setId(rs.getLong("id"));
+                }
+            });
+            promoted += chunkPromoted[0];
+        }
+        return promoted;
+    }
+
+    /**
+     * Rows of one intraday base key: all of them, and those a final statement wrote or promoted.
+     */
+    public static final class IntradayRows {
+        final int stored;
+        final int finalRows;
+
+        public IntradayRows(int stored, int finalRows) {
+            this.stored = stored;
+            this.finalRows = finalRows;
+        }
+
+        public int getStored() {
+            return stored;
+        }
+
+        public int getFinalRows() {
+            return finalRows;
+        }
+    }
+
+    public void insertRawLines(List<RawStatementLine> rawLines, int batchSize) {
+        for (int from = 0; from < rawLines.size(); from += batchSize) {
+            List<RawStatementLine> chunk = rawLines.subList(from, Math.min(from + batchSize, rawLines.size()));
+            SqlParameterSource[] batch = new SqlParameterSource[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                RawStatementLine r = chunk.get(i);
+                batch[i] = new MapSqlParameterSource()
+                        .addValue("statementFileId", r.getStatementFile().getId(), Types.BIGINT)
+                        .addValue("lineNo", r.getLineNo(), Types.INTEGER)
+                        .addValue("tag", r.getTag(), Types.VARCHAR)
+                        .addValue("rawText", r.getRawText(), Types.VARCHAR);
+            }
+            namedParameterJdbcTemplate.batchUpdate(INSERT_RAW_LINE_SQL, batch);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.paymentreconciliation.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.paymentreconciliation.common.sql.SqlTemplateLoader;
+import com.example.paymentreconciliation.service.VANParser;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Bulk loader for VAN files: rows are streamed as-is through COPY into an unlogged
+ * staging table, then validated and moved into van_transaction (valid rows) and
+ * import_error (invalid rows) by a single set-based statement. Only the first errorLimit
+ * invalid rows are written to import_error, so the COPY load keeps the per-run error limit
+ * of ImportErrorSink.
+ *
+ * Must run inside a transaction so the COPY, the merge and the staging cleanup share
+ * one connection and either all commit or none do. The staging table is part of the
+ * schema (sql/reconciliation/ddl/van_transaction_stage.sql), not created at runtime.
+ */
+@Repository
+public class VanCopyLoader {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(VanCopyLoader.class);
+    private static final String MERGE_TEMPLATE = "sql/reconciliation/van_stage_merge.sql";
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+
+    // Column order must match VANParser.COLUMNS
+    private static final String COPY_SQL = """
+            COPY reconciliation.van_transaction_stage
+                 (import_run_id, line_no, main_account_number, virtual_account_number, transaction_reference_number,
+                  bank_reference_trace_id, remitter_name, remitter_account_number, remitter_ifsc_bank_name,
+                  remitter_vpa, transaction_date, value_date, amount, mode_channel, payment_description_narration,
+                  payment_status, mapped_customer_id_code, invoice_reference_id, date_time_of_credit, branch_bank_code)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    private static final String DELETE_STAGE_SQL =
+            "DELETE FROM reconciliation.van_transaction_stage WHERE import_run_id = :importRunId";
+
+    private final DataSource dataSource;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final SqlTemplateLoader sqlTemplates;
+
+    public VanCopyLoader(DataSource dataSource, NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+            SqlTemplateLoader sqlTemplates) {
+        this.dataSource = dataSource;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.sqlTemplates = sqlTemplates;
+    }
+
+    public static class LoadResult {
+        private final long staged;
+        private final long inserted;
+        private final long failed;
+        private final long storedErrors;
+
+        LoadResult(long staged, long inserted, long failed, long storedErrors) {
+            this.staged = staged;
+            this.inserted = inserted;
+            this.failed = failed;
+            this.storedErrors = storedErrors;
+        }
+
+        public long getStaged() { return staged; }
+        public long getInserted() { return inserted; }
+        public long getFailed() { return failed; }
+        public long getStoredErrors() { return storedErrors; }
+    }
+
+    /**
+     * @param errorLimit import_error rows to store at most, in line order; the other
+     *                   rejected rows are only counted in {@link LoadResult#getFailed}
+     */
+    public LoadResult load(File csvFile, long importRunId, int errorLimit) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("VAN COPY load must run inside a transaction");
+        }
+        long staged = copyToStage(csvFile, importRunId);
+
+        Map<String, Object> params = Map.of("importRunId", importRunId, "errorLimit", Math.max(0, errorLimit));
+        LoadResult result = namedParameterJdbcTemplate.queryForObject(sqlTemplates.load(MERGE_TEMPLATE), params,
+                (rs, rowNum) -> new LoadResult(staged, rs.getLong("inserted_count"), rs.getLong("failed_count"),
+                        rs.getLong("stored_error_count")));
+        namedParameterJdbcTemplate.update(DELETE_STAGE_SQL, params);
+        log.info("COPY-loaded VAN file {}: staged={}, inserted={}, failed={}",
+                csvFile.getName(), staged, result.getInserted(), result.getFailed());
+        return result;
+    }
+
+    private long copyToStage(File csvFile, long importRunId) {
+        // Transaction-bound connection: released by the transaction manager, not here
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        CopyIn copyIn = null;
+        try {
+            copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            CopyIn target = copyIn;
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+            String runId = Long.toString(importRunId);
+            new VANParser().parseRaw(csvFile, (lineNo, values) -> {
+                buffer.append(runId).append(',').append(lineNo);
+                for (String value : values) {
+                    buffer.append(',');
+                    appendCsv(buffer, value);
+                }
+                buffer.append('\n');
+                if (buffer.length() >= COPY_BUFFER_CHARS) {
+                    flush(target, buffer);
+                }
+            });
+            flush(copyIn, buffer);
+            return copyIn.endCopy();
+        } catch (VANParser.VANParseException e) {
+            cancelQuietly(copyIn);
+            throw new RuntimeException("VAN parse error: " + e.getMessage(), e);
+        } catch (SQLException | IOException e) {
+            cancelQuietly(copyIn);
+            throw new RuntimeException("Failed to COPY VAN file into staging: " + csvFile.getName(), e);
+        }
+    }
+
+    private static void flush(CopyIn copyIn, StringBuilder buffer) throws IOException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+        } catch (SQLException e) {
+            throw new IOException("COPY write failed", e);
+        }
+        buffer.setLength(0);
+    }
+
+    /**
+     * Quote every non-null value so delimiters, quotes and newlines survive; null stays an
+     * unquoted empty field, which COPY csv reads as NULL.
+     */
+    private static void appendCsv(StringBuilder buffer, String value) {
+        if (value == null) {
+            return;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+
+    private static void cancelQuietly(CopyIn copyIn) {
+        if (copyIn != null && copyIn.isActive()) {
+            try {
+                copyIn.cancelCopy();
+            } catch (SQLException e) {
+                log.debug("Failed to cancel COPY", e);
+            }
+        }
+    }
+}
@@ -34,6 +34,9 @@ public class ImportRun {
     @Column(name = "failed_records")
     private Integer failedRecords;
 
+    @Column(name = "duplicate_records")
+    private Integer duplicateRecords;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false, length = 16)
     private Status status;
@@ -41,6 +44,14 @@ public class ImportRun {
     @Column(name = "error_message")
     private String errorMessage;
 
+    // Items (statements or rows) fully committed; an interrupted run resumes from here
+    @Column(name = "checkpoint_offset")
+    private Long checkpointOffset;
+
+    // Location in the content-addressed archive, relative to the feed's archive directory
+    @Column(name = "archive_path", length = 128)
+    private String archivePath;
+
     public enum Status {
         NEW, PARSED, PARTIAL, FAILED, IMPORTED, DUPLICATE
     }
@@ -132,4 +143,28 @@ public class ImportRun {
     public void setErrorMessage(String errorMessage) {
         this.errorMessage = errorMessage;
     }
+
+    public Integer getDuplicateRecords() {
+        return duplicateRecords;
+    }
+
+    public void setDuplicateRecords(Integer duplicateRecords) {
+        this.duplicateRecords = duplicateRecords;
+    }
+
+    public Long getCheckpointOffset() {
+        return checkpointOffset;
+    }
+
+    public void setCheckpointOffset(Long checkpointOffset) {
+        this.checkpointOffset = checkpointOffset;
+    }
+
+    public String getArchivePath() {
+        return archivePath;
+    }
+
+    public void setArchivePath(String archivePath) {
+        this.archivePath = archivePath;
+    }
 }
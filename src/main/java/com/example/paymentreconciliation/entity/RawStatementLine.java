@@ -16,6 +16,21 @@ public class RawStatementLine {
     private String tag;
     @Column(name = "raw_text", nullable = false)
     private String rawText;
+    public Long getId() {
+        return id;
+    }
+    public StatementFile getStatementFile() {
+        return statementFile;
+    }
+    public Integer getLineNo() {
+        return lineNo;
+    }
+    public String getTag() {
+        return tag;
+    }
+    public String getRawText() {
+        return rawText;
+    }
     public void setStatementFile(StatementFile statementFile) {
         this.statementFile = statementFile;
     }
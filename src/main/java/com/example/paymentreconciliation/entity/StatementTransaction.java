@@ -63,6 +63,12 @@ public class StatementTransaction {
     @Column(name = "ext_idempotency_hash", nullable = false, length = 64)
     private String extIdempotencyHash;
 
+    @Column(name = "intraday_key", length = 64)
+    private String intradayKey;
+
+    @Column(name = "intraday_base_key", length = 64)
+    private String intradayBaseKey;
+
     public Long getId() {
         return id;
     }
@@ -191,6 +197,22 @@ public class StatementTransaction {
         this.extIdempotencyHash = extIdempotencyHash;
     }
 
+    public String getIntradayKey() {
+        return intradayKey;
+    }
+
+    public void setIntradayKey(String intradayKey) {
+        this.intradayKey = intradayKey;
+    }
+
+    public String getIntradayBaseKey() {
+        return intradayBaseKey;
+    }
+
+    public void setIntradayBaseKey(String intradayBaseKey) {
+        this.intradayBaseKey = intradayBaseKey;
+    }
+
     public java.time.LocalDateTime getCreatedAt() {
         return createdAt;
     }
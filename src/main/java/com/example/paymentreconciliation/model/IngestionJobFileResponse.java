@@ -0,0 +1,105 @@
+package com.example.paymentreconciliation.model;
+
+import java.util.List;
+
+public class IngestionJobFileResponse {
+    private String filename;
+    private String processingFilename;
+    private String state;
+    private Long importRunId;
+    private String importStatus;
+    private Integer totalRecords;
+    private Integer processedRecords;
+    private Integer failedRecords;
+    private Integer duplicateRecords;
+    private String errorMessage;
+    private List<String> errors;
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getProcessingFilename() {
+        return processingFilename;
+    }
+
+    public void setProcessingFilename(String processingFilename) {
+        this.processingFilename = processingFilename;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public Long getImportRunId() {
+        return importRunId;
+    }
+
+    public void setImportRunId(Long importRunId) {
+        this.importRunId = importRunId;
+    }
+
+    public String getImportStatus() {
+        return importStatus;
+    }
+
+    public void setImportStatus(String importStatus) {
+        this.importStatus = importStatus;
+    }
+
+    public Integer getTotalRecords() {
+        return totalRecords;
+    }
+
+    public void setTotalRecords(Integer totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+
+    public Integer getProcessedRecords() {
+        return processedRecords;
+    }
+
+    public void setProcessedRecords(Integer processedRecords) {
+        this.processedRecords = processedRecords;
+    }
+
+    public Integer getFailedRecords() {
+        return failedRecords;
+    }
+
+    public void setFailedRecords(Integer failedRecords) {
+        this.failedRecords = failedRecords;
+    }
+
+    public Integer getDuplicateRecords() {
+        return duplicateRecords;
+    }
+
+    public void setDuplicateRecords(Integer duplicateRecords) {
+        this.duplicateRecords = duplicateRecords;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.paymentreconciliation.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class IngestionJobResponse {
+    private String jobId;
+    private String feed;
+    private String status;
+    private boolean coalesced;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Integer polls;
+    private String errorMessage;
+    private Integer filesQueued;
+    private Integer filesProcessing;
+    private Integer filesSucceeded;
+    private Integer filesFailed;
+    private Integer filesSkipped;
+    private List<IngestionJobFileResponse> files;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getFeed() {
+        return feed;
+    }
+
+    public void setFeed(String feed) {
+        this.feed = feed;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isCoalesced() {
+        return coalesced;
+    }
+
+    public void setCoalesced(boolean coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(LocalDateTime submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public Integer getPolls() {
+        return polls;
+    }
+
+    public void setPolls(Integer polls) {
+        this.polls = polls;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public Integer getFilesQueued() {
+        return filesQueued;
+    }
+
+    public void setFilesQueued(Integer filesQueued) {
+        this.filesQueued = filesQueued;
+    }
+
+    public Integer getFilesProcessing() {
+        return filesProcessing;
+    }
+
+    public void setFilesProcessing(Integer filesProcessing) {
+        this.filesProcessing = filesProcessing;
+    }
+
+    public Integer getFilesSucceeded() {
+        return filesSucceeded;
+    }
+
+    public void setFilesSucceeded(Integer filesSucceeded) {
+        this.filesSucceeded = filesSucceeded;
+    }
+
+    public Integer getFilesFailed() {
+        return filesFailed;
+    }
+
+    public void setFilesFailed(Integer filesFailed) {
+        this.filesFailed = filesFailed;
+    }
+
+    public Integer getFilesSkipped() {
+        return filesSkipped;
+    }
+
+    public void setFilesSkipped(Integer filesSkipped) {
+        this.filesSkipped = filesSkipped;
+    }
+
+    public List<IngestionJobFileResponse> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<IngestionJobFileResponse> files) {
+        this.files = files;
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.paymentreconciliation.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.example.paymentreconciliation.entity.ImportError;
 
 public interface ImportErrorRepository extends JpaRepository<ImportError, Long> {
+
+    List<ImportError> findTop20ByImportRun_IdOrderByIdAsc(Long importRunId);
 }
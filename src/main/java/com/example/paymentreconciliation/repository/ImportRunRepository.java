@@ -1,6 +1,10 @@
 package com.example.paymentreconciliation.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.paymentreconciliation.entity.ImportRun;
 
@@ -11,4 +15,23 @@ import org.springframework.data.domain.Pageable;
 public interface ImportRunRepository extends JpaRepository<ImportRun, Long> {
     Optional<ImportRun> findByFileHash(String fileHash);
     List<ImportRun> findByFileTypeOrderByIdDesc(String fileType, Pageable pageable);
+
+    /**
+     * Record ingestion progress in the caller's transaction; a stale (lower) checkpoint never overwrites a newer one.
+     */
+    @Modifying
+    @Query("update ImportRun r set r.checkpointOffset = :checkpoint, r.totalRecords = :total, r.processedRecords = :processed, "
+            + "r.failedRecords = :failed, r.duplicateRecords = :duplicates "
+            + "where r.id = :id and (r.checkpointOffset is null or r.checkpointOffset <= :checkpoint)")
+    int updateProgress(@Param("id") Long id, @Param("checkpoint") Long checkpoint, @Param("total") Integer total,
+                       @Param("processed") Integer processed, @Param("failed") Integer failed,
+                       @Param("duplicates") Integer duplicates);
+
+    /**
+     * Runs in its own transaction when called outside one (archiving happens after the import commits).
+     */
+    @Transactional
+    @Modifying
+    @Query("update ImportRun r set r.archivePath = :archivePath where r.id = :id")
+    int updateArchivePath(@Param("id") Long id, @Param("archivePath") String archivePath);
 }
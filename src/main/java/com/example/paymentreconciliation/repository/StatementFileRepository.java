@@ -2,7 +2,11 @@ package com.example.paymentreconciliation.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import com.example.paymentreconciliation.entity.BankAccount;
 import com.example.paymentreconciliation.entity.StatementFile;
 
+import java.util.Optional;
+
 public interface StatementFileRepository extends JpaRepository<StatementFile, Long> {
+    Optional<StatementFile> findByBankAccountAndStmtRef20AndSeq28c(BankAccount bankAccount, String stmtRef20, String seq28c);
 }
@@ -1,8 +1,23 @@
 package com.example.paymentreconciliation.repository;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.paymentreconciliation.entity.StatementTransaction;
 
 public interface StatementTransactionRepository extends JpaRepository<StatementTransaction, Long> {
+
+    /**
+     * Transactions whose :86: narrative carried the given UTR/RRN (tokens are stored upper-case); the containment
+     * predicate is served by the GIN index on narrative_tokens.
+     */
+    @Query(value = """
+            SELECT *
+              FROM reconciliation.statement_transaction
+             WHERE narrative_tokens @> jsonb_build_object('utr', upper(CAST(:utr AS text)))
+            """, nativeQuery = true)
+    List<StatementTransaction> findByNarrativeUtr(@Param("utr") String utr);
 }
@@ -0,0 +1,117 @@
+package com.example.paymentreconciliation.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.paymentreconciliation.entity.BankAccount;
+import com.example.paymentreconciliation.repository.BankAccountRepository;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-process directory of bank accounts keyed by (accountNo, currency).
+ *
+ * Preloaded at startup so statement ingestion does not query bank_account per statement.
+ * Misses are resolved under a per-key lock, and creation goes through an
+ * INSERT ... ON CONFLICT DO NOTHING so concurrent imports (or other nodes) racing on
+ * uq_account converge on the same row instead of failing.
+ */
+@Service
+public class BankAccountDirectory {
+    private static final Logger log = LoggerFactoryProvider.getLogger(BankAccountDirectory.class);
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO reconciliation.bank_account (account_no, currency, is_active)
+            VALUES (:accountNo, :currency, TRUE)
+            ON CONFLICT (account_no, currency) DO NOTHING
+            """;
+
+    private final BankAccountRepository bankAccountRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Map<String, BankAccount> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Object> keyLocks = new ConcurrentHashMap<>();
+
+    public BankAccountDirectory(BankAccountRepository bankAccountRepository, NamedParameterJdbcTemplate jdbcTemplate) {
+        this.bankAccountRepository = bankAccountRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void preload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // Not fatal: accounts are loaded lazily on first use
+            log.warn("Failed to preload bank accounts; falling back to lazy lookups", e);
+        }
+    }
+
+    /**
+     * Replace the cache contents with the current bank_account table.
+     */
+    public void reload() {
+        List<BankAccount> all = bankAccountRepository.findAll();
+        accounts.clear();
+        for (BankAccount account : all) {
+            accounts.put(key(account.getAccountNo(), account.getCurrency()), account);
+        }
+        log.info("Loaded {} bank account(s) into the directory", all.size());
+    }
+
+    /**
+     * Return the account for (accountNo, currency), creating it if it does not exist yet.
+     */
+    public BankAccount findOrCreate(String accountNo, String currency) {
+        String key = key(accountNo, currency);
+        BankAccount cached = accounts.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Object lock = keyLocks.computeIfAbsent(key, k -> new Object());
+        synchronized (lock) {
+            cached = accounts.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            BankAccount account = bankAccountRepository.findByAccountNoAndCurrency(accountNo, currency)
+                    .orElseGet(() -> create(accountNo, currency));
+            accounts.put(key, account);
+            keyLocks.remove(key);
+            return account;
+        }
+    }
+
+    public void invalidate(String accountNo, String currency) {
+        accounts.remove(key(accountNo, currency));
+    }
+
+    public void invalidateAll() {
+        accounts.clear();
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    private BankAccount create(String accountNo, String currency) {
+        int inserted = jdbcTemplate.update(UPSERT_SQL, Map.of("accountNo", accountNo, "currency", currency));
+        if (inserted > 0) {
+            log.info("Created bank account accountNo={}, currency={}", accountNo, currency);
+        } else {
+            log.debug("Bank account accountNo={}, currency={} was created concurrently", accountNo, currency);
+        }
+        return bankAccountRepository.findByAccountNoAndCurrency(accountNo, currency)
+                .orElseThrow(() -> new IllegalStateException(
+                        "Bank account not found after upsert: " + accountNo + "/" + currency));
+    }
+
+    private static String key(String accountNo, String currency) {
+        return accountNo + '|' + currency;
+    }
+}
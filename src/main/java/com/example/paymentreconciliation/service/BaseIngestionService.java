@@ -1,16 +1,53 @@
 package com.example.paymentreconciliation.service;
 
-import com.shared.utilities.logger.LoggerFactoryProvider;
-import org.slf4j.Logger;
-
 import java.io.File;
-import java.util.List;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.time.LocalDate;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import com.example.paymentreconciliation.common.io.CappedInputStream;
+import com.example.paymentreconciliation.common.io.ContentAddressedArchive;
+import com.example.paymentreconciliation.common.io.FileDigests;
+import com.example.paymentreconciliation.common.memory.MemoryBudget;
+import com.example.paymentreconciliation.common.metrics.IngestionMetrics;
+import com.example.paymentreconciliation.common.pipeline.StagedPipeline;
+import com.example.paymentreconciliation.config.IngestionProperties;
+import com.example.paymentreconciliation.entity.ImportRun;
+import com.example.paymentreconciliation.repository.ImportRunRepository;
+import com.shared.utilities.logger.LoggerFactoryProvider;
 
 /**
  * Base Ingestion Service with common file processing logic.
@@ -18,59 +55,737 @@ import java.util.UUID;
 public abstract class BaseIngestionService {
     private static final Logger log = LoggerFactoryProvider.getLogger(BaseIngestionService.class);
 
-    protected static final long MAX_FILE_SIZE_BYTES = 50 * 1024 * 1024; // 50MB
-    protected static final int FILE_STABILITY_WINDOW_SEC = 10;
+    protected static final int WORKER_SHUTDOWN_TIMEOUT_SEC = 30;
+    private static final int SOURCE_HEADER_BYTES = 256;
+
+    /**
+     * Result of processing a single file.
+     */
+    public enum FileOutcome {
+        SUCCEEDED, FAILED, SKIPPED
+    }
+
+    /**
+     * Why a file was quarantined; used as a metric tag, so kept to a fixed set.
+     */
+    public enum QuarantineReason {
+        SIZE_LIMIT, IMPORT_FAILED, UNHANDLED_ERROR, RECOVERED_FAILED_RUN
+    }
+
+    /**
+     * Receives per-file progress of a poll, e.g. to back an asynchronous ingestion job.
+     * Called from worker threads.
+     */
+    public interface FileProgressListener {
+        void fileQueued(File file);
+
+        void fileClaimed(File file, File processingFile);
+
+        void importRunStarted(File file, Long importRunId);
+
+        void fileFinished(File file, FileOutcome outcome);
+    }
+
+    @Autowired
+    protected IngestionMetrics ingestionMetrics;
+
+    @Autowired
+    protected FileClaimService fileClaimService;
+
+    @Autowired
+    protected ImportRunRepository importRunRepository;
+
+    @Autowired
+    private MemoryBudget memoryBudget;
+
+    // Listener and original inbox file of the poll the current worker thread is processing for
+    private final ThreadLocal<FileProgressListener> currentListener = new ThreadLocal<>();
+    private final ThreadLocal<File> currentFile = new ThreadLocal<>();
+    // Name of the file whose lease the current worker thread holds, when claims are enabled
+    private final ThreadLocal<String> currentLease = new ThreadLocal<>();
+
+    // Files currently owned by a worker, so overlapping polls do not pick them up twice
+    private final Set<String> inFlightFiles = ConcurrentHashMap.newKeySet();
+    // Digests computed during cross-filesystem moves, keyed by processing path; consumed by computeSha256
+    private final Map<String, String> moveDigests = new ConcurrentHashMap<>();
+    private volatile IngestionScheduler scheduler;
+    private volatile ExecutorService stagePool;
+    private volatile InboxWatcher inboxWatcher;
 
     protected abstract String getInboxDir();
     protected abstract String getProcessingDir();
     protected abstract String getArchiveDir();
     protected abstract String getQuarantineDir();
     protected abstract String getFileExtension();
-    protected abstract void processFile(File file);
+
+    /**
+     * All extensions picked up from the inbox; defaults to {@link #getFileExtension()} only.
+     */
+    protected List<String> getFileExtensions() {
+        return List.of(getFileExtension());
+    }
+    protected abstract IngestionProperties getIngestionProperties();
+    protected abstract FileOutcome processFile(File file);
+
+    /**
+     * Feed name, as stored in import_run.file_type and used to tag metrics.
+     */
+    public abstract String getFeedName();
+
+    /**
+     * Finish a file found in the processing directory at startup: resume its import run
+     * from the last checkpoint, or start one if it never got that far.
+     */
+    protected abstract FileOutcome resumeFile(File processingFile);
+
+    /**
+     * Ingest a pushed file that was written straight into the processing directory.
+     */
+    protected abstract FileOutcome processUploadedFile(File processingFile);
 
     /**
      * Main entry point for polling and processing files.
+     * Discovered files are independent, so they are fanned out to the scheduler's lanes
+     * and this call returns once every file of this poll has been handled.
      */
-    public void pollAndProcessInbox() {
+    public PollSummary pollAndProcessInbox() {
+        return pollAndProcessInbox(null);
+    }
+
+    /**
+     * As {@link #pollAndProcessInbox()}, reporting each file's progress to the listener.
+     */
+    public PollSummary pollAndProcessInbox(FileProgressListener listener) {
         log.info("Polling inbox directory: {}", getInboxDir());
+        long started = System.nanoTime();
         List<File> files = discoverStableFiles(getInboxDir());
+        ingestionMetrics.recordStage(getFeedName(), IngestionMetrics.STAGE_DISCOVER, System.nanoTime() - started);
         log.info("Discovered {} stable file(s) for ingestion", files.size());
+        PollSummary summary = new PollSummary(files.size());
+        List<Future<FileOutcome>> futures = new ArrayList<>(files.size());
         for (File file : files) {
+            if (!inFlightFiles.add(file.getAbsolutePath())) {
+                log.debug("File is already being processed by another poll: {}", file.getAbsolutePath());
+                summary.record(FileOutcome.SKIPPED);
+                continue;
+            }
             try {
-                log.info("Processing file: {}", file.getAbsolutePath());
-                processFile(file);
-            } catch (Exception e) {
-                log.error("Error processing file: {}. Moving to quarantine. Error: {}", file.getAbsolutePath(), e.getMessage(), e);
-                moveToQuarantine(file, "Unhandled error: " + e.getMessage());
+                if (listener != null) {
+                    listener.fileQueued(file);
+                }
+                futures.add(schedule(file, () -> runIsolated(file, admitted(this::processFile), listener)));
+            } catch (RuntimeException e) {
+                inFlightFiles.remove(file.getAbsolutePath());
+                log.error("Unable to schedule file for processing: {}", file.getAbsolutePath(), e);
+                summary.record(FileOutcome.SKIPPED);
+                if (listener != null) {
+                    listener.fileFinished(file, FileOutcome.SKIPPED);
+                }
             }
         }
+        for (Future<FileOutcome> future : futures) {
+            try {
+                summary.record(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for ingestion workers; remaining files continue in background");
+                break;
+            } catch (ExecutionException e) {
+                log.error("Ingestion worker failed unexpectedly", e.getCause());
+                summary.record(FileOutcome.FAILED);
+            } catch (CancellationException e) {
+                // Still queued when the scheduler was shut down; the file stays where it is
+                summary.record(FileOutcome.SKIPPED);
+            }
+        }
+        log.info("Poll finished for {}: {}", getInboxDir(), summary);
+        return summary;
     }
 
     /**
-     * Discover files that are stable (not changing) for at least FILE_STABILITY_WINDOW_SEC.
+     * Run processFile (or resumeFile) for one file; any failure is contained to that file.
      */
-    protected List<File> discoverStableFiles(String inboxDir) {
-        log.debug("Discovering stable files in inbox: {}", inboxDir);
-        File dir = new File(inboxDir);
-        File[] files = dir.listFiles((d, name) -> name.endsWith(getFileExtension()));
-        if (files == null) {
-            log.debug("No files found in inbox directory: {}", inboxDir);
-            return List.of();
+    private FileOutcome runIsolated(File file, Function<File, FileOutcome> action, FileProgressListener listener) {
+        return runIsolated(file, action, listener, null);
+    }
+
+    /**
+     * @param heldLease lease on the file's name the caller already holds, or null to claim it here
+     */
+    private FileOutcome runIsolated(File file, Function<File, FileOutcome> action, FileProgressListener listener, String heldLease) {
+        FileOutcome outcome = FileOutcome.FAILED;
+        FileProgressListener previousListener = currentListener.get();
+        File previousFile = currentFile.get();
+        String previousLease = currentLease.get();
+        currentListener.set(listener);
+        currentFile.set(file);
+        currentLease.set(heldLease);
+        try {
+            if (!file.exists() || (heldLease == null && !claim(file))) {
+                log.debug("File was already claimed before processing started: {}", file.getAbsolutePath());
+                outcome = FileOutcome.SKIPPED;
+                return outcome;
+            }
+            log.info("Processing file: {}", file.getAbsolutePath());
+            FileOutcome result = action.apply(file);
+            outcome = result != null ? result : FileOutcome.SUCCEEDED;
+            ingestionMetrics.countFile(getFeedName(), outcome.name());
+            return outcome;
+        } catch (Exception e) {
+            log.error("Error processing file: {}. Moving to quarantine. Error: {}", file.getAbsolutePath(), e.getMessage(), e);
+            ingestionMetrics.countFile(getFeedName(), FileOutcome.FAILED.name());
+            try {
+                if (file.exists()) {
+                    moveToQuarantine(file, QuarantineReason.UNHANDLED_ERROR, "Unhandled error: " + e.getMessage());
+                }
+            } catch (Exception qe) {
+                log.error("Failed to quarantine file: {}", file.getAbsolutePath(), qe);
+            }
+            return FileOutcome.FAILED;
+        } finally {
+            String lease = currentLease.get();
+            if (lease != null) {
+                fileClaimService.release(getFeedName(), lease);
+            }
+            inFlightFiles.remove(file.getAbsolutePath());
+            if (listener != null) {
+                listener.fileFinished(file, outcome);
+            }
+            // A full lane runs the file on the submitting thread, possibly another poll's; restore its context
+            currentListener.set(previousListener);
+            currentFile.set(previousFile);
+            currentLease.set(previousLease);
+        }
+    }
+
+    /**
+     * Ingest a file pushed over HTTP, on the calling thread, and return how it ended.
+     *
+     * The body is written once, straight into the processing directory and hashed on the
+     * way: there is no inbox, no stability window and no move. From there the file is
+     * ingested like any other, so the import run, duplicate check, archive and crash
+     * recovery behave exactly as for inbox files. The listener sees the processing file.
+     *
+     * @throws IllegalArgumentException if the name has none of this feed's extensions
+     * @throws UploadTooLargeException if the body exceeds the feed's size limit
+     * @throws UploadInProgressException if the processing name is already leased or in flight
+     * @throws MemoryBudget.BudgetExhaustedException if the memory budget stayed exhausted
+     */
+    public FileOutcome ingestUpload(String fileName, InputStream body, FileProgressListener listener) {
+        String name = uploadName(fileName);
+        String processingName = name + "_" + UUID.randomUUID();
+        File dest = new File(getProcessingDir(), processingName);
+        IngestionProperties props = getIngestionProperties();
+        // Lease the processing name before anything appears, so no recovery sweep takes the upload over
+        String lease = null;
+        if (props.isClaimsEnabled()) {
+            if (!fileClaimService.claim(getFeedName(), processingName, props.getClaimLeaseSeconds())) {
+                throw new UploadInProgressException("Unable to lease processing name " + processingName);
+            }
+            lease = processingName;
+        }
+        long started = System.nanoTime();
+        try {
+            moveDigests.put(dest.getAbsolutePath(), receive(body, dest, getMaxFileSizeBytes()));
+        } catch (RuntimeException e) {
+            if (lease != null) {
+                fileClaimService.release(getFeedName(), lease);
+            }
+            throw e;
+        }
+        ingestionMetrics.recordStage(getFeedName(), IngestionMetrics.STAGE_RECEIVE, System.nanoTime() - started);
+        log.info("Received {} upload {} as {}", getFeedName(), name, dest.getAbsolutePath());
+        MemoryBudget.Permit permit;
+        try {
+            permit = memoryBudget.tryAcquire(getFeedName(), dest.length());
+        } catch (MemoryBudget.BudgetExhaustedException e) {
+            // Nothing of the upload is kept; the sender retries after Retry-After
+            moveDigests.remove(dest.getAbsolutePath());
+            deleteQuietly(dest.toPath());
+            if (lease != null) {
+                fileClaimService.release(getFeedName(), lease);
+            }
+            throw e;
+        }
+        try (permit) {
+            if (!inFlightFiles.add(dest.getAbsolutePath())) {
+                // Never started: leave nothing behind, exactly as for a refused budget
+                moveDigests.remove(dest.getAbsolutePath());
+                deleteQuietly(dest.toPath());
+                deleteQuietly(dest.toPath().resolveSibling(dest.getName() + ".part"));
+                if (lease != null) {
+                    fileClaimService.release(getFeedName(), lease);
+                }
+                throw new UploadInProgressException("Upload is already being processed: " + dest.getAbsolutePath());
+            }
+            if (listener != null) {
+                listener.fileClaimed(dest, dest);
+            }
+            return runIsolated(dest, this::processUploadedFile, listener, lease);
+        }
+    }
+
+    /**
+     * File name of an upload without any directory part; it must carry one of the feed's extensions.
+     */
+    private String uploadName(String fileName) {
+        String name = fileName != null ? fileName.replace('\\', '/') : "";
+        name = name.substring(name.lastIndexOf('/') + 1).trim();
+        String lower = name.toLowerCase();
+        if (name.isEmpty() || name.startsWith(".") || getFileExtensions().stream().noneMatch(lower::endsWith)) {
+            throw new IllegalArgumentException("File name must end with one of " + getFileExtensions() + ": " + fileName);
+        }
+        return name;
+    }
+
+    /**
+     * Write the body to a ".part" sibling of dest, hashing it, and rename it into place.
+     *
+     * @return the SHA-256 of the bytes written
+     */
+    private static String receive(InputStream body, File dest, long maxBytes) {
+        Path partial = dest.toPath().resolveSibling(dest.getName() + ".part");
+        MessageDigest digest = FileDigests.sha256();
+        CappedInputStream capped = new CappedInputStream(body, maxBytes);
+        try (InputStream in = new DigestInputStream(capped, digest);
+             OutputStream out = Files.newOutputStream(partial)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            deleteQuietly(partial);
+            if (capped.getCount() > maxBytes) {
+                throw new UploadTooLargeException("Upload exceeds max size policy of " + maxBytes + " bytes");
+            }
+            throw new RuntimeException("Failed to receive upload into " + partial, e);
+        }
+        try {
+            Files.move(partial, dest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(partial);
+            throw new RuntimeException("Failed to move upload into processing: " + dest.getAbsolutePath(), e);
+        }
+        return FileDigests.toHex(digest.digest());
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Unable to delete partial upload: {}", path, e);
+        }
+    }
+
+    /**
+     * With claims enabled, take the file's lease so no other node processes it; a file
+     * leased by another live node is left alone. The file is re-checked after claiming,
+     * since the previous owner may have finished it in the meantime.
+     */
+    private boolean claim(File file) {
+        IngestionProperties props = getIngestionProperties();
+        if (!props.isClaimsEnabled()) {
+            return true;
+        }
+        if (!fileClaimService.claim(getFeedName(), file.getName(), props.getClaimLeaseSeconds())) {
+            return false;
+        }
+        currentLease.set(file.getName());
+        return file.exists();
+    }
+
+    /**
+     * Tell the current poll's listener (if any) which ImportRun the file being processed feeds.
+     */
+    protected void reportImportRun(ImportRun importRun) {
+        FileProgressListener listener = currentListener.get();
+        if (listener != null) {
+            listener.importRunStarted(currentFile.get(), importRun.getId());
+        }
+    }
+
+    /**
+     * Wrap a file action so it first waits for its share of the memory budget. A worker
+     * interrupted while waiting leaves the file where it is for the next poll or recovery.
+     */
+    private Function<File, FileOutcome> admitted(Function<File, FileOutcome> action) {
+        return file -> {
+            MemoryBudget.Permit permit;
+            try {
+                permit = memoryBudget.acquire(getFeedName(), file.length());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.info("Interrupted while waiting for memory budget; leaving {}", file.getAbsolutePath());
+                return FileOutcome.SKIPPED;
+            }
+            try (permit) {
+                return action.apply(file);
+            }
+        };
+    }
+
+    /**
+     * Queue a file in its lane, behind earlier files of the same source.
+     */
+    private Future<FileOutcome> schedule(File file, Callable<FileOutcome> task) {
+        return getScheduler().submit(laneOf(file), sourceOf(file), task);
+    }
+
+    /**
+     * Fast lane for intraday feeds and files up to fastLaneMaxFileSizeBytes, bulk lane otherwise.
+     */
+    protected IngestionScheduler.Lane laneOf(File file) {
+        if (isIntradayFeed() || file.length() <= getIngestionProperties().getFastLaneMaxFileSizeBytes()) {
+            return IngestionScheduler.Lane.FAST;
+        }
+        return IngestionScheduler.Lane.BULK;
+    }
+
+    /**
+     * Whether every file of this feed is an intraday report that should skip the bulk lane.
+     */
+    protected boolean isIntradayFeed() {
+        return false;
+    }
+
+    /**
+     * Fairness key of a file within its lane: the sending bank's BIC from the SWIFT
+     * header when the file starts with one, otherwise the file name up to the first
+     * '_', '-' or '.', e.g. "HDFC" for HDFC_20240131.van.
+     */
+    protected String sourceOf(File file) {
+        String bic = senderBic(file);
+        if (bic != null) {
+            return bic;
+        }
+        String name = file.getName();
+        int end = 0;
+        while (end < name.length() && "_-.".indexOf(name.charAt(end)) < 0) {
+            end++;
+        }
+        return end > 0 ? name.substring(0, end).toUpperCase() : name;
+    }
+
+    /**
+     * BIC8 of the sender of the first SWIFT message in the file: the MIR address of an
+     * output block 2 ({2:O940hhmmYYMMDD<LT address>...}), or for input messages the
+     * logical terminal of block 1 ({1:F01<LT address>...}). Null if the head is not a
+     * SWIFT header.
+     */
+    private static String senderBic(File file) {
+        byte[] head = new byte[SOURCE_HEADER_BYTES];
+        int read = 0;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while (read < head.length && (n = in.read(head, read, head.length - read)) > 0) {
+                read += n;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        String text = new String(head, 0, read, StandardCharsets.US_ASCII);
+        int block1 = text.indexOf("{1:");
+        int block2 = text.indexOf("{2:");
+        if (block2 >= 0 && text.startsWith("O", block2 + 3) && text.length() >= block2 + 25) {
+            // {2: O 940 hhmm YYMMDD <12-char LT address>
+            return text.substring(block2 + 17, block2 + 25).trim();
+        }
+        if (block1 >= 0 && text.length() >= block1 + 14) {
+            // {1: F 01 <12-char LT address>
+            return text.substring(block1 + 6, block1 + 14).trim();
+        }
+        return null;
+    }
+
+    private IngestionScheduler getScheduler() {
+        IngestionScheduler current = scheduler;
+        if (current == null) {
+            synchronized (this) {
+                current = scheduler;
+                if (current == null) {
+                    IngestionProperties props = getIngestionProperties();
+                    String feed = getFeedName();
+                    current = new IngestionScheduler(getClass().getSimpleName(), props.getFastLaneThreads(),
+                            props.getWorkerThreads(), props.getWorkerQueueCapacity(),
+                            (lane, nanos) -> ingestionMetrics.recordLaneWait(feed, lane.tag(), nanos));
+                    scheduler = current;
+                }
+            }
+        }
+        if (current.isShutdown()) {
+            throw new IllegalStateException("Ingestion scheduler is shut down");
+        }
+        return current;
+    }
+
+    /**
+     * Pipeline for the stages downstream of the parser within one file: validation and
+     * persistence, each with the configured number of workers. The caller runs the parser
+     * as the producer, so parsing the next item overlaps with persisting the previous ones,
+     * and a full queue pauses the parser.
+     */
+    protected <I, O> StagedPipeline<I, O> newPipeline(StagedPipeline.Transform<I, O> validate, StagedPipeline.Sink<O> persist) {
+        IngestionProperties props = getIngestionProperties();
+        String feed = getFeedName();
+        StagedPipeline.Transform<I, O> timedValidate = item -> {
+            long started = System.nanoTime();
+            try {
+                return validate.apply(item);
+            } finally {
+                ingestionMetrics.recordStage(feed, IngestionMetrics.STAGE_VALIDATE, System.nanoTime() - started);
+            }
+        };
+        StagedPipeline.Sink<O> timedPersist = item -> {
+            long started = System.nanoTime();
+            try {
+                persist.accept(item);
+            } finally {
+                ingestionMetrics.recordStage(feed, IngestionMetrics.STAGE_PERSIST, System.nanoTime() - started);
+            }
+        };
+        return new StagedPipeline<>(getStagePool(), props.getPipelineQueueCapacity(),
+                props.getValidateThreads(), props.getPersistThreads(), timedValidate, timedPersist);
+    }
+
+    /**
+     * Wrap the pipeline's emitter so the parser's own time between two emitted items is
+     * recorded as the parse stage; time blocked on a full queue is not counted.
+     */
+    protected <T> Consumer<T> timeParse(Consumer<T> emitter) {
+        String feed = getFeedName();
+        long[] resumed = {System.nanoTime()};
+        return item -> {
+            ingestionMetrics.recordStage(feed, IngestionMetrics.STAGE_PARSE, System.nanoTime() - resumed[0]);
+            emitter.accept(item);
+            resumed[0] = System.nanoTime();
+        };
+    }
+
+    private ExecutorService getStagePool() {
+        ExecutorService pool = stagePool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = stagePool;
+                if (pool == null) {
+                    String prefix = getClass().getSimpleName() + "-stage-";
+                    AtomicInteger threadSeq = new AtomicInteger();
+                    // Unbounded but idle threads are reclaimed: every file worker needs its stage workers
+                    // running at once, so a fixed-size pool could starve a pipeline into deadlock
+                    pool = Executors.newCachedThreadPool(r -> {
+                        Thread t = new Thread(r, prefix + threadSeq.incrementAndGet());
+                        t.setDaemon(false);
+                        return t;
+                    });
+                    stagePool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Resume files a previous instance left in the processing directory (killed or crashed
+     * mid-file). Runs once the context is ready, on the regular worker lanes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverProcessingFiles() {
+        if (getIngestionProperties().isRecoverOnStartup()) {
+            resumeProcessingFiles();
+        }
+    }
+
+    /**
+     * Submit every file in the processing directory that no worker of this node owns for
+     * resumption. With claims enabled this also runs periodically, and runIsolated skips
+     * files whose lease another live node holds, so only files of dead nodes are taken over.
+     */
+    private void resumeProcessingFiles() {
+        File[] files = new File(getProcessingDir()).listFiles(File::isFile);
+        if (files == null || files.length == 0) {
+            return;
+        }
+        int submitted = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(".part")) {
+                deleteAbandonedPartial(file);
+                continue;
+            }
+            if (!inFlightFiles.add(file.getAbsolutePath())) {
+                continue;
+            }
+            try {
+                schedule(file, () -> runIsolated(file, admitted(this::resumeFile), null));
+                submitted++;
+            } catch (RuntimeException e) {
+                inFlightFiles.remove(file.getAbsolutePath());
+                log.error("Unable to schedule interrupted file for recovery: {}", file.getAbsolutePath(), e);
+            }
+        }
+        if (submitted > 0) {
+            log.info("Submitted {} interrupted file(s) from {} for recovery", submitted, getProcessingDir());
+        }
+    }
+
+    /**
+     * Unfinished cross-filesystem copy: the original is still in the inbox. With claims enabled
+     * the copy may still be in progress on another node, so it is only deleted when the lease
+     * on the name being copied to can be taken.
+     */
+    private void deleteAbandonedPartial(File partial) {
+        IngestionProperties props = getIngestionProperties();
+        String target = partial.getName().substring(0, partial.getName().length() - ".part".length());
+        if (props.isClaimsEnabled()) {
+            if (new File(getProcessingDir(), target).exists()
+                    || !fileClaimService.claim(getFeedName(), target, props.getClaimLeaseSeconds())) {
+                return;
+            }
+        }
+        try {
+            if (!partial.delete() && partial.exists()) {
+                log.warn("Unable to delete partial copy: {}", partial.getAbsolutePath());
+            }
+        } finally {
+            if (props.isClaimsEnabled()) {
+                fileClaimService.release(getFeedName(), target);
+            }
+        }
+    }
+
+    protected static boolean isInProgress(ImportRun importRun) {
+        return importRun.getStatus() == ImportRun.Status.NEW || importRun.getStatus() == ImportRun.Status.PARSED;
+    }
+
+    /**
+     * A recovered file whose run already has a final status was interrupted after its last
+     * commit but before it was moved; finish the move the run's status calls for.
+     */
+    protected FileOutcome settleFinishedRun(File processingFile, ImportRun importRun) {
+        log.info("Import run {} for recovered file {} already finished with status {}",
+                importRun.getId(), processingFile.getName(), importRun.getStatus());
+        if (importRun.getStatus() == ImportRun.Status.FAILED) {
+            moveToQuarantine(processingFile, QuarantineReason.RECOVERED_FAILED_RUN,
+                    "Import run " + importRun.getId() + " failed before the interruption");
+            return FileOutcome.FAILED;
+        }
+        moveToArchive(processingFile, importRun.getFileHash(), importRun);
+        return FileOutcome.SUCCEEDED;
+    }
+
+    /**
+     * Register the backlog gauges, start lease renewal and the recovery sweep when claims
+     * are enabled, and start the inbox watcher when enabled so complete files are dispatched
+     * as soon as they land.
+     */
+    @PostConstruct
+    public void initialize() {
+        String feed = getFeedName();
+        ingestionMetrics.registerDirectoryDepth(feed, "inbox", () -> countFiles(getInboxDir()));
+        ingestionMetrics.registerDirectoryDepth(feed, "processing", () -> countFiles(getProcessingDir()));
+        ingestionMetrics.registerGauge("ingestion.files.in.flight", feed, inFlightFiles::size);
+        ingestionMetrics.registerGauge("ingestion.workers.queued", feed,
+                () -> scheduler != null ? scheduler.getQueued() : 0);
+        for (IngestionScheduler.Lane lane : IngestionScheduler.Lane.values()) {
+            ingestionMetrics.registerLaneDepth(feed, lane.tag(), () -> scheduler != null ? scheduler.getQueued(lane) : 0);
+        }
+        IngestionProperties props = getIngestionProperties();
+        if (props.isClaimsEnabled()) {
+            fileClaimService.start(feed, props.getClaimLeaseSeconds(), this::resumeProcessingFiles);
+        }
+        if (!props.isWatchEnabled()) {
+            return;
         }
-        List<File> stable = new ArrayList<>();
-        long now = System.currentTimeMillis();
-        long stabilityWindowMs = FILE_STABILITY_WINDOW_SEC * 1000L;
-        for (File f : files) {
-            long lastModified = f.lastModified();
-            long age = now - lastModified;
-            if (age >= stabilityWindowMs) {
-                log.debug("File is stable: {} (age: {} ms, size: {} bytes)", f.getName(), age, f.length());
-                stable.add(f);
-            } else {
-                log.debug("File is not yet stable: {} (age: {} ms < {} ms)", f.getName(), age, stabilityWindowMs);
+        try {
+            getInboxWatcher().start(this::dispatchWatchedFiles);
+        } catch (IOException e) {
+            log.warn("Unable to watch inbox {}; files will only be picked up by explicit polls", getInboxDir(), e);
+        }
+    }
+
+    private void dispatchWatchedFiles(List<File> files) {
+        log.info("Inbox watcher dispatching {} file(s) from {}", files.size(), getInboxDir());
+        for (File file : files) {
+            if (!inFlightFiles.add(file.getAbsolutePath())) {
+                continue;
+            }
+            try {
+                schedule(file, () -> runIsolated(file, admitted(this::processFile), null));
+            } catch (RuntimeException e) {
+                inFlightFiles.remove(file.getAbsolutePath());
+                log.error("Unable to schedule watched file for processing: {}", file.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    private InboxWatcher getInboxWatcher() {
+        InboxWatcher watcher = inboxWatcher;
+        if (watcher == null) {
+            synchronized (this) {
+                watcher = inboxWatcher;
+                if (watcher == null) {
+                    IngestionProperties props = getIngestionProperties();
+                    watcher = new InboxWatcher(getInboxDir(), getFileExtensions(), props.isDoneMarkerRequired(),
+                            props.getMaxFilesPerPoll(), props.getSettleMillis());
+                    inboxWatcher = watcher;
+                }
             }
         }
-        return stable;
+        return watcher;
+    }
+
+    /**
+     * Stop accepting new files and let in-flight files finish before the context closes.
+     */
+    @PreDestroy
+    public void shutdownWorkers() {
+        InboxWatcher watcher = inboxWatcher;
+        if (watcher != null) {
+            watcher.stop();
+        }
+        IngestionScheduler files = scheduler;
+        if (files != null) {
+            log.info("Shutting down ingestion workers for {}", getInboxDir());
+            files.shutdown();
+            try {
+                if (!files.awaitTermination(WORKER_SHUTDOWN_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                    log.warn("Ingestion workers did not finish within {}s; forcing shutdown", WORKER_SHUTDOWN_TIMEOUT_SEC);
+                    files.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                files.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Stage workers only run on behalf of file workers, so they are drained by now
+        ExecutorService stages = stagePool;
+        if (stages != null) {
+            awaitShutdown(stages);
+        }
+    }
+
+    private static void awaitShutdown(ExecutorService pool) {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(WORKER_SHUTDOWN_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                log.warn("Ingestion workers did not finish within {}s; forcing shutdown", WORKER_SHUTDOWN_TIMEOUT_SEC);
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Discover complete files in the inbox: either marked with a ".done" file or
+     * unchanged across two size/mtime samples. At most maxFilesPerPoll are returned.
+     */
+    protected List<File> discoverStableFiles(String inboxDir) {
+        log.debug("Discovering stable files in inbox: {}", inboxDir);
+        return getInboxWatcher().scanCompleteFiles();
+    }
+
+    /**
+     * Size policy for this feed; streaming parsers allow this to exceed what fits on the heap.
+     */
+    protected long getMaxFileSizeBytes() {
+        return getIngestionProperties().getMaxFileSizeBytes();
     }
 
     /**
@@ -78,14 +793,40 @@ public abstract class BaseIngestionService {
      */
     protected File moveToProcessing(File file) {
         log.debug("Moving file to processing directory: {}", file.getAbsolutePath());
+        long started = System.nanoTime();
         String guid = UUID.randomUUID().toString();
         String newName = file.getName() + "_" + guid;
         File dest = new File(getProcessingDir(), newName);
+        String inboxLease = currentLease.get();
+        if (inboxLease != null) {
+            // Lease the processing name before it appears, so no recovery sweep can take it over
+            if (!fileClaimService.claim(getFeedName(), newName, getIngestionProperties().getClaimLeaseSeconds())) {
+                throw new IllegalStateException("Unable to lease processing name " + newName);
+            }
+            currentLease.set(newName);
+        }
         try {
-            Files.move(file.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            // A cross-filesystem move copies the bytes anyway, so hash them on the way
+            String digest = FileDigests.moveAndDigest(file.toPath(), dest.toPath());
+            if (digest != null) {
+                moveDigests.put(dest.getAbsolutePath(), digest);
+            }
         } catch (IOException e) {
+            if (inboxLease != null) {
+                fileClaimService.release(getFeedName(), newName);
+                currentLease.set(inboxLease);
+            }
             throw new RuntimeException("Failed to move file to processing: " + file.getAbsolutePath(), e);
         }
+        if (inboxLease != null) {
+            fileClaimService.release(getFeedName(), inboxLease);
+        }
+        getInboxWatcher().releaseMarker(file);
+        FileProgressListener listener = currentListener.get();
+        if (listener != null) {
+            listener.fileClaimed(file, dest);
+        }
+        ingestionMetrics.recordStage(getFeedName(), IngestionMetrics.STAGE_MOVE, System.nanoTime() - started);
         return dest;
     }
 
@@ -93,52 +834,79 @@ public abstract class BaseIngestionService {
      * Compute SHA-256 hash of the file.
      */
     protected String computeSha256(File file) {
+        String digestFromMove = moveDigests.remove(file.getAbsolutePath());
+        if (digestFromMove != null) {
+            log.debug("Using SHA-256 computed while moving file: {}", file.getAbsolutePath());
+            return digestFromMove;
+        }
         log.debug("Computing SHA-256 for file: {}", file.getAbsolutePath());
-        try (java.io.InputStream fis = new java.io.FileInputStream(file)) {
-            java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[8192];
-            int n;
-            while ((n = fis.read(buffer)) > 0) {
-                digest.update(buffer, 0, n);
-            }
-            byte[] hashBytes = digest.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+        long started = System.nanoTime();
+        try {
+            String digest = FileDigests.sha256Hex(file.toPath());
+            ingestionMetrics.recordStage(getFeedName(), IngestionMetrics.STAGE_HASH, System.nanoTime() - started);
+            return digest;
         } catch (Exception e) {
             throw new RuntimeException("Failed to compute SHA-256 for file: " + file.getAbsolutePath(), e);
         }
     }
 
     /**
-     * Move file to ARCHIVE/YYYY/MM/DD.
+     * Move file into the content-addressed archive under its SHA-256 (compressed, see
+     * {@link ContentAddressedArchive}) and record the archive path on the import run unless
+     * it already has one; a duplicate of already archived content is simply deleted.
      */
-    protected void moveToArchive(File file) {
+    protected void moveToArchive(File file, String fileHash, ImportRun importRun) {
         log.debug("Moving file to archive: {}", file.getAbsolutePath());
-        LocalDate today = LocalDate.now();
-        String archivePath = String.format("%s/%04d/%02d/%02d", getArchiveDir(), today.getYear(), today.getMonthValue(), today.getDayOfMonth());
-        File archiveDir = new File(archivePath);
-        if (!archiveDir.exists() && !archiveDir.mkdirs()) {
-            throw new RuntimeException("Failed to create archive dir: " + archiveDir.getAbsolutePath());
-        }
-        File dest = new File(archiveDir, file.getName());
+        long started = System.nanoTime();
+        String archivePath;
         try {
-            Files.move(file.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            archivePath = getArchive().store(file.toPath(), fileHash);
+            moveDigests.remove(file.getAbsolutePath());
         } catch (IOException e) {
             throw new RuntimeException("Failed to move file to archive: " + file.getAbsolutePath(), e);
         }
+        if (importRun != null && importRun.getArchivePath() == null) {
+            importRunRepository.updateArchivePath(importRun.getId(), archivePath);
+            importRun.setArchivePath(archivePath);
+        }
+        log.debug("Archived {} as {}", file.getName(), archivePath);
+        ingestionMetrics.recordStage(getFeedName(), IngestionMetrics.STAGE_ARCHIVE, System.nanoTime() - started);
+    }
+
+    /**
+     * An import run of this feed whose original file is in the archive. Runs archived before
+     * the content-addressed store have no archive path and are not found.
+     */
+    public Optional<ImportRun> findArchivedRun(Long importRunId) {
+        return importRunRepository.findById(importRunId)
+                .filter(run -> getFeedName().equals(run.getFileType()) && run.getArchivePath() != null);
+    }
+
+    /**
+     * Open the archived original of a run returned by {@link #findArchivedRun(Long)}, decompressed.
+     */
+    public InputStream openArchivedFile(ImportRun importRun) {
+        try {
+            return getArchive().open(importRun.getArchivePath());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open archived file for import run " + importRun.getId(), e);
+        }
+    }
+
+    private ContentAddressedArchive getArchive() {
+        return new ContentAddressedArchive(Paths.get(getArchiveDir()));
     }
 
     /**
      * Move file to QUARANTINE and log error.
      */
-    protected void moveToQuarantine(File file, String errorMessage) {
+    protected void moveToQuarantine(File file, QuarantineReason reason, String errorMessage) {
         log.warn("Moving file to quarantine: {}. Reason: {}", file.getAbsolutePath(), errorMessage);
+        ingestionMetrics.countQuarantine(getFeedName(), reason.name());
         File dest = new File(getQuarantineDir(), file.getName());
         try {
             Files.move(file.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            moveDigests.remove(file.getAbsolutePath());
         } catch (IOException e) {
             throw new RuntimeException("Failed to move file to quarantine: " + file.getAbsolutePath(), e);
         }
@@ -163,4 +931,107 @@ public abstract class BaseIngestionService {
         //     .build();
         // importErrorRepository.save(error);
     }
+
+    /**
+     * Regular files in a directory, ignoring ".done" markers and ".part" copies; -1 if it cannot be read.
+     */
+    private static long countFiles(String dir) {
+        long count = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(dir))) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (Files.isRegularFile(entry) && !name.endsWith(".done") && !name.endsWith(".part")) {
+                    count++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Current backlog of this feed, for the ingestion actuator endpoint.
+     */
+    public Backlog getBacklog() {
+        IngestionScheduler files = scheduler;
+        return new Backlog(getFeedName(), countFiles(getInboxDir()), countFiles(getProcessingDir()),
+                inFlightFiles.size(), files != null ? files.getActive() : 0, files != null ? files.getQueued() : 0);
+    }
+
+    /**
+     * A pushed file is larger than the feed's size policy; nothing of it is kept.
+     */
+    public static class UploadTooLargeException extends RuntimeException {
+        public UploadTooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A pushed file collided with one already being processed; nothing of it is kept.
+     */
+    public static class UploadInProgressException extends RuntimeException {
+        public UploadInProgressException(String message) {
+            super(message);
+        }
+    }
+
+    public static class Backlog {
+        private final String feed;
+        private final long inboxFiles;
+        private final long processingFiles;
+        private final int inFlightFiles;
+        private final int activeWorkers;
+        private final int queuedFiles;
+
+        public Backlog(String feed, long inboxFiles, long processingFiles, int inFlightFiles, int activeWorkers, int queuedFiles) {
+            this.feed = feed;
+            this.inboxFiles = inboxFiles;
+            this.processingFiles = processingFiles;
+            this.inFlightFiles = inFlightFiles;
+            this.activeWorkers = activeWorkers;
+            this.queuedFiles = queuedFiles;
+        }
+
+        public String getFeed() { return feed; }
+        public long getInboxFiles() { return inboxFiles; }
+        public long getProcessingFiles() { return processingFiles; }
+        public int getInFlightFiles() { return inFlightFiles; }
+        public int getActiveWorkers() { return activeWorkers; }
+        public int getQueuedFiles() { return queuedFiles; }
+    }
+
+    /**
+     * Per-poll counts of how each discovered file ended up.
+     */
+    public static class PollSummary {
+        private final int discovered;
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+
+        public PollSummary(int discovered) {
+            this.discovered = discovered;
+        }
+
+        void record(FileOutcome outcome) {
+            switch (outcome) {
+                case SUCCEEDED -> succeeded.incrementAndGet();
+                case FAILED -> failed.incrementAndGet();
+                case SKIPPED -> skipped.incrementAndGet();
+            }
+        }
+
+        public int getDiscovered() { return discovered; }
+        public int getSucceeded() { return succeeded.get(); }
+        public int getFailed() { return failed.get(); }
+        public int getSkipped() { return skipped.get(); }
+
+        @Override
+        public String toString() {
+            return "discovered=" + discovered + ", succeeded=" + succeeded.get()
+                    + ", failed=" + failed.get() + ", skipped=" + skipped.get();
+        }
+    }
 }
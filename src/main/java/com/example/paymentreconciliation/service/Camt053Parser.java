@@ -0,0 +1,401 @@
+package com.example.paymentreconciliation.service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming parser for ISO 20022 camt.053 (BankToCustomerStatement), any version.
+ *
+ * The document is read with StAX, one event at a time, and each {@code <Stmt>} is handed
+ * to the consumer as soon as its end tag is read, mapped onto the same
+ * {@link Mt940Parser.Statement} model as MT940 so both go through one persistence path.
+ * Memory is bounded by the largest single statement, not by the document.
+ *
+ * Mapping: Stmt/Id -> stmtRef20, LglSeqNb (else ElctrncSeqNb) -> seq28c, Acct IBAN or Othr/Id
+ * -> accountNo; balances OPBD/PRCD -> opening, CLBD -> closing (ITBD when there is no CLBD,
+ * marking the statement interim), others by code. Per entry: NtryRef -> entryReference,
+ * AcctSvcrRef -> bankReference, EndToEndId -> customerReference, AddtlNtryInf (else
+ * RmtInf/Ustrd) -> narrative. Elements are matched by local name, so the namespace version
+ * does not matter.
+ */
+public class Camt053Parser {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = newInputFactory();
+
+    private final boolean bookedEntriesOnly;
+
+    public Camt053Parser() {
+        this(true);
+    }
+
+    /**
+     * @param bookedEntriesOnly skip entries whose status is not BOOK (pending, informational)
+     */
+    public Camt053Parser(boolean bookedEntriesOnly) {
+        this.bookedEntriesOnly = bookedEntriesOnly;
+    }
+
+    /**
+     * Stream the document, handing each statement to the consumer as soon as it is complete.
+     * The stream is not closed.
+     */
+    public void parse(InputStream in, Consumer<Mt940Parser.Statement> consumer) throws Camt053ParseException {
+        XMLStreamReader xml = null;
+        try {
+            xml = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            new Handler(xml, consumer).run();
+        } catch (XMLStreamException e) {
+            throw new Camt053ParseException("Malformed camt.053 XML: " + e.getMessage(), e);
+        } finally {
+            if (xml != null) {
+                try {
+                    xml.close();
+                } catch (XMLStreamException e) {
+                    // Nothing left to read; the underlying stream is the caller's
+                }
+            }
+        }
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Bank files are untrusted input: no DTDs, no external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Event loop for one document. The element path is kept as a stack of local names;
+     * text is collected per element and interpreted on its end tag, by its parent names.
+     */
+    private final class Handler {
+        private final XMLStreamReader xml;
+        private final Consumer<Mt940Parser.Statement> consumer;
+        private final List<String> path = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+
+        private Mt940Parser.Statement stmt;
+        private String electronicSeq;
+        private String legalSeq;
+        private Mt940Parser.Balance interimClosing;
+        private int entryNo;
+
+        private Mt940Parser.Balance bal;
+        private String balCode;
+
+        private Mt940Parser.Transaction txn;
+        private String entryStatus;
+        private String additionalEntryInfo;
+        private String additionalTxInfo;
+        private StringBuilder unstructured;
+        private String debtorName;
+        private String creditorName;
+        private String subFamilyCode;
+
+        Handler(XMLStreamReader xml, Consumer<Mt940Parser.Statement> consumer) {
+            this.xml = xml;
+            this.consumer = consumer;
+        }
+
+        void run() throws XMLStreamException, Camt053ParseException {
+            while (xml.hasNext()) {
+                switch (xml.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> start(xml.getLocalName());
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> text.append(xml.getText());
+                    case XMLStreamConstants.END_ELEMENT -> end(xml.getLocalName());
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        private void start(String name) {
+            path.add(name);
+            text.setLength(0);
+            switch (name) {
+                case "Stmt" -> {
+                    stmt = new Mt940Parser.Statement();
+                    stmt.otherBalances = new ArrayList<>();
+                    stmt.transactions = new ArrayList<>();
+                    electronicSeq = null;
+                    legalSeq = null;
+                    interimClosing = null;
+                    entryNo = 0;
+                }
+                case "Bal" -> {
+                    if (stmt != null) {
+                        bal = new Mt940Parser.Balance();
+                        balCode = null;
+                    }
+                }
+                case "Ntry" -> {
+                    if (stmt != null) {
+                        txn = new Mt940Parser.Transaction();
+                        txn.lineNo = ++entryNo;
+                        entryStatus = null;
+                        additionalEntryInfo = null;
+                        additionalTxInfo = null;
+                        unstructured = null;
+                        debtorName = null;
+                        creditorName = null;
+                        subFamilyCode = null;
+                    }
+                }
+                case "Amt" -> {
+                    String currency = xml.getAttributeValue(null, "Ccy");
+                    if (bal != null && "Bal".equals(parent(1))) {
+                        bal.currency = currency;
+                    } else if (txn != null && "Ntry".equals(parent(1)) && stmt.currency == null) {
+                        stmt.currency = currency;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        private void end(String name) throws Camt053ParseException {
+            String value = text.toString().trim();
+            text.setLength(0);
+            path.remove(path.size() - 1);
+            if (stmt == null) {
+                return;
+            }
+            String parent = parent(0);
+            if (txn != null) {
+                endInEntry(name, parent, value);
+            } else if (bal != null) {
+                endInBalance(name, parent, value);
+            } else {
+                endInStatement(name, parent, value);
+            }
+        }
+
+        private void endInStatement(String name, String parent, String value) {
+            switch (name) {
+                case "Id" -> {
+                    if ("Stmt".equals(parent)) {
+                        stmt.stmtRef20 = value;
+                    } else if ("Othr".equals(parent) && inAccount() && stmt.accountNo == null) {
+                        stmt.accountNo = value;
+                    }
+                }
+                case "IBAN" -> {
+                    if (inAccount()) {
+                        stmt.accountNo = value;
+                    }
+                }
+                case "Ccy" -> {
+                    if ("Acct".equals(parent)) {
+                        stmt.currency = value;
+                    }
+                }
+                case "ElctrncSeqNb" -> electronicSeq = value;
+                case "LglSeqNb" -> legalSeq = value;
+                case "Stmt" -> finishStatement();
+                default -> {
+                }
+            }
+        }
+
+        private void endInBalance(String name, String parent, String value) {
+            switch (name) {
+                case "Cd" -> {
+                    if ("CdOrPrtry".equals(parent)) {
+                        balCode = value;
+                    }
+                }
+                case "Amt" -> bal.amount = value;
+                case "CdtDbtInd" -> bal.dc = dc(value);
+                case "Dt", "DtTm" -> {
+                    if ("Dt".equals(parent)) {
+                        bal.date = value;
+                    }
+                }
+                case "Bal" -> finishBalance();
+                default -> {
+                }
+            }
+        }
+
+        private void endInEntry(String name, String parent, String value) throws Camt053ParseException {
+            switch (name) {
+                case "Amt" -> {
+                    if ("Ntry".equals(parent)) {
+                        txn.amount = value;
+                    }
+                }
+                case "CdtDbtInd" -> {
+                    if ("Ntry".equals(parent)) {
+                        txn.dc = dc(value);
+                    }
+                }
+                case "Sts", "Cd" -> {
+                    // <Sts>BOOK</Sts> up to camt.053.001.07, <Sts><Cd>BOOK</Cd></Sts> from .08
+                    if ("Sts".equals(name) ? "Ntry".equals(parent) && !value.isEmpty() : "Sts".equals(parent)) {
+                        entryStatus = value;
+                    } else if ("Cd".equals(name) && "Prtry".equals(parent) && "BkTxCd".equals(parent(1))) {
+                        txn.txnTypeCode = value;
+                    }
+                }
+                case "SubFmlyCd" -> subFamilyCode = value;
+                case "Dt", "DtTm" -> {
+                    if ("ValDt".equals(parent)) {
+                        txn.valueDate = value;
+                    } else if ("BookgDt".equals(parent)) {
+                        txn.entryDate = value;
+                    }
+                }
+                case "NtryRef" -> txn.entryReference = value;
+                case "AcctSvcrRef" -> {
+                    if (txn.bankReference == null) {
+                        txn.bankReference = value;
+                    }
+                }
+                case "EndToEndId" -> {
+                    if (txn.customerReference == null && !"NOTPROVIDED".equalsIgnoreCase(value)) {
+                        txn.customerReference = value;
+                    }
+                }
+                case "AddtlNtryInf" -> additionalEntryInfo = value;
+                case "AddtlTxInf" -> {
+                    if (additionalTxInfo == null) {
+                        additionalTxInfo = value;
+                    }
+                }
+                case "Ustrd" -> {
+                    if (unstructured == null) {
+                        unstructured = new StringBuilder(value);
+                    } else {
+                        // '/' is a narrative delimiter, so the tokenizer keeps the lines apart
+                        unstructured.append('/').append(value);
+                    }
+                }
+                case "Nm" -> {
+                    if ("Dbtr".equals(parent) || "Dbtr".equals(parent(1))) {
+                        debtorName = debtorName == null ? value : debtorName;
+                    } else if ("Cdtr".equals(parent) || "Cdtr".equals(parent(1))) {
+                        creditorName = creditorName == null ? value : creditorName;
+                    }
+                }
+                case "Ntry" -> finishEntry();
+                default -> {
+                }
+            }
+        }
+
+        private void finishBalance() {
+            String code = balCode != null ? balCode : "";
+            switch (code) {
+                case "OPBD" -> {
+                    bal.type = "OPENING";
+                    stmt.openingBalance = bal;
+                }
+                case "PRCD" -> {
+                    // Previously closed booked balance stands in for a missing opening balance
+                    bal.type = "OPENING";
+                    if (stmt.openingBalance == null) {
+                        stmt.openingBalance = bal;
+                    }
+                }
+                case "CLBD" -> {
+                    bal.type = "CLOSING";
+                    stmt.closingBalance = bal;
+                }
+                case "ITBD" -> {
+                    bal.type = "INTERIM";
+                    interimClosing = bal;
+                }
+                case "CLAV" -> {
+                    bal.type = "AVAILABLE";
+                    stmt.otherBalances.add(bal);
+                }
+                case "FWAV" -> {
+                    bal.type = "FORWARD";
+                    stmt.otherBalances.add(bal);
+                }
+                default -> {
+                    bal.type = code.isEmpty() ? "OTHER" : code;
+                    stmt.otherBalances.add(bal);
+                }
+            }
+            bal = null;
+        }
+
+        private void finishEntry() throws Camt053ParseException {
+            Mt940Parser.Transaction entry = txn;
+            txn = null;
+            if (bookedEntriesOnly && entryStatus != null && !"BOOK".equals(entryStatus)) {
+                return; // pending and informational entries are not part of the booked balance
+            }
+            if (entry.amount == null || entry.dc == null) {
+                throw new Camt053ParseException("Entry " + entry.lineNo + " of statement " + stmt.stmtRef20
+                        + " has no amount or credit/debit indicator (line " + xml.getLocation().getLineNumber() + ")");
+            }
+            if (entry.txnTypeCode == null) {
+                entry.txnTypeCode = subFamilyCode;
+            }
+            entry.signedAmount = ("D".equals(entry.dc) ? "-" : "") + entry.amount;
+            entry.narrative = additionalEntryInfo != null ? additionalEntryInfo
+                    : unstructured != null ? unstructured.toString() : additionalTxInfo;
+            Map<String, String> tokens = Mt940NarrativeTokenizer.tokenize(entry.narrative);
+            // For a credit the counterparty is the debtor, for a debit the creditor; the structured
+            // party name is authoritative over whatever the tokenizer guessed from free text
+            String counterparty = "C".equals(entry.dc) ? debtorName : creditorName;
+            if (counterparty != null) {
+                tokens.put(Mt940NarrativeTokenizer.COUNTERPARTY, counterparty.toUpperCase());
+            }
+            entry.narrativeTokens = tokens;
+            stmt.transactions.add(entry);
+        }
+
+        private void finishStatement() {
+            Mt940Parser.Statement done = stmt;
+            stmt = null;
+            done.seq28c = legalSeq != null ? legalSeq : electronicSeq;
+            if (done.closingBalance == null && interimClosing != null) {
+                done.closingBalance = interimClosing;
+                done.isInterim = true;
+            }
+            if (done.currency == null && done.openingBalance != null) {
+                done.currency = done.openingBalance.currency;
+            }
+            for (Mt940Parser.Transaction t : done.transactions) {
+                t.currency = done.currency;
+                t.extIdempotencyHash = Mt940Parser.computeIdempotencyHash(done, t);
+            }
+            consumer.accept(done);
+        }
+
+        private boolean inAccount() {
+            return path.contains("Acct");
+        }
+
+        /**
+         * @param up 0 for the parent of the element just closed (or the element just opened, from start)
+         */
+        private String parent(int up) {
+            int index = path.size() - 1 - up;
+            return index >= 0 ? path.get(index) : null;
+        }
+
+        private String dc(String creditDebitIndicator) {
+            return "DBIT".equals(creditDebitIndicator) ? "D" : "CRDT".equals(creditDebitIndicator) ? "C" : null;
+        }
+    }
+
+    public static class Camt053ParseException extends Exception {
+        public Camt053ParseException(String msg) { super(msg); }
+        public Camt053ParseException(String msg, Throwable cause) { super(msg, cause); }
+    }
+}
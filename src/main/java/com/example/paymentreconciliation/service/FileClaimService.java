@@ -0,0 +1,126 @@
+package com.example.paymentreconciliation.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.springframework.stereotype.Service;
+
+import com.example.paymentreconciliation.dao.FileLeaseDao;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Node-side view of the file lease protocol that lets several replicas share one inbox
+ * and processing directory.
+ *
+ * Each node has a stable owner id for its lifetime. A file is processed only while this
+ * node holds its lease; leases are renewed in the background while work is in progress
+ * and released when the file leaves the processing directory. Only leases taken through
+ * this service and not yet released are renewed, so a lease a code path failed to release
+ * still expires. If a node dies, its leases
+ * stop being renewed and expire, and another node's recovery sweep takes the files over.
+ */
+@Service
+public class FileClaimService {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(FileClaimService.class);
+
+    private final FileLeaseDao fileLeaseDao;
+    private final String ownerId;
+    private final ScheduledExecutorService scheduler;
+    // File names this node leased and has not released yet, per feed
+    private final Map<String, Set<String>> heldLeases = new ConcurrentHashMap<>();
+
+    public FileClaimService(FileLeaseDao fileLeaseDao) {
+        this.fileLeaseDao = fileLeaseDao;
+        this.ownerId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "file-claim-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public boolean claim(String feed, String fileName, int leaseSeconds) {
+        boolean claimed = fileLeaseDao.claim(feed, fileName, ownerId, leaseSeconds);
+        if (claimed) {
+            heldLeases.computeIfAbsent(feed, f -> ConcurrentHashMap.newKeySet()).add(fileName);
+        } else {
+            log.debug("{} file {} is leased by another node", feed, fileName);
+        }
+        return claimed;
+    }
+
+    public void release(String feed, String fileName) {
+        Set<String> held = heldLeases.get(feed);
+        if (held != null) {
+            held.remove(fileName);
+        }
+        try {
+            fileLeaseDao.release(feed, fileName, ownerId);
+        } catch (RuntimeException e) {
+            // The lease expires on its own; another node may then re-check the (already moved) file
+            log.warn("Failed to release lease on {} file {}", feed, fileName, e);
+        }
+    }
+
+    /**
+     * Renew this node's held leases for the feed every third of the lease period, and run the
+     * recovery sweep once per lease period.
+     */
+    public void start(String feed, int leaseSeconds, Runnable recoverySweep) {
+        long renewEvery = Math.max(1, leaseSeconds / 3);
+        scheduler.scheduleWithFixedDelay(() -> renew(feed, leaseSeconds), renewEvery, renewEvery, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(() -> runSweep(feed, recoverySweep), leaseSeconds, leaseSeconds, TimeUnit.SECONDS);
+        log.info("File claims enabled for {} as {} (lease {}s)", feed, ownerId, leaseSeconds);
+    }
+
+    private void renew(String feed, int leaseSeconds) {
+        try {
+            Set<String> held = heldLeases.get(feed);
+            if (held == null || held.isEmpty()) {
+                return;
+            }
+            int renewed = fileLeaseDao.renew(feed, ownerId, List.copyOf(held), leaseSeconds);
+            log.debug("Renewed {} {} lease(s)", renewed, feed);
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; a lease only lapses if renewals keep failing for a full period
+            log.warn("Failed to renew {} file leases", feed, e);
+        }
+    }
+
+    private static void runSweep(String feed, Runnable recoverySweep) {
+        try {
+            recoverySweep.run();
+        } catch (RuntimeException e) {
+            log.warn("{} recovery sweep failed", feed, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+}
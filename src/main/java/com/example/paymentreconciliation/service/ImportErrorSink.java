@@ -0,0 +1,212 @@
+package com.example.paymentreconciliation.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.paymentreconciliation.config.ImportErrorProperties;
+import com.example.paymentreconciliation.dao.ImportErrorDao;
+import com.example.paymentreconciliation.entity.ImportRun;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Shared writer of import_error rows for every ingestion path.
+ *
+ * Errors of a unit of work that commits with a checkpoint (a VAN chunk, a statement) go
+ * through {@link #write}, in the transaction that advances the checkpoint, so they commit
+ * and roll back with it and a resumed run neither loses nor repeats them. Errors of the run
+ * as a whole go through {@link #record}, which buffers them and writes JDBC batches of
+ * batchSize. At most maxErrorsPerRun rows are stored per run, counting rows stored before
+ * a restart; later errors are only counted, and {@link #finish} stores a single
+ * ERRORS_TRUNCATED row with that count. A file with 100k bad rows therefore costs a handful
+ * of batches instead of 100k round trips.
+ */
+@Service
+public class ImportErrorSink {
+    private static final Logger log = LoggerFactoryProvider.getLogger(ImportErrorSink.class);
+
+    private static final String TRUNCATED_CODE = "ERRORS_TRUNCATED";
+
+    private final ImportErrorDao importErrorDao;
+    private final ImportErrorProperties properties;
+    private final Map<Long, RunErrors> runs = new ConcurrentHashMap<>();
+
+    public ImportErrorSink(ImportErrorDao importErrorDao, ImportErrorProperties properties) {
+        this.importErrorDao = importErrorDao;
+        this.properties = properties;
+    }
+
+    /**
+     * Buffer one error of the run; safe to call from several workers of the same run.
+     *
+     * @param code defaults to VALIDATION_ERROR
+     * @param lineNo line or row of the file, if known
+     */
+    public void record(ImportRun importRun, String code, String message, Integer lineNo) {
+        if (importRun == null || importRun.getId() == null) {
+            log.warn("Unable to record import error because import run is not available: {}", message);
+            return;
+        }
+        List<ImportErrorDao.Row> batch = runErrors(importRun).add(new ImportErrorDao.Row(
+                code != null ? code : "VALIDATION_ERROR", message != null ? message : "(no message)", lineNo), properties);
+        if (batch != null) {
+            importErrorDao.insertBatch(importRun.getId(), batch);
+        }
+    }
+
+    /**
+     * Write the errors of one unit of work now, in the caller's transaction. Call it in the
+     * transaction that commits the unit and advances the run's checkpoint past it. Errors
+     * beyond the run's limit are only counted; if the transaction rolls back, the rows and
+     * the count are given back.
+     */
+    public void write(ImportRun importRun, List<ImportErrorDao.Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (importRun == null || importRun.getId() == null) {
+            log.warn("Unable to write {} import error(s) because import run is not available", rows.size());
+            return;
+        }
+        RunErrors errors = runErrors(importRun);
+        int accepted = errors.reserve(rows.size(), properties.getMaxErrorsPerRun());
+        releaseOnRollback(errors, accepted, rows.size() - accepted);
+        int batchSize = Math.max(1, properties.getBatchSize());
+        for (int from = 0; from < accepted; from += batchSize) {
+            importErrorDao.insertBatch(importRun.getId(), rows.subList(from, Math.min(from + batchSize, accepted)));
+        }
+    }
+
+    /**
+     * @return how many more errors of the run may be stored, for callers that store them
+     *         themselves in a set-based statement; report what they stored with {@link #stored}
+     */
+    public int remaining(ImportRun importRun) {
+        return (int) Math.max(0, properties.getMaxErrorsPerRun() - runErrors(importRun).getAccepted());
+    }
+
+    /**
+     * Count errors the caller stored itself in its transaction, and those it left out
+     * because they exceeded {@link #remaining}.
+     */
+    public void stored(ImportRun importRun, long stored, long dropped) {
+        RunErrors errors = runErrors(importRun);
+        errors.count(stored, dropped);
+        releaseOnRollback(errors, stored, dropped);
+    }
+
+    /**
+     * Write the run's buffered errors and, if any were dropped, the ERRORS_TRUNCATED row.
+     * Call once the run is over; errors recorded afterwards start a new buffer.
+     *
+     * @return number of errors that were counted but not stored
+     */
+    public long finish(ImportRun importRun) {
+        if (importRun == null || importRun.getId() == null) {
+            return 0;
+        }
+        RunErrors errors = runs.remove(importRun.getId());
+        if (errors == null) {
+            return 0;
+        }
+        List<ImportErrorDao.Row> rest = errors.drain();
+        long overflow = errors.getOverflow();
+        if (overflow > 0) {
+            rest.add(new ImportErrorDao.Row(TRUNCATED_CODE, overflow + " further error(s) not stored; at most "
+                    + properties.getMaxErrorsPerRun() + " are kept per import run", null));
+            log.warn("Import run {} had {} error(s) beyond the limit of {}", importRun.getId(), overflow,
+                    properties.getMaxErrorsPerRun());
+        }
+        importErrorDao.insertBatch(importRun.getId(), rest);
+        return overflow;
+    }
+
+    /**
+     * Drop the run's buffered errors without writing them, e.g. when its transaction rolls back.
+     */
+    public void discard(ImportRun importRun) {
+        if (importRun != null && importRun.getId() != null) {
+            runs.remove(importRun.getId());
+        }
+    }
+
+    /**
+     * A resumed run starts from the errors it already stored, so a restart does not reset its limit.
+     */
+    private RunErrors runErrors(ImportRun importRun) {
+        return runs.computeIfAbsent(importRun.getId(), id -> new RunErrors(importErrorDao.countByRun(id)));
+    }
+
+    private static void releaseOnRollback(RunErrors errors, long accepted, long overflow) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    errors.count(-accepted, -overflow);
+                }
+            }
+        });
+    }
+
+    /**
+     * Errors of one run not yet written, plus how many were stored or dropped so far.
+     */
+    private static class RunErrors {
+        private List<ImportErrorDao.Row> buffer = new ArrayList<>();
+        private long accepted;
+        private long overflow;
+
+        RunErrors(long alreadyStored) {
+            this.accepted = alreadyStored;
+        }
+
+        /**
+         * @return a full batch for the caller to write, or null
+         */
+        synchronized List<ImportErrorDao.Row> add(ImportErrorDao.Row row, ImportErrorProperties properties) {
+            if (reserve(1, properties.getMaxErrorsPerRun()) == 0) {
+                return null;
+            }
+            buffer.add(row);
+            return buffer.size() >= Math.max(1, properties.getBatchSize()) ? drain() : null;
+        }
+
+        /**
+         * @return how many of the rows fit under the limit; the rest are counted as overflow
+         */
+        synchronized int reserve(int rows, long limit) {
+            int fit = (int) Math.max(0, Math.min(rows, limit - accepted));
+            accepted += fit;
+            overflow += rows - fit;
+            return fit;
+        }
+
+        synchronized void count(long stored, long dropped) {
+            accepted += stored;
+            overflow += dropped;
+        }
+
+        synchronized List<ImportErrorDao.Row> drain() {
+            List<ImportErrorDao.Row> batch = buffer;
+            buffer = new ArrayList<>();
+            return batch;
+        }
+
+        synchronized long getAccepted() {
+            return accepted;
+        }
+
+        synchronized long getOverflow() {
+            return overflow;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.paymentreconciliation.service;
+
+import com.shared.utilities.logger.LoggerFactoryProvider;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Detects complete files in an ingestion inbox.
+ *
+ * A file is complete when a "<name>.done" marker exists next to it, or (unless the
+ * marker is required) when two samples of its size and mtime taken settleMillis
+ * apart are identical. Inbox listings go through a DirectoryStream capped at
+ * maxFilesPerPoll so huge inboxes are never materialised in one go.
+ *
+ * {@link #start(Consumer)} additionally runs a WatchService loop that hands files
+ * to the dispatcher as soon as they settle, without rescanning the directory.
+ */
+public class InboxWatcher {
+    private static final Logger log = LoggerFactoryProvider.getLogger(InboxWatcher.class);
+
+    static final String DONE_MARKER_SUFFIX = ".done";
+
+    private final Path inboxDir;
+    private final List<String> fileExtensions;
+    private final boolean doneMarkerRequired;
+    private final int maxFilesPerPoll;
+    private final long settleMillis;
+
+    // Files seen by the watch loop that have not settled yet; only touched by the watch thread
+    private final Map<Path, Sample> pending = new LinkedHashMap<>();
+    private volatile WatchService watchService;
+    private volatile Thread watchThread;
+
+    public InboxWatcher(String inboxDir, List<String> fileExtensions, boolean doneMarkerRequired,
+                        int maxFilesPerPoll, long settleMillis) {
+        this.inboxDir = Path.of(inboxDir);
+        this.fileExtensions = List.copyOf(fileExtensions);
+        this.doneMarkerRequired = doneMarkerRequired;
+        this.maxFilesPerPoll = Math.max(1, maxFilesPerPoll);
+        this.settleMillis = Math.max(0, settleMillis);
+    }
+
+    /**
+     * One-shot scan used by explicit polls: stream up to maxFilesPerPoll candidates,
+     * sample them, wait settleMillis once, and return the ones that did not change.
+     */
+    public List<File> scanCompleteFiles() {
+        Map<Path, Sample> first = new LinkedHashMap<>();
+        List<File> complete = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inboxDir, this::isCandidate)) {
+            for (Path path : stream) {
+                if (first.size() + complete.size() >= maxFilesPerPoll) {
+                    log.debug("Reached max files per poll ({}) for inbox {}", maxFilesPerPoll, inboxDir);
+                    break;
+                }
+                if (hasDoneMarker(path)) {
+                    complete.add(path.toFile());
+                } else if (!doneMarkerRequired) {
+                    Sample sample = sample(path);
+                    if (sample != null) {
+                        first.put(path, sample);
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            log.debug("Inbox directory does not exist: {}", inboxDir);
+            return List.of();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list inbox directory: " + inboxDir, e);
+        }
+
+        if (!first.isEmpty() && settleMillis > 0) {
+            sleepQuietly(settleMillis);
+        }
+        for (Map.Entry<Path, Sample> entry : first.entrySet()) {
+            Sample second = sample(entry.getKey());
+            if (entry.getValue().sameAs(second)) {
+                complete.add(entry.getKey().toFile());
+            } else {
+                log.debug("File is still being written: {}", entry.getKey().getFileName());
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Start watching the inbox; complete files are passed to the dispatcher in batches of at most maxFilesPerPoll.
+     */
+    public synchronized void start(Consumer<List<File>> dispatcher) throws IOException {
+        if (watchThread != null) {
+            return;
+        }
+        WatchService ws = inboxDir.getFileSystem().newWatchService();
+        inboxDir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = ws;
+        Thread t = new Thread(() -> watchLoop(ws, dispatcher), "inbox-watcher-" + inboxDir.getFileName());
+        t.setDaemon(true);
+        watchThread = t;
+        t.start();
+        log.info("Watching inbox {} for {} files (doneMarkerRequired={}, settleMillis={})",
+                inboxDir, fileExtensions, doneMarkerRequired, settleMillis);
+    }
+
+    public synchronized void stop() {
+        Thread t = watchThread;
+        watchThread = null;
+        if (t != null) {
+            t.interrupt();
+        }
+        WatchService ws = watchService;
+        watchService = null;
+        if (ws != null) {
+            try {
+                ws.close();
+            } catch (IOException e) {
+                log.debug("Error closing watch service for {}", inboxDir, e);
+            }
+        }
+    }
+
+    /**
+     * Remove the ".done" marker once its file has been claimed by the pipeline.
+     */
+    public void releaseMarker(File file) {
+        try {
+            Files.deleteIfExists(markerFor(file.toPath()));
+        } catch (IOException e) {
+            log.warn("Failed to delete done marker for {}", file.getName(), e);
+        }
+    }
+
+    private void watchLoop(WatchService ws, Consumer<List<File>> dispatcher) {
+        // Pick up whatever landed before the watch was registered
+        seedFromDirectory();
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = pending.isEmpty() ? ws.take() : ws.poll(settleMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // ClosedWatchServiceException on stop()
+                break;
+            }
+            if (key != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        log.warn("Watch events overflowed for {}; rescanning inbox", inboxDir);
+                        seedFromDirectory();
+                        continue;
+                    }
+                    Path name = (Path) event.context();
+                    onEntryChanged(inboxDir.resolve(name));
+                }
+                if (!key.reset()) {
+                    log.warn("Inbox {} is no longer accessible; stopping watcher", inboxDir);
+                    break;
+                }
+            }
+            List<File> ready = collectSettled();
+            if (!ready.isEmpty()) {
+                try {
+                    dispatcher.accept(ready);
+                } catch (Exception e) {
+                    log.error("Failed to dispatch {} file(s) from inbox {}", ready.size(), inboxDir, e);
+                }
+            }
+        }
+        log.info("Inbox watcher stopped for {}", inboxDir);
+    }
+
+    private void onEntryChanged(Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(DONE_MARKER_SUFFIX)) {
+            String target = name.substring(0, name.length() - DONE_MARKER_SUFFIX.length());
+            if (hasWatchedExtension(target)) {
+                pending.putIfAbsent(path.resolveSibling(target), Sample.MARKED);
+            }
+        } else if (hasWatchedExtension(name)) {
+            pending.put(path, sample(path));
+        }
+    }
+
+    private void seedFromDirectory() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inboxDir, this::isCandidate)) {
+            int seen = 0;
+            for (Path path : stream) {
+                if (seen++ >= maxFilesPerPoll) {
+                    // The remainder is picked up by later events or the next explicit poll
+                    break;
+                }
+                pending.putIfAbsent(path, sample(path));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to scan inbox {}", inboxDir, e);
+        }
+    }
+
+    private List<File> collectSettled() {
+        List<File> ready = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Sample>> it = pending.entrySet().iterator();
+        while (it.hasNext() && ready.size() < maxFilesPerPoll) {
+            Map.Entry<Path, Sample> entry = it.next();
+            Path path = entry.getKey();
+            if (!Files.exists(path)) {
+                it.remove();
+                continue;
+            }
+            if (hasDoneMarker(path)) {
+                it.remove();
+                ready.add(path.toFile());
+                continue;
+            }
+            if (doneMarkerRequired) {
+                continue;
+            }
+            Sample previous = entry.getValue();
+            Sample current = sample(path);
+            if (previous != null && previous.sameAs(current) && now - previous.takenAt >= settleMillis) {
+                it.remove();
+                ready.add(path.toFile());
+            } else if (previous == null || !previous.sameAs(current)) {
+                entry.setValue(current);
+            }
+        }
+        return ready;
+    }
+
+    private boolean isCandidate(Path path) {
+        return hasWatchedExtension(path.getFileName().toString()) && Files.isRegularFile(path);
+    }
+
+    private boolean hasWatchedExtension(String name) {
+        for (String extension : fileExtensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasDoneMarker(Path path) {
+        return Files.exists(markerFor(path));
+    }
+
+    private Path markerFor(Path path) {
+        return path.resolveSibling(path.getFileName().toString() + DONE_MARKER_SUFFIX);
+    }
+
+    private Sample sample(Path path) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Sample(attrs.size(), attrs.lastModifiedTime().toMillis(), System.currentTimeMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Sample {
+        // Placeholder for files announced by a marker before the data file itself was seen
+        static final Sample MARKED = new Sample(-1, -1, 0);
+
+        final long size;
+        final long lastModified;
+        final long takenAt;
+
+        Sample(long size, long lastModified, long takenAt) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.takenAt = takenAt;
+        }
+
+        boolean sameAs(Sample other) {
+            return other != null && size == other.size && lastModified == other.lastModified;
+        }
+    }
+}
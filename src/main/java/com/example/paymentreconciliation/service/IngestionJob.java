@@ -0,0 +1,149 @@
+package com.example.paymentreconciliation.service;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory state of one asynchronous ingestion trigger. Updated from ingestion worker
+ * threads through {@link BaseIngestionService.FileProgressListener}, read by status polls;
+ * all access is synchronized on the job.
+ */
+public class IngestionJob implements BaseIngestionService.FileProgressListener {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    public enum FileState {
+        QUEUED, PROCESSING, SUCCEEDED, FAILED, SKIPPED
+    }
+
+    private final String id;
+    private final String feed;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final Map<String, FileEntry> files = new LinkedHashMap<>();
+    private Status status = Status.QUEUED;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String errorMessage;
+    private int polls;
+    private boolean rerunRequested;
+
+    IngestionJob(String id, String feed) {
+        this.id = id;
+        this.feed = feed;
+    }
+
+    /**
+     * One inbox file as seen by this job; a snapshot copy is handed out to readers.
+     */
+    public static class FileEntry {
+        private final String filename;
+        private String processingFilename;
+        private Long importRunId;
+        private FileState state = FileState.QUEUED;
+
+        FileEntry(String filename) {
+            this.filename = filename;
+        }
+
+        FileEntry(FileEntry other) {
+            this.filename = other.filename;
+            this.processingFilename = other.processingFilename;
+            this.importRunId = other.importRunId;
+            this.state = other.state;
+        }
+
+        public String getFilename() { return filename; }
+        public String getProcessingFilename() { return processingFilename; }
+        public Long getImportRunId() { return importRunId; }
+        public FileState getState() { return state; }
+    }
+
+    public String getId() { return id; }
+    public String getFeed() { return feed; }
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public synchronized Status getStatus() { return status; }
+    public synchronized LocalDateTime getStartedAt() { return startedAt; }
+    public synchronized LocalDateTime getFinishedAt() { return finishedAt; }
+    public synchronized String getErrorMessage() { return errorMessage; }
+    public synchronized int getPolls() { return polls; }
+
+    public synchronized List<FileEntry> getFiles() {
+        List<FileEntry> snapshot = new ArrayList<>(files.size());
+        for (FileEntry entry : files.values()) {
+            snapshot.add(new FileEntry(entry));
+        }
+        return snapshot;
+    }
+
+    synchronized boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+
+    synchronized void requestRerun() {
+        rerunRequested = true;
+    }
+
+    /**
+     * Start the next poll, or return false (and complete the job) when no rerun was requested
+     * since the previous one. Checking and completing under one lock means a trigger either
+     * lands on this job before it completes or sees it finished and starts a new one.
+     */
+    synchronized boolean beginPoll() {
+        if (polls > 0 && !rerunRequested) {
+            status = Status.COMPLETED;
+            finishedAt = LocalDateTime.now();
+            return false;
+        }
+        if (polls == 0) {
+            status = Status.RUNNING;
+            startedAt = LocalDateTime.now();
+        }
+        rerunRequested = false;
+        polls++;
+        return true;
+    }
+
+    synchronized void fail(Throwable error) {
+        status = Status.FAILED;
+        finishedAt = LocalDateTime.now();
+        errorMessage = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    @Override
+    public synchronized void fileQueued(File file) {
+        FileEntry entry = entry(file);
+        entry.state = FileState.QUEUED;
+    }
+
+    @Override
+    public synchronized void fileClaimed(File file, File processingFile) {
+        FileEntry entry = entry(file);
+        entry.processingFilename = processingFile.getName();
+        entry.state = FileState.PROCESSING;
+    }
+
+    @Override
+    public synchronized void importRunStarted(File file, Long importRunId) {
+        entry(file).importRunId = importRunId;
+    }
+
+    @Override
+    public synchronized void fileFinished(File file, BaseIngestionService.FileOutcome outcome) {
+        FileEntry entry = entry(file);
+        switch (outcome) {
+            case SUCCEEDED -> entry.state = FileState.SUCCEEDED;
+            case SKIPPED -> entry.state = FileState.SKIPPED;
+            default -> entry.state = FileState.FAILED;
+        }
+    }
+
+    private FileEntry entry(File file) {
+        return files.computeIfAbsent(file.getAbsolutePath(), path -> new FileEntry(file.getName()));
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.paymentreconciliation.service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.example.paymentreconciliation.entity.ImportError;
+import com.example.paymentreconciliation.entity.ImportRun;
+import com.example.paymentreconciliation.model.IngestionJobFileResponse;
+import com.example.paymentreconciliation.model.IngestionJobResponse;
+import com.example.paymentreconciliation.repository.ImportErrorRepository;
+import com.example.paymentreconciliation.repository.ImportRunRepository;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs ingestion triggers as background jobs so the HTTP request returns immediately.
+ *
+ * At most one job per feed is active. A trigger that arrives while one is active is
+ * coalesced into it: the active job polls the inbox once more after its current poll
+ * instead of a second job competing for the same files. Job state is kept in memory:
+ * the active job of each feed plus the last {@value #MAX_RETAINED_JOBS} finished jobs;
+ * file-level detail comes from ImportRun.
+ */
+@Service
+public class IngestionJobService {
+
+    private static final Logger log = LoggerFactoryProvider.getLogger(IngestionJobService.class);
+    private static final int MAX_RETAINED_JOBS = 100;
+    private static final int SHUTDOWN_TIMEOUT_SEC = 60;
+
+    private final ImportRunRepository importRunRepository;
+    private final ImportErrorRepository importErrorRepository;
+    private final ThreadPoolTaskExecutor executor;
+    // Running jobs by feed; a job moves to recentJobs once it ends, so that map only ever evicts finished jobs
+    private final Map<String, IngestionJob> activeJobs = new HashMap<>();
+    private final Map<String, IngestionJob> recentJobs = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IngestionJob> eldest) {
+            return size() > MAX_RETAINED_JOBS;
+        }
+    };
+
+    public IngestionJobService(ImportRunRepository importRunRepository, ImportErrorRepository importErrorRepository) {
+        this.importRunRepository = importRunRepository;
+        this.importErrorRepository = importErrorRepository;
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        // One active job per feed; the file work itself runs on each feed's worker pool
+        taskExecutor.setCorePoolSize(2);
+        taskExecutor.setMaxPoolSize(4);
+        taskExecutor.setQueueCapacity(0);
+        taskExecutor.setThreadNamePrefix("ingestion-job-");
+        taskExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        taskExecutor.setAwaitTerminationSeconds(SHUTDOWN_TIMEOUT_SEC);
+        taskExecutor.initialize();
+        this.executor = taskExecutor;
+    }
+
+    /**
+     * Start an ingestion job for the service's feed, or coalesce into the one already running.
+     */
+    public IngestionJobResponse trigger(BaseIngestionService service) {
+        String feed = service.getFeedName();
+        IngestionJob job;
+        boolean coalesced;
+        synchronized (this) {
+            job = activeJobs.get(feed);
+            coalesced = job != null && job.isActive();
+            if (coalesced) {
+                job.requestRerun();
+            } else {
+                IngestionJob created = new IngestionJob(UUID.randomUUID().toString(), feed);
+                try {
+                    executor.execute(() -> runJob(created, service));
+                } catch (TaskRejectedException e) {
+                    throw new RuntimeException("Unable to start " + feed + " ingestion job", e);
+                }
+                IngestionJob previous = activeJobs.put(feed, created);
+                if (previous != null) {
+                    // Done polling but not yet unregistered by its runner
+                    recentJobs.put(previous.getId(), previous);
+                }
+                job = created;
+            }
+        }
+        log.info("{} {} ingestion job {}", coalesced ? "Coalesced trigger into running" : "Started", feed, job.getId());
+        return toResponse(job, coalesced);
+    }
+
+    /**
+     * @return the job's status, or empty if it is unknown, expired, or belongs to another feed
+     */
+    public Optional<IngestionJobResponse> getJob(String feed, String jobId) {
+        IngestionJob job;
+        synchronized (this) {
+            job = recentJobs.get(jobId);
+            if (job == null) {
+                job = activeJobs.values().stream().filter(active -> active.getId().equals(jobId)).findFirst().orElse(null);
+            }
+        }
+        if (job == null || !job.getFeed().equals(feed)) {
+            return Optional.empty();
+        }
+        return Optional.of(toResponse(job, false));
+    }
+
+    /**
+     * Ingest a pushed file on the calling thread and describe the result like a job's file
+     * entry: outcome, import run id, record counts and the first import errors.
+     */
+    public IngestionJobFileResponse upload(BaseIngestionService service, String fileName, InputStream body) {
+        IngestionJob upload = new IngestionJob(UUID.randomUUID().toString(), service.getFeedName());
+        BaseIngestionService.FileOutcome outcome = service.ingestUpload(fileName, body, upload);
+        List<IngestionJob.FileEntry> entries = upload.getFiles();
+        if (entries.isEmpty()) {
+            throw new IllegalStateException("Upload " + fileName + " finished " + outcome + " without being processed");
+        }
+        IngestionJob.FileEntry entry = entries.get(0);
+        ImportRun run = entry.getImportRunId() != null
+                ? importRunRepository.findById(entry.getImportRunId()).orElse(null) : null;
+        IngestionJobFileResponse response = toFileResponse(entry, run);
+        response.setFilename(fileName);
+        log.info("{} upload {} finished {} (import run {})", service.getFeedName(), fileName, outcome, entry.getImportRunId());
+        return response;
+    }
+
+    private void runJob(IngestionJob job, BaseIngestionService service) {
+        try {
+            while (job.beginPoll()) {
+                service.pollAndProcessInbox(job);
+            }
+            log.info("{} ingestion job {} completed after {} poll(s)", job.getFeed(), job.getId(), job.getPolls());
+        } catch (RuntimeException e) {
+            log.error("{} ingestion job {} failed", job.getFeed(), job.getId(), e);
+            job.fail(e);
+        } finally {
+            synchronized (this) {
+                activeJobs.remove(job.getFeed(), job);
+                recentJobs.put(job.getId(), job);
+            }
+        }
+    }
+
+    private IngestionJobResponse toResponse(IngestionJob job, boolean coalesced) {
+        List<IngestionJob.FileEntry> entries = job.getFiles();
+        List<Long> runIds = entries.stream()
+                .map(IngestionJob.FileEntry::getImportRunId)
+                .filter(id -> id != null)
+                .toList();
+        Map<Long, ImportRun> runs = runIds.isEmpty() ? Map.of()
+                : importRunRepository.findAllById(runIds).stream()
+                        .collect(Collectors.toMap(ImportRun::getId, Function.identity()));
+
+        IngestionJobResponse response = new IngestionJobResponse();
+        response.setJobId(job.getId());
+        response.setFeed(job.getFeed());
+        response.setStatus(job.getStatus().name());
+        response.setCoalesced(coalesced);
+        response.setSubmittedAt(job.getSubmittedAt());
+        response.setStartedAt(job.getStartedAt());
+        response.setFinishedAt(job.getFinishedAt());
+        response.setPolls(job.getPolls());
+        response.setErrorMessage(job.getErrorMessage());
+
+        Map<IngestionJob.FileState, Integer> byState = new HashMap<>();
+        List<IngestionJobFileResponse> files = new ArrayList<>(entries.size());
+        for (IngestionJob.FileEntry entry : entries) {
+            byState.merge(entry.getState(), 1, Integer::sum);
+            files.add(toFileResponse(entry, runs.get(entry.getImportRunId())));
+        }
+        response.setFilesQueued(byState.getOrDefault(IngestionJob.FileState.QUEUED, 0));
+        response.setFilesProcessing(byState.getOrDefault(IngestionJob.FileState.PROCESSING, 0));
+        response.setFilesSucceeded(byState.getOrDefault(IngestionJob.FileState.SUCCEEDED, 0));
+        response.setFilesFailed(byState.getOrDefault(IngestionJob.FileState.FAILED, 0));
+        response.setFilesSkipped(byState.getOrDefault(IngestionJob.FileState.SKIPPED, 0));
+        response.setFiles(files);
+        return response;
+    }
+
+    private IngestionJobFileResponse toFileResponse(IngestionJob.FileEntry entry, ImportRun run) {
+        IngestionJobFileResponse file = new IngestionJobFileResponse();
+        file.setFilename(entry.getFilename());
+        file.setProcessingFilename(entry.getProcessingFilename());
+        file.setState(entry.getState().name());
+        file.setImportRunId(entry.getImportRunId());
+        if (run != null) {
+            file.setImportStatus(run.getStatus() != null ? run.getStatus().name() : null);
+            file.setTotalRecords(run.getTotalRecords());
+            file.setProcessedRecords(run.getProcessedRecords());
+            file.setFailedRecords(run.getFailedRecords());
+            file.setDuplicateRecords(run.getDuplicateRecords());
+            file.setErrorMessage(run.getErrorMessage());
+            if (run.getFailedRecords() != null && run.getFailedRecords() > 0) {
+                List<String> errors = new ArrayList<>();
+                for (ImportError error : importErrorRepository.findTop20ByImportRun_IdOrderByIdAsc(run.getId())) {
+                    errors.add("line " + error.getLineNo() + " [" + error.getCode() + "] " + error.getMessage());
+                }
+                file.setErrors(errors);
+            }
+        }
+        return file;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down ingestion job executor");
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.paymentreconciliation.service;
+
+import com.shared.utilities.logger.LoggerFactoryProvider;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Runs the file tasks of one feed in two lanes, so a large file cannot hold up small ones.
+ *
+ * The fast lane takes small and intraday files, the bulk lane everything else. Each lane
+ * has its own worker threads, so small files keep workers of their own while a backfill
+ * occupies the bulk lane; idle bulk workers help out with fast-lane files, never the
+ * other way round.
+ *
+ * Within a lane, files are queued per source (the sending bank) and taken round-robin
+ * across sources, so one bank dropping hundreds of files does not delay another bank's
+ * single file. A file submitted while its lane's queue is full runs on the submitting
+ * thread, which slows the producer down instead of dropping files.
+ */
+public class IngestionScheduler {
+    private static final Logger log = LoggerFactoryProvider.getLogger(IngestionScheduler.class);
+
+    public enum Lane {
+        FAST, BULK;
+
+        public String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final String name;
+    private final int queueCapacity;
+    private final ObjLongConsumer<Lane> waitRecorder;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    // Guarded by lock
+    private final Map<Lane, LaneQueue> queues = new EnumMap<>(Lane.class);
+    private final List<Thread> workers = new ArrayList<>();
+    private boolean shutdown;
+
+    /**
+     * @param waitRecorder receives the lane and the nanoseconds each file waited for a worker
+     */
+    public IngestionScheduler(String name, int fastThreads, int bulkThreads, int queueCapacity,
+                              ObjLongConsumer<Lane> waitRecorder) {
+        this.name = name;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.waitRecorder = waitRecorder;
+        for (Lane lane : Lane.values()) {
+            queues.put(lane, new LaneQueue());
+        }
+        startWorkers(Lane.FAST, Math.max(1, fastThreads));
+        startWorkers(Lane.BULK, Math.max(1, bulkThreads));
+        log.info("Started ingestion scheduler {} with {} fast and {} bulk worker(s), queue capacity {} per lane",
+                name, Math.max(1, fastThreads), Math.max(1, bulkThreads), this.queueCapacity);
+    }
+
+    private void startWorkers(Lane lane, int threads) {
+        for (int i = 1; i <= threads; i++) {
+            Thread t = new Thread(() -> work(lane), name + "-" + lane.tag() + "-" + i);
+            t.setDaemon(false);
+            workers.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * Queue a file task in the lane, behind earlier files of the same source.
+     *
+     * @param source fairness key, e.g. the sender BIC; files of one source run in submission order
+     * @throws IllegalStateException if the scheduler is shut down
+     */
+    public Future<BaseIngestionService.FileOutcome> submit(Lane lane, String source,
+                                                          Callable<BaseIngestionService.FileOutcome> task) {
+        FutureTask<BaseIngestionService.FileOutcome> future = new FutureTask<>(task);
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException("Ingestion scheduler " + name + " is shut down");
+            }
+            LaneQueue queue = queues.get(lane);
+            if (queue.size < queueCapacity) {
+                queue.add(source, new Task(future, lane, System.nanoTime()));
+                workAvailable.signalAll();
+                return future;
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.debug("{} lane of {} is full; running file on the submitting thread", lane.tag(), name);
+        future.run();
+        return future;
+    }
+
+    private void work(Lane lane) {
+        while (true) {
+            Task task;
+            lock.lock();
+            try {
+                while ((task = next(lane)) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    workAvailable.await();
+                }
+                queues.get(lane).active++;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                waitRecorder.accept(task.lane, System.nanoTime() - task.enqueuedNanos);
+                task.future.run();
+            } finally {
+                lock.lock();
+                try {
+                    queues.get(lane).active--;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Next task for a worker of the lane: its own lane first; bulk workers then take fast-lane files.
+     */
+    private Task next(Lane lane) {
+        Task task = queues.get(lane).poll();
+        if (task == null && lane == Lane.BULK) {
+            task = queues.get(Lane.FAST).poll();
+        }
+        return task;
+    }
+
+    public int getQueued(Lane lane) {
+        lock.lock();
+        try {
+            return queues.get(lane).size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        return getQueued(Lane.FAST) + getQueued(Lane.BULK);
+    }
+
+    public int getActive() {
+        lock.lock();
+        try {
+            return queues.get(Lane.FAST).active + queues.get(Lane.BULK).active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop accepting files; queued files still run.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancel queued files and interrupt the workers.
+     */
+    public void shutdownNow() {
+        lock.lock();
+        try {
+            shutdown = true;
+            for (LaneQueue queue : queues.values()) {
+                queue.cancelAll();
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread t : workers) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * @return true if every worker finished within the timeout
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread t : workers) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return workers.stream().noneMatch(Thread::isAlive);
+            }
+            t.join(remainingMillis);
+        }
+        return workers.stream().noneMatch(Thread::isAlive);
+    }
+
+    private static final class Task {
+        final FutureTask<BaseIngestionService.FileOutcome> future;
+        final Lane lane;
+        final long enqueuedNanos;
+
+        Task(FutureTask<BaseIngestionService.FileOutcome> future, Lane lane, long enqueuedNanos) {
+            this.future = future;
+            this.lane = lane;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    /**
+     * Per-source FIFO queues of one lane. Iteration order of the map is the round-robin
+     * order: a source that was just served moves to the end.
+     */
+    private static final class LaneQueue {
+        final Map<String, ArrayDeque<Task>> bySource = new LinkedHashMap<>();
+        int size;
+        int active;
+
+        void add(String source, Task task) {
+            bySource.computeIfAbsent(source, k -> new ArrayDeque<>()).add(task);
+            size++;
+        }
+
+        Task poll() {
+            Iterator<Map.Entry<String, ArrayDeque<Task>>> it = bySource.entrySet().iterator();
+            if (!it.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, ArrayDeque<Task>> head = it.next();
+            Task task = head.getValue().poll();
+            it.remove();
+            if (!head.getValue().isEmpty()) {
+                bySource.put(head.getKey(), head.getValue());
+            }
+            size--;
+            return task;
+        }
+
+        void cancelAll() {
+            for (ArrayDeque<Task> tasks : bySource.values()) {
+                for (Task task : tasks) {
+                    task.future.cancel(false);
+                }
+            }
+            bySource.clear();
+            size = 0;
+        }
+    }
+}
@@ -1,14 +1,13 @@
 package com.example.paymentreconciliation.service;
 
+import com.example.paymentreconciliation.common.io.FileDigests;
 import com.example.paymentreconciliation.entity.ManualTransactionUpload;
 import com.example.paymentreconciliation.entity.ImportRun;
-import com.example.paymentreconciliation.entity.ImportError;
 import com.example.paymentreconciliation.model.ManualTransactionUploadBatchResponse;
 import com.example.paymentreconciliation.model.ManualTransactionUploadRequest;
 import com.example.paymentreconciliation.model.ManualTransactionUploadResponse;
 import com.example.paymentreconciliation.repository.ManualTransactionUploadRepository;
 import com.example.paymentreconciliation.repository.ImportRunRepository;
-import com.example.paymentreconciliation.repository.ImportErrorRepository;
 import com.shared.utilities.logger.LoggerFactoryProvider;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -24,8 +23,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -51,14 +48,14 @@ public class ManualTransactionUploadService {
 
     private final ManualTransactionUploadRepository repository;
     private final ImportRunRepository importRunRepository;
-    private final ImportErrorRepository importErrorRepository;
+    private final ImportErrorSink importErrorSink;
 
     public ManualTransactionUploadService(ManualTransactionUploadRepository repository,
             ImportRunRepository importRunRepository,
-            ImportErrorRepository importErrorRepository) {
+            ImportErrorSink importErrorSink) {
         this.repository = repository;
         this.importRunRepository = importRunRepository;
-        this.importErrorRepository = importErrorRepository;
+        this.importErrorSink = importErrorSink;
     }
 
     @Transactional
@@ -155,14 +152,19 @@ public class ManualTransactionUploadService {
                     inserted.add(response);
                 } catch (DuplicateManualTransactionException ex) {
                     errors.add("line " + lineNo + ": duplicate in database - " + ex.getMessage());
-                    persistImportError(importRun, "DUPLICATE", ex.getMessage(), lineNo);
+                    importErrorSink.record(importRun, "DUPLICATE", ex.getMessage(), lineNo);
                 } catch (IllegalArgumentException ex) {
                     errors.add("line " + lineNo + ": " + ex.getMessage());
-                    persistImportError(importRun, "VALIDATION", ex.getMessage(), lineNo);
+                    importErrorSink.record(importRun, "VALIDATION", ex.getMessage(), lineNo);
                 }
             }
         } catch (IOException ex) {
+            importErrorSink.discard(importRun);
             throw new IllegalArgumentException("Failed to read CSV: " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            // The transaction rolls back together with the run; nothing buffered for it may be written
+            importErrorSink.discard(importRun);
+            throw ex;
         }
 
         ManualTransactionUploadBatchResponse response = new ManualTransactionUploadBatchResponse();
@@ -308,15 +310,6 @@ public class ManualTransactionUploadService {
         return null;
     }
 
-    private void persistImportError(ImportRun importRun, String code, String message, Integer lineNo) {
-        ImportError error = new ImportError();
-        error.setImportRun(importRun);
-        error.setCode(code);
-        error.setMessage(message);
-        error.setLineNo(lineNo);
-        importErrorRepository.save(error);
-    }
-
     private ImportRun createImportRun(MultipartFile file, byte[] content) {
         String hash = sha256(content);
         // Reuse existing run if same file hash already processed/started
@@ -343,6 +336,7 @@ public class ManualTransactionUploadService {
     }
 
     private void finalizeImportRun(ImportRun importRun, int total, int inserted, int failed, String errorMessage) {
+        importErrorSink.finish(importRun);
         importRun.setTotalRecords(total);
         importRun.setProcessedRecords(inserted);
         importRun.setFailedRecords(failed);
@@ -360,21 +354,7 @@ public class ManualTransactionUploadService {
     }
 
     private String sha256(byte[] content) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(content);
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException("SHA-256 algorithm not available", e);
-        }
+        return FileDigests.sha256Hex(content);
     }
 
     private void validateFile(MultipartFile file) {
@@ -0,0 +1,376 @@
+package com.example.paymentreconciliation.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single-pass tokenizer for the MT940 tags we actually persist
+ * (20/25/28C/60F/60M/61/62F/62M/64/65/86).
+ *
+ * Components are split exactly like Prowide's Field60F/Field61 etc. so both paths
+ * feed the same Statement builder. Anything outside the common single-line shape
+ * (multi-line :61:/:86:, funds codes, repeated balances, missing block 4 trailer)
+ * returns null so the caller falls back to MT940.parse.
+ *
+ * When raw capture is on, every tagged field of block 4 is also recorded as a RawLine
+ * (physical line number, tag, text including continuation lines), attributed to the
+ * :61: transaction it follows. {@link #rawLines(String, int)} does the same scan for
+ * messages that went through Prowide.
+ */
+final class Mt940FastTokenizer {
+
+    private static final String BLOCK4_START = "{4:";
+
+    private Mt940FastTokenizer() {
+    }
+
+    /**
+     * Raw field components of one MT940 message. Balance and :61: arrays are indexed
+     * by Prowide component number (index 0 unused).
+     */
+    static final class TokenizedMessage {
+        String field20;
+        String field25;
+        String field28C;
+        String[] field60F;
+        String[] field62F;
+        String[] field64;
+        boolean interim;
+        final List<String[]> field65 = new ArrayList<>();
+        final List<String[]> field61 = new ArrayList<>();
+        final List<String> field86 = new ArrayList<>();
+        List<Mt940Parser.RawLine> rawLines;
+    }
+
+    /**
+     * @return the tokenized message, or null when the message should go through Prowide instead
+     */
+    static TokenizedMessage tokenize(String message, int firstLineNo, boolean captureRawLines) {
+        int block4 = message.indexOf(BLOCK4_START);
+        if (block4 < 0) {
+            return null;
+        }
+        TokenizedMessage out = new TokenizedMessage();
+        RawLineRecorder recorder = captureRawLines ? new RawLineRecorder() : null;
+        String tag = null;
+        String value = null;
+        boolean trailerSeen = false;
+        int pos = block4 + BLOCK4_START.length();
+        int len = message.length();
+        int lineNo = firstLineNo + countNewlines(message, block4);
+        while (pos < len) {
+            int eol = message.indexOf('\n', pos);
+            if (eol < 0) {
+                eol = len;
+            }
+            int end = eol > pos && message.charAt(eol - 1) == '\r' ? eol - 1 : eol;
+            String line = message.substring(pos, end);
+            pos = eol + 1;
+            int currentLineNo = lineNo++;
+
+            if (line.startsWith("-}")) {
+                trailerSeen = true;
+                break;
+            }
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.charAt(0) == ':') {
+                int close = line.indexOf(':', 1);
+                if (close < 2) {
+                    return null;
+                }
+                if (tag != null && !accept(out, tag, value)) {
+                    return null;
+                }
+                tag = line.substring(1, close);
+                value = line.substring(close + 1);
+                if (recorder != null) {
+                    recorder.startField(tag, currentLineNo, line);
+                }
+            } else if (tag != null) {
+                // Continuation lines (multi-line :86:, :61: supplementary details) are left to Prowide
+                return null;
+            }
+        }
+        if (!trailerSeen) {
+            return null;
+        }
+        if (tag != null && !accept(out, tag, value)) {
+            return null;
+        }
+        if (recorder != null) {
+            out.rawLines = recorder.finish();
+        }
+        return out;
+    }
+
+    /**
+     * Record the tagged fields of block 4 without tokenizing them; used for messages parsed by Prowide.
+     */
+    static List<Mt940Parser.RawLine> rawLines(String message, int firstLineNo) {
+        RawLineRecorder recorder = new RawLineRecorder();
+        int block4 = message.indexOf(BLOCK4_START);
+        if (block4 < 0) {
+            return recorder.finish();
+        }
+        int pos = block4 + BLOCK4_START.length();
+        int len = message.length();
+        int lineNo = firstLineNo + countNewlines(message, block4);
+        while (pos < len) {
+            int eol = message.indexOf('\n', pos);
+            if (eol < 0) {
+                eol = len;
+            }
+            int end = eol > pos && message.charAt(eol - 1) == '\r' ? eol - 1 : eol;
+            String line = message.substring(pos, end);
+            pos = eol + 1;
+            int currentLineNo = lineNo++;
+            if (line.startsWith("-}")) {
+                break;
+            }
+            if (line.isEmpty()) {
+                continue;
+            }
+            int close = line.charAt(0) == ':' ? line.indexOf(':', 1) : -1;
+            if (close >= 2) {
+                recorder.startField(line.substring(1, close), currentLineNo, line);
+            } else {
+                recorder.continueField(line);
+            }
+        }
+        return recorder.finish();
+    }
+
+    private static int countNewlines(String s, int to) {
+        int n = 0;
+        for (int i = 0; i < to; i++) {
+            if (s.charAt(i) == '\n') {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Accumulates tagged fields (with continuation lines) and attributes each one to the
+     * transaction ordinal of the most recent :61:. Fields before the first :61:, and from
+     * the closing balance onwards, belong to the statement (ordinal 0).
+     */
+    private static final class RawLineRecorder {
+        private final List<Mt940Parser.RawLine> lines = new ArrayList<>();
+        private Mt940Parser.RawLine open;
+        private StringBuilder text;
+        private int txnOrdinal;
+        private boolean afterTransactions;
+
+        void startField(String tag, int lineNo, String line) {
+            close();
+            if ("61".equals(tag)) {
+                txnOrdinal++;
+            } else if (!"86".equals(tag) && txnOrdinal > 0) {
+                afterTransactions = true;
+            }
+            open = new Mt940Parser.RawLine();
+            open.lineNo = lineNo;
+            open.tag = tag;
+            open.txnLineNo = afterTransactions ? 0 : txnOrdinal;
+            text = new StringBuilder(line);
+        }
+
+        void continueField(String line) {
+            if (open != null) {
+                text.append('\n').append(line);
+            }
+        }
+
+        List<Mt940Parser.RawLine> finish() {
+            close();
+            return lines;
+        }
+
+        private void close() {
+            if (open != null) {
+                open.rawText = text.toString();
+                lines.add(open);
+                open = null;
+                text = null;
+            }
+        }
+    }
+
+    private static boolean accept(TokenizedMessage out, String tag, String value) {
+        switch (tag) {
+            case "20":
+                if (out.field20 != null) return false;
+                out.field20 = value;
+                return true;
+            case "25":
+                if (out.field25 != null) return false;
+                out.field25 = value;
+                return true;
+            case "28C":
+                if (out.field28C != null) return false;
+                out.field28C = value;
+                return true;
+            case "60F":
+                if (out.field60F != null) return false;
+                out.field60F = balance(value);
+                return out.field60F != null;
+            case "62F":
+                if (out.field62F != null) return false;
+                out.field62F = balance(value);
+                return out.field62F != null;
+            case "60M":
+            case "62M":
+                out.interim = true;
+                return true;
+            case "64":
+                if (out.field64 != null) return false;
+                out.field64 = balance(value);
+                return out.field64 != null;
+            case "65": {
+                String[] b = balance(value);
+                if (b == null) return false;
+                out.field65.add(b);
+                return true;
+            }
+            case "61": {
+                String[] t = statementLine(value);
+                if (t == null) return false;
+                out.field61.add(t);
+                return true;
+            }
+            case "86":
+                out.field86.add(value);
+                return true;
+            default:
+                // Tags we do not map (21, 13D, 34F, ...) are ignored, as with Prowide
+                return true;
+        }
+    }
+
+    /**
+     * 1!a6!n3!a15d : D/C mark, date, currency, amount.
+     */
+    private static String[] balance(String value) {
+        if (value == null || value.length() < 12) {
+            return null;
+        }
+        char dc = value.charAt(0);
+        if (dc != 'D' && dc != 'C') {
+            return null;
+        }
+        if (!isDigits(value, 1, 7) || !isUpperAlpha(value, 7, 10) || !isAmount(value, 10, value.length())) {
+            return null;
+        }
+        return new String[] { null, value.substring(0, 1), value.substring(1, 7), value.substring(7, 10), value.substring(10) };
+    }
+
+    /**
+     * 6!n[4!n]2a[1!a]15d1!a3!c16x[//16x] on a single line.
+     */
+    private static String[] statementLine(String value) {
+        if (value == null || value.length() < 6 || !isDigits(value, 0, 6)) {
+            return null;
+        }
+        String[] c = new String[11];
+        c[1] = value.substring(0, 6);
+        int p = 6;
+        int digits = countDigits(value, p);
+        if (digits == 4) {
+            c[2] = value.substring(p, p + 4);
+            p += 4;
+        } else if (digits != 0) {
+            return null;
+        }
+        if (value.startsWith("RD", p) || value.startsWith("RC", p)) {
+            c[3] = value.substring(p, p + 2);
+            p += 2;
+        } else if (p < value.length() && (value.charAt(p) == 'D' || value.charAt(p) == 'C')) {
+            c[3] = value.substring(p, p + 1);
+            p += 1;
+        } else {
+            return null;
+        }
+        if (p >= value.length() || !Character.isDigit(value.charAt(p))) {
+            // Funds code present (or garbage): leave the disambiguation to Prowide
+            return null;
+        }
+        int amountEnd = p;
+        while (amountEnd < value.length() && (Character.isDigit(value.charAt(amountEnd)) || value.charAt(amountEnd) == ',')) {
+            amountEnd++;
+        }
+        if (!isAmount(value, p, amountEnd)) {
+            return null;
+        }
+        c[5] = value.substring(p, amountEnd);
+        p = amountEnd;
+        if (value.length() < p + 4) {
+            return null;
+        }
+        char type = value.charAt(p);
+        if (type != 'N' && type != 'F' && type != 'S') {
+            return null;
+        }
+        c[6] = value.substring(p, p + 1);
+        c[7] = value.substring(p + 1, p + 4);
+        p += 4;
+        String refs = value.substring(p);
+        int sep = refs.indexOf("//");
+        if (sep >= 0) {
+            c[8] = refs.substring(0, sep);
+            c[9] = refs.substring(sep + 2);
+        } else {
+            c[8] = refs;
+        }
+        return c;
+    }
+
+    private static boolean isAmount(String s, int from, int to) {
+        if (to <= from) {
+            return false;
+        }
+        int commas = 0;
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch == ',') {
+                commas++;
+            } else if (ch < '0' || ch > '9') {
+                return false;
+            }
+        }
+        return commas == 1 && s.charAt(from) != ',';
+    }
+
+    private static boolean isDigits(String s, int from, int to) {
+        if (s.length() < to) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUpperAlpha(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (ch < 'A' || ch > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int countDigits(String s, int from) {
+        int i = from;
+        while (i < s.length() && Character.isDigit(s.charAt(i))) {
+            i++;
+        }
+        return i - from;
+    }
+}
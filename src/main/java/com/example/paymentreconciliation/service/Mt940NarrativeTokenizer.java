@@ -0,0 +1,223 @@
+package com.example.paymentreconciliation.service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Extracts the fields reconciliation matches on from free-text :86: narratives as Indian
+ * banks write them, e.g.
+ * <pre>
+ *   RTGS-HDFCR52025052674501425-XYZ PVT LTD
+ *   NEFT-AXISCN0123456789-ABC TRADERS-HDFC0001234
+ *   UPI/412345678901/JOHN DOE/john@okaxis/HDFC BANK
+ *   BY TRANSFER-NEFT*SBIN0001234*N123456789012*ACME LTD
+ * </pre>
+ *
+ * The narrative is split on '-', '/' and '*' in one pass (line breaks inside the field are
+ * dropped, since banks wrap at 35 characters regardless of token boundaries). Nothing is
+ * extracted unless a payment channel keyword is found; after it, each part is classified by
+ * shape, ignoring case: IFSC (4 letters, '0', 6 alphanumerics), UTR/RRN (12-35
+ * alphanumerics, mostly digits), VPA (contains '@'), account number (9-18 digits) and the
+ * first remaining name-like part as the counterparty. IFSC and UTR are stored upper-cased
+ * so they match the bank's own records; VPA and counterparty keep the case they were
+ * written in. No regular expressions.
+ */
+final class Mt940NarrativeTokenizer {
+
+    static final String CHANNEL = "channel";
+    static final String UTR = "utr";
+    static final String COUNTERPARTY = "counterparty";
+    static final String IFSC = "ifsc";
+    static final String ACCOUNT = "account";
+    static final String VPA = "vpa";
+
+    private static final int MAX_PARTS = 16;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private Mt940NarrativeTokenizer() {
+    }
+
+    /**
+     * @return extracted tokens in a stable key order; empty if the narrative is not a recognised payment
+     */
+    static Map<String, String> tokenize(String narrative) {
+        Map<String, String> tokens = new LinkedHashMap<>();
+        if (narrative == null || narrative.isEmpty()) {
+            return tokens;
+        }
+        String[] parts = split(narrative);
+        int i = 0;
+        String channel = null;
+        for (; i < parts.length && parts[i] != null; i++) {
+            channel = channel(parts[i]);
+            if (channel != null) {
+                i++;
+                break;
+            }
+        }
+        if (channel == null) {
+            return tokens;
+        }
+        tokens.put(CHANNEL, channel);
+        for (; i < parts.length && parts[i] != null; i++) {
+            String part = parts[i];
+            if (part.indexOf(' ') < 0 && channel(part) != null) {
+                continue; // "MMT/IMPS/...": a second channel keyword is not a counterparty
+            }
+            if (!tokens.containsKey(IFSC) && isIfsc(part)) {
+                tokens.put(IFSC, part.toUpperCase(Locale.ROOT));
+            } else if (part.indexOf('@') > 0 && part.indexOf(' ') < 0) {
+                tokens.putIfAbsent(VPA, part);
+            } else if (!tokens.containsKey(UTR) && isUtr(part)) {
+                tokens.put(UTR, part.toUpperCase(Locale.ROOT));
+            } else if (isAccountNumber(part)) {
+                tokens.putIfAbsent(ACCOUNT, part);
+            } else if (!tokens.containsKey(COUNTERPARTY) && isName(part)) {
+                tokens.put(COUNTERPARTY, part);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Serialize a flat token map as a JSON object for the narrative_tokens jsonb column.
+     *
+     * @return the JSON text, or null for an empty map
+     */
+    static String toJson(Map<String, String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return null;
+        }
+        try {
+            return JSON.writeValueAsString(tokens);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize narrative tokens", e);
+        }
+    }
+
+    /**
+     * Split on the narrative delimiters, trimming each part and skipping empty ones. Parts keep
+     * their original case.
+     * The returned array is null-terminated when fewer than {@value #MAX_PARTS} parts exist;
+     * anything past the limit is free text and is ignored.
+     */
+    private static String[] split(String narrative) {
+        String[] parts = new String[MAX_PARTS];
+        int count = 0;
+        StringBuilder current = new StringBuilder(narrative.length());
+        for (int i = 0, len = narrative.length(); i <= len && count < MAX_PARTS; i++) {
+            char c = i < len ? narrative.charAt(i) : '-';
+            if (c == '-' || c == '/' || c == '*') {
+                String part = current.toString().trim();
+                if (!part.isEmpty()) {
+                    parts[count++] = part;
+                }
+                current.setLength(0);
+            } else if (c != '\r' && c != '\n') {
+                current.append(c);
+            }
+        }
+        return parts;
+    }
+
+    private static String channel(String part) {
+        switch (part.toUpperCase(Locale.ROOT)) {
+            case "NEFT", "RTGS", "IMPS", "UPI", "NACH", "ECS", "ACH":
+                return part.toUpperCase(Locale.ROOT);
+            case "MMT":
+                return "IMPS";
+            case "INFT", "IFT", "FT":
+                return "FT";
+            case "CHQ", "CLG", "CHEQUE":
+                return "CHQ";
+            default:
+                // "BY TRANSFER NEFT", "TO RTGS" etc.: the channel is the last word
+                int space = part.lastIndexOf(' ');
+                return space > 0 ? channel(part.substring(space + 1)) : null;
+        }
+    }
+
+    private static boolean isIfsc(String part) {
+        if (part.length() != 11 || part.charAt(4) != '0') {
+            return false;
+        }
+        for (int i = 0; i < 4; i++) {
+            if (!isLetter(part.charAt(i))) {
+                return false;
+            }
+        }
+        for (int i = 5; i < 11; i++) {
+            if (!isLetter(part.charAt(i)) && !isDigit(part.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * RTGS UTRs are usually 22 characters (HDFCR52025052674501425) but some banks write 23 or
+     * more (UTIBR732025052600055579), NEFT 16 (AXISCN0123456789), IMPS/UPI RRNs 12 digits; all
+     * are alphanumeric and mostly digits. Anything up to a full 35-character narrative line is
+     * accepted.
+     */
+    private static boolean isUtr(String part) {
+        int len = part.length();
+        if (len < 12 || len > 35) {
+            return false;
+        }
+        int digits = 0;
+        for (int i = 0; i < len; i++) {
+            char c = part.charAt(i);
+            if (isDigit(c)) {
+                digits++;
+            } else if (!isLetter(c)) {
+                return false;
+            }
+        }
+        // All digits: 12 is an RRN, 13-18 looks like an account number, longer is a reference again
+        return digits >= len / 2 && (digits < len || len == 12 || len > 18);
+    }
+
+    private static boolean isAccountNumber(String part) {
+        int len = part.length();
+        if (len < 9 || len > 18) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (!isDigit(part.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A counterparty has at least three letters and is not a transfer subtype such as P2A.
+     */
+    private static boolean isName(String part) {
+        if (part.length() < 3
+                || (part.length() == 3 && (part.charAt(0) == 'P' || part.charAt(0) == 'p') && part.charAt(1) == '2')) {
+            return false;
+        }
+        int letters = 0;
+        for (int i = 0; i < part.length() && letters < 3; i++) {
+            if (isLetter(part.charAt(i))) {
+                letters++;
+            }
+        }
+        return letters >= 3;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -1,13 +1,19 @@
 package com.example.paymentreconciliation.service;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+
+import com.example.paymentreconciliation.common.io.FileDigests;
 
 // prowidesoftware dependency (add to pom.xml):
 // <dependency>
@@ -25,125 +31,216 @@ import com.prowidesoftware.swift.model.field.*;
  */
 public class Mt940Parser {
 
+    private final boolean fastTokenizerEnabled;
+    private final boolean rawLinesEnabled;
+
+    public Mt940Parser() {
+        this(false, false);
+    }
+
+    /**
+     * @param fastTokenizerEnabled tokenize common single-line messages without Prowide,
+     *                             falling back to MT940.parse for anything unusual
+     * @param rawLinesEnabled      record every tagged line of block 4 in Statement.rawLines for the audit trail
+     */
+    public Mt940Parser(boolean fastTokenizerEnabled, boolean rawLinesEnabled) {
+        this.fastTokenizerEnabled = fastTokenizerEnabled;
+        this.rawLinesEnabled = rawLinesEnabled;
+    }
+
     /**
      * Parse the given MT940 file into a list of Statement objects.
      * Throws exception on parse/validation error.
      */
     public List<Statement> parse(File mt940File) throws Mt940ParseException {
         List<Statement> statements = new ArrayList<>();
-        String content;
-        try {
-            content = Files.readString(mt940File.toPath(), StandardCharsets.UTF_8);
+        parse(mt940File, statements::add);
+        return statements;
+    }
+
+    /**
+     * Stream the given MT940 file, handing each statement to the consumer as soon as its
+     * message has been read. Only one SWIFT message is held in memory at a time.
+     */
+    public void parse(File mt940File, Consumer<Statement> consumer) throws Mt940ParseException {
+        try (Reader reader = Files.newBufferedReader(mt940File.toPath(), StandardCharsets.UTF_8)) {
+            parse(reader, consumer);
         } catch (IOException e) {
             throw new Mt940ParseException("Failed to read MT940 file", e);
         }
+    }
 
-        // Split file into multiple MT940 messages if needed
-        List<String> mt940Messages = splitMessages(content);
+    /**
+     * Stream MT940 messages from the reader; the caller owns (and closes) the reader.
+     */
+    public void parse(Reader reader, Consumer<Statement> consumer) throws Mt940ParseException {
+        MessageReader messages = new MessageReader(reader);
         int statementIndex = 0;
-        for (String msg : mt940Messages) {
+        String msg;
+        try {
+            msg = messages.next();
+        } catch (IOException e) {
+            throw new Mt940ParseException("Failed to read MT940 file", e);
+        }
+        while (msg != null) {
+            Statement stmt;
             try {
-                MT940 mt940 = MT940.parse(msg);
-                Statement stmt = new Statement();
-                stmt.stmtRef20 = getFieldValue(mt940, Field20.class);
-                stmt.seq28c = getFieldValue(mt940, Field28C.class);
-                stmt.accountNo = getFieldValue(mt940, Field25.class);
-                stmt.currency = getOpeningBalanceCurrency(mt940);
-                stmt.isInterim = isInterim(mt940);
-                stmt.openingBalance = toBalance(mt940.getField60F(), "OPENING");
-                stmt.closingBalance = toBalance(mt940.getField62F(), "CLOSING");
-                stmt.otherBalances = new ArrayList<>();
-                if (mt940.getField64() != null) stmt.otherBalances.add(toBalance(mt940.getField64(), "AVAILABLE"));
-                // Field65 can be multiple (forward available balances)
-                List<Field65> f65s = mt940.getField65();
-                if (f65s != null) {
-                    for (Field65 f65 : f65s) {
-                        stmt.otherBalances.add(toBalance(f65, "FORWARD"));
-                    }
-                }
-                stmt.transactions = new ArrayList<>();
-                List<Field61> txns = mt940.getField61();
-                List<Field86> narrs = mt940.getField86();
-                int txnCount = txns != null ? txns.size() : 0;
-                for (int i = 0; i < txnCount; i++) {
-                    Field61 f61 = txns.get(i);
-                    Field86 f86 = (narrs != null && narrs.size() > i) ? narrs.get(i) : null;
-                    Transaction txn = toTransaction(f61, f86, stmt, i + 1);
-                    stmt.transactions.add(txn);
-                }
-                stmt.rawLines = new ArrayList<>(); // Optionally fill for audit
-                statements.add(stmt);
+                stmt = toStatement(msg, messages.startLine());
             } catch (Exception e) {
                 throw new Mt940ParseException("Failed to parse statement at index " + statementIndex, e);
             }
+            // Consumer failures are not parse errors; let them propagate as-is
+            consumer.accept(stmt);
             statementIndex++;
+            try {
+                msg = messages.next();
+            } catch (IOException e) {
+                throw new Mt940ParseException("Failed to read MT940 file after statement index " + (statementIndex - 1), e);
+            }
         }
-        return statements;
     }
 
-    // --- prowidesoftware helpers ---
-
-    private <T> String getFieldValue(MT940 mt940, Class<T> fieldClass) {
-        if (fieldClass == Field20.class && mt940.getField20() != null) return mt940.getField20().getValue();
-        if (fieldClass == Field25.class && mt940.getField25() != null) return mt940.getField25().getValue();
-        if (fieldClass == Field28C.class && mt940.getField28C() != null) return mt940.getField28C().getValue();
-        return null;
+    /**
+     * Tokenize one message, through the fast path when enabled and Prowide otherwise
+     * (or when the fast path declines the message).
+     */
+    private Statement toStatement(String msg, int firstLineNo) {
+        Mt940FastTokenizer.TokenizedMessage tokens = fastTokenizerEnabled
+                ? Mt940FastTokenizer.tokenize(msg, firstLineNo, rawLinesEnabled) : null;
+        if (tokens == null) {
+            tokens = fromProwide(MT940.parse(msg));
+            if (rawLinesEnabled) {
+                tokens.rawLines = Mt940FastTokenizer.rawLines(msg, firstLineNo);
+            }
+        }
+        return toStatement(tokens);
     }
 
-    private String getOpeningBalanceCurrency(MT940 mt940) {
+    private Statement toStatement(Mt940FastTokenizer.TokenizedMessage tokens) {
+        Statement stmt = new Statement();
+        stmt.stmtRef20 = tokens.field20;
+        stmt.seq28c = tokens.field28C;
+        stmt.accountNo = tokens.field25;
         // Field60F: 1=DC, 2=Date, 3=Currency, 4=Amount
-        if (mt940.getField60F() != null) return mt940.getField60F().getComponent(3);
-        return null;
+        stmt.currency = tokens.field60F != null ? tokens.field60F[3] : null;
+        stmt.isInterim = tokens.interim;
+        stmt.openingBalance = toBalance(tokens.field60F, "OPENING");
+        stmt.closingBalance = toBalance(tokens.field62F, "CLOSING");
+        stmt.otherBalances = new ArrayList<>();
+        if (tokens.field64 != null) stmt.otherBalances.add(toBalance(tokens.field64, "AVAILABLE"));
+        // Field65 can be multiple (forward available balances)
+        for (String[] f65 : tokens.field65) {
+            stmt.otherBalances.add(toBalance(f65, "FORWARD"));
+        }
+        stmt.transactions = new ArrayList<>();
+        List<String[]> txns = tokens.field61;
+        List<String> narrs = tokens.field86;
+        for (int i = 0; i < txns.size(); i++) {
+            String narrative = narrs.size() > i ? narrs.get(i) : null;
+            stmt.transactions.add(toTransaction(txns.get(i), narrative, stmt, i + 1));
+        }
+        stmt.rawLines = tokens.rawLines != null ? tokens.rawLines : new ArrayList<>();
+        return stmt;
     }
 
-    private boolean isInterim(MT940 mt940) {
-        if (mt940.getField60M() != null || mt940.getField62M() != null) return true;
-        return false;
+    // --- prowidesoftware helpers ---
+
+    /**
+     * Copy the Prowide field components into the same shape the fast tokenizer produces,
+     * so both paths share one Statement builder.
+     */
+    private Mt940FastTokenizer.TokenizedMessage fromProwide(MT940 mt940) {
+        Mt940FastTokenizer.TokenizedMessage tokens = new Mt940FastTokenizer.TokenizedMessage();
+        tokens.field20 = mt940.getField20() != null ? mt940.getField20().getValue() : null;
+        tokens.field25 = mt940.getField25() != null ? mt940.getField25().getValue() : null;
+        tokens.field28C = mt940.getField28C() != null ? mt940.getField28C().getValue() : null;
+        tokens.interim = mt940.getField60M() != null || mt940.getField62M() != null;
+        tokens.field60F = components(mt940.getField60F(), 4);
+        tokens.field62F = components(mt940.getField62F(), 4);
+        tokens.field64 = components(mt940.getField64(), 4);
+        List<Field65> f65s = mt940.getField65();
+        if (f65s != null) {
+            for (Field65 f65 : f65s) {
+                tokens.field65.add(components(f65, 4));
+            }
+        }
+        List<Field61> f61s = mt940.getField61();
+        if (f61s != null) {
+            for (Field61 f61 : f61s) {
+                tokens.field61.add(components(f61, 10));
+            }
+        }
+        List<Field86> f86s = mt940.getField86();
+        if (f86s != null) {
+            for (Field86 f86 : f86s) {
+                tokens.field86.add(f86.getValue());
+            }
+        }
+        return tokens;
     }
 
-    private Balance toBalance(Field field, String type) {
+    private String[] components(Field field, int count) {
         if (field == null) return null;
+        String[] c = new String[count + 1];
+        for (int i = 1; i <= count; i++) {
+            c[i] = field.getComponent(i);
+        }
+        return c;
+    }
+
+    private Balance toBalance(String[] c, String type) {
+        if (c == null) return null;
         Balance b = new Balance();
         b.type = type;
         // Field60F, Field62F, Field64, Field65: 1=DC, 2=Date, 3=Currency, 4=Amount
-        b.dc = field.getComponent(1);
-        b.date = field.getComponent(2);
-        b.currency = field.getComponent(3);
-        b.amount = field.getComponent(4);
+        b.dc = c[1];
+        b.date = c[2];
+        b.currency = c[3];
+        b.amount = c[4];
         return b;
     }
 
-    private Transaction toTransaction(Field61 f61, Field86 f86, Statement stmt, int lineNo) {
+    /**
+     * Shared with {@link Mt942Parser}; MT942 :61: has the same components.
+     */
+    static Transaction toTransaction(String[] f61, String narrative, Statement stmt, int lineNo) {
         Transaction t = new Transaction();
         t.lineNo = lineNo;
-        // Field61: 1=ValueDate, 2=EntryDate, 3=DC, 4=FundsCode, 5=Amount, 6=TxnType, 7=BankRef, 8=CustRef, 9=SuppDetails
-        t.valueDate = f61.getComponent(1);
-        t.entryDate = f61.getComponent(2);
-        t.dc = f61.getComponent(3);
-        t.amount = f61.getComponent(5);
+        // Field61: 1=ValueDate, 2=EntryDate, 3=DC, 4=FundsCode, 5=Amount, 6=TxnType, 7=BankRef, 8=CustRef, 9=EntryRef, 10=SuppDetails
+        t.valueDate = emptyToNull(f61[1]);
+        t.entryDate = emptyToNull(f61[2]);
+        t.dc = emptyToNull(f61[3]);
+        t.amount = emptyToNull(f61[5]);
         t.signedAmount = getSignedAmount(t.amount, t.dc);
         t.currency = stmt.currency;
-        t.txnTypeCode = f61.getComponent(6);
-        t.bankReference = f61.getComponent(7);
-        t.customerReference = f61.getComponent(8);
-        t.entryReference = f61.getComponent(9);
-        t.narrative = (f86 != null) ? f86.getValue() : null;
+        t.txnTypeCode = emptyToNull(f61[6]);
+        t.bankReference = emptyToNull(f61[7]);
+        t.customerReference = emptyToNull(f61[8]);
+        t.entryReference = emptyToNull(f61[9]);
+        t.supplementaryDetails = f61.length > 10 ? emptyToNull(f61[10]) : null;
+        t.narrative = narrative;
         t.narrativeTokens = parseNarrativeTokens(t.narrative);
         t.extIdempotencyHash = computeIdempotencyHash(stmt, t);
         return t;
     }
 
-    private String getSignedAmount(String amount, String dc) {
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static String getSignedAmount(String amount, String dc) {
         if (amount == null || dc == null) return null;
         return ("D".equalsIgnoreCase(dc) ? "-" : "") + amount;
     }
 
-    private Map<String, String> parseNarrativeTokens(String narrative) {
-        // Optionally parse structured :86: segments into key-value pairs
-        return new HashMap<>();
+    private static Map<String, String> parseNarrativeTokens(String narrative) {
+        return Mt940NarrativeTokenizer.tokenize(narrative);
     }
 
-    private String computeIdempotencyHash(Statement stmt, Transaction t) {
+    /**
+     * Shared with {@link Camt053Parser}, which maps its statement and entry references onto the same fields.
+     */
+    static String computeIdempotencyHash(Statement stmt, Transaction t) {
         // Hash(account, :20:, :28C:, value_date, amount, DC, entry_ref, bank_ref, cust_ref)
         String raw = String.join("|",
                 stmt.accountNo != null ? stmt.accountNo : "",
@@ -156,36 +253,159 @@ public class Mt940Parser {
                 t.bankReference != null ? t.bankReference : "",
                 t.customerReference != null ? t.customerReference : ""
         );
+        return FileDigests.sha256Hex(raw);
+    }
+
+    /**
+     * Keys identifying each transaction of the statement independently of the message it
+     * arrived in, in transaction order. An MT942 entry and the same entry in the final MT940
+     * get the same key, which is how intraday rows are found again at end of day.
+     *
+     * Hash(base key, n), where n counts repeats of the same entry within the statement so two
+     * identical payments on one day stay apart. A final statement lists the whole day, so this
+     * numbering is complete; an intraday report only lists part of it and is numbered against
+     * the rows already stored instead (see {@link StatementIngestionService}).
+     */
+    static List<String> intradayKeys(Statement stmt) {
+        return intradayKeys(intradayBaseKeys(stmt));
+    }
+
+    /**
+     * @param baseKeys {@link #intradayBaseKeys} of the statement
+     */
+    static List<String> intradayKeys(List<String> baseKeys) {
+        List<String> keys = new ArrayList<>(baseKeys.size());
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (String baseKey : baseKeys) {
+            keys.add(intradayKey(baseKey, occurrences.merge(baseKey, 1, Integer::sum)));
+        }
+        return keys;
+    }
+
+    /**
+     * Hash(account, value_date, amount, DC, bank_ref, cust_ref, entry_ref, supplementary
+     * details) of each transaction, in transaction order: the entry without its occurrence
+     * number. The message references are left out because they differ between the reports,
+     * and amounts and dates are normalized so "100,00"/"100.00" and YYMMDD/YYYY-MM-DD agree.
+     */
+    static List<String> intradayBaseKeys(Statement stmt) {
+        List<String> keys = new ArrayList<>(stmt.transactions.size());
+        for (Transaction t : stmt.transactions) {
+            String raw = String.join("|",
+                    "INTRADAY",
+                    stmt.accountNo != null ? stmt.accountNo.trim() : "",
+                    normalizeDate(t.valueDate),
+                    normalizeAmount(t.amount),
+                    t.dc != null ? t.dc : "",
+                    t.bankReference != null ? t.bankReference.trim() : "",
+                    t.customerReference != null ? t.customerReference.trim() : "",
+                    t.entryReference != null ? t.entryReference.trim() : "",
+                    t.supplementaryDetails != null ? t.supplementaryDetails.trim() : ""
+            );
+            keys.add(FileDigests.sha256Hex(raw));
+        }
+        return keys;
+    }
+
+    /**
+     * @param occurrence 1 for the first copy of the entry on the account and day
+     */
+    static String intradayKey(String baseKey, int occurrence) {
+        return FileDigests.sha256Hex(baseKey + "|" + occurrence);
+    }
+
+    private static String normalizeDate(String date) {
+        if (date == null) return "";
+        String digits = date.replace("-", "");
+        return digits.length() == 8 ? digits.substring(2) : digits;
+    }
+
+    private static String normalizeAmount(String amount) {
+        if (amount == null) return "";
         try {
-            java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = digest.digest(raw.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            return Integer.toHexString(raw.hashCode());
-        }
-    }
-
-    private List<String> splitMessages(String content) {
-        // Split by SWIFT envelope: each message starts with {1:
-        List<String> messages = new ArrayList<>();
-        String[] parts = content.split("(?=\\{1:)");
-        for (String part : parts) {
-            String trimmed = part.trim();
-            if (!trimmed.isEmpty()) {
-                // Only add if it looks like a SWIFT message
-                if (trimmed.startsWith("{1:")) {
-                    messages.add(trimmed);
-                } else if (!messages.isEmpty()) {
-                    // In case the first split part is before the first {1:
-                    // append to previous
-                    String last = messages.remove(messages.size() - 1);
-                    messages.add(last + "\n" + trimmed);
+            return new BigDecimal(amount.trim().replace(",", ".")).stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return amount.trim();
+        }
+    }
+
+    /**
+     * Incrementally splits a character stream into SWIFT messages. Each message starts
+     * with {1: (possibly mid-line); anything before the first {1: is ignored.
+     */
+    static class MessageReader {
+        private static final String MESSAGE_START = "{1:";
+
+        private final BufferedReader reader;
+        private StringBuilder current;
+        private String carry;
+        private boolean eof;
+        private int linesRead;
+        private int currentStartLine;
+        private int returnedStartLine;
+
+        MessageReader(Reader reader) {
+            this.reader = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+        }
+
+        /**
+         * @return the next trimmed message, or null when the stream is exhausted
+         */
+        String next() throws IOException {
+            while (!eof) {
+                String line = carry;
+                if (line == null) {
+                    line = reader.readLine();
+                    if (line != null) {
+                        linesRead++;
+                    }
+                }
+                carry = null;
+                if (line == null) {
+                    eof = true;
+                    break;
                 }
+                if (current == null) {
+                    int first = line.indexOf(MESSAGE_START);
+                    if (first < 0) {
+                        continue; // preamble before the first message
+                    }
+                    current = new StringBuilder(line.length() * 32);
+                    currentStartLine = linesRead;
+                    line = line.substring(first);
+                }
+                // The {1: that opened an empty message belongs to it; any other {1: starts the next one
+                int start = line.indexOf(MESSAGE_START, current.length() == 0 ? 1 : 0);
+                if (start < 0) {
+                    current.append(line).append('\n');
+                    continue;
+                }
+                // Another message begins on this line: finish the current one and keep the rest for later
+                current.append(line, 0, start);
+                carry = line.substring(start);
+                String message = current.toString().trim();
+                current = new StringBuilder(message.length() + 64);
+                returnedStartLine = currentStartLine;
+                currentStartLine = linesRead;
+                return message;
             }
+            if (current != null) {
+                String message = current.toString().trim();
+                current = null;
+                if (!message.isEmpty()) {
+                    returnedStartLine = currentStartLine;
+                    return message;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the 1-based file line on which the last returned message starts
+         */
+        int startLine() {
+            return returnedStartLine;
         }
-        return messages;
     }
 
     // --- Data structures for parsed output ---
@@ -196,11 +416,20 @@ public class Mt940Parser {
         public String accountNo;
         public String currency;
         public boolean isInterim;
+        public boolean intradayReport; // MT942: entries so far today, no opening/closing balance
         public Balance openingBalance;
         public Balance closingBalance;
         public List<Balance> otherBalances;
         public List<Transaction> transactions;
         public List<RawLine> rawLines;
+        public EntryTotal debitTotal;  // MT942 :90D:
+        public EntryTotal creditTotal; // MT942 :90C:
+    }
+
+    public static class EntryTotal {
+        public int count;
+        public String currency;
+        public String amount;
     }
 
     public static class Balance {
@@ -223,15 +452,17 @@ public class Mt940Parser {
         public String bankReference;
         public String customerReference;
         public String entryReference;
+        public String supplementaryDetails; // :61: second line
         public String narrative;
-        public Map<String, String> narrativeTokens; // parsed from :86: if structured
+        public Map<String, String> narrativeTokens; // channel/utr/counterparty/... parsed from :86:; empty if unrecognised
         public String extIdempotencyHash;
     }
 
     public static class RawLine {
-        public int lineNo;
+        public int lineNo;    // 1-based line in the file where the field starts
+        public int txnLineNo; // Transaction.lineNo the field belongs to; 0 for statement-level fields
         public String tag;
-        public String rawText;
+        public String rawText; // field text including continuation lines
     }
 
     public static class Mt940ParseException extends Exception {
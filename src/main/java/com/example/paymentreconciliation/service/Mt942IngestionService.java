@@ -0,0 +1,85 @@
+package com.example.paymentreconciliation.service;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.paymentreconciliation.config.Mt942IngestionProperties;
+import com.example.paymentreconciliation.entity.ImportRun;
+
+/**
+ * MT942 Ingestion Service
+ * Appends intraday entries to the statement tables as the bank reports them, so they can be
+ * matched the same day. Entries repeated by later reports are skipped; when the final MT940
+ * arrives, its ingestion moves the intraday rows into the booked statement.
+ */
+@Service
+public class Mt942IngestionService extends StatementIngestionService {
+    @Autowired
+    private Mt942IngestionProperties mt942Props;
+
+    @Override
+    protected String getInboxDir() {
+        return mt942Props.getInboxDir();
+    }
+
+    @Override
+    protected String getProcessingDir() {
+        return mt942Props.getProcessingDir();
+    }
+
+    @Override
+    protected String getArchiveDir() {
+        return mt942Props.getArchiveDir();
+    }
+
+    @Override
+    protected String getQuarantineDir() {
+        return mt942Props.getQuarantineDir();
+    }
+
+    @Override
+    protected String getFileExtension() {
+        return ".mt942";
+    }
+
+    @Override
+    public String getFeedName() {
+        return "MT942";
+    }
+
+    @Override
+    protected List<String> getFileExtensions() {
+        return List.of(".mt942");
+    }
+
+    @Override
+    protected boolean isIntradayFeed() {
+        return true;
+    }
+
+    @Override
+    protected boolean isCumulativeIntradayReport() {
+        return mt942Props.isCumulativeReports();
+    }
+
+    @Override
+    protected Mt942IngestionProperties getIngestionProperties() {
+        return mt942Props;
+    }
+
+    @Override
+    protected boolean ingestStatements(File processingFile, ImportRun importRun, StatementCounts counts) {
+        Mt942Parser parser = new Mt942Parser();
+        return ingestDocument(processingFile.getName(), importRun, counts, consumer -> {
+            try (Reader reader = Files.newBufferedReader(processingFile.toPath(), StandardCharsets.UTF_8)) {
+                parser.parse(reader, consumer);
+            }
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.paymentreconciliation.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.prowidesoftware.swift.model.field.Field34F;
+import com.prowidesoftware.swift.model.field.Field61;
+import com.prowidesoftware.swift.model.field.Field86;
+import com.prowidesoftware.swift.model.mt.mt9xx.MT942;
+
+/**
+ * MT942 (interim transaction report) parser using Prowide Core.
+ *
+ * An MT942 lists the entries booked so far today, without opening or closing balances;
+ * banks send several per day, either incremental or cumulative. Each message becomes an
+ * intraday {@link Mt940Parser.Statement}; when it is persisted its transactions are numbered
+ * against the entries already stored for the account and day and take that intraday key as
+ * their idempotency hash, so an entry repeated by a later report is imported once, and the
+ * final MT940 can find it again.
+ */
+public class Mt942Parser {
+
+    /**
+     * Stream MT942 messages from the reader; the caller owns (and closes) the reader.
+     */
+    public void parse(Reader reader, Consumer<Mt940Parser.Statement> consumer) throws Mt942ParseException {
+        Mt940Parser.MessageReader messages = new Mt940Parser.MessageReader(reader);
+        int reportIndex = 0;
+        String msg;
+        try {
+            msg = messages.next();
+        } catch (IOException e) {
+            throw new Mt942ParseException("Failed to read MT942 file", e);
+        }
+        while (msg != null) {
+            Mt940Parser.Statement stmt;
+            try {
+                stmt = toStatement(MT942.parse(msg));
+            } catch (Exception e) {
+                throw new Mt942ParseException("Failed to parse report at index " + reportIndex, e);
+            }
+            // Consumer failures are not parse errors; let them propagate as-is
+            consumer.accept(stmt);
+            reportIndex++;
+            try {
+                msg = messages.next();
+            } catch (IOException e) {
+                throw new Mt942ParseException("Failed to read MT942 file after report index " + (reportIndex - 1), e);
+            }
+        }
+    }
+
+    private Mt940Parser.Statement toStatement(MT942 mt942) {
+        Mt940Parser.Statement stmt = new Mt940Parser.Statement();
+        stmt.stmtRef20 = mt942.getField20() != null ? mt942.getField20().getValue() : null;
+        stmt.seq28c = mt942.getField28C() != null ? mt942.getField28C().getValue() : null;
+        stmt.accountNo = mt942.getField25() != null ? mt942.getField25().getValue() : null;
+        stmt.isInterim = true;
+        stmt.intradayReport = true;
+        stmt.otherBalances = new ArrayList<>();
+        stmt.rawLines = new ArrayList<>();
+        // Field90D/90C: 1=Number, 2=Currency, 3=Amount
+        stmt.debitTotal = toTotal(mt942.getField90D() != null ? mt942.getField90D().getComponents() : null);
+        stmt.creditTotal = toTotal(mt942.getField90C() != null ? mt942.getField90C().getComponents() : null);
+        // Field34F: 1=Currency, 2=DC mark, 3=Amount (the floor limit); the totals carry it as well
+        List<Field34F> floorLimits = mt942.getField34F();
+        if (floorLimits != null && !floorLimits.isEmpty()) {
+            stmt.currency = floorLimits.get(0).getComponent(1);
+        } else if (stmt.debitTotal != null) {
+            stmt.currency = stmt.debitTotal.currency;
+        } else if (stmt.creditTotal != null) {
+            stmt.currency = stmt.creditTotal.currency;
+        }
+
+        stmt.transactions = new ArrayList<>();
+        List<Field61> f61s = mt942.getField61();
+        List<Field86> f86s = mt942.getField86();
+        if (f61s != null) {
+            for (int i = 0; i < f61s.size(); i++) {
+                String[] c = new String[11];
+                for (int k = 1; k <= 10; k++) {
+                    c[k] = f61s.get(i).getComponent(k);
+                }
+                String narrative = f86s != null && f86s.size() > i ? f86s.get(i).getValue() : null;
+                stmt.transactions.add(Mt940Parser.toTransaction(c, narrative, stmt, i + 1));
+            }
+        }
+        return stmt;
+    }
+
+    private static Mt940Parser.EntryTotal toTotal(List<String> components) {
+        if (components == null || components.size() < 3) {
+            return null;
+        }
+        Mt940Parser.EntryTotal total = new Mt940Parser.EntryTotal();
+        total.count = components.get(0) != null ? Integer.parseInt(components.get(0).trim()) : 0;
+        total.currency = components.get(1);
+        total.amount = components.get(2);
+        return total;
+    }
+
+    public static class Mt942ParseException extends Exception {
+        public Mt942ParseException(String msg) { super(msg); }
+        public Mt942ParseException(String msg, Throwable cause) { super(msg, cause); }
+    }
+}
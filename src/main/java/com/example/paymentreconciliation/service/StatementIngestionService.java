@@ -0,0 +1,666 @@
+package com.example.paymentreconciliation.service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.paymentreconciliation.common.pipeline.CheckpointTracker;
+import com.example.paymentreconciliation.common.pipeline.StagedPipeline;
+import com.example.paymentreconciliation.config.StatementIngestionProperties;
+import com.example.paymentreconciliation.dao.ImportErrorDao;
+import com.example.paymentreconciliation.dao.Mt940StatementBatchDao;
+import com.example.paymentreconciliation.entity.*;
+import com.example.paymentreconciliation.repository.*;
+import com.shared.utilities.logger.LoggerFactoryProvider;
+
+/**
+ * Ingestion of bank statement files (MT940, MT942, CAMT.053) into the statement tables.
+ *
+ * Subclasses only turn a file into a stream of {@link Mt940Parser.Statement}s; hashing,
+ * duplicate detection, resumption, validation (balances must reconcile), persistence of
+ * the statement graph and the checkpointing of each committed statement are shared.
+ */
+public abstract class StatementIngestionService extends BaseIngestionService {
+    private static final Logger log = LoggerFactoryProvider.getLogger(StatementIngestionService.class);
+    @Autowired
+    private BankAccountDirectory bankAccountDirectory;
+    @Autowired
+    private StatementFileRepository statementFileRepository;
+    @Autowired
+    private Mt940StatementBatchDao statementBatchDao;
+
+    @Autowired
+    private ImportErrorSink importErrorSink;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    protected abstract StatementIngestionProperties getIngestionProperties();
+
+    /**
+     * Feed every statement of the file through {@link #ingestDocument}, once per document
+     * the file contains.
+     *
+     * @return false if any document could not be read or parsed to the end
+     */
+    protected abstract boolean ingestStatements(File processingFile, ImportRun importRun, StatementCounts counts);
+
+    /**
+     * Process a single file: move, hash, parse, validate, persist, archive/quarantine.
+     */
+    @Override
+    protected FileOutcome processFile(File file) {
+        log.info("Starting processing for file: {}", file.getAbsolutePath());
+        // 1. Move file to PROCESSING with GUID suffix
+        File processingFile = moveToProcessing(file);
+        log.debug("Moved file to processing: {}", processingFile.getAbsolutePath());
+        return ingest(processingFile, false);
+    }
+
+    @Override
+    protected FileOutcome resumeFile(File processingFile) {
+        log.info("Recovering interrupted file: {}", processingFile.getAbsolutePath());
+        return ingest(processingFile, true);
+    }
+
+    @Override
+    protected FileOutcome processUploadedFile(File processingFile) {
+        log.info("Starting processing for uploaded file: {}", processingFile.getAbsolutePath());
+        return ingest(processingFile, false);
+    }
+
+    /**
+     * Ingest a file already in PROCESSING. When recovering, an unfinished ImportRun for the
+     * same hash is resumed after its checkpoint instead of being treated as a duplicate.
+     */
+    private FileOutcome ingest(File processingFile, boolean recovering) {
+        if (processingFile.length() > getMaxFileSizeBytes()) {
+            log.warn("File exceeds max size policy ({} bytes): {}", processingFile.length(), processingFile.getAbsolutePath());
+            moveToQuarantine(processingFile, QuarantineReason.SIZE_LIMIT, "File exceeds max size policy");
+            return FileOutcome.FAILED;
+        }
+
+        // 2. Compute sha256 and size, check for duplicates
+        String fileHash = computeSha256(processingFile);
+        log.debug("Computed SHA-256 hash for file {}: {}", processingFile.getName(), fileHash);
+        long fileSize = processingFile.length();
+        long started = System.nanoTime();
+        ImportRun importRun = importRunRepository.findByFileHash(fileHash).orElse(null);
+        if (importRun != null && recovering && !isInProgress(importRun)) {
+            return settleFinishedRun(processingFile, importRun);
+        }
+        if (importRun != null && !recovering) {
+            log.warn("Duplicate file detected: {} (hash={})", processingFile.getName(), fileHash);
+            reportImportRun(importRun);
+            moveToArchive(processingFile, fileHash, importRun);
+            return FileOutcome.SKIPPED;
+        }
+
+        // 3. Parse, validate and persist every statement of the file into a single ImportRun
+        StatementCounts counts;
+        if (importRun == null) {
+            importRun = createImportRun(processingFile.getName(), fileHash, fileSize);
+            counts = new StatementCounts(0);
+        } else {
+            counts = StatementCounts.resumeFrom(importRun);
+            log.info("Resuming import run {} for {} after {} committed statement(s)",
+                    importRun.getId(), processingFile.getName(), counts.checkpoint.watermark());
+        }
+        reportImportRun(importRun);
+        boolean allSuccess;
+        try {
+            allSuccess = ingestStatements(processingFile, importRun, counts);
+        } catch (RuntimeException e) {
+            // File-level failures, e.g. an unreadable zip or an entry count or size limit exceeded
+            allSuccess = false;
+            counts.parseErrors.incrementAndGet();
+            importRun.setErrorMessage(e.getMessage());
+            log.error("Error ingesting {} file: {}. Error: {}", getFeedName(), processingFile.getAbsolutePath(), e.getMessage(), e);
+            importErrorSink.record(importRun, "PARSING_ERROR", e.getMessage(), null);
+        }
+        finalizeImportRun(importRun, counts);
+        ingestionMetrics.recordFileThroughput(getFeedName(), "statements",
+                counts.checkpoint.watermark() - counts.resumeFrom, System.nanoTime() - started);
+
+        // 4. On success: move original into the content-addressed archive
+        // 5. On failure: move to QUARANTINE and persist error details
+        if (allSuccess) {
+            log.info("Successfully processed file: {}. Moving to archive.", processingFile.getAbsolutePath());
+            moveToArchive(processingFile, fileHash, importRun);
+            return FileOutcome.SUCCEEDED;
+        }
+        log.warn("Processing failed for file: {}. Moving to quarantine.", processingFile.getAbsolutePath());
+        moveToQuarantine(processingFile, QuarantineReason.IMPORT_FAILED, "One or more statements failed to import");
+        return FileOutcome.FAILED;
+    }
+
+    /**
+     * Produces the statements of one document in order; runs as the pipeline's producer.
+     */
+    @FunctionalInterface
+    protected interface StatementSource {
+        void parse(Consumer<Mt940Parser.Statement> consumer) throws Exception;
+    }
+
+    /**
+     * Parse, validate, and persist statements through a staged pipeline: this thread parses
+     * while earlier statements are validated and persisted, and the bounded queues between
+     * the stages pause the parser when persistence falls behind.
+     *
+     * @return false if the document could not be read or parsed to the end
+     */
+    protected boolean ingestDocument(String documentName, ImportRun importRun, StatementCounts counts, StatementSource source) {
+        log.info("Parsing and persisting {} document: {}", getFeedName(), documentName);
+        StagedPipeline<ParsedStatement, ValidatedStatement> pipeline = newPipeline(
+                parsed -> validateStatement(parsed.stmt, parsed.ordinal),
+                validated -> completeStatement(validated, importRun, counts));
+        try {
+            pipeline.run(emitter -> {
+                Consumer<ParsedStatement> timedEmitter = timeParse(emitter);
+                source.parse(stmt -> {
+                    // Ordinals run across every document of the file; those before the checkpoint are already committed
+                    long ordinal = counts.parsed.getAndIncrement();
+                    if (ordinal < counts.resumeFrom) {
+                        return;
+                    }
+                    counts.total.incrementAndGet();
+                    timedEmitter.accept(new ParsedStatement(ordinal, stmt));
+                });
+            });
+            return true;
+        } catch (Exception e) {
+            counts.parseErrors.incrementAndGet();
+            importRun.setErrorMessage("Failed to ingest " + documentName + " after " + counts.total.get() + " statement(s): " + e.getMessage());
+            log.error("Error parsing/persisting {} document: {}. Error: {}", getFeedName(), documentName, e.getMessage(), e);
+            importErrorSink.record(importRun, "PARSING_ERROR", "Failed to ingest " + documentName + ": " + e.getMessage(), null);
+            return false;
+        }
+    }
+
+    private ImportRun createImportRun(String filename, String fileHash, long fileSize) {
+        ImportRun importRun = new ImportRun();
+        importRun.setFilename(filename);
+        importRun.setFileHash(fileHash);
+        importRun.setFileSizeBytes(fileSize);
+        importRun.setReceivedAt(java.time.LocalDateTime.now());
+        importRun.setFileType(getFeedName());
+        importRun.setStatus(ImportRun.Status.PARSED);
+        return importRunRepository.save(importRun);
+    }
+
+    /**
+     * A parsed statement and its position among all statements of the file.
+     */
+    private static class ParsedStatement {
+        final long ordinal;
+        final Mt940Parser.Statement stmt;
+
+        ParsedStatement(long ordinal, Mt940Parser.Statement stmt) {
+            this.ordinal = ordinal;
+            this.stmt = stmt;
+        }
+    }
+
+    /**
+     * Outcome of validating one statement: the statement with its balances already
+     * converted, or a rejection (null stmt) with its import error, which still has to be
+     * written and advance the checkpoint.
+     */
+    private static class ValidatedStatement {
+        final long ordinal;
+        final Mt940Parser.Statement stmt;
+        final java.math.BigDecimal opening;
+        final java.math.BigDecimal closing;
+        final ImportErrorDao.Row error;
+
+        ValidatedStatement(long ordinal, Mt940Parser.Statement stmt, java.math.BigDecimal opening, java.math.BigDecimal closing) {
+            this(ordinal, stmt, opening, closing, null);
+        }
+
+        private ValidatedStatement(long ordinal, Mt940Parser.Statement stmt, java.math.BigDecimal opening,
+                                   java.math.BigDecimal closing, ImportErrorDao.Row error) {
+            this.ordinal = ordinal;
+            this.stmt = stmt;
+            this.opening = opening;
+            this.closing = closing;
+            this.error = error;
+        }
+
+        static ValidatedStatement rejected(long ordinal, String message, Integer lineNo) {
+            return new ValidatedStatement(ordinal, null, null, null, new ImportErrorDao.Row("VALIDATION_ERROR", message, lineNo));
+        }
+    }
+
+    /**
+     * Validate a single statement without touching any table; a rejection carries its
+     * import error to the persistence stage.
+     */
+    private ValidatedStatement validateStatement(Mt940Parser.Statement stmt, long ordinal) {
+        if (stmt.intradayReport) {
+            return validateIntradayReport(stmt, ordinal);
+        }
+        // Validation: accountNo, currency, balances, transactions
+        if (stmt.accountNo == null || stmt.accountNo.trim().isEmpty()) {
+            log.error("Statement missing account number. Skipping statement: {}", stmt);
+            return ValidatedStatement.rejected(ordinal, "Missing account number in statement: " + stmt, null);
+        }
+        if (stmt.currency == null || stmt.currency.trim().isEmpty()) {
+            log.error("Statement missing currency. Skipping statement: {}", stmt);
+            return ValidatedStatement.rejected(ordinal, "Missing currency in statement: " + stmt, null);
+        }
+        if (stmt.openingBalance == null || stmt.closingBalance == null) {
+            log.error("Statement missing opening/closing balance. Skipping statement: {}", stmt);
+            return ValidatedStatement.rejected(ordinal, "Missing opening/closing balance in statement: " + stmt, null);
+        }
+        if (stmt.openingBalance.amount == null || stmt.closingBalance.amount == null) {
+            log.error("Statement missing opening/closing balance amount. Skipping statement: {}", stmt);
+            return ValidatedStatement.rejected(ordinal, "Missing opening/closing balance amount in statement: " + stmt, null);
+        }
+        if (stmt.transactions == null || stmt.transactions.isEmpty()) {
+            log.error("Statement missing transactions. Skipping statement: {}", stmt);
+            return ValidatedStatement.rejected(ordinal, "Missing transactions in statement: " + stmt, null);
+        }
+
+        // Normalize and validate currency (must be 3-letter code)
+        String normalizedCurrency = normalizeCurrency(stmt.currency);
+        String openingCurrency = normalizeCurrency(stmt.openingBalance.currency);
+        String closingCurrency = normalizeCurrency(stmt.closingBalance.currency);
+        if (normalizedCurrency == null || openingCurrency == null || closingCurrency == null) {
+            log.error("Invalid currency code (must be 3 letters). stmt={}, open={}, close={}",
+                    stmt.currency, stmt.openingBalance.currency, stmt.closingBalance.currency);
+            return ValidatedStatement.rejected(ordinal, "Invalid currency code (must be 3 letters)", null);
+        }
+        stmt.currency = normalizedCurrency;
+        stmt.openingBalance.currency = openingCurrency;
+        stmt.closingBalance.currency = closingCurrency;
+
+        // Validate currency match
+        if (!stmt.openingBalance.currency.equals(stmt.currency) || !stmt.closingBalance.currency.equals(stmt.currency)) {
+            log.error("Currency mismatch in statement: {}", stmt.stmtRef20);
+            return ValidatedStatement.rejected(ordinal, "Currency mismatch in statement: " + stmt.stmtRef20, null);
+        }
+
+        // Validate opening + sum(signed transactions) == closing (allow small rounding delta)
+        java.math.BigDecimal opening = new java.math.BigDecimal(stmt.openingBalance.amount.replace(",", "."));
+        java.math.BigDecimal closing = new java.math.BigDecimal(stmt.closingBalance.amount.replace(",", "."));
+        java.math.BigDecimal sumTxns = java.math.BigDecimal.ZERO;
+        for (Mt940Parser.Transaction txn : stmt.transactions) {
+            sumTxns = sumTxns.add(new java.math.BigDecimal(txn.signedAmount.replace(",", ".")));
+        }
+        java.math.BigDecimal expectedClosing = opening.add(sumTxns);
+        if (expectedClosing.subtract(closing).abs().compareTo(new java.math.BigDecimal("0.02")) > 0) {
+            log.error("Opening + sum(transactions) != closing for statement: {}", stmt.stmtRef20);
+            return ValidatedStatement.rejected(ordinal, "Opening + sum(transactions) != closing for statement: " + stmt.stmtRef20, null);
+        }
+        return new ValidatedStatement(ordinal, stmt, opening, closing);
+    }
+
+    /**
+     * An intraday report has no balances to reconcile; its entries are checked against the
+     * report's own debit/credit totals instead. The statement file records the net movement
+     * of the report as its closing amount, from an opening of zero.
+     */
+    private ValidatedStatement validateIntradayReport(Mt940Parser.Statement stmt, long ordinal) {
+        if (stmt.accountNo == null || stmt.accountNo.trim().isEmpty()) {
+            log.error("Intraday report missing account number. Skipping report: {}", stmt.stmtRef20);
+            return ValidatedStatement.rejected(ordinal, "Missing account number in intraday report: " + stmt.stmtRef20, null);
+        }
+        String normalizedCurrency = normalizeCurrency(stmt.currency);
+        if (normalizedCurrency == null) {
+            log.error("Invalid currency code (must be 3 letters) in intraday report: {}", stmt.stmtRef20);
+            return ValidatedStatement.rejected(ordinal, "Invalid currency code in intraday report: " + stmt.stmtRef20, null);
+        }
+        stmt.currency = normalizedCurrency;
+
+        int debits = 0;
+        int credits = 0;
+        java.math.BigDecimal debitSum = java.math.BigDecimal.ZERO;
+        java.math.BigDecimal creditSum = java.math.BigDecimal.ZERO;
+        for (Mt940Parser.Transaction txn : stmt.transactions) {
+            if (txn.amount == null || txn.dc == null) {
+                log.error("Intraday report {} has an entry without amount or D/C mark (line {})", stmt.stmtRef20, txn.lineNo);
+                return ValidatedStatement.rejected(ordinal, "Entry without amount or D/C mark in intraday report: " + stmt.stmtRef20, txn.lineNo);
+            }
+            java.math.BigDecimal amount = new java.math.BigDecimal(txn.amount.replace(",", "."));
+            if ("D".equals(txn.dc)) {
+                debits++;
+                debitSum = debitSum.add(amount);
+            } else {
+                credits++;
+                creditSum = creditSum.add(amount);
+            }
+        }
+        if (!matchesTotal(stmt.debitTotal, debits, debitSum) || !matchesTotal(stmt.creditTotal, credits, creditSum)) {
+            log.error("Entries do not add up to :90D:/:90C: for intraday report: {}", stmt.stmtRef20);
+            return ValidatedStatement.rejected(ordinal, "Entries do not add up to :90D:/:90C: for intraday report: " + stmt.stmtRef20, null);
+        }
+        return new ValidatedStatement(ordinal, stmt, java.math.BigDecimal.ZERO, creditSum.subtract(debitSum));
+    }
+
+    private static boolean matchesTotal(Mt940Parser.EntryTotal total, int count, java.math.BigDecimal sum) {
+        if (total == null) {
+            return true;
+        }
+        java.math.BigDecimal expected = new java.math.BigDecimal(total.amount.replace(",", "."));
+        return total.count == count && expected.compareTo(sum) == 0;
+    }
+
+    /**
+     * Persistence stage: commit a validated statement together with the run's checkpoint,
+     * so a restart resumes right after the last committed statement. The running counts
+     * only take the statement in once its transaction has committed.
+     */
+    private void completeStatement(ValidatedStatement validated, ImportRun importRun, StatementCounts counts) {
+        ingestionMetrics.countItems(getFeedName(), "statements", 1);
+        if (validated.stmt == null) {
+            // The import error commits with the checkpoint, so a resumed run neither loses nor repeats it
+            transactionTemplate.executeWithoutResult(status -> {
+                importErrorSink.write(importRun, List.of(validated.error));
+                recordProgress(importRun, counts, validated.ordinal, 0, 1, 0);
+            });
+            counts.failed.incrementAndGet();
+            return;
+        }
+        // Resolved outside the transaction: the directory caches the account, so its creation must not roll back
+        BankAccount acct = bankAccountDirectory.findOrCreate(validated.stmt.accountNo, validated.stmt.currency);
+        Integer duplicates = transactionTemplate.execute(status -> {
+            int skipped = persistStatement(validated, acct, importRun);
+            recordProgress(importRun, counts, validated.ordinal, 1, 0, skipped);
+            return skipped;
+        });
+        counts.processed.incrementAndGet();
+        if (duplicates != null && duplicates > 0) {
+            counts.duplicates.addAndGet(duplicates);
+        }
+    }
+
+    /**
+     * Advance the checkpoint past this statement and write it with the running counts plus
+     * this statement's own, in the statement's transaction.
+     */
+    private void recordProgress(ImportRun importRun, StatementCounts counts, long ordinal,
+                                int processed, int failed, int duplicates) {
+        synchronized (counts) {
+            long watermark = counts.checkpoint.complete(ordinal, ordinal + 1);
+            importRun.setCheckpointOffset(watermark);
+            importRunRepository.updateProgress(importRun.getId(), watermark, Math.toIntExact(watermark),
+                    counts.processed.get() + processed, counts.failed.get() + failed,
+                    counts.duplicates.get() + duplicates);
+        }
+    }
+
+    /**
+     * Persist a validated statement.
+     *
+     * @return number of its transactions skipped as already imported
+     */
+    private int persistStatement(ValidatedStatement validated, BankAccount acct, ImportRun importRun) {
+        Mt940Parser.Statement stmt = validated.stmt;
+        java.math.BigDecimal opening = validated.opening;
+        java.math.BigDecimal closing = validated.closing;
+        String normalizedCurrency = stmt.currency;
+
+        // 5. Create StatementFile, or in merge mode reuse the one a previous (overlapping) file created
+        StatementFile existing = getIngestionProperties().isMergeDuplicates()
+                ? statementFileRepository.findByBankAccountAndStmtRef20AndSeq28c(acct, stmt.stmtRef20, stmt.seq28c).orElse(null)
+                : null;
+        StatementFile sf;
+        if (existing != null) {
+            log.info("Merging statement {} / {} into existing statement file {}", stmt.stmtRef20, stmt.seq28c, existing.getId());
+            sf = existing;
+        } else {
+            sf = new StatementFile();
+            sf.setImportRun(importRun);
+            sf.setBankAccount(acct);
+            sf.setStmtRef20(stmt.stmtRef20);
+            sf.setSeq28c(stmt.seq28c);
+            sf.setStatementDate(java.time.LocalDate.now()); // You may want to parse actual date
+            if (stmt.intradayReport) {
+                sf.setOpeningDc("C");
+                sf.setOpeningAmount(opening);
+                sf.setClosingDc(closing.signum() < 0 ? "D" : "C");
+                sf.setClosingAmount(closing.abs());
+            } else {
+                sf.setOpeningDc(stmt.openingBalance.dc);
+                sf.setOpeningAmount(opening);
+                sf.setClosingDc(stmt.closingBalance.dc);
+                sf.setClosingAmount(closing);
+            }
+            sf.setCurrency(stmt.currency);
+            sf.setIsInterim(stmt.isInterim);
+            sf.setCreatedAt(java.time.LocalDateTime.now());
+            statementFileRepository.save(sf);
+        }
+
+        // 6. Collect balances; an intraday report has none
+        List<StatementBalance> balances = new ArrayList<>();
+        if (!stmt.intradayReport) {
+            StatementBalance ob = new StatementBalance();
+            ob.setStatementFile(sf);
+            ob.setBalType("OPENING");
+            ob.setDc(stmt.openingBalance.dc);
+            ob.setBalDate(java.time.LocalDate.now());
+            ob.setCurrency(stmt.openingBalance.currency);
+            ob.setAmount(opening);
+            balances.add(ob);
+
+            StatementBalance cb = new StatementBalance();
+            cb.setStatementFile(sf);
+            cb.setBalType("CLOSING");
+            cb.setDc(stmt.closingBalance.dc);
+            cb.setBalDate(java.time.LocalDate.now());
+            cb.setCurrency(stmt.closingBalance.currency);
+            cb.setAmount(closing);
+            balances.add(cb);
+        }
+
+        // Other balances
+        if (stmt.otherBalances != null) {
+            for (Mt940Parser.Balance bal : stmt.otherBalances) {
+                bal.currency = normalizeCurrency(bal.currency);
+                if (bal.currency == null) {
+                    log.warn("Skipping balance with invalid currency: {}", bal);
+                    continue;
+                }
+                StatementBalance b = new StatementBalance();
+                b.setStatementFile(sf);
+                b.setBalType(bal.type);
+                b.setDc(bal.dc);
+                b.setBalDate(java.time.LocalDate.now());
+                b.setCurrency(bal.currency);
+                b.setAmount(new java.math.BigDecimal(bal.amount.replace(",", ".")));
+                balances.add(b);
+            }
+        }
+
+        // 7. Collect transactions; raw lines reference them and are written after their ids are known
+        List<StatementTransaction> transactions = new ArrayList<>(stmt.transactions.size());
+        List<String> intradayBaseKeys = Mt940Parser.intradayBaseKeys(stmt);
+        List<String> intradayKeys = Mt940Parser.intradayKeys(intradayBaseKeys);
+        for (int i = 0; i < stmt.transactions.size(); i++) {
+            Mt940Parser.Transaction txn = stmt.transactions.get(i);
+            txn.currency = normalizedCurrency;
+            StatementTransaction st = new StatementTransaction();
+            st.setStatementFile(sf);
+            st.setLineNo(txn.lineNo);
+            st.setValueDate(java.time.LocalDate.now()); // Parse actual date if available
+            st.setEntryDate(null); // Parse if available
+            st.setDc(txn.dc);
+            st.setAmount(new java.math.BigDecimal(txn.amount.replace(",", ".")));
+            st.setSignedAmount(new java.math.BigDecimal(txn.signedAmount.replace(",", ".")));
+            st.setCurrency(normalizedCurrency);
+            st.setTxnTypeCode(txn.txnTypeCode);
+            st.setBankReference(txn.bankReference);
+            st.setCustomerReference(txn.customerReference);
+            st.setEntryReference(txn.entryReference);
+            st.setNarrative(txn.narrative);
+            // Tokens replace the per-transaction transaction_86_segment rows, which only duplicated the narrative
+            st.setNarrativeTokens(Mt940NarrativeTokenizer.toJson(txn.narrativeTokens));
+            st.setExtIdempotencyHash(txn.extIdempotencyHash);
+            st.setIntradayKey(intradayKeys.get(i));
+            st.setIntradayBaseKey(intradayBaseKeys.get(i));
+            st.setCreatedAt(java.time.LocalDateTime.now());
+            transactions.add(st);
+        }
+
+        // 8. Write the graph table by table in multi-row batches
+        int batchSize = getIngestionProperties().getPersistBatchSize();
+        if (existing == null) {
+            statementBatchDao.insertBalances(balances, batchSize);
+        }
+        List<StatementTransaction> toInsert = transactions;
+        int promoted = 0;
+        if (stmt.intradayReport) {
+            // Entries an earlier report (or already the final statement) imported are skipped
+            statementBatchDao.lockIntradayAccount(stmt.accountNo);
+            java.util.Set<String> baseKeys = new java.util.HashSet<>(intradayBaseKeys);
+            toInsert = numberIntradayEntries(transactions, statementBatchDao.countIntradayRows(baseKeys),
+                    isCumulativeIntradayReport());
+        } else if (getIngestionProperties().isReconcileIntraday()) {
+            // Entries already seen intraday become part of this statement instead of being inserted again
+            statementBatchDao.lockIntradayAccount(stmt.accountNo);
+            promoted = statementBatchDao.promoteIntradayTransactions(transactions, batchSize);
+            if (promoted > 0) {
+                log.info("Reconciled {} intraday transaction(s) into statement {}", promoted, stmt.stmtRef20);
+                ingestionMetrics.countItems(getFeedName(), "intraday_reconciled", promoted);
+                toInsert = new ArrayList<>(transactions.size() - promoted);
+                for (StatementTransaction st : transactions) {
+                    if (st.getId() == null) {
+                        toInsert.add(st);
+                    }
+                }
+            }
+        }
+        int inserted = statementBatchDao.insertTransactions(toInsert, batchSize,
+                getIngestionProperties().isMergeDuplicates() || stmt.intradayReport);
+        int duplicates = transactions.size() - promoted - inserted;
+        if (duplicates > 0) {
+            log.info("Skipped {} already imported transaction(s) of statement {}", duplicates, stmt.stmtRef20);
+        }
+
+        // 9. Raw lines come out of the parser already in file order and attributed to their
+        // transaction (RawLine.txnLineNo), so a single pass is enough. A merged statement
+        // already has its audit trail from the first import.
+        if (existing == null && stmt.rawLines != null && !stmt.rawLines.isEmpty()) {
+            List<RawStatementLine> rawLines = new ArrayList<>(stmt.rawLines.size());
+            for (Mt940Parser.RawLine rawLine : stmt.rawLines) {
+                RawStatementLine rsl = new RawStatementLine();
+                rsl.setStatementFile(sf);
+                rsl.setLineNo(rawLine.lineNo);
+                rsl.setTag(rawLine.tag);
+                rsl.setRawText(rawLine.rawText);
+                rawLines.add(rsl);
+            }
+            statementBatchDao.insertRawLines(rawLines, batchSize);
+        }
+        return Math.max(duplicates, 0);
+    }
+
+    /**
+     * Give the entries of an intraday report their intraday keys, counting repeats of an
+     * entry against the rows already stored for the account and day instead of within the
+     * report: in an incremental report every copy is new and follows the stored ones, while a
+     * cumulative report lists the stored copies again before any new one. Entries that a
+     * final statement already covers are not inserted again.
+     *
+     * @param stored rows already stored per intraday base key of the report
+     * @return the entries still to insert
+     */
+    static List<StatementTransaction> numberIntradayEntries(List<StatementTransaction> transactions,
+            java.util.Map<String, Mt940StatementBatchDao.IntradayRows> stored, boolean cumulative) {
+        java.util.Map<String, Integer> copies = new java.util.HashMap<>();
+        List<StatementTransaction> toInsert = new ArrayList<>(transactions.size());
+        for (StatementTransaction st : transactions) {
+            Mt940StatementBatchDao.IntradayRows rows = stored.get(st.getIntradayBaseKey());
+            int storedRows = rows != null ? rows.getStored() : 0;
+            int copy = copies.merge(st.getIntradayBaseKey(), 1, Integer::sum);
+            int occurrence = cumulative ? copy : storedRows + copy;
+            String key = Mt940Parser.intradayKey(st.getIntradayBaseKey(), occurrence);
+            st.setIntradayKey(key);
+            st.setExtIdempotencyHash(key);
+            if (occurrence > storedRows && (rows == null || rows.getFinalRows() == 0)) {
+                toInsert.add(st);
+            }
+        }
+        return toInsert;
+    }
+
+    /**
+     * Whether each intraday report of the feed repeats the entries of earlier reports of the
+     * day (cumulative) rather than listing only new ones (incremental).
+     */
+    protected boolean isCumulativeIntradayReport() {
+        return false;
+    }
+
+    private void finalizeImportRun(ImportRun importRun, StatementCounts counts) {
+        importErrorSink.finish(importRun);
+        // Update ImportRun with counts and final status
+        int processed = counts.processed.get();
+        int failed = counts.failed.get();
+        importRun.setCheckpointOffset(counts.checkpoint.watermark());
+        importRun.setTotalRecords(counts.total.get());
+        importRun.setProcessedRecords(processed);
+        importRun.setFailedRecords(failed);
+        importRun.setDuplicateRecords(counts.duplicates.get());
+        if (counts.parseErrors.get() > 0) {
+            // A document that could not be read to the end never counts as imported
+            importRun.setStatus(ImportRun.Status.FAILED);
+        } else if (processed > 0 && failed == 0) {
+            importRun.setStatus(ImportRun.Status.IMPORTED);
+        } else if (processed > 0) {
+            importRun.setStatus(ImportRun.Status.PARTIAL);
+        } else {
+            importRun.setStatus(ImportRun.Status.FAILED);
+        }
+        importRunRepository.save(importRun);
+    }
+
+    // Updated concurrently by the parse, validate and persist stages
+    protected static class StatementCounts {
+        final AtomicInteger total = new AtomicInteger();
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger duplicates = new AtomicInteger(); // transactions skipped because their ext_idempotency_hash was already imported
+        final AtomicInteger parseErrors = new AtomicInteger(); // documents that could not be read or parsed to the end
+        final AtomicLong parsed = new AtomicLong(); // statement ordinals handed out, including skipped ones
+        final long resumeFrom; // statements before this ordinal were committed by an earlier attempt
+        final CheckpointTracker checkpoint;
+
+        StatementCounts(long resumeFrom) {
+            this.resumeFrom = resumeFrom;
+            this.checkpoint = new CheckpointTracker(resumeFrom);
+        }
+
+        /**
+         * Counts as of the run's last checkpoint; statements after it are processed again.
+         */
+        static StatementCounts resumeFrom(ImportRun importRun) {
+            long checkpoint = importRun.getCheckpointOffset() != null ? importRun.getCheckpointOffset() : 0L;
+            StatementCounts counts = new StatementCounts(checkpoint);
+            counts.total.set(Math.toIntExact(checkpoint));
+            counts.processed.set(importRun.getProcessedRecords() != null ? importRun.getProcessedRecords() : 0);
+            counts.failed.set(importRun.getFailedRecords() != null ? importRun.getFailedRecords() : 0);
+            counts.duplicates.set(importRun.getDuplicateRecords() != null ? importRun.getDuplicateRecords() : 0);
+            return counts;
+        }
+    }
+
+    private String normalizeCurrency(String currency) {
+        if (currency == null) return null;
+        // Keep only letters; currency should be a 3-letter ISO code, but some feeds add trailing chars
+        String lettersOnly = currency.trim().toUpperCase().replaceAll("[^A-Z]", "");
+        if (lettersOnly.length() < 3) {
+            return null;
+        }
+        return lettersOnly.substring(0, 3);
+    }
+}
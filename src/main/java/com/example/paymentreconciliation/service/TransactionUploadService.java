@@ -6,8 +6,6 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -31,6 +29,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.paymentreconciliation.common.io.FileDigests;
 import com.example.paymentreconciliation.dto.TransactionUploadResponse;
 import com.example.paymentreconciliation.entity.TransactionSearchDetail;
 import com.example.paymentreconciliation.entity.TransactionUpload;
@@ -236,17 +235,7 @@ public class TransactionUploadService {
     }
 
     private String sha256(byte[] content) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(content);
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException("SHA-256 not available", e);
-        }
+        return FileDigests.sha256Hex(content);
     }
 
     private String required(CSVRecord record, String column, int lineNo) {
@@ -4,6 +4,7 @@ import com.shared.utilities.logger.LoggerFactoryProvider;
 import org.slf4j.Logger;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -12,8 +13,14 @@ import java.util.List;
  */
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.example.paymentreconciliation.common.metrics.IngestionMetrics;
+import com.example.paymentreconciliation.common.pipeline.CheckpointTracker;
+import com.example.paymentreconciliation.common.pipeline.StagedPipeline;
+import com.example.paymentreconciliation.config.IngestionProperties;
 import com.example.paymentreconciliation.config.VANIngestionProperties;
+import com.example.paymentreconciliation.dao.ImportErrorDao;
+import com.example.paymentreconciliation.dao.VanCopyLoader;
 
 import com.example.paymentreconciliation.entity.*;
 import com.example.paymentreconciliation.repository.*;
@@ -22,14 +29,16 @@ import com.example.paymentreconciliation.repository.*;
 public class VANIngestionService extends BaseIngestionService {
     private static final Logger log = LoggerFactoryProvider.getLogger(VANIngestionService.class);
     @Autowired
-    private ImportRunRepository importRunRepository;
-    @Autowired
     private VANTransactionRepository vanTransactionRepository;
     @Autowired
-    private ImportErrorRepository importErrorRepository;
+    private ImportErrorSink importErrorSink;
 
     @Autowired
     private VANIngestionProperties vanProps;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private VanCopyLoader vanCopyLoader;
 
     @Override
     protected String getInboxDir() {
@@ -51,169 +60,322 @@ public class VANIngestionService extends BaseIngestionService {
         return vanProps.getQuarantineDir();
     }
 
+    @Override
+    public String getFeedName() {
+        return "VAN";
+    }
+
     @Override
     protected String getFileExtension() {
         return ".csv";
     }
 
-    /**
-     * Main entry point for polling and processing files.
-     */
     @Override
-    public void pollAndProcessInbox() {
-        log.info("Polling VAN inbox directory: {}", vanProps.getInboxDir());
-        List<File> files = discoverStableFiles(vanProps.getInboxDir());
-        log.info("Discovered {} stable file(s) for ingestion", files.size());
-        for (File file : files) {
-            try {
-                log.info("Processing file: {}", file.getAbsolutePath());
-                processFile(file);
-            } catch (Exception e) {
-                log.error("Error processing file: {}. Moving to quarantine. Error: {}", file.getAbsolutePath(), e.getMessage(), e);
-                moveToQuarantine(file, "Unhandled error: " + e.getMessage());
-            }
-        }
+    protected IngestionProperties getIngestionProperties() {
+        return vanProps;
     }
 
     /**
      * Process a single file: move, hash, parse, validate, persist, archive/quarantine.
      */
     @Override
-    protected void processFile(File file) {
+    protected FileOutcome processFile(File file) {
         log.info("Starting processing for file: {}", file.getAbsolutePath());
         File processingFile = moveToProcessing(file);
         log.debug("Moved file to processing: {}", processingFile.getAbsolutePath());
-        if (processingFile.length() > MAX_FILE_SIZE_BYTES) {
+        return ingest(processingFile, false);
+    }
+
+    @Override
+    protected FileOutcome resumeFile(File processingFile) {
+        log.info("Recovering interrupted file: {}", processingFile.getAbsolutePath());
+        return ingest(processingFile, true);
+    }
+
+    @Override
+    protected FileOutcome processUploadedFile(File processingFile) {
+        log.info("Starting processing for uploaded file: {}", processingFile.getAbsolutePath());
+        return ingest(processingFile, false);
+    }
+
+    /**
+     * Ingest a file already in PROCESSING. When recovering, an unfinished ImportRun for the
+     * same hash is resumed after its checkpoint instead of being treated as a duplicate.
+     */
+    private FileOutcome ingest(File processingFile, boolean recovering) {
+        if (processingFile.length() > getMaxFileSizeBytes()) {
             log.warn("File exceeds max size policy ({} bytes): {}", processingFile.length(), processingFile.getAbsolutePath());
-            moveToQuarantine(processingFile, "File exceeds max size policy");
-            return;
+            moveToQuarantine(processingFile, QuarantineReason.SIZE_LIMIT, "File exceeds max size policy");
+            return FileOutcome.FAILED;
         }
 
         String fileHash = computeSha256(processingFile);
         log.debug("Computed SHA-256 hash for file {}: {}", processingFile.getName(), fileHash);
         long fileSize = processingFile.length();
-        if (isDuplicate(fileHash)) {
+        ImportRun existing = importRunRepository.findByFileHash(fileHash).orElse(null);
+        if (existing != null && recovering && !isInProgress(existing)) {
+            return settleFinishedRun(processingFile, existing);
+        }
+        if (existing != null && !recovering) {
             log.warn("Duplicate file detected: {} (hash={})", processingFile.getName(), fileHash);
-            moveToArchive(processingFile);
-            return;
+            reportImportRun(existing);
+            moveToArchive(processingFile, fileHash, existing);
+            return FileOutcome.SKIPPED;
         }
 
-        ImportRun importRun = createImportRun(processingFile.getName(), fileHash, fileSize);
+        ImportRun importRun;
+        RecordCounts counts;
+        if (existing == null) {
+            importRun = createImportRun(processingFile.getName(), fileHash, fileSize);
+            counts = new RecordCounts(0);
+        } else {
+            importRun = existing;
+            counts = RecordCounts.resumeFrom(importRun);
+            log.info("Resuming import run {} for {} after {} committed row(s)",
+                    importRun.getId(), processingFile.getName(), counts.resumeFrom);
+        }
+        reportImportRun(importRun);
 
         try {
             log.info("Parsing and persisting VAN file: {}", processingFile.getAbsolutePath());
-            parseValidatePersist(processingFile, importRun);
+            parseValidatePersist(processingFile, importRun, counts);
             log.info("Successfully processed file: {}. Moving to archive.", processingFile.getAbsolutePath());
-            moveToArchive(processingFile);
+            moveToArchive(processingFile, fileHash, importRun);
+            return FileOutcome.SUCCEEDED;
         } catch (Exception e) {
             log.warn("Processing failed for file: {}. Moving to quarantine.", processingFile.getAbsolutePath(), e);
             importRun.setStatus(ImportRun.Status.FAILED);
             importRun.setErrorMessage(e.getMessage());
             importRunRepository.save(importRun);
-            persistImportError(importRun, "UNHANDLED", "Unhandled error during VAN ingest: " + e.getMessage(), null);
-            moveToQuarantine(processingFile, "One or more statements failed to import");
+            importErrorSink.record(importRun, "UNHANDLED", "Unhandled error during VAN ingest: " + e.getMessage(), null);
+            importErrorSink.finish(importRun);
+            moveToQuarantine(processingFile, QuarantineReason.IMPORT_FAILED, "One or more statements failed to import");
+            return FileOutcome.FAILED;
         }
     }
 
-    /**
-     * Check DB for existing file hash.
-     */
-    private boolean isDuplicate(String fileHash) {
-        log.debug("Checking for duplicate file hash: {}", fileHash);
-        return importRunRepository.findByFileHash(fileHash).isPresent();
-    }
-
     private ImportRun createImportRun(String filename, String fileHash, long fileSize) {
         ImportRun importRun = new ImportRun();
         importRun.setFilename(filename);
         importRun.setFileHash(fileHash);
         importRun.setFileSizeBytes(fileSize);
         importRun.setReceivedAt(java.time.LocalDateTime.now());
-        importRun.setFileType("VAN");
+        importRun.setFileType(getFeedName());
         importRun.setStatus(ImportRun.Status.NEW);
         return importRunRepository.save(importRun);
     }
 
     /**
-     * Parse, validate, and persist all transactions in a DB transaction.
+     * Stream the CSV in chunks of van.chunk-size rows through a staged pipeline: while this
+     * thread parses the next chunk, earlier chunks are validated, then persisted and committed
+     * together with the running ImportRun counts and row checkpoint. Bounded queues pause
+     * the parser when persistence falls behind. Rows before counts.resumeFrom were committed
+     * by an interrupted attempt and are skipped.
      */
-    private void parseValidatePersist(File csvFile, ImportRun importRun) {
+    private void parseValidatePersist(File csvFile, ImportRun importRun, RecordCounts counts) {
         log.debug("Parsing and validating VAN file: {}", csvFile.getAbsolutePath());
         VANParser parser = new VANParser();
-        List<VANParser.VANTransactionData> transactions;
+        importRun.setStatus(ImportRun.Status.PARSED);
+        importRun.setErrorMessage(null);
+        importRunRepository.save(importRun);
+        long started = System.nanoTime();
+
+        if (vanProps.isCopyLoadEnabled() && counts.resumeFrom == 0) {
+            // Whole file in one transaction (nothing to resume after a crash): COPY into staging,
+            // then a single validate-and-merge statement
+            VanCopyLoader.LoadResult result = transactionTemplate.execute(status -> {
+                VanCopyLoader.LoadResult loaded = vanCopyLoader.load(csvFile, importRun.getId(),
+                        importErrorSink.remaining(importRun));
+                importErrorSink.stored(importRun, loaded.getStoredErrors(), loaded.getFailed() - loaded.getStoredErrors());
+                return loaded;
+            });
+            counts.total = Math.toIntExact(result.getStaged());
+            counts.processed = Math.toIntExact(result.getInserted());
+            counts.failed = Math.toIntExact(result.getFailed());
+            counts.checkpoint.complete(0, result.getStaged());
+            finalizeImportRun(importRun, counts);
+            long elapsed = System.nanoTime() - started;
+            ingestionMetrics.recordStage(getFeedName(), IngestionMetrics.STAGE_PERSIST, elapsed);
+            ingestionMetrics.countItems(getFeedName(), "rows", result.getStaged());
+            ingestionMetrics.recordFileThroughput(getFeedName(), "rows", result.getStaged(), elapsed);
+            return;
+        }
+        StagedPipeline<ParsedChunk, ValidatedChunk> pipeline = newPipeline(
+                chunk -> validateChunk(chunk.rows, chunk.offset, importRun),
+                validated -> transactionTemplate.executeWithoutResult(status -> persistChunk(validated, importRun, counts)));
         try {
-            transactions = parser.parse(csvFile);
+            long[] rowsRead = {0};
+            pipeline.run(emitter -> {
+                java.util.function.Consumer<ParsedChunk> timedEmitter = timeParse(emitter);
+                parser.parse(csvFile, vanProps.getChunkSize(), rows -> {
+                    long offset = rowsRead[0];
+                    rowsRead[0] += rows.size();
+                    if (rowsRead[0] <= counts.resumeFrom) {
+                        return; // committed before the interruption
+                    }
+                    if (offset < counts.resumeFrom) {
+                        int skip = (int) (counts.resumeFrom - offset);
+                        rows = rows.subList(skip, rows.size());
+                        offset = counts.resumeFrom;
+                    }
+                    timedEmitter.accept(new ParsedChunk(offset, rows));
+                });
+            });
         } catch (VANParser.VANParseException e) {
             throw new RuntimeException("VAN parse error: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("VAN ingest failed: " + e.getMessage(), e);
         }
-        persistParsedTransactions(transactions, csvFile.getName(), importRun);
+        finalizeImportRun(importRun, counts);
+        ingestionMetrics.recordFileThroughput(getFeedName(), "rows",
+                counts.checkpoint.watermark() - counts.resumeFrom, System.nanoTime() - started);
     }
 
-    @Transactional
-    public void persistParsedTransactions(List<VANParser.VANTransactionData> transactions, String filename, ImportRun importRun) {
-        log.info("Persisting parsed transactions for file: {} (hash={})", filename, importRun.getFileHash());
-        importRun.setStatus(ImportRun.Status.PARSED);
-        importRun.setErrorMessage(null);
-        importRunRepository.save(importRun);
+    /**
+     * Parsed rows starting at row offset {@code offset} of the file.
+     */
+    private static class ParsedChunk {
+        final long offset;
+        final List<VANParser.VANTransactionData> rows;
+
+        ParsedChunk(long offset, List<VANParser.VANTransactionData> rows) {
+            this.offset = offset;
+            this.rows = rows;
+        }
+    }
 
-        int totalRecords = transactions.size();
-        int processedRecords = 0;
-        int failedRecords = 0;
+    /**
+     * One parsed chunk after validation: entities ready to save plus the rejected rows' errors,
+     * each with the CSV line it came from.
+     */
+    private static class ValidatedChunk {
+        final long offset;
+        final int size;
+        final List<VANTransaction> valid;
+        final List<ImportErrorDao.Row> errors = new ArrayList<>();
 
-        for (VANParser.VANTransactionData txn : transactions) {
+        ValidatedChunk(long offset, int size) {
+            this.offset = offset;
+            this.size = size;
+            this.valid = new ArrayList<>(size);
+        }
+    }
+
+    /**
+     * Validate one chunk and map the valid rows to entities; nothing is written here.
+     * Checks and messages match van_stage_merge.sql, so the COPY load accepts the same rows.
+     */
+    private ValidatedChunk validateChunk(List<VANParser.VANTransactionData> chunk, long offset, ImportRun importRun) {
+        ValidatedChunk validated = new ValidatedChunk(offset, chunk.size());
+        for (VANParser.VANTransactionData txn : chunk) {
             // Basic validation
-            if (txn.mainAccountNumber == null || txn.mainAccountNumber.trim().isEmpty()) {
+            if (txn.mainAccountNumber == null || VANParser.btrim(txn.mainAccountNumber).isEmpty()) {
                 log.error("Missing main account number. Skipping transaction: {}", txn);
-                persistImportError(importRun, "VALIDATION", "Missing main account number", null);
-                failedRecords++;
+                validated.errors.add(rejected(txn, "Missing main account number"));
                 continue;
             }
-            if (txn.virtualAccountNumber == null || txn.virtualAccountNumber.trim().isEmpty()) {
+            if (txn.virtualAccountNumber == null || VANParser.btrim(txn.virtualAccountNumber).isEmpty()) {
                 log.error("Missing virtual account number. Skipping transaction: {}", txn);
-                persistImportError(importRun, "VALIDATION", "Missing virtual account number", null);
-                failedRecords++;
+                validated.errors.add(rejected(txn, "Missing virtual account number"));
                 continue;
             }
             if (txn.amount == null || txn.amount.compareTo(java.math.BigDecimal.ZERO) <= 0) {
                 log.error("Invalid amount. Skipping transaction: {}", txn);
-                persistImportError(importRun, "VALIDATION", "Invalid amount", null);
-                failedRecords++;
+                validated.errors.add(rejected(txn, "Invalid amount"));
                 continue;
             }
+            // The parser leaves blank or invalid dates null
+            if (txn.transactionDate == null) {
+                log.error("Invalid transaction date. Skipping transaction: {}", txn);
+                validated.errors.add(rejected(txn, "Invalid transaction date"));
+                continue;
+            }
+            if (txn.valueDate == null) {
+                log.error("Invalid value date. Skipping transaction: {}", txn);
+                validated.errors.add(rejected(txn, "Invalid value date"));
+                continue;
+            }
+            if (txn.dateTimeOfCredit == null) {
+                log.error("Invalid date & time of credit. Skipping transaction: {}", txn);
+                validated.errors.add(rejected(txn, "Invalid date & time of credit"));
+                continue;
+            }
+            validated.valid.add(toEntity(txn, importRun));
+        }
+        return validated;
+    }
+
+    /**
+     * Validation error for a rejected row, on the row's CSV line like the COPY merge records it.
+     */
+    private static ImportErrorDao.Row rejected(VANParser.VANTransactionData txn, String message) {
+        return new ImportErrorDao.Row("VALIDATION", message, txn.lineNo);
+    }
+
+    /**
+     * Persist one validated chunk, then record the running counts and row checkpoint on
+     * the ImportRun in the same transaction, so a crash mid-file leaves the run reflecting
+     * exactly what was committed and resumable from there.
+     */
+    private void persistChunk(ValidatedChunk chunk, ImportRun importRun, RecordCounts counts) {
+        ingestionMetrics.countItems(getFeedName(), "rows", chunk.size);
+        // Written with the checkpoint: a resumed run neither loses nor repeats them
+        importErrorSink.write(importRun, chunk.errors);
+        vanTransactionRepository.saveAll(chunk.valid);
 
-            // Persist transaction
-            processedRecords++;
-            VANTransaction vanTxn = new VANTransaction();
-            vanTxn.setImportRun(importRun);
-            vanTxn.setMainAccountNumber(txn.mainAccountNumber);
-            vanTxn.setVirtualAccountNumber(txn.virtualAccountNumber);
-            vanTxn.setTransactionReferenceNumber(txn.transactionReferenceNumber);
-            vanTxn.setBankReferenceTraceId(txn.bankReferenceTraceId);
-            vanTxn.setRemitterName(txn.remitterName);
-            vanTxn.setRemitterAccountNumber(txn.remitterAccountNumber);
-            vanTxn.setRemitterIfscBankName(txn.remitterIfscBankName);
-            vanTxn.setRemitterVpa(txn.remitterVpa);
-            vanTxn.setTransactionDate(txn.transactionDate);
-            vanTxn.setValueDate(txn.valueDate);
-            vanTxn.setAmount(txn.amount);
-            vanTxn.setModeChannel(txn.modeChannel);
-            vanTxn.setPaymentDescriptionNarration(txn.paymentDescriptionNarration);
-            vanTxn.setPaymentStatus(txn.paymentStatus);
-            vanTxn.setMappedCustomerIdCode(txn.mappedCustomerIdCode);
-            vanTxn.setInvoiceReferenceId(txn.invoiceReferenceId);
-            vanTxn.setDateTimeOfCredit(txn.dateTimeOfCredit);
-            vanTxn.setBranchBankCode(txn.branchBankCode);
-            vanTxn.setCreatedAt(java.time.LocalDateTime.now());
-            vanTransactionRepository.save(vanTxn);
+        // Chunks may be persisted by several workers; counts and the run row are updated one at a time
+        synchronized (counts) {
+            counts.total += chunk.size;
+            counts.processed += chunk.valid.size();
+            counts.failed += chunk.errors.size();
+            long watermark = counts.checkpoint.complete(chunk.offset, chunk.offset + chunk.size);
+            importRun.setCheckpointOffset(watermark);
+            importRun.setTotalRecords(counts.total);
+            importRun.setProcessedRecords(counts.processed);
+            importRun.setFailedRecords(counts.failed);
+            importRunRepository.updateProgress(importRun.getId(), watermark, counts.total,
+                    counts.processed, counts.failed, null);
         }
+        log.debug("Committed VAN chunk of {} row(s) for run {} (total={})", chunk.size, importRun.getId(), counts.total);
+    }
 
+    private VANTransaction toEntity(VANParser.VANTransactionData txn, ImportRun importRun) {
+        VANTransaction vanTxn = new VANTransaction();
+        vanTxn.setImportRun(importRun);
+        vanTxn.setMainAccountNumber(txn.mainAccountNumber);
+        vanTxn.setVirtualAccountNumber(txn.virtualAccountNumber);
+        vanTxn.setTransactionReferenceNumber(txn.transactionReferenceNumber);
+        vanTxn.setBankReferenceTraceId(txn.bankReferenceTraceId);
+        vanTxn.setRemitterName(txn.remitterName);
+        vanTxn.setRemitterAccountNumber(txn.remitterAccountNumber);
+        vanTxn.setRemitterIfscBankName(txn.remitterIfscBankName);
+        vanTxn.setRemitterVpa(txn.remitterVpa);
+        vanTxn.setTransactionDate(txn.transactionDate);
+        vanTxn.setValueDate(txn.valueDate);
+        vanTxn.setAmount(txn.amount);
+        vanTxn.setModeChannel(txn.modeChannel);
+        vanTxn.setPaymentDescriptionNarration(txn.paymentDescriptionNarration);
+        vanTxn.setPaymentStatus(txn.paymentStatus);
+        vanTxn.setMappedCustomerIdCode(txn.mappedCustomerIdCode);
+        vanTxn.setInvoiceReferenceId(txn.invoiceReferenceId);
+        vanTxn.setDateTimeOfCredit(txn.dateTimeOfCredit);
+        vanTxn.setBranchBankCode(txn.branchBankCode);
+        vanTxn.setCreatedAt(java.time.LocalDateTime.now());
+        return vanTxn;
+    }
+
+    private void finalizeImportRun(ImportRun importRun, RecordCounts counts) {
+        importErrorSink.finish(importRun);
         // Update ImportRun with counts and final status
-        importRun.setTotalRecords(totalRecords);
-        importRun.setProcessedRecords(processedRecords);
-        importRun.setFailedRecords(failedRecords);
-        if (processedRecords > 0 && failedRecords == 0) {
+        importRun.setCheckpointOffset(counts.checkpoint.watermark());
+        importRun.setTotalRecords(counts.total);
+        importRun.setProcessedRecords(counts.processed);
+        importRun.setFailedRecords(counts.failed);
+        if (counts.processed > 0 && counts.failed == 0) {
             importRun.setStatus(ImportRun.Status.IMPORTED);
-        } else if (processedRecords > 0) {
+        } else if (counts.processed > 0) {
             importRun.setStatus(ImportRun.Status.PARTIAL);
         } else {
             importRun.setStatus(ImportRun.Status.FAILED);
@@ -221,20 +383,28 @@ public class VANIngestionService extends BaseIngestionService {
         importRunRepository.save(importRun);
     }
 
-    /**
-     * Persist import error details.
-     */
-    private void persistImportError(ImportRun importRun, String code, String errorMsg, Integer lineNo) {
-        if (importRun == null) {
-            log.warn("Unable to persist import error because import run is not available: {}", errorMsg);
-            return;
+    private static class RecordCounts {
+        int total;
+        int processed;
+        int failed;
+        final long resumeFrom; // rows committed by an interrupted attempt
+        final CheckpointTracker checkpoint;
+
+        RecordCounts(long resumeFrom) {
+            this.resumeFrom = resumeFrom;
+            this.checkpoint = new CheckpointTracker(resumeFrom);
         }
 
-        ImportError error = new ImportError();
-        error.setImportRun(importRun);
-        error.setCode(code != null ? code : "VALIDATION_ERROR");
-        error.setMessage(errorMsg);
-        error.setLineNo(lineNo);
-        importErrorRepository.save(error);
+        /**
+         * Counts as of the run's last checkpoint; rows after it are processed again.
+         */
+        static RecordCounts resumeFrom(ImportRun importRun) {
+            long checkpoint = importRun.getCheckpointOffset() != null ? importRun.getCheckpointOffset() : 0L;
+            RecordCounts counts = new RecordCounts(checkpoint);
+            counts.total = Math.toIntExact(checkpoint);
+            counts.processed = importRun.getProcessedRecords() != null ? importRun.getProcessedRecords() : 0;
+            counts.failed = importRun.getFailedRecords() != null ? importRun.getFailedRecords() : 0;
+            return counts;
+        }
     }
 }
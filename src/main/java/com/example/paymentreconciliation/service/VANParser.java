@@ -5,6 +5,7 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
@@ -12,52 +13,206 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 public class VANParser {
 
+    // Strict resolution: 2024-02-30 is rejected rather than adjusted to the 29th
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd")
+            .withResolverStyle(ResolverStyle.STRICT);
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss")
+            .withResolverStyle(ResolverStyle.STRICT);
+    // Same formats as the regular expressions in van_stage_merge.sql and van_parse_date/van_parse_timestamp
+    private static final Pattern AMOUNT_PATTERN = Pattern.compile("[0-9]+(\\.[0-9]+)?");
+    private static final Pattern DATE_PATTERN = Pattern.compile("[0-9]{4}-[0-9]{2}-[0-9]{2}");
+    private static final Pattern DATE_TIME_PATTERN = Pattern.compile("[0-9]{4}-[0-9]{2}-[0-9]{2} [0-9]{2}:[0-9]{2}:[0-9]{2}");
+
+    /**
+     * CSV headers in the column order used by {@link #parseRaw}.
+     */
+    public static final List<String> COLUMNS = List.of(
+            "Main Account Number",
+            "Virtual Account Number (VAN)",
+            "Transaction Reference Number",
+            "Bank Reference / Trace ID",
+            "Remitter Name",
+            "Remitter Account Number",
+            "Remitter IFSC / Bank Name",
+            "Remitter VPA",
+            "Transaction Date",
+            "Value Date",
+            "Amount (INR)",
+            "Mode / Channel",
+            "Payment Description / Narration",
+            "Payment Status",
+            "Mapped Customer ID / Code",
+            "Invoice / Reference ID",
+            "Date & Time of Credit",
+            "Branch / Bank Code");
+
     public static class VANParseException extends Exception {
         public VANParseException(String message) {
             super(message);
         }
     }
 
+    @FunctionalInterface
+    public interface RawRecordConsumer {
+        void accept(long lineNo, String[] values) throws IOException;
+    }
+
     public List<VANTransactionData> parse(File csvFile) throws VANParseException {
         List<VANTransactionData> transactions = new ArrayList<>();
-        try (FileReader reader = new FileReader(csvFile);
+        parse(csvFile, Integer.MAX_VALUE, transactions::addAll);
+        return transactions;
+    }
+
+    /**
+     * Stream the CSV, handing records to the consumer in chunks of at most chunkSize.
+     * Only the current chunk is held in memory.
+     */
+    public void parse(File csvFile, int chunkSize, Consumer<List<VANTransactionData>> chunkConsumer) throws VANParseException {
+        int size = Math.max(1, chunkSize);
+        List<VANTransactionData> chunk = new ArrayList<>(Math.min(size, 1024));
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvFile));
              CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
 
             for (CSVRecord record : csvParser) {
-                VANTransactionData data = new VANTransactionData();
-                // Assuming CSV headers match the field names, adjust as needed
-                data.mainAccountNumber = record.get("Main Account Number");
-                data.virtualAccountNumber = record.get("Virtual Account Number (VAN)");
-                data.transactionReferenceNumber = record.get("Transaction Reference Number");
-                data.bankReferenceTraceId = record.get("Bank Reference / Trace ID");
-                data.remitterName = record.get("Remitter Name");
-                data.remitterAccountNumber = record.get("Remitter Account Number");
-                data.remitterIfscBankName = record.get("Remitter IFSC / Bank Name");
-                data.remitterVpa = record.get("Remitter VPA");
-                data.transactionDate = LocalDate.parse(record.get("Transaction Date"), DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                data.valueDate = LocalDate.parse(record.get("Value Date"), DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-                data.amount = new BigDecimal(record.get("Amount (INR)"));
-                data.modeChannel = record.get("Mode / Channel");
-                data.paymentDescriptionNarration = record.get("Payment Description / Narration");
-                data.paymentStatus = record.get("Payment Status");
-                data.mappedCustomerIdCode = record.get("Mapped Customer ID / Code");
-                data.invoiceReferenceId = record.get("Invoice / Reference ID");
-                data.dateTimeOfCredit = LocalDateTime.parse(record.get("Date & Time of Credit"), DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-                data.branchBankCode = record.get("Branch / Bank Code");
-                transactions.add(data);
+                chunk.add(toData(record));
+                if (chunk.size() >= size) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(Math.min(size, 1024));
+                }
             }
         } catch (IOException e) {
             throw new VANParseException("Failed to parse CSV file: " + e.getMessage());
         }
-        return transactions;
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+    }
+
+    /**
+     * Stream the CSV without converting any field: values are handed over as read, in
+     * {@link #COLUMNS} order, so validation can happen downstream (e.g. set-based in SQL).
+     */
+    public void parseRaw(File csvFile, RawRecordConsumer consumer) throws VANParseException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+
+            for (String column : COLUMNS) {
+                if (!csvParser.getHeaderMap().containsKey(column)) {
+                    throw new VANParseException("Missing CSV column: " + column);
+                }
+            }
+            String[] values = new String[COLUMNS.size()];
+            for (CSVRecord record : csvParser) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = record.isSet(COLUMNS.get(i)) ? record.get(COLUMNS.get(i)) : null;
+                }
+                // Record 1 is on line 2, after the header
+                consumer.accept(record.getRecordNumber() + 1, values);
+            }
+        } catch (IOException e) {
+            throw new VANParseException("Failed to parse CSV file: " + e.getMessage());
+        }
+    }
+
+    private VANTransactionData toData(CSVRecord record) {
+        VANTransactionData data = new VANTransactionData();
+        // Record 1 is on line 2, after the header; same numbering as parseRaw
+        data.lineNo = Math.toIntExact(record.getRecordNumber() + 1);
+        // Assuming CSV headers match the field names, adjust as needed
+        data.mainAccountNumber = record.get("Main Account Number");
+        data.virtualAccountNumber = record.get("Virtual Account Number (VAN)");
+        data.transactionReferenceNumber = record.get("Transaction Reference Number");
+        data.bankReferenceTraceId = record.get("Bank Reference / Trace ID");
+        data.remitterName = record.get("Remitter Name");
+        data.remitterAccountNumber = record.get("Remitter Account Number");
+        data.remitterIfscBankName = record.get("Remitter IFSC / Bank Name");
+        data.remitterVpa = record.get("Remitter VPA");
+        data.transactionDate = parseDate(record.get("Transaction Date"));
+        data.valueDate = parseDate(record.get("Value Date"));
+        data.amount = parseAmount(record.get("Amount (INR)"));
+        data.modeChannel = record.get("Mode / Channel");
+        data.paymentDescriptionNarration = record.get("Payment Description / Narration");
+        data.paymentStatus = record.get("Payment Status");
+        data.mappedCustomerIdCode = record.get("Mapped Customer ID / Code");
+        data.invoiceReferenceId = record.get("Invoice / Reference ID");
+        data.dateTimeOfCredit = parseDateTime(record.get("Date & Time of Credit"));
+        data.branchBankCode = record.get("Branch / Bank Code");
+        return data;
+    }
+
+    /**
+     * Amount as accepted by the COPY merge: unsigned digits with an optional fraction; null otherwise.
+     */
+    static BigDecimal parseAmount(String value) {
+        String v = btrim(value);
+        return v != null && AMOUNT_PATTERN.matcher(v).matches() ? new BigDecimal(v) : null;
+    }
+
+    /**
+     * yyyy-MM-dd that is a real date (year 1 or later); null for blanks and anything else, like van_parse_date.
+     */
+    static LocalDate parseDate(String value) {
+        String v = btrim(value);
+        if (v == null || !DATE_PATTERN.matcher(v).matches()) {
+            return null;
+        }
+        try {
+            LocalDate date = LocalDate.parse(v, DATE_FORMAT);
+            return date.getYear() >= 1 ? date : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * yyyy-MM-dd HH:mm:ss that is a real date and time; null for blanks and anything else, like van_parse_timestamp.
+     */
+    static LocalDateTime parseDateTime(String value) {
+        String v = btrim(value);
+        if (v == null || !DATE_TIME_PATTERN.matcher(v).matches()) {
+            return null;
+        }
+        try {
+            LocalDateTime dateTime = LocalDateTime.parse(v, DATE_TIME_FORMAT);
+            return dateTime.getYear() >= 1 ? dateTime : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * PostgreSQL btrim(): strips spaces only, so both load modes see the same value.
+     */
+    static String btrim(String value) {
+        if (value == null) {
+            return null;
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(start, end);
     }
 
+    /**
+     * One CSV row; amount and dates are null when the value is blank or invalid, and the row
+     * is then rejected by validation with the same message the COPY merge records.
+     */
     public static class VANTransactionData {
+        public int lineNo;
         public String mainAccountNumber;
         public String virtualAccountNumber;
         public String transactionReferenceNumber;
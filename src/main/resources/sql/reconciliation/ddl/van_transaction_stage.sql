@@ -0,0 +1,55 @@
+-- Staging table for the VAN COPY load (van.copy-load-enabled). Apply together with the other
+-- reconciliation.* tables before enabling copy loads; the service does not create it.
+-- Unlogged: rows only live between the COPY and the merge of one transaction.
+CREATE UNLOGGED TABLE IF NOT EXISTS reconciliation.van_transaction_stage (
+    import_run_id                 BIGINT NOT NULL,
+    line_no                       BIGINT NOT NULL,
+    main_account_number           TEXT,
+    virtual_account_number        TEXT,
+    transaction_reference_number  TEXT,
+    bank_reference_trace_id       TEXT,
+    remitter_name                 TEXT,
+    remitter_account_number       TEXT,
+    remitter_ifsc_bank_name       TEXT,
+    remitter_vpa                  TEXT,
+    transaction_date              TEXT,
+    value_date                    TEXT,
+    amount                        TEXT,
+    mode_channel                  TEXT,
+    payment_description_narration TEXT,
+    payment_status                TEXT,
+    mapped_customer_id_code       TEXT,
+    invoice_reference_id          TEXT,
+    date_time_of_credit           TEXT,
+    branch_bank_code              TEXT
+);
+
+CREATE INDEX IF NOT EXISTS idx_van_transaction_stage_run
+    ON reconciliation.van_transaction_stage (import_run_id);
+
+-- Safe casts used by van_stage_merge.sql: NULL for blanks and for values that match the format
+-- but are not real dates/times (2024-02-30, 2024-13-01, 25:00:00), where a plain ::date or
+-- ::timestamp would abort the whole merge. Mirrors VANParser's strict parsing, so both load
+-- modes accept the same rows. Plain SQL CASE (no exception block), so it stays cheap per row.
+CREATE OR REPLACE FUNCTION reconciliation.van_parse_date(value TEXT) RETURNS DATE
+LANGUAGE sql IMMUTABLE AS $$
+    SELECT CASE
+               WHEN v IS NULL OR v !~ '^[0-9]{4}-[0-9]{2}-[0-9]{2}$' THEN NULL
+               WHEN substr(v, 1, 4)::int < 1 OR substr(v, 6, 2)::int NOT BETWEEN 1 AND 12 THEN NULL
+               WHEN substr(v, 9, 2)::int NOT BETWEEN 1 AND extract(day FROM
+                        make_date(substr(v, 1, 4)::int, substr(v, 6, 2)::int, 1) + interval '1 month - 1 day')::int THEN NULL
+               ELSE v::date
+           END
+      FROM (SELECT btrim(value) AS v) t
+$$;
+
+CREATE OR REPLACE FUNCTION reconciliation.van_parse_timestamp(value TEXT) RETURNS TIMESTAMP
+LANGUAGE sql IMMUTABLE AS $$
+    SELECT CASE
+               WHEN v IS NULL OR v !~ '^[0-9]{4}-[0-9]{2}-[0-9]{2} [0-9]{2}:[0-9]{2}:[0-9]{2}$' THEN NULL
+               WHEN reconciliation.van_parse_date(substr(v, 1, 10)) IS NULL THEN NULL
+               WHEN substr(v, 12, 2)::int > 23 OR substr(v, 15, 2)::int > 59 OR substr(v, 18, 2)::int > 59 THEN NULL
+               ELSE v::timestamp
+           END
+      FROM (SELECT btrim(value) AS v) t
+$$;
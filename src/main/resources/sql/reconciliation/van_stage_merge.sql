@@ -0,0 +1,49 @@
+WITH checked AS (
+    SELECT s.*,
+           CASE
+               WHEN COALESCE(btrim(s.main_account_number), '') = '' THEN 'Missing main account number'
+               WHEN COALESCE(btrim(s.virtual_account_number), '') = '' THEN 'Missing virtual account number'
+               WHEN CASE WHEN COALESCE(btrim(s.amount), '') ~ '^[0-9]+(\.[0-9]+)?$'
+                         THEN btrim(s.amount)::numeric <= 0
+                         ELSE TRUE END THEN 'Invalid amount'
+               WHEN reconciliation.van_parse_date(s.transaction_date) IS NULL THEN 'Invalid transaction date'
+               WHEN reconciliation.van_parse_date(s.value_date) IS NULL THEN 'Invalid value date'
+               WHEN reconciliation.van_parse_timestamp(s.date_time_of_credit) IS NULL THEN 'Invalid date & time of credit'
+           END AS reason
+      FROM reconciliation.van_transaction_stage s
+     WHERE s.import_run_id = :importRunId
+),
+rejected AS (
+    SELECT c.import_run_id, c.line_no, c.reason
+      FROM checked c
+     WHERE c.reason IS NOT NULL
+),
+errors AS (
+    INSERT INTO reconciliation.import_error (import_run_id, line_no, code, message, created_at)
+    SELECT r.import_run_id, r.line_no::int, 'VALIDATION', r.reason, now()
+      FROM rejected r
+     ORDER BY r.line_no
+     LIMIT :errorLimit
+    RETURNING 1
+),
+inserted AS (
+    INSERT INTO reconciliation.van_transaction
+           (import_run_id, main_account_number, virtual_account_number, transaction_reference_number,
+            bank_reference_trace_id, remitter_name, remitter_account_number, remitter_ifsc_bank_name,
+            remitter_vpa, transaction_date, value_date, amount, mode_channel, payment_description_narration,
+            payment_status, mapped_customer_id_code, invoice_reference_id, date_time_of_credit,
+            branch_bank_code, created_at)
+    SELECT c.import_run_id, c.main_account_number, c.virtual_account_number, c.transaction_reference_number,
+           c.bank_reference_trace_id, c.remitter_name, c.remitter_account_number, c.remitter_ifsc_bank_name,
+           c.remitter_vpa, reconciliation.van_parse_date(c.transaction_date), reconciliation.van_parse_date(c.value_date),
+           btrim(c.amount)::numeric, c.mode_channel, c.payment_description_narration,
+           c.payment_status, c.mapped_customer_id_code, c.invoice_reference_id,
+           reconciliation.van_parse_timestamp(c.date_time_of_credit), c.branch_bank_code, now()
+      FROM checked c
+     WHERE c.reason IS NULL
+     ORDER BY c.line_no
+    RETURNING 1
+)
+SELECT (SELECT count(*) FROM inserted) AS inserted_count,
+       (SELECT count(*) FROM rejected) AS failed_count,
+       (SELECT count(*) FROM errors) AS stored_error_count
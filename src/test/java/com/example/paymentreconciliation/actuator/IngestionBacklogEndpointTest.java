@@ -0,0 +1,69 @@
+package com.example.paymentreconciliation.actuator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.paymentreconciliation.entity.ImportRun;
+import com.example.paymentreconciliation.repository.ImportRunRepository;
+import com.example.paymentreconciliation.service.BaseIngestionService;
+
+/**
+ * Each feed reports its backlog next to its own most recent runs, and the number of runs
+ * asked for is kept within bounds.
+ */
+class IngestionBacklogEndpointTest {
+
+    private final BaseIngestionService mt940 = service("MT940");
+    private final BaseIngestionService van = service("VAN");
+    private final ImportRunRepository importRunRepository = mock(ImportRunRepository.class);
+    private final IngestionBacklogEndpoint endpoint = new IngestionBacklogEndpoint(List.of(mt940, van),
+            importRunRepository);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void everyFeedReportsItsBacklogAndRecentRuns() {
+        ImportRun run = new ImportRun();
+        run.setId(42L);
+        run.setFilename("stmt.sta");
+        run.setStatus(ImportRun.Status.IMPORTED);
+        when(importRunRepository.findByFileTypeOrderByIdDesc(eq("MT940"), eq(PageRequest.of(0, 20))))
+                .thenReturn(List.of(run));
+
+        Map<String, Object> feeds = endpoint.backlog(null);
+
+        assertThat(feeds).containsOnlyKeys("MT940", "VAN");
+        Map<String, Object> body = (Map<String, Object>) feeds.get("MT940");
+        assertThat(body.get("backlog")).isSameAs(mt940.getBacklog());
+        assertThat((List<Map<String, Object>>) body.get("recentRuns")).singleElement()
+                .satisfies(item -> assertThat(item)
+                        .containsEntry("id", 42L)
+                        .containsEntry("filename", "stmt.sta")
+                        .containsEntry("status", ImportRun.Status.IMPORTED));
+        assertThat((List<?>) ((Map<String, Object>) feeds.get("VAN")).get("recentRuns")).isEmpty();
+    }
+
+    @Test
+    void requestedRunCountIsClamped() {
+        endpoint.backlog(10_000);
+        endpoint.backlog(0);
+
+        verify(importRunRepository).findByFileTypeOrderByIdDesc("MT940", PageRequest.of(0, 200));
+        verify(importRunRepository).findByFileTypeOrderByIdDesc("MT940", PageRequest.of(0, 1));
+    }
+
+    private static BaseIngestionService service(String feed) {
+        BaseIngestionService service = mock(BaseIngestionService.class);
+        when(service.getFeedName()).thenReturn(feed);
+        when(service.getBacklog()).thenReturn(new BaseIngestionService.Backlog(feed, 3, 1, 1, 1, 0));
+        return service;
+    }
+}
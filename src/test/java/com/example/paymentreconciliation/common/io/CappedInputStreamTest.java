@@ -0,0 +1,74 @@
+package com.example.paymentreconciliation.common.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A stream may deliver exactly its limit, and must fail as soon as it goes past it, so a
+ * zip entry that inflates far beyond its declared size is stopped early.
+ */
+class CappedInputStreamTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void streamUpToTheLimitIsReadInFull() throws Exception {
+        try (CappedInputStream in = new CappedInputStream(new ByteArrayInputStream(new byte[100]), 100)) {
+            assertThat(in.readAllBytes()).hasSize(100);
+            assertThat(in.getCount()).isEqualTo(100);
+        }
+    }
+
+    @Test
+    void readingPastTheLimitFails() {
+        CappedInputStream in = new CappedInputStream(new ByteArrayInputStream(new byte[101]), 100);
+
+        assertThatThrownBy(in::readAllBytes).isInstanceOf(IOException.class).hasMessageContaining("100");
+        assertThat(in.getCount()).isGreaterThan(100);
+    }
+
+    @Test
+    void singleByteReadsAndSkipsCountToo() throws Exception {
+        CappedInputStream in = new CappedInputStream(new ByteArrayInputStream(new byte[10]), 5);
+
+        assertThat(in.read()).isZero();
+        assertThat(in.skip(4)).isEqualTo(4);
+        assertThat(in.getCount()).isEqualTo(5);
+        assertThatThrownBy(in::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void highlyCompressedZipEntryIsStoppedNearTheLimit() throws Exception {
+        Path zip = dir.resolve("bomb.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("stmt.sta"));
+            byte[] zeros = new byte[64 * 1024];
+            for (int i = 0; i < 160; i++) {
+                out.write(zeros);
+            }
+            out.closeEntry();
+        }
+        assertThat(Files.size(zip)).isLessThan(100 * 1024);
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile());
+             InputStream entry = zipFile.getInputStream(zipFile.getEntry("stmt.sta"))) {
+            CappedInputStream capped = new CappedInputStream(entry, 1024 * 1024);
+            assertThatThrownBy(() -> capped.transferTo(OutputStream.nullOutputStream())).isInstanceOf(IOException.class);
+            assertThat(capped.getCount()).isLessThan(2L * 1024 * 1024);
+        }
+    }
+}
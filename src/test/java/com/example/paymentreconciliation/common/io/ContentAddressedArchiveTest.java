@@ -0,0 +1,122 @@
+package com.example.paymentreconciliation.common.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * An archived file must come back byte for byte from the path derived from its digest,
+ * the same content is kept once, and content that no longer matches its digest is refused.
+ */
+class ContentAddressedArchiveTest {
+
+    private static final String STATEMENT = ":20:REF\n:25:1234567890\n:28C:1/1\n:62F:C240105INR100,00\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void relativePathFansOutOnTheFirstTwoBytes() {
+        String sha256 = FileDigests.sha256Hex("abc");
+
+        assertThat(ContentAddressedArchive.relativePath(sha256)).isEqualTo("ba/78/" + sha256 + ".gz");
+        assertThatThrownBy(() -> ContentAddressedArchive.relativePath("ab")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void storedFileIsCompressedAndReadsBackUnchanged() throws Exception {
+        String content = STATEMENT.repeat(1_000);
+        Path source = Files.writeString(dir.resolve("stmt.sta"), content, StandardCharsets.UTF_8);
+        String sha256 = FileDigests.sha256Hex(source);
+        ContentAddressedArchive archive = new ContentAddressedArchive(dir.resolve("archive"));
+
+        String relative = archive.store(source, sha256);
+
+        assertThat(relative).isEqualTo(ContentAddressedArchive.relativePath(sha256));
+        assertThat(source).doesNotExist();
+        assertThat(Files.size(archive.resolve(relative))).isLessThan(content.length() / 10);
+        assertThat(readAll(archive, relative)).isEqualTo(content.getBytes(StandardCharsets.UTF_8));
+        assertThat(partFiles()).isEmpty();
+    }
+
+    @Test
+    void sameContentIsKeptOnce() throws Exception {
+        ContentAddressedArchive archive = new ContentAddressedArchive(dir.resolve("archive"));
+        Path first = Files.writeString(dir.resolve("first.sta"), STATEMENT, StandardCharsets.UTF_8);
+        Path second = Files.writeString(dir.resolve("second.sta"), STATEMENT, StandardCharsets.UTF_8);
+        String sha256 = FileDigests.sha256Hex(first);
+
+        String stored = archive.store(first, sha256);
+        long modified = Files.getLastModifiedTime(archive.resolve(stored)).toMillis();
+        String again = archive.store(second, sha256);
+
+        assertThat(again).isEqualTo(stored);
+        assertThat(second).doesNotExist();
+        assertThat(Files.getLastModifiedTime(archive.resolve(stored)).toMillis()).isEqualTo(modified);
+    }
+
+    @Test
+    void zipIsStoredWithoutBeingDeflatedAgain() throws Exception {
+        byte[] random = new byte[100_000];
+        new Random(7).nextBytes(random);
+        Path zip = dir.resolve("stmt.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("stmt.sta"));
+            out.write(random);
+            out.closeEntry();
+        }
+        byte[] zipBytes = Files.readAllBytes(zip);
+        String sha256 = FileDigests.sha256Hex(zip);
+        ContentAddressedArchive archive = new ContentAddressedArchive(dir.resolve("archive"));
+
+        String relative = archive.store(zip, sha256);
+
+        assertThat(readAll(archive, relative)).isEqualTo(zipBytes);
+        assertThat(Files.size(archive.resolve(relative))).isGreaterThanOrEqualTo(zipBytes.length);
+    }
+
+    @Test
+    void contentThatNoLongerMatchesItsDigestIsRefused() throws Exception {
+        Path source = Files.writeString(dir.resolve("stmt.sta"), STATEMENT, StandardCharsets.UTF_8);
+        String staleDigest = FileDigests.sha256Hex("what the file held when it was hashed");
+        ContentAddressedArchive archive = new ContentAddressedArchive(dir.resolve("archive"));
+
+        assertThatThrownBy(() -> archive.store(source, staleDigest))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining(staleDigest);
+        assertThat(source).exists();
+        assertThat(archive.resolve(ContentAddressedArchive.relativePath(staleDigest))).doesNotExist();
+        assertThat(partFiles()).isEmpty();
+    }
+
+    private static byte[] readAll(ContentAddressedArchive archive, String relative) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = archive.open(relative)) {
+            in.transferTo(out);
+        }
+        return out.toByteArray();
+    }
+
+    private long partFiles() throws IOException {
+        Path root = dir.resolve("archive");
+        if (!Files.exists(root)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".part")).count();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.paymentreconciliation.common.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Every way of hashing must agree on the same bytes, and a reused digest must not carry
+ * anything over from its previous use.
+ */
+class FileDigestsTest {
+
+    private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void hashesMatchTheKnownVector() {
+        assertThat(FileDigests.sha256Hex("abc")).isEqualTo(ABC_SHA256);
+        assertThat(FileDigests.sha256Hex("abc".getBytes(StandardCharsets.UTF_8))).isEqualTo(ABC_SHA256);
+    }
+
+    @Test
+    void reusedDigestStartsClean() {
+        FileDigests.sha256().update("left over".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(FileDigests.sha256Hex("abc")).isEqualTo(ABC_SHA256);
+    }
+
+    @Test
+    void fileLargerThanTheBufferHashesLikeItsBytes() throws Exception {
+        byte[] content = new byte[200_000];
+        new Random(42).nextBytes(content);
+        Path file = Files.write(dir.resolve("large.sta"), content);
+
+        assertThat(FileDigests.sha256Hex(file)).isEqualTo(FileDigests.sha256Hex(content));
+    }
+
+    @Test
+    void sameFilesystemMoveIsARenameAndLeavesHashingToTheCaller() throws Exception {
+        Path source = Files.writeString(dir.resolve("inbox.sta"), "statement", StandardCharsets.UTF_8);
+        Path target = Files.createDirectories(dir.resolve("processing")).resolve("inbox.sta_1");
+
+        assertThat(FileDigests.moveAndDigest(source, target)).isNull();
+        assertThat(source).doesNotExist();
+        assertThat(target).hasContent("statement");
+        assertThat(target.resolveSibling("inbox.sta_1.part")).doesNotExist();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.paymentreconciliation.common.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.paymentreconciliation.config.MemoryBudgetProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Waiters must be admitted in arrival order, HTTP callers must be turned away after
+ * maxWaitMillis, and no estimate may exceed the whole budget.
+ */
+class MemoryBudgetTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final MemoryBudgetProperties properties = new MemoryBudgetProperties();
+
+    @BeforeEach
+    void configure() {
+        properties.setBudgetBytes(100);
+        properties.setMaxWaitMillis(100);
+        properties.setRetryAfterSeconds(7);
+        properties.setDefaultExpansionFactor(1.0);
+        properties.setExpansionFactors(new HashMap<>(Map.of("DOUBLE", 2.0)));
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void estimateUsesExpansionFactorAndIsCappedAtTheBudget() throws Exception {
+        MemoryBudget budget = new MemoryBudget(properties, registry);
+
+        try (MemoryBudget.Permit permit = budget.acquire("DOUBLE", 10)) {
+            assertThat(permit.getBytes()).isEqualTo(20);
+            assertThat(budget.getUsedBytes()).isEqualTo(20);
+        }
+        try (MemoryBudget.Permit permit = budget.tryAcquire("OTHER", 10_000)) {
+            assertThat(permit.getBytes()).isEqualTo(100);
+        }
+        assertThat(budget.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void tryAcquireGivesUpAfterMaxWait() throws Exception {
+        MemoryBudget budget = new MemoryBudget(properties, registry);
+        MemoryBudget.Permit held = budget.acquire("OTHER", 80);
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> budget.tryAcquire("OTHER", 30))
+                .isInstanceOfSatisfying(MemoryBudget.BudgetExhaustedException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(7));
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isGreaterThanOrEqualTo(100);
+        assertThat(registry.get("memory.budget.rejected").tag("operation", "OTHER").counter().count()).isEqualTo(1.0);
+        assertThat(budget.getWaiting()).isZero();
+        assertThat(budget.getUsedBytes()).isEqualTo(80);
+        held.close();
+    }
+
+    @Test
+    void releaseAdmitsAWaiter() throws Exception {
+        MemoryBudget budget = new MemoryBudget(properties, registry);
+        MemoryBudget.Permit held = budget.acquire("OTHER", 80);
+
+        Future<MemoryBudget.Permit> waiter = executor.submit(() -> budget.acquire("OTHER", 30));
+        awaitWaiting(budget, 1);
+        assertThat(waiter.isDone()).isFalse();
+
+        held.close();
+        assertThat(waiter.get(5, TimeUnit.SECONDS).getBytes()).isEqualTo(30);
+        assertThat(budget.getUsedBytes()).isEqualTo(30);
+    }
+
+    @Test
+    void smallRequestDoesNotOvertakeAnEarlierLargeOne() throws Exception {
+        MemoryBudget budget = new MemoryBudget(properties, registry);
+        MemoryBudget.Permit held = budget.acquire("OTHER", 90);
+
+        Future<MemoryBudget.Permit> large = executor.submit(() -> budget.acquire("OTHER", 50));
+        awaitWaiting(budget, 1);
+        // Would fit right away, but must queue behind the large request
+        Future<MemoryBudget.Permit> small = executor.submit(() -> budget.acquire("OTHER", 5));
+        awaitWaiting(budget, 2);
+        assertThat(small.isDone()).isFalse();
+        assertThat(budget.getUsedBytes()).isEqualTo(90);
+
+        held.close();
+        assertThat(large.get(5, TimeUnit.SECONDS).getBytes()).isEqualTo(50);
+        assertThat(small.get(5, TimeUnit.SECONDS).getBytes()).isEqualTo(5);
+        assertThat(budget.getUsedBytes()).isEqualTo(55);
+        assertThat(budget.getWaiting()).isZero();
+    }
+
+    @Test
+    void permitIsReleasedOnlyOnce() throws Exception {
+        MemoryBudget budget = new MemoryBudget(properties, registry);
+        MemoryBudget.Permit first = budget.acquire("OTHER", 40);
+        MemoryBudget.Permit second = budget.acquire("OTHER", 40);
+
+        first.close();
+        first.close();
+
+        assertThat(budget.getUsedBytes()).isEqualTo(40);
+        second.close();
+        assertThat(budget.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void disabledBudgetAdmitsEverything() throws Exception {
+        properties.setEnabled(false);
+        MemoryBudget budget = new MemoryBudget(properties, registry);
+
+        MemoryBudget.Permit permit = budget.tryAcquire("OTHER", 10_000);
+        MemoryBudget.Permit another = budget.tryAcquire("OTHER", 10_000);
+
+        assertThat(permit.getBytes()).isZero();
+        assertThat(another.getBytes()).isZero();
+        assertThat(budget.getUsedBytes()).isZero();
+    }
+
+    private static void awaitWaiting(MemoryBudget budget, int waiting) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (budget.getWaiting() < waiting) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
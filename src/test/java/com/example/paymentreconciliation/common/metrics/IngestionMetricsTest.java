@@ -0,0 +1,79 @@
+package com.example.paymentreconciliation.common.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Every stage, counter and gauge must land on its own feed-tagged meter, so dashboards can
+ * split the time of one file across discover, parse, persist and the rest.
+ */
+class IngestionMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final IngestionMetrics metrics = new IngestionMetrics(registry);
+
+    @Test
+    void stagesAreTimedPerFeedAndStage() {
+        metrics.recordStage("MT940", IngestionMetrics.STAGE_PARSE, TimeUnit.MILLISECONDS.toNanos(30));
+        metrics.recordStage("MT940", IngestionMetrics.STAGE_PARSE, TimeUnit.MILLISECONDS.toNanos(10));
+        metrics.recordStage("VAN", IngestionMetrics.STAGE_PARSE, TimeUnit.MILLISECONDS.toNanos(5));
+
+        Timer mt940 = registry.get("ingestion.stage.duration").tag("feed", "MT940").tag("stage", "parse").timer();
+        assertThat(mt940.count()).isEqualTo(2);
+        assertThat(mt940.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(40);
+        assertThat(registry.get("ingestion.stage.duration").tag("feed", "VAN").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itemsAreCountedAndEmptyBatchesSkipped() {
+        metrics.countItems("VAN", "rows", 500);
+        metrics.countItems("VAN", "rows", 250);
+        metrics.countItems("MT940", "statements", 0);
+
+        assertThat(registry.get("ingestion.items").tag("feed", "VAN").tag("unit", "rows").counter().count())
+                .isEqualTo(750);
+        assertThat(registry.find("ingestion.items").tag("feed", "MT940").counter()).isNull();
+    }
+
+    @Test
+    void throughputGaugeShowsTheLastFile() {
+        metrics.recordFileThroughput("VAN", "rows", 1_000, TimeUnit.SECONDS.toNanos(2));
+        metrics.recordFileThroughput("VAN", "rows", 900, TimeUnit.SECONDS.toNanos(3));
+        metrics.recordFileThroughput("VAN", "rows", 5, 0);
+
+        assertThat(registry.get("ingestion.items.per.second").tag("feed", "VAN").gauge().value()).isEqualTo(300);
+    }
+
+    @Test
+    void filesAndQuarantinesAreCountedByOutcomeAndReason() {
+        metrics.countFile("MT940", "IMPORTED");
+        metrics.countFile("MT940", "IMPORTED");
+        metrics.countQuarantine("MT940", "UNREADABLE");
+
+        assertThat(registry.get("ingestion.files").tag("outcome", "IMPORTED").counter().count()).isEqualTo(2);
+        assertThat(registry.get("ingestion.quarantined").tag("reason", "UNREADABLE").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void depthGaugesReadTheirSupplierOnEveryScrape() {
+        AtomicInteger inbox = new AtomicInteger(3);
+        AtomicInteger queued = new AtomicInteger();
+        metrics.registerDirectoryDepth("MT940", "inbox", inbox::get);
+        metrics.registerLaneDepth("MT940", "bulk", queued::get);
+        metrics.recordLaneWait("MT940", "bulk", TimeUnit.MILLISECONDS.toNanos(15));
+
+        inbox.set(7);
+        queued.set(2);
+
+        assertThat(registry.get("ingestion.directory.depth").tag("directory", "inbox").gauge().value()).isEqualTo(7);
+        assertThat(registry.get("ingestion.lane.queued").tag("lane", "bulk").gauge().value()).isEqualTo(2);
+        assertThat(registry.get("ingestion.lane.wait").tag("lane", "bulk").timer().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.paymentreconciliation.common.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The watermark may only advance over ranges that are complete with nothing missing below
+ * them, whatever order the chunks finish in.
+ */
+class CheckpointTrackerTest {
+
+    @Test
+    void watermarkWaitsForTheGapToClose() {
+        CheckpointTracker tracker = new CheckpointTracker(0);
+
+        assertThat(tracker.complete(10, 20)).isZero();
+        assertThat(tracker.complete(20, 30)).isZero();
+        assertThat(tracker.complete(0, 10)).isEqualTo(30);
+        assertThat(tracker.watermark()).isEqualTo(30);
+    }
+
+    @Test
+    void resumedTrackerStartsAtItsCheckpoint() {
+        CheckpointTracker tracker = new CheckpointTracker(100);
+
+        assertThat(tracker.complete(0, 50)).isEqualTo(100);
+        assertThat(tracker.complete(100, 101)).isEqualTo(101);
+    }
+
+    @Test
+    void overlappingAndRepeatedRangesDoNotMoveTheWatermarkBack() {
+        CheckpointTracker tracker = new CheckpointTracker(0);
+
+        tracker.complete(5, 8);
+        tracker.complete(5, 6);
+        assertThat(tracker.complete(0, 6)).isEqualTo(8);
+        assertThat(tracker.complete(2, 4)).isEqualTo(8);
+    }
+
+    @Test
+    void concurrentOutOfOrderCompletionEndsAtTheFullRange() throws Exception {
+        CheckpointTracker tracker = new CheckpointTracker(0);
+        List<Integer> chunks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            chunks.add(i);
+        }
+        Collections.shuffle(chunks, new Random(42));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int chunk : chunks) {
+                pool.execute(() -> tracker.complete(chunk * 10L, chunk * 10L + 10));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(tracker.watermark()).isEqualTo(10_000);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.paymentreconciliation.common.pipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Items must flow through in order with one worker per stage, no queue may hold more than
+ * its capacity, and failures must stop the pipeline and surface from run().
+ */
+class StagedPipelineTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void singleWorkersKeepProductionOrder() throws Exception {
+        List<Integer> received = new ArrayList<>();
+        new StagedPipeline<Integer, Integer>(executor, 4, 1, 1, item -> item * 2, received::add)
+                .run(emitter -> {
+                    for (int i = 0; i < 100; i++) {
+                        emitter.accept(i);
+                    }
+                });
+
+        assertThat(received).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(received.get(i)).isEqualTo(i * 2);
+        }
+    }
+
+    @Test
+    void severalWorkersDeliverEveryItemOnceAndTransformCanDrop() throws Exception {
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        new StagedPipeline<Integer, Integer>(executor, 2, 4, 3, item -> item % 10 == 0 ? null : item, received::add)
+                .run(emitter -> {
+                    for (int i = 0; i < 1000; i++) {
+                        emitter.accept(i);
+                    }
+                });
+
+        List<Integer> sorted = new ArrayList<>(received);
+        Collections.sort(sorted);
+        assertThat(sorted).hasSize(900).doesNotHaveDuplicates().doesNotContain(0, 10, 990);
+    }
+
+    @Test
+    void slowSinkThrottlesTheProducer() throws Exception {
+        int capacity = 2;
+        AtomicInteger produced = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        new StagedPipeline<Integer, Integer>(executor, capacity, 1, 1, item -> item, item -> {
+            Thread.sleep(5);
+            consumed.incrementAndGet();
+        }).run(emitter -> {
+            for (int i = 0; i < 50; i++) {
+                emitter.accept(i);
+                int inFlight = produced.incrementAndGet() - consumed.get();
+                maxInFlight.accumulateAndGet(inFlight, Math::max);
+            }
+        });
+
+        assertThat(consumed.get()).isEqualTo(50);
+        // Two queues, one item held by each stage worker, and the item just emitted
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(2 * capacity + 3);
+    }
+
+    @Test
+    void sinkFailureAbortsTheProducerAndIsRethrown() {
+        AtomicInteger emitted = new AtomicInteger();
+        IllegalStateException boom = new IllegalStateException("sink failed");
+        StagedPipeline<Integer, Integer> pipeline = new StagedPipeline<>(executor, 2, 1, 1, item -> item, item -> {
+            if (item == 5) {
+                throw boom;
+            }
+        });
+
+        List<Throwable> producerSaw = new CopyOnWriteArrayList<>();
+        assertThatThrownBy(() -> pipeline.run(emitter -> {
+            try {
+                for (int i = 0; i < 10_000; i++) {
+                    emitter.accept(i);
+                    emitted.incrementAndGet();
+                }
+            } catch (CancellationException e) {
+                producerSaw.add(e);
+                throw e;
+            }
+        })).isSameAs(boom);
+        assertThat(producerSaw).hasSize(1);
+        assertThat(emitted.get()).isLessThan(10_000);
+    }
+
+    @Test
+    void producerFailureStillDrainsEmittedItems() {
+        List<Integer> received = new CopyOnWriteArrayList<>();
+        IllegalArgumentException boom = new IllegalArgumentException("bad input");
+        StagedPipeline<Integer, Integer> pipeline = new StagedPipeline<>(executor, 4, 1, 1, item -> item, received::add);
+
+        assertThatThrownBy(() -> pipeline.run(emitter -> {
+            for (int i = 0; i < 3; i++) {
+                emitter.accept(i);
+            }
+            throw boom;
+        })).isSameAs(boom);
+        assertThat(received).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void transformFailureWinsOverTheProducerCancellation() {
+        StagedPipeline<Integer, Integer> pipeline = new StagedPipeline<>(executor, 1, 2, 1, item -> {
+            if (item == 3) {
+                throw new IOException("transform failed");
+            }
+            return item;
+        }, item -> { });
+
+        assertThatThrownBy(() -> pipeline.run(emitter -> {
+            for (int i = 0; i < 10_000; i++) {
+                emitter.accept(i);
+            }
+        })).isInstanceOf(IOException.class).hasMessage("transform failed");
+    }
+}
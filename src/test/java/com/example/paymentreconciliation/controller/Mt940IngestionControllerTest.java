@@ -0,0 +1,163 @@
+package com.example.paymentreconciliation.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.example.paymentreconciliation.common.memory.MemoryBudget;
+import com.example.paymentreconciliation.model.IngestionJobFileResponse;
+import com.example.paymentreconciliation.service.BaseIngestionService;
+import com.example.paymentreconciliation.service.IngestionJob;
+import com.example.paymentreconciliation.service.IngestionJobService;
+import com.example.paymentreconciliation.service.Mt940IngestionService;
+
+/**
+ * Both upload endpoints must hand the body to the ingestion service under the sender's file
+ * name and map each way an upload can end to its documented status code.
+ */
+@ExtendWith(MockitoExtension.class)
+class Mt940IngestionControllerTest {
+
+    private static final String CONTENT = "{1:F01BANKBEBBAXXX0000000000}{4:\n:20:STMT1\n-}";
+
+    @Mock
+    private Mt940IngestionService mt940IngestionService;
+    @Mock
+    private IngestionJobService ingestionJobService;
+    @InjectMocks
+    private Mt940IngestionController controller;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void multipartUploadReturnsTheImportRun() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+        when(ingestionJobService.upload(eq(mt940IngestionService), eq("stmt.sta"), any())).thenAnswer(inv -> {
+            received.set(new String(inv.<InputStream>getArgument(2).readAllBytes(), StandardCharsets.UTF_8));
+            return response(IngestionJob.FileState.SUCCEEDED);
+        });
+
+        mockMvc.perform(multipart("/recon-service/api/mt940/ingest/upload")
+                        .file(new MockMultipartFile("file", "stmt.sta", MediaType.TEXT_PLAIN_VALUE,
+                                CONTENT.getBytes(StandardCharsets.UTF_8))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("SUCCEEDED"))
+                .andExpect(jsonPath("$.importRunId").value(42));
+        assertThat(received.get()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void streamUploadUsesTheFilenameParameter() throws Exception {
+        AtomicReference<String> received = new AtomicReference<>();
+        when(ingestionJobService.upload(eq(mt940IngestionService), eq("stmt.sta"), any())).thenAnswer(inv -> {
+            received.set(new String(inv.<InputStream>getArgument(2).readAllBytes(), StandardCharsets.UTF_8));
+            return response(IngestionJob.FileState.SUCCEEDED);
+        });
+
+        mockMvc.perform(stream("stmt.sta"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importRunId").value(42));
+        assertThat(received.get()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void failedImportIsUnprocessable() throws Exception {
+        when(ingestionJobService.upload(eq(mt940IngestionService), eq("stmt.sta"), any()))
+                .thenReturn(response(IngestionJob.FileState.FAILED));
+
+        mockMvc.perform(stream("stmt.sta"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.state").value("FAILED"));
+    }
+
+    @Test
+    void foreignExtensionIsBadRequest() throws Exception {
+        when(ingestionJobService.upload(eq(mt940IngestionService), eq("stmt.exe"), any()))
+                .thenThrow(new IllegalArgumentException("File name must end with one of [.sta]: stmt.exe"));
+
+        mockMvc.perform(stream("stmt.exe"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void oversizedBodyIsPayloadTooLarge() throws Exception {
+        when(ingestionJobService.upload(eq(mt940IngestionService), eq("stmt.sta"), any()))
+                .thenThrow(new BaseIngestionService.UploadTooLargeException("Upload exceeds max size policy"));
+
+        mockMvc.perform(stream("stmt.sta"))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void uploadAlreadyInProgressIsConflict() throws Exception {
+        when(ingestionJobService.upload(eq(mt940IngestionService), eq("stmt.sta"), any()))
+                .thenThrow(new BaseIngestionService.UploadInProgressException("Upload is already being processed"));
+
+        mockMvc.perform(stream("stmt.sta"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Upload is already being processed"));
+    }
+
+    @Test
+    void exhaustedMemoryBudgetAsksToRetryLater() throws Exception {
+        when(ingestionJobService.upload(eq(mt940IngestionService), eq("stmt.sta"), any()))
+                .thenThrow(new MemoryBudget.BudgetExhaustedException("Server is busy", 5));
+
+        mockMvc.perform(stream("stmt.sta"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "5"));
+    }
+
+    @Test
+    void unexpectedFailureDoesNotLeakItsMessage() throws Exception {
+        when(ingestionJobService.upload(eq(mt940IngestionService), eq("stmt.sta"), any()))
+                .thenThrow(new IllegalStateException("connection refused: db-primary:5432"));
+
+        mockMvc.perform(stream("stmt.sta"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error").value("Unable to ingest the uploaded file right now"));
+    }
+
+    private static RequestBuilder stream(String filename) {
+        return post("/recon-service/api/mt940/ingest/stream")
+                .param("filename", filename)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(CONTENT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static IngestionJobFileResponse response(IngestionJob.FileState state) {
+        IngestionJobFileResponse response = new IngestionJobFileResponse();
+        response.setFilename("stmt.sta");
+        response.setState(state.name());
+        response.setImportRunId(42L);
+        return response;
+    }
+}
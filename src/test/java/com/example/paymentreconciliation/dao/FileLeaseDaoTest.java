@@ -0,0 +1,160 @@
+package com.example.paymentreconciliation.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Claims run against a real PostgreSQL, since the takeover rests on ON CONFLICT ... WHERE
+ * and the database clock. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class FileLeaseDaoTest {
+
+    private static final String FEED = "MT940";
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static NamedParameterJdbcTemplate jdbc;
+    private static FileLeaseDao dao;
+
+    @BeforeAll
+    static void createSchema() {
+        jdbc = new NamedParameterJdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl(),
+                POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbc.getJdbcTemplate().execute("""
+                CREATE SCHEMA reconciliation;
+                CREATE TABLE reconciliation.ingestion_file_lease (
+                    feed             VARCHAR(32)  NOT NULL,
+                    file_name        VARCHAR(512) NOT NULL,
+                    owner_id         VARCHAR(128) NOT NULL,
+                    claimed_at       TIMESTAMPTZ  NOT NULL,
+                    lease_expires_at TIMESTAMPTZ  NOT NULL,
+                    PRIMARY KEY (feed, file_name)
+                );
+                """);
+        dao = new FileLeaseDao(jdbc);
+    }
+
+    @BeforeEach
+    void clearLeases() {
+        jdbc.getJdbcTemplate().update("DELETE FROM reconciliation.ingestion_file_lease");
+    }
+
+    @Test
+    void liveLeaseKeepsOtherOwnersOut() {
+        assertThat(dao.claim(FEED, "a.sta", "node-1", 60)).isTrue();
+        assertThat(dao.claim(FEED, "a.sta", "node-2", 60)).isFalse();
+        assertThat(owner("a.sta")).isEqualTo("node-1");
+        // Another file, or the same name in another feed, is a separate lease
+        assertThat(dao.claim(FEED, "b.sta", "node-2", 60)).isTrue();
+        assertThat(dao.claim("MT942", "a.sta", "node-2", 60)).isTrue();
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        assertThat(dao.claim(FEED, "a.sta", "node-1", 60)).isTrue();
+        expire("a.sta");
+
+        assertThat(dao.claim(FEED, "a.sta", "node-2", 60)).isTrue();
+        assertThat(owner("a.sta")).isEqualTo("node-2");
+
+        // The previous owner can neither extend nor drop the lease it lost
+        assertThat(dao.renew(FEED, "node-1", List.of("a.sta"), 60)).isZero();
+        dao.release(FEED, "a.sta", "node-1");
+        assertThat(owner("a.sta")).isEqualTo("node-2");
+    }
+
+    @Test
+    void renewalExtendsOnlyTheNamedLeases() {
+        assertThat(dao.claim(FEED, "a.sta", "node-1", 60)).isTrue();
+        assertThat(dao.claim(FEED, "b.sta", "node-1", 1)).isTrue();
+        assertThat(dao.claim(FEED, "leaked.sta", "node-1", 1)).isTrue();
+
+        assertThat(dao.renew(FEED, "node-1", List.of("a.sta", "b.sta"), 60)).isEqualTo(2);
+        assertThat(dao.renew(FEED, "node-2", List.of("a.sta", "b.sta"), 60)).isZero();
+        assertThat(dao.renew(FEED, "node-1", List.of(), 60)).isZero();
+        List<String> shortLeft = jdbc.queryForList("""
+                SELECT file_name
+                  FROM reconciliation.ingestion_file_lease
+                 WHERE lease_expires_at < now() + interval '30 seconds'
+                """, Map.of(), String.class);
+        assertThat(shortLeft).containsExactly("leaked.sta");
+    }
+
+    @Test
+    void releasedLeaseCanBeClaimedAtOnce() {
+        assertThat(dao.claim(FEED, "a.sta", "node-1", 60)).isTrue();
+        dao.release(FEED, "a.sta", "node-1");
+
+        assertThat(dao.claim(FEED, "a.sta", "node-2", 60)).isTrue();
+    }
+
+    @Test
+    void racingNodesTakeAnExpiredLeaseOnlyOnce() throws Exception {
+        assertThat(dao.claim(FEED, "a.sta", "node-0", 60)).isTrue();
+        expire("a.sta");
+
+        int nodes = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        try {
+            List<Future<Boolean>> claims = new ArrayList<>();
+            for (int i = 1; i <= nodes; i++) {
+                String ownerId = "node-" + i;
+                Callable<Boolean> claim = () -> {
+                    start.await();
+                    return dao.claim(FEED, "a.sta", ownerId, 60);
+                };
+                claims.add(executor.submit(claim));
+            }
+            start.countDown();
+            int won = 0;
+            for (Future<Boolean> claim : claims) {
+                if (claim.get(10, TimeUnit.SECONDS)) {
+                    won++;
+                }
+            }
+            assertThat(won).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(owner("a.sta")).isNotEqualTo("node-0");
+    }
+
+    private static void expire(String fileName) {
+        jdbc.update("""
+                UPDATE reconciliation.ingestion_file_lease
+                   SET lease_expires_at = now() - interval '1 second'
+                 WHERE feed = :feed
+                   AND file_name = :fileName
+                """, Map.of("feed", FEED, "fileName", fileName));
+    }
+
+    private static String owner(String fileName) {
+        return jdbc.queryForObject("""
+                SELECT owner_id
+                  FROM reconciliation.ingestion_file_lease
+                 WHERE feed = :feed
+                   AND file_name = :fileName
+                """, Map.of("feed", FEED, "fileName", fileName), String.class);
+    }
+}
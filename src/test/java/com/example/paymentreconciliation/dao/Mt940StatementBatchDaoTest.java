@@ -0,0 +1,212 @@
+package com.example.paymentreconciliation.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.example.paymentreconciliation.entity.RawStatementLine;
+import com.example.paymentreconciliation.entity.StatementBalance;
+import com.example.paymentreconciliation.entity.StatementFile;
+import com.example.paymentreconciliation.entity.StatementTransaction;
+
+/**
+ * The statement graph is written in multi-row statements against a real PostgreSQL, since
+ * the generated ids come back through INSERT ... RETURNING and the tokens are cast to
+ * jsonb, and duplicates are skipped through ON CONFLICT on ext_idempotency_hash. Skipped
+ * where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class Mt940StatementBatchDaoTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static NamedParameterJdbcTemplate jdbc;
+    private static Mt940StatementBatchDao dao;
+
+    @BeforeAll
+    static void createSchema() {
+        jdbc = new NamedParameterJdbcTemplate(new DriverManagerDataSource(POSTGRES.getJdbcUrl(),
+                POSTGRES.getUsername(), POSTGRES.getPassword()));
+        jdbc.getJdbcTemplate().execute("""
+                CREATE SCHEMA reconciliation;
+                CREATE TABLE reconciliation.statement_transaction (
+                    id                   BIGSERIAL PRIMARY KEY,
+                    statement_file_id    BIGINT       NOT NULL,
+                    line_no              INT          NOT NULL,
+                    value_date           DATE,
+                    entry_date           DATE,
+                    dc                   VARCHAR(2),
+                    amount               NUMERIC(20, 2),
+                    signed_amount        NUMERIC(20, 2),
+                    currency             VARCHAR(3),
+                    txn_type_code        VARCHAR(8),
+                    bank_reference       VARCHAR(64),
+                    customer_reference   VARCHAR(64),
+                    entry_reference      VARCHAR(64),
+                    narrative            TEXT,
+                    narrative_tokens     JSONB,
+                    ext_idempotency_hash VARCHAR(64)  NOT NULL UNIQUE,
+                    intraday_key         VARCHAR(64),
+                    intraday_base_key    VARCHAR(64),
+                    created_at           TIMESTAMP
+                );
+                CREATE TABLE reconciliation.statement_balance (
+                    id                BIGSERIAL PRIMARY KEY,
+                    statement_file_id BIGINT       NOT NULL,
+                    bal_type          VARCHAR(16)  NOT NULL,
+                    dc                VARCHAR(2),
+                    bal_date          DATE,
+                    currency          VARCHAR(3),
+                    amount            NUMERIC(20, 2)
+                );
+                CREATE TABLE reconciliation.raw_statement_line (
+                    id                BIGSERIAL PRIMARY KEY,
+                    statement_file_id BIGINT       NOT NULL,
+                    line_no           INT          NOT NULL,
+                    tag               VARCHAR(8),
+                    raw_text          TEXT
+                );
+                """);
+        dao = new Mt940StatementBatchDao(jdbc);
+    }
+
+    @BeforeEach
+    void clearTables() {
+        jdbc.getJdbcTemplate().execute("""
+                TRUNCATE reconciliation.statement_transaction, reconciliation.statement_balance,
+                         reconciliation.raw_statement_line
+                """);
+    }
+
+    @Test
+    void transactionsGetTheirGeneratedIdsAcrossChunks() {
+        StatementFile sf = statementFile(1L);
+        List<StatementTransaction> transactions = new ArrayList<>();
+        for (int lineNo = 1; lineNo <= 5; lineNo++) {
+            transactions.add(transaction(sf, lineNo, "HASH-" + lineNo));
+        }
+
+        int inserted = dao.insertTransactions(transactions, 2, false);
+
+        assertThat(inserted).isEqualTo(5);
+        assertThat(transactions).extracting(StatementTransaction::getId).doesNotContainNull().doesNotHaveDuplicates();
+        for (StatementTransaction t : transactions) {
+            Map<String, Object> row = jdbc.queryForMap("""
+                    SELECT line_no, ext_idempotency_hash, narrative_tokens ->> 'utr' AS utr
+                      FROM reconciliation.statement_transaction
+                     WHERE id = :id
+                    """, Map.of("id", t.getId()));
+            assertThat(row).containsEntry("line_no", t.getLineNo())
+                    .containsEntry("ext_idempotency_hash", t.getExtIdempotencyHash())
+                    .containsEntry("utr", "UTR" + t.getLineNo());
+        }
+    }
+
+    @Test
+    void sameLineNumbersOfTwoStatementFilesAreMatchedBackToTheirOwnEntities() {
+        StatementFile first = statementFile(1L);
+        StatementFile second = statementFile(2L);
+        StatementTransaction a = transaction(first, 1, "HASH-A");
+        StatementTransaction b = transaction(second, 1, "HASH-B");
+
+        dao.insertTransactions(List.of(a, b), 10, false);
+
+        assertThat(statementFileOf(a.getId())).isEqualTo(1L);
+        assertThat(statementFileOf(b.getId())).isEqualTo(2L);
+    }
+
+    @Test
+    void alreadyImportedTransactionsAreSkippedWhenAsked() {
+        StatementFile earlier = statementFile(1L);
+        dao.insertTransactions(List.of(transaction(earlier, 1, "HASH-1"), transaction(earlier, 2, "HASH-2")), 10, false);
+
+        StatementFile overlapping = statementFile(2L);
+        List<StatementTransaction> transactions = List.of(transaction(overlapping, 1, "HASH-2"),
+                transaction(overlapping, 2, "HASH-3"));
+        int inserted = dao.insertTransactions(transactions, 10, true);
+
+        assertThat(inserted).isEqualTo(1);
+        assertThat(transactions.get(0).getId()).isNull();
+        assertThat(transactions.get(1).getId()).isNotNull();
+        assertThat(count("statement_transaction")).isEqualTo(3);
+    }
+
+    @Test
+    void balancesAndRawLinesAreWrittenInBatches() {
+        StatementFile sf = statementFile(1L);
+        List<StatementBalance> balances = new ArrayList<>();
+        List<RawStatementLine> rawLines = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            StatementBalance balance = new StatementBalance();
+            balance.setStatementFile(sf);
+            balance.setBalType(i == 1 ? "OPENING" : "FORWARD");
+            balance.setDc("C");
+            balance.setBalDate(LocalDate.of(2024, 1, 5));
+            balance.setCurrency("INR");
+            balance.setAmount(BigDecimal.valueOf(i * 100L));
+            balances.add(balance);
+
+            RawStatementLine rawLine = new RawStatementLine();
+            rawLine.setStatementFile(sf);
+            rawLine.setLineNo(i);
+            rawLine.setTag("61");
+            rawLine.setRawText(":61:line " + i);
+            rawLines.add(rawLine);
+        }
+
+        dao.insertBalances(balances, 2);
+        dao.insertRawLines(rawLines, 2);
+
+        assertThat(count("statement_balance")).isEqualTo(3);
+        assertThat(count("raw_statement_line")).isEqualTo(3);
+    }
+
+    static StatementFile statementFile(Long id) {
+        StatementFile sf = new StatementFile();
+        sf.setId(id);
+        return sf;
+    }
+
+    static StatementTransaction transaction(StatementFile sf, int lineNo, String hash) {
+        StatementTransaction t = new StatementTransaction();
+        t.setStatementFile(sf);
+        t.setLineNo(lineNo);
+        t.setValueDate(LocalDate.of(2024, 1, 5));
+        t.setDc("C");
+        t.setAmount(new BigDecimal("250.50"));
+        t.setSignedAmount(new BigDecimal("250.50"));
+        t.setCurrency("INR");
+        t.setNarrative("NEFT/UTR" + lineNo + "/ACME LTD");
+        t.setNarrativeTokens("{\"channel\":\"NEFT\",\"utr\":\"UTR" + lineNo + "\"}");
+        t.setExtIdempotencyHash(hash);
+        t.setCreatedAt(LocalDateTime.now());
+        return t;
+    }
+
+    private static long statementFileOf(Long transactionId) {
+        return jdbc.queryForObject("""
+                SELECT statement_file_id
+                  FROM reconciliation.statement_transaction
+                 WHERE id = :id
+                """, Map.of("id", transactionId), Long.class);
+    }
+
+    private static int count(String table) {
+        return jdbc.getJdbcTemplate().queryForObject("SELECT count(*) FROM reconciliation." + table, Integer.class);
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.paymentreconciliation.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.example.paymentreconciliation.common.sql.SqlTemplateLoader;
+import com.example.paymentreconciliation.service.VANParser;
+
+/**
+ * The COPY load runs against a real PostgreSQL with the shipped staging DDL and merge
+ * template: valid rows land in van_transaction, rejected ones in import_error with their
+ * CSV line and the same messages the JPA path records. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class VanCopyLoaderTest {
+
+    private static final long RUN_ID = 7L;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    private static NamedParameterJdbcTemplate jdbc;
+    private static TransactionTemplate transactions;
+    private static VanCopyLoader loader;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void createSchema() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(),
+                POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        SqlTemplateLoader templates = new SqlTemplateLoader(new DefaultResourceLoader());
+        jdbc.getJdbcTemplate().execute("""
+                CREATE SCHEMA reconciliation;
+                CREATE TABLE reconciliation.van_transaction (
+                    id                            BIGSERIAL PRIMARY KEY,
+                    import_run_id                 BIGINT,
+                    main_account_number           TEXT,
+                    virtual_account_number        TEXT,
+                    transaction_reference_number  TEXT,
+                    bank_reference_trace_id       TEXT,
+                    remitter_name                 TEXT,
+                    remitter_account_number       TEXT,
+                    remitter_ifsc_bank_name       TEXT,
+                    remitter_vpa                  TEXT,
+                    transaction_date              DATE,
+                    value_date                    DATE,
+                    amount                        NUMERIC(20, 2),
+                    mode_channel                  TEXT,
+                    payment_description_narration TEXT,
+                    payment_status                TEXT,
+                    mapped_customer_id_code       TEXT,
+                    invoice_reference_id          TEXT,
+                    date_time_of_credit           TIMESTAMP,
+                    branch_bank_code              TEXT,
+                    created_at                    TIMESTAMP
+                );
+                CREATE TABLE reconciliation.import_error (
+                    id            BIGSERIAL PRIMARY KEY,
+                    import_run_id BIGINT       NOT NULL,
+                    line_no       INT,
+                    code          VARCHAR(64)  NOT NULL,
+                    message       TEXT,
+                    created_at    TIMESTAMP
+                );
+                """);
+        jdbc.getJdbcTemplate().execute(templates.load("sql/reconciliation/ddl/van_transaction_stage.sql"));
+        transactions = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        loader = new VanCopyLoader(dataSource, jdbc, templates);
+    }
+
+    @BeforeEach
+    void clearTables() {
+        jdbc.getJdbcTemplate().execute("TRUNCATE reconciliation.van_transaction, reconciliation.import_error");
+    }
+
+    @Test
+    void validRowsAreMergedAndRejectedOnesRecordedWithTheirLine() throws Exception {
+        File csv = csv(
+                row("MAIN1", "VAN1", "100.50", "Invoice 1, \"March\""),
+                row("", "VAN2", "10", "missing main account"),
+                row("MAIN3", "VAN3", "-5", "negative amount"),
+                row("MAIN4", "VAN4", "20", "second valid row"));
+
+        VanCopyLoader.LoadResult result = transactions.execute(status -> loader.load(csv, RUN_ID, 100));
+
+        assertThat(result.getStaged()).isEqualTo(4);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getStoredErrors()).isEqualTo(2);
+        assertThat(jdbc.getJdbcTemplate().queryForList("""
+                SELECT payment_description_narration
+                  FROM reconciliation.van_transaction
+                 ORDER BY id
+                """, String.class)).containsExactly("Invoice 1, \"March\"", "second valid row");
+        assertThat(jdbc.getJdbcTemplate().queryForList("""
+                SELECT line_no, message
+                  FROM reconciliation.import_error
+                 ORDER BY line_no
+                """)).extracting(row -> row.get("line_no"), row -> row.get("message"))
+                .containsExactly(tuple(3, "Missing main account number"), tuple(4, "Invalid amount"));
+        assertThat(stagedRows()).isZero();
+    }
+
+    @Test
+    void invalidDatesAreRejectedInsteadOfAbortingTheMerge() throws Exception {
+        String[] badDate = row("MAIN1", "VAN1", "10", "bad date");
+        badDate[8] = "2024-02-30";
+        String[] badTime = row("MAIN2", "VAN2", "10", "bad time");
+        badTime[16] = "2024-01-05 25:00:00";
+        File csv = csv(badDate, badTime);
+
+        VanCopyLoader.LoadResult result = transactions.execute(status -> loader.load(csv, RUN_ID, 100));
+
+        assertThat(result.getInserted()).isZero();
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(jdbc.getJdbcTemplate().queryForList(
+                "SELECT message FROM reconciliation.import_error ORDER BY line_no", String.class))
+                .containsExactly("Invalid transaction date", "Invalid date & time of credit");
+    }
+
+    @Test
+    void onlyTheFirstRejectedRowsUpToTheLimitAreStored() throws Exception {
+        File csv = csv(
+                row("MAIN1", "VAN1", "0", "zero amount"),
+                row("MAIN2", "VAN2", "abc", "not a number"),
+                row("MAIN3", "VAN3", "30", "valid"),
+                row("MAIN4", "", "40", "missing van"));
+
+        VanCopyLoader.LoadResult result = transactions.execute(status -> loader.load(csv, RUN_ID, 2));
+
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getStoredErrors()).isEqualTo(2);
+        assertThat(jdbc.getJdbcTemplate().queryForList(
+                "SELECT line_no FROM reconciliation.import_error ORDER BY line_no", Integer.class))
+                .containsExactly(2, 3);
+    }
+
+    @Test
+    void loadOutsideATransactionIsRefused() throws Exception {
+        File csv = csv(row("MAIN1", "VAN1", "10", "valid"));
+
+        assertThatThrownBy(() -> loader.load(csv, RUN_ID, 100)).isInstanceOf(IllegalStateException.class);
+        assertThat(stagedRows()).isZero();
+    }
+
+    private File csv(String[]... rows) throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.join(",", VANParser.COLUMNS.stream().map(VanCopyLoaderTest::quote).toList()));
+        for (String[] row : rows) {
+            lines.add(String.join(",", List.of(row).stream().map(VanCopyLoaderTest::quote).toList()));
+        }
+        return Files.write(dir.resolve("van.csv"), lines, StandardCharsets.UTF_8).toFile();
+    }
+
+    /**
+     * A row in {@link VANParser#COLUMNS} order with valid dates.
+     */
+    static String[] row(String mainAccount, String van, String amount, String narration) {
+        return new String[] {mainAccount, van, "TRN-" + van, "BANKREF", "ACME LTD", "1234567890", "HDFC0001234",
+                "acme@okaxis", "2024-01-05", "2024-01-05", amount, "NEFT", narration, "SUCCESS", "CUST1", "INV1",
+                "2024-01-05 10:00:00", "HDFC"};
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static int stagedRows() {
+        return jdbc.queryForObject("""
+                SELECT count(*)
+                  FROM reconciliation.van_transaction_stage
+                 WHERE import_run_id = :importRunId
+                """, Map.of("importRunId", RUN_ID), Integer.class);
+    }
+}
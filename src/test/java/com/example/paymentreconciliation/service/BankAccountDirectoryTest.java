@@ -0,0 +1,107 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.example.paymentreconciliation.entity.BankAccount;
+import com.example.paymentreconciliation.repository.BankAccountRepository;
+
+/**
+ * Known accounts must be served from memory, and callers racing on a new account must
+ * create it once and all get the same row.
+ */
+class BankAccountDirectoryTest {
+
+    private final BankAccountRepository repository = mock(BankAccountRepository.class);
+    private final NamedParameterJdbcTemplate jdbc = mock(NamedParameterJdbcTemplate.class);
+    private final BankAccountDirectory directory = new BankAccountDirectory(repository, jdbc);
+
+    @Test
+    void preloadedAccountIsServedWithoutQueries() {
+        BankAccount account = account("1234567890", "INR");
+        when(repository.findAll()).thenReturn(List.of(account));
+        directory.preload();
+
+        assertThat(directory.findOrCreate("1234567890", "INR")).isSameAs(account);
+        assertThat(directory.size()).isEqualTo(1);
+        verify(repository, never()).findByAccountNoAndCurrency(anyString(), anyString());
+    }
+
+    @Test
+    void failedPreloadFallsBackToLazyLookups() {
+        BankAccount account = account("1234567890", "INR");
+        when(repository.findAll()).thenThrow(new IllegalStateException("database down"));
+        when(repository.findByAccountNoAndCurrency("1234567890", "INR")).thenReturn(Optional.of(account));
+        directory.preload();
+
+        assertThat(directory.findOrCreate("1234567890", "INR")).isSameAs(account);
+        assertThat(directory.findOrCreate("1234567890", "INR")).isSameAs(account);
+        verify(repository, times(1)).findByAccountNoAndCurrency("1234567890", "INR");
+        verify(jdbc, never()).update(anyString(), anyMap());
+    }
+
+    @Test
+    void racingCallersCreateANewAccountOnce() throws Exception {
+        BankAccount created = account("9999", "USD");
+        when(repository.findByAccountNoAndCurrency("9999", "USD"))
+                .thenReturn(Optional.empty(), Optional.of(created));
+        when(jdbc.update(anyString(), anyMap())).thenReturn(1);
+
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<BankAccount>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return directory.findOrCreate("9999", "USD");
+                }));
+            }
+            start.countDown();
+            for (Future<BankAccount> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(created);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(jdbc, times(1)).update(anyString(), anyMap());
+    }
+
+    @Test
+    void invalidatedAccountIsLookedUpAgain() {
+        BankAccount account = account("1234567890", "INR");
+        when(repository.findByAccountNoAndCurrency("1234567890", "INR")).thenReturn(Optional.of(account));
+
+        directory.findOrCreate("1234567890", "INR");
+        directory.invalidate("1234567890", "INR");
+        directory.findOrCreate("1234567890", "INR");
+
+        verify(repository, times(2)).findByAccountNoAndCurrency("1234567890", "INR");
+    }
+
+    private static BankAccount account(String accountNo, String currency) {
+        BankAccount account = new BankAccount();
+        account.setAccountNo(accountNo);
+        account.setCurrency(currency);
+        return account;
+    }
+}
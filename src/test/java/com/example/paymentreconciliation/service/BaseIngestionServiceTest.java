@@ -0,0 +1,280 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.paymentreconciliation.common.memory.MemoryBudget;
+import com.example.paymentreconciliation.common.metrics.IngestionMetrics;
+import com.example.paymentreconciliation.config.IngestionProperties;
+import com.example.paymentreconciliation.config.MemoryBudgetProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Files of one poll must run concurrently on the worker lanes, each in isolation: a failing
+ * file is quarantined without touching the others, a full lane runs files on the polling
+ * thread instead of dropping them, and a file already owned by a poll is skipped by the next.
+ * Pushed files skip the inbox and leave nothing behind when they are refused.
+ */
+class BaseIngestionServiceTest {
+
+    @TempDir
+    Path baseDir;
+
+    private final IngestionProperties props = new IngestionProperties() { };
+    private TestIngestionService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (String dir : List.of("inbox", "processing", "archive", "quarantine")) {
+            Files.createDirectories(baseDir.resolve(dir));
+        }
+        props.setInboxDir(baseDir.resolve("inbox").toString());
+        props.setProcessingDir(baseDir.resolve("processing").toString());
+        props.setArchiveDir(baseDir.resolve("archive").toString());
+        props.setQuarantineDir(baseDir.resolve("quarantine").toString());
+        props.setSettleMillis(0);
+        props.setFastLaneThreads(2);
+        props.setWorkerThreads(2);
+        service = new TestIngestionService(props);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdownWorkers();
+    }
+
+    @Test
+    void filesOfOnePollRunConcurrently() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            inboxFile("BANK" + i + "_file.sta");
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        service.action = file -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(200);
+            running.decrementAndGet();
+            return consume(file);
+        };
+
+        BaseIngestionService.PollSummary summary = service.pollAndProcessInbox();
+
+        assertThat(summary.getDiscovered()).isEqualTo(4);
+        assertThat(summary.getSucceeded()).isEqualTo(4);
+        assertThat(maxRunning.get()).isGreaterThan(1);
+        assertThat(baseDir.resolve("inbox")).isEmptyDirectory();
+    }
+
+    @Test
+    void failingFileIsQuarantinedWithoutStoppingTheOthers() throws Exception {
+        inboxFile("GOOD1_file.sta");
+        inboxFile("BAD_file.sta");
+        inboxFile("GOOD2_file.sta");
+        service.action = file -> {
+            if (file.getName().startsWith("BAD")) {
+                throw new IllegalStateException("unparseable");
+            }
+            return consume(file);
+        };
+
+        BaseIngestionService.PollSummary summary = service.pollAndProcessInbox();
+
+        assertThat(summary.getSucceeded()).isEqualTo(2);
+        assertThat(summary.getFailed()).isEqualTo(1);
+        assertThat(baseDir.resolve("quarantine").resolve("BAD_file.sta")).exists();
+    }
+
+    @Test
+    void fullLaneRunsFilesOnThePollingThread() throws Exception {
+        props.setFastLaneThreads(1);
+        props.setWorkerThreads(1);
+        props.setWorkerQueueCapacity(1);
+        service = new TestIngestionService(props);
+        for (int i = 0; i < 8; i++) {
+            inboxFile("BANK_" + i + ".sta");
+        }
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        service.action = file -> {
+            threads.add(Thread.currentThread().getName());
+            sleep(100);
+            return consume(file);
+        };
+
+        BaseIngestionService.PollSummary summary = service.pollAndProcessInbox();
+
+        assertThat(summary.getSucceeded()).isEqualTo(8);
+        assertThat(threads).contains(Thread.currentThread().getName());
+    }
+
+    @Test
+    void fileOwnedByAnEarlierPollIsSkipped() throws Exception {
+        inboxFile("BANK_slow.sta");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        service.action = file -> {
+            started.countDown();
+            await(release);
+            return consume(file);
+        };
+
+        CompletableFuture<BaseIngestionService.PollSummary> first = CompletableFuture.supplyAsync(
+                service::pollAndProcessInbox);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        BaseIngestionService.PollSummary second = service.pollAndProcessInbox();
+        release.countDown();
+
+        assertThat(second.getDiscovered()).isEqualTo(1);
+        assertThat(second.getSkipped()).isEqualTo(1);
+        assertThat(first.get(5, TimeUnit.SECONDS).getSucceeded()).isEqualTo(1);
+    }
+
+    @Test
+    void uploadIsWrittenStraightIntoProcessingAndIngestedOnTheCallingThread() throws Exception {
+        List<File> processed = new ArrayList<>();
+        List<String> threads = new ArrayList<>();
+        service.action = file -> {
+            processed.add(file);
+            threads.add(Thread.currentThread().getName());
+            return consume(file);
+        };
+
+        BaseIngestionService.FileOutcome outcome = service.ingestUpload("../../etc/stmt.sta",
+                new ByteArrayInputStream("pushed".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(outcome).isEqualTo(BaseIngestionService.FileOutcome.SUCCEEDED);
+        assertThat(processed).singleElement().satisfies(file -> {
+            assertThat(file.getParentFile().toPath()).isEqualTo(baseDir.resolve("processing"));
+            assertThat(file.getName()).startsWith("stmt.sta_");
+        });
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+        assertThat(baseDir.resolve("inbox")).isEmptyDirectory();
+    }
+
+    @Test
+    void uploadWithForeignExtensionIsRejectedBeforeAnythingIsWritten() {
+        assertThatThrownBy(() -> service.ingestUpload("stmt.exe",
+                new ByteArrayInputStream(new byte[1]), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(baseDir.resolve("processing")).isEmptyDirectory();
+    }
+
+    @Test
+    void oversizedUploadLeavesNothingBehind() {
+        props.setMaxFileSizeBytes(10);
+
+        assertThatThrownBy(() -> service.ingestUpload("stmt.sta",
+                new ByteArrayInputStream(new byte[11]), null))
+                .isInstanceOf(BaseIngestionService.UploadTooLargeException.class);
+        assertThat(baseDir.resolve("processing")).isEmptyDirectory();
+    }
+
+    @Test
+    void uploadRefusedByTheMemoryBudgetLeavesNothingBehind() throws Exception {
+        try (MemoryBudget.Permit all = service.memoryBudget.acquire("OTHER", service.memoryBudget.getLimitBytes())) {
+            assertThatThrownBy(() -> service.ingestUpload("stmt.sta",
+                    new ByteArrayInputStream("pushed".getBytes(StandardCharsets.UTF_8)), null))
+                    .isInstanceOf(MemoryBudget.BudgetExhaustedException.class);
+        }
+        assertThat(baseDir.resolve("processing")).isEmptyDirectory();
+    }
+
+    private Path inboxFile(String name) throws IOException {
+        return Files.writeString(baseDir.resolve("inbox").resolve(name), "content of " + name, StandardCharsets.UTF_8);
+    }
+
+    private static BaseIngestionService.FileOutcome consume(File file) {
+        if (!file.delete()) {
+            throw new IllegalStateException("Unable to delete " + file);
+        }
+        return BaseIngestionService.FileOutcome.SUCCEEDED;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Feed whose file handling is supplied by the test; everything around it is the real base class.
+     */
+    static class TestIngestionService extends BaseIngestionService {
+        private final IngestionProperties props;
+        final MemoryBudget memoryBudget;
+        volatile Function<File, FileOutcome> action = BaseIngestionServiceTest::consume;
+
+        TestIngestionService(IngestionProperties props) {
+            this.props = props;
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            MemoryBudgetProperties budget = new MemoryBudgetProperties();
+            budget.setBudgetBytes(64L * 1024 * 1024);
+            budget.setMaxWaitMillis(100);
+            this.memoryBudget = new MemoryBudget(budget, registry);
+            this.ingestionMetrics = new IngestionMetrics(registry);
+            ReflectionTestUtils.setField(this, BaseIngestionService.class, "memoryBudget", memoryBudget, MemoryBudget.class);
+        }
+
+        @Override
+        protected String getInboxDir() { return props.getInboxDir(); }
+        @Override
+        protected String getProcessingDir() { return props.getProcessingDir(); }
+        @Override
+        protected String getArchiveDir() { return props.getArchiveDir(); }
+        @Override
+        protected String getQuarantineDir() { return props.getQuarantineDir(); }
+        @Override
+        protected String getFileExtension() { return ".sta"; }
+        @Override
+        protected IngestionProperties getIngestionProperties() { return props; }
+        @Override
+        public String getFeedName() { return "TEST"; }
+
+        @Override
+        protected FileOutcome processFile(File file) {
+            return action.apply(file);
+        }
+
+        @Override
+        protected FileOutcome resumeFile(File processingFile) {
+            return action.apply(processingFile);
+        }
+
+        @Override
+        protected FileOutcome processUploadedFile(File processingFile) {
+            return action.apply(processingFile);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Each camt.053 statement must be mapped onto the MT940 statement model and handed over on
+ * its end tag, for both status layouts (.001.02 and .001.08), with only booked entries by
+ * default. Documents declaring entities are refused rather than resolved.
+ */
+class Camt053ParserTest {
+
+    private static final String DOCUMENT_START = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <Document xmlns="urn:iso:std:iso:20022:tech:xsd:camt.053.001.08">
+              <BkToCstmrStmt>
+                <GrpHdr><MsgId>MSG-1</MsgId><CreDtTm>2024-01-05T18:00:00</CreDtTm></GrpHdr>
+            """;
+
+    private static final String DOCUMENT_END = """
+              </BkToCstmrStmt>
+            </Document>
+            """;
+
+    private static final String BOOKED_STATEMENT = """
+                <Stmt>
+                  <Id>STMT-1</Id>
+                  <ElctrncSeqNb>12</ElctrncSeqNb>
+                  <LglSeqNb>3</LglSeqNb>
+                  <Acct><Id><IBAN>IN12HDFC0001234567890</IBAN></Id><Ccy>INR</Ccy></Acct>
+                  <Bal>
+                    <Tp><CdOrPrtry><Cd>OPBD</Cd></CdOrPrtry></Tp>
+                    <Amt Ccy="INR">1000.00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Dt><Dt>2024-01-05</Dt></Dt>
+                  </Bal>
+                  <Bal>
+                    <Tp><CdOrPrtry><Cd>CLBD</Cd></CdOrPrtry></Tp>
+                    <Amt Ccy="INR">1150.00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Dt><Dt>2024-01-05</Dt></Dt>
+                  </Bal>
+                  <Bal>
+                    <Tp><CdOrPrtry><Cd>CLAV</Cd></CdOrPrtry></Tp>
+                    <Amt Ccy="INR">1100.00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Dt><Dt>2024-01-05</Dt></Dt>
+                  </Bal>
+                  <Ntry>
+                    <Amt Ccy="INR">250.00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Sts><Cd>BOOK</Cd></Sts>
+                    <BookgDt><Dt>2024-01-05</Dt></BookgDt><ValDt><Dt>2024-01-05</Dt></ValDt>
+                    <AcctSvcrRef>BANKREF1</AcctSvcrRef>
+                    <BkTxCd><Domn><Cd>PMNT</Cd><Fmly><Cd>RCDT</Cd><SubFmlyCd>ESCT</SubFmlyCd></Fmly></Domn></BkTxCd>
+                    <NtryDtls><TxDtls>
+                      <Refs><EndToEndId>E2E-1</EndToEndId></Refs>
+                      <RltdPties><Dbtr><Pty><Nm>Acme Ltd</Nm></Pty></Dbtr></RltdPties>
+                      <RmtInf><Ustrd>NEFT/HDFCN52024010512345678</Ustrd><Ustrd>INVOICE 17</Ustrd></RmtInf>
+                    </TxDtls></NtryDtls>
+                  </Ntry>
+                  <Ntry>
+                    <Amt Ccy="INR">75.00</Amt><CdtDbtInd>DBIT</CdtDbtInd><Sts><Cd>PDNG</Cd></Sts>
+                    <ValDt><Dt>2024-01-06</Dt></ValDt>
+                    <AddtlNtryInf>CARD AUTHORISATION</AddtlNtryInf>
+                  </Ntry>
+                  <Ntry>
+                    <NtryRef>ENTRY-3</NtryRef>
+                    <Amt Ccy="INR">100.00</Amt><CdtDbtInd>DBIT</CdtDbtInd><Sts><Cd>BOOK</Cd></Sts>
+                    <BookgDt><Dt>2024-01-05</Dt></BookgDt><ValDt><Dt>2024-01-05</Dt></ValDt>
+                    <BkTxCd><Prtry><Cd>NTRF</Cd></Prtry></BkTxCd>
+                    <NtryDtls><TxDtls>
+                      <Refs><EndToEndId>NOTPROVIDED</EndToEndId></Refs>
+                      <RltdPties><Cdtr><Pty><Nm>Supplier Co</Nm></Pty></Cdtr></RltdPties>
+                    </TxDtls></NtryDtls>
+                    <AddtlNtryInf>RTGS/HDFCR52024010500000001/SUPPLIER</AddtlNtryInf>
+                  </Ntry>
+                </Stmt>
+            """;
+
+    private static final String INTERIM_STATEMENT = """
+                <Stmt>
+                  <Id>STMT-2</Id>
+                  <ElctrncSeqNb>13</ElctrncSeqNb>
+                  <Acct><Id><Othr><Id>1234567890</Id></Othr></Id></Acct>
+                  <Bal>
+                    <Tp><CdOrPrtry><Cd>PRCD</Cd></CdOrPrtry></Tp>
+                    <Amt Ccy="INR">1150.00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Dt><Dt>2024-01-05</Dt></Dt>
+                  </Bal>
+                  <Bal>
+                    <Tp><CdOrPrtry><Cd>ITBD</Cd></CdOrPrtry></Tp>
+                    <Amt Ccy="INR">1200.00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Dt><DtTm>2024-01-06T12:00:00</DtTm></Dt>
+                  </Bal>
+                  <Ntry>
+                    <Amt Ccy="INR">50.00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Sts>BOOK</Sts>
+                    <ValDt><Dt>2024-01-06</Dt></ValDt>
+                    <AddtlNtryInf>UPI/401234567890/acme@okaxis</AddtlNtryInf>
+                  </Ntry>
+                </Stmt>
+            """;
+
+    @Test
+    void bookedStatementIsMappedOntoTheStatementModel() throws Exception {
+        List<Mt940Parser.Statement> statements = parse(new Camt053Parser(), BOOKED_STATEMENT);
+
+        assertThat(statements).hasSize(1);
+        Mt940Parser.Statement stmt = statements.get(0);
+        assertThat(stmt.stmtRef20).isEqualTo("STMT-1");
+        assertThat(stmt.seq28c).isEqualTo("3");
+        assertThat(stmt.accountNo).isEqualTo("IN12HDFC0001234567890");
+        assertThat(stmt.currency).isEqualTo("INR");
+        assertThat(stmt.isInterim).isFalse();
+        assertThat(stmt.openingBalance).extracting(b -> b.type, b -> b.amount, b -> b.dc, b -> b.date, b -> b.currency)
+                .containsExactly("OPENING", "1000.00", "C", "2024-01-05", "INR");
+        assertThat(stmt.closingBalance).extracting(b -> b.type, b -> b.amount).containsExactly("CLOSING", "1150.00");
+        assertThat(stmt.otherBalances).extracting(b -> b.type, b -> b.amount).containsExactly(tuple("AVAILABLE", "1100.00"));
+
+        assertThat(stmt.transactions)
+                .extracting(t -> t.lineNo, t -> t.dc, t -> t.signedAmount, t -> t.txnTypeCode, t -> t.currency)
+                .containsExactly(tuple(1, "C", "250.00", "ESCT", "INR"), tuple(3, "D", "-100.00", "NTRF", "INR"));
+
+        Mt940Parser.Transaction credit = stmt.transactions.get(0);
+        assertThat(credit.valueDate).isEqualTo("2024-01-05");
+        assertThat(credit.entryDate).isEqualTo("2024-01-05");
+        assertThat(credit.bankReference).isEqualTo("BANKREF1");
+        assertThat(credit.customerReference).isEqualTo("E2E-1");
+        assertThat(credit.narrative).isEqualTo("NEFT/HDFCN52024010512345678/INVOICE 17");
+        assertThat(credit.narrativeTokens)
+                .containsEntry(Mt940NarrativeTokenizer.CHANNEL, "NEFT")
+                .containsEntry(Mt940NarrativeTokenizer.UTR, "HDFCN52024010512345678")
+                .containsEntry(Mt940NarrativeTokenizer.COUNTERPARTY, "ACME LTD");
+
+        Mt940Parser.Transaction debit = stmt.transactions.get(1);
+        assertThat(debit.entryReference).isEqualTo("ENTRY-3");
+        assertThat(debit.customerReference).isNull();
+        assertThat(debit.narrative).isEqualTo("RTGS/HDFCR52024010500000001/SUPPLIER");
+        assertThat(debit.narrativeTokens).containsEntry(Mt940NarrativeTokenizer.COUNTERPARTY, "SUPPLIER CO");
+
+        assertThat(stmt.transactions).extracting(t -> t.extIdempotencyHash).doesNotContainNull().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void pendingEntriesAreKeptWhenNotRestrictedToBooked() throws Exception {
+        List<Mt940Parser.Statement> statements = parse(new Camt053Parser(false), BOOKED_STATEMENT);
+
+        assertThat(statements.get(0).transactions).extracting(t -> t.lineNo, t -> t.signedAmount)
+                .containsExactly(tuple(1, "250.00"), tuple(2, "-75.00"), tuple(3, "-100.00"));
+    }
+
+    @Test
+    void interimStatementFallsBackOnPreviousAndInterimBalances() throws Exception {
+        List<Mt940Parser.Statement> statements = parse(new Camt053Parser(), INTERIM_STATEMENT);
+
+        Mt940Parser.Statement stmt = statements.get(0);
+        assertThat(stmt.seq28c).isEqualTo("13");
+        assertThat(stmt.accountNo).isEqualTo("1234567890");
+        assertThat(stmt.currency).isEqualTo("INR");
+        assertThat(stmt.isInterim).isTrue();
+        assertThat(stmt.openingBalance).extracting(b -> b.type, b -> b.amount).containsExactly("OPENING", "1150.00");
+        assertThat(stmt.closingBalance).extracting(b -> b.type, b -> b.amount).containsExactly("INTERIM", "1200.00");
+        assertThat(stmt.transactions).singleElement()
+                .satisfies(t -> assertThat(t.narrativeTokens).containsEntry(Mt940NarrativeTokenizer.CHANNEL, "UPI"));
+    }
+
+    @Test
+    void eachStatementIsHandedOverBeforeTheDocumentEnds() {
+        String brokenEntry = """
+                    <Stmt>
+                      <Id>STMT-3</Id>
+                      <Ntry><CdtDbtInd>CRDT</CdtDbtInd><Sts><Cd>BOOK</Cd></Sts></Ntry>
+                    </Stmt>
+                """;
+        List<String> refs = new ArrayList<>();
+
+        assertThatThrownBy(() -> new Camt053Parser().parse(stream(BOOKED_STATEMENT + INTERIM_STATEMENT + brokenEntry),
+                stmt -> refs.add(stmt.stmtRef20)))
+                .isInstanceOf(Camt053Parser.Camt053ParseException.class)
+                .hasMessageContaining("STMT-3");
+        assertThat(refs).containsExactly("STMT-1", "STMT-2");
+    }
+
+    @Test
+    void entityDeclarationsAreNotResolved() {
+        String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <!DOCTYPE Document [<!ENTITY xxe SYSTEM "file:///etc/hostname">]>
+                <Document><BkToCstmrStmt><Stmt><Id>&xxe;</Id></Stmt></BkToCstmrStmt></Document>
+                """;
+        List<String> refs = new ArrayList<>();
+
+        assertThatThrownBy(() -> new Camt053Parser().parse(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), stmt -> refs.add(stmt.stmtRef20)))
+                .isInstanceOf(Camt053Parser.Camt053ParseException.class);
+        assertThat(refs).isEmpty();
+    }
+
+    private static List<Mt940Parser.Statement> parse(Camt053Parser parser, String statements) throws Exception {
+        List<Mt940Parser.Statement> result = new ArrayList<>();
+        parser.parse(stream(statements), result::add);
+        return result;
+    }
+
+    private static ByteArrayInputStream stream(String statements) {
+        return new ByteArrayInputStream((DOCUMENT_START + statements + DOCUMENT_END).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.paymentreconciliation.config.ImportErrorProperties;
+import com.example.paymentreconciliation.dao.ImportErrorDao;
+import com.example.paymentreconciliation.entity.ImportRun;
+
+class ImportErrorSinkTest {
+
+    private final ImportErrorDao dao = mock(ImportErrorDao.class);
+    private final ImportErrorProperties properties = new ImportErrorProperties();
+    private final ImportErrorSink sink = new ImportErrorSink(dao, properties);
+    private final ImportRun run = run(7L);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void writeStoresUpToTheLimitAndFinishAddsTheTruncatedMarker() {
+        properties.setMaxErrorsPerRun(3);
+
+        sink.write(run, rows(2));
+        sink.write(run, rows(2));
+        long overflow = sink.finish(run);
+
+        assertThat(overflow).isEqualTo(1);
+        List<ImportErrorDao.Row> written = written();
+        assertThat(written).hasSize(4);
+        assertThat(written.get(3).getCode()).isEqualTo("ERRORS_TRUNCATED");
+        assertThat(written.get(3).getMessage()).startsWith("1 further error(s)");
+    }
+
+    @Test
+    void rolledBackWriteGivesItsShareOfTheLimitBack() {
+        properties.setMaxErrorsPerRun(2);
+        TransactionSynchronizationManager.initSynchronization();
+
+        sink.write(run, rows(2));
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertThat(sink.remaining(run)).isEqualTo(2);
+        assertThat(sink.finish(run)).isZero();
+    }
+
+    @Test
+    void resumedRunCountsErrorsStoredBeforeTheRestart() {
+        properties.setMaxErrorsPerRun(5);
+        when(dao.countByRun(7L)).thenReturn(4L);
+
+        assertThat(sink.remaining(run)).isEqualTo(1);
+        sink.write(run, rows(3));
+
+        assertThat(sink.finish(run)).isEqualTo(2);
+    }
+
+    @Test
+    void storedCountsSetBasedWritesAgainstTheLimit() {
+        properties.setMaxErrorsPerRun(10);
+
+        sink.stored(run, 10, 90);
+
+        assertThat(sink.remaining(run)).isZero();
+        assertThat(sink.finish(run)).isEqualTo(90);
+    }
+
+    @Test
+    void recordBuffersUntilABatchIsFull() {
+        properties.setBatchSize(2);
+
+        sink.record(run, null, "first", 1);
+        verify(dao, never()).insertBatch(eq(7L), anyList());
+        sink.record(run, "PARSING_ERROR", "second", 2);
+
+        List<ImportErrorDao.Row> written = written();
+        assertThat(written).extracting(ImportErrorDao.Row::getCode).containsExactly("VALIDATION_ERROR", "PARSING_ERROR");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ImportErrorDao.Row> written() {
+        ArgumentCaptor<List<ImportErrorDao.Row>> batches = ArgumentCaptor.forClass(List.class);
+        verify(dao, atLeastOnce()).insertBatch(eq(7L), batches.capture());
+        List<ImportErrorDao.Row> all = new ArrayList<>();
+        batches.getAllValues().forEach(all::addAll);
+        return all;
+    }
+
+    private static List<ImportErrorDao.Row> rows(int count) {
+        List<ImportErrorDao.Row> rows = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            rows.add(new ImportErrorDao.Row("VALIDATION", "row " + i, i));
+        }
+        return rows;
+    }
+
+    private static ImportRun run(Long id) {
+        ImportRun run = new ImportRun();
+        run.setId(id);
+        return run;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A file may only be reported once two samples of it match or its done marker exists, and
+ * a scan never reports more than maxFilesPerPoll files.
+ */
+class InboxWatcherTest {
+
+    private static final List<String> EXTENSIONS = List.of(".sta", ".txt");
+
+    @TempDir
+    Path inbox;
+
+    private InboxWatcher watcher;
+
+    @AfterEach
+    void stop() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    void scanReturnsSettledFilesWithWatchedExtensions() throws Exception {
+        write("a.sta", "complete");
+        write("b.txt", "complete");
+        write("c.csv", "other feed");
+        Files.createDirectory(inbox.resolve("d.sta"));
+
+        watcher = new InboxWatcher(inbox.toString(), EXTENSIONS, false, 100, 50);
+
+        assertThat(watcher.scanCompleteFiles()).extracting(File::getName).containsExactlyInAnyOrder("a.sta", "b.txt");
+    }
+
+    @Test
+    void scanSkipsFileThatChangesBetweenSamples() throws Exception {
+        write("stable.sta", "complete");
+        Path growing = write("growing.sta", "first block");
+        watcher = new InboxWatcher(inbox.toString(), EXTENSIONS, false, 100, 500);
+
+        // Appends while the scan sleeps between its two samples
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(150);
+                Files.writeString(growing, "second block", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        List<File> complete = watcher.scanCompleteFiles();
+        writer.get(5, TimeUnit.SECONDS);
+
+        assertThat(complete).extracting(File::getName).containsExactly("stable.sta");
+        // Once the writer is done, the next scan picks it up
+        assertThat(watcher.scanCompleteFiles()).extracting(File::getName)
+                .containsExactlyInAnyOrder("stable.sta", "growing.sta");
+    }
+
+    @Test
+    void requiredDoneMarkerOverridesSampling() throws Exception {
+        write("a.sta", "complete");
+        write("b.sta", "complete");
+        write("b.sta" + InboxWatcher.DONE_MARKER_SUFFIX, "");
+        watcher = new InboxWatcher(inbox.toString(), EXTENSIONS, true, 100, 50);
+
+        List<File> complete = watcher.scanCompleteFiles();
+
+        assertThat(complete).extracting(File::getName).containsExactly("b.sta");
+        watcher.releaseMarker(complete.get(0));
+        assertThat(inbox.resolve("b.sta" + InboxWatcher.DONE_MARKER_SUFFIX)).doesNotExist();
+        assertThat(inbox.resolve("b.sta")).exists();
+    }
+
+    @Test
+    void scanIsCappedAtMaxFilesPerPoll() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            write("f" + i + ".sta", "complete");
+        }
+        watcher = new InboxWatcher(inbox.toString(), EXTENSIONS, false, 2, 0);
+
+        assertThat(watcher.scanCompleteFiles()).hasSize(2);
+    }
+
+    @Test
+    void missingInboxScansAsEmpty() {
+        watcher = new InboxWatcher(inbox.resolve("absent").toString(), EXTENSIONS, false, 100, 0);
+
+        assertThat(watcher.scanCompleteFiles()).isEmpty();
+    }
+
+    @Test
+    void watchDispatchesFilesOnceTheySettle() throws Exception {
+        write("before.sta", "landed before start");
+        BlockingQueue<File> dispatched = new LinkedBlockingQueue<>();
+        watcher = new InboxWatcher(inbox.toString(), EXTENSIONS, false, 100, 100);
+        watcher.start(dispatched::addAll);
+
+        write("after.sta", "landed after start");
+
+        List<String> names = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!names.containsAll(List.of("before.sta", "after.sta")) && System.nanoTime() < deadline) {
+            File file = dispatched.poll(100, TimeUnit.MILLISECONDS);
+            if (file != null) {
+                names.add(file.getName());
+            }
+        }
+        assertThat(names).contains("before.sta", "after.sta");
+    }
+
+    @Test
+    void watchWaitsForRequiredDoneMarker() throws Exception {
+        BlockingQueue<File> dispatched = new LinkedBlockingQueue<>();
+        watcher = new InboxWatcher(inbox.toString(), EXTENSIONS, true, 100, 50);
+        watcher.start(dispatched::addAll);
+
+        write("a.sta", "complete");
+        assertThat(dispatched.poll(500, TimeUnit.MILLISECONDS)).isNull();
+
+        write("a.sta" + InboxWatcher.DONE_MARKER_SUFFIX, "");
+        File file = dispatched.poll(10, TimeUnit.SECONDS);
+        assertThat(file).isNotNull();
+        assertThat(file.getName()).isEqualTo("a.sta");
+    }
+
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(inbox.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
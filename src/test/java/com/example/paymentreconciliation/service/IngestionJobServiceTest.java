@@ -0,0 +1,97 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.paymentreconciliation.model.IngestionJobResponse;
+import com.example.paymentreconciliation.repository.ImportErrorRepository;
+import com.example.paymentreconciliation.repository.ImportRunRepository;
+
+/**
+ * A running job must stay visible however many jobs finish meanwhile, a trigger during a
+ * running job must coalesce into it, and only the last finished jobs are retained.
+ */
+class IngestionJobServiceTest {
+
+    private final IngestionJobService jobs = new IngestionJobService(mock(ImportRunRepository.class),
+            mock(ImportErrorRepository.class));
+
+    @AfterEach
+    void shutdown() {
+        jobs.shutdown();
+    }
+
+    @Test
+    void finishedJobsAreEvictedButTheRunningOneIsKept() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BaseIngestionService slow = feed("SLOW");
+        when(slow.pollAndProcessInbox(any())).thenAnswer(inv -> {
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        });
+        BaseIngestionService fast = feed("FAST");
+        try {
+            String running = jobs.trigger(slow).getJobId();
+            List<String> finished = new ArrayList<>();
+            for (int i = 0; i < 110; i++) {
+                String jobId = jobs.trigger(fast).getJobId();
+                awaitStatus("FAST", jobId, "COMPLETED");
+                finished.add(jobId);
+            }
+
+            assertThat(jobs.getJob("FAST", finished.get(0))).isEmpty();
+            assertThat(jobs.getJob("FAST", finished.get(finished.size() - 1))).isPresent();
+            assertThat(jobs.getJob("SLOW", running)).get().extracting(IngestionJobResponse::getStatus)
+                    .isEqualTo("RUNNING");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void triggerDuringARunningJobIsCoalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BaseIngestionService slow = feed("SLOW");
+        when(slow.pollAndProcessInbox(any())).thenAnswer(inv -> {
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        });
+        IngestionJobResponse first = jobs.trigger(slow);
+        awaitStatus("SLOW", first.getJobId(), "RUNNING");
+        IngestionJobResponse second = jobs.trigger(slow);
+        release.countDown();
+
+        assertThat(second.isCoalesced()).isTrue();
+        assertThat(second.getJobId()).isEqualTo(first.getJobId());
+        IngestionJobResponse done = awaitStatus("SLOW", first.getJobId(), "COMPLETED");
+        assertThat(done.getPolls()).isEqualTo(2);
+    }
+
+    private static BaseIngestionService feed(String name) {
+        BaseIngestionService service = mock(BaseIngestionService.class);
+        when(service.getFeedName()).thenReturn(name);
+        return service;
+    }
+
+    private IngestionJobResponse awaitStatus(String feed, String jobId, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            IngestionJobResponse job = jobs.getJob(feed, jobId).orElseThrow();
+            if (status.equals(job.getStatus())) {
+                return job;
+            }
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.paymentreconciliation.service.BaseIngestionService.FileOutcome;
+import com.example.paymentreconciliation.service.IngestionScheduler.Lane;
+
+/**
+ * Sources must be served round-robin within a lane, a full lane must run files on the
+ * submitting thread, and a busy bulk lane must not hold up the fast lane.
+ */
+class IngestionSchedulerTest {
+
+    private final List<Lane> waits = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private IngestionScheduler scheduler;
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        release.countDown();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            assertThat(scheduler.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void sourcesAreServedRoundRobin() throws Exception {
+        scheduler = new IngestionScheduler("test", 1, 1, 10, (lane, nanos) -> waits.add(lane));
+        blockBulkWorker();
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        Future<FileOutcome> last = null;
+        for (String file : List.of("A1", "A2", "A3")) {
+            last = scheduler.submit(Lane.BULK, "A", record(order, file));
+        }
+        Future<FileOutcome> b1 = scheduler.submit(Lane.BULK, "B", record(order, "B1"));
+        assertThat(scheduler.getQueued(Lane.BULK)).isEqualTo(4);
+
+        release.countDown();
+        assertThat(last.get(5, TimeUnit.SECONDS)).isEqualTo(FileOutcome.SUCCEEDED);
+        assertThat(b1.get(5, TimeUnit.SECONDS)).isEqualTo(FileOutcome.SUCCEEDED);
+        assertThat(order).containsExactly("A1", "B1", "A2", "A3");
+        assertThat(waits).hasSize(5).containsOnly(Lane.BULK);
+    }
+
+    @Test
+    void fullLaneRunsFileOnSubmittingThread() throws Exception {
+        scheduler = new IngestionScheduler("test", 1, 1, 1, (lane, nanos) -> { });
+        blockBulkWorker();
+        Future<FileOutcome> queued = scheduler.submit(Lane.BULK, "A", () -> FileOutcome.SUCCEEDED);
+
+        Thread caller = Thread.currentThread();
+        List<Thread> ranOn = new CopyOnWriteArrayList<>();
+        Future<FileOutcome> overflow = scheduler.submit(Lane.BULK, "A", () -> {
+            ranOn.add(Thread.currentThread());
+            return FileOutcome.SKIPPED;
+        });
+
+        assertThat(overflow.isDone()).isTrue();
+        assertThat(overflow.get()).isEqualTo(FileOutcome.SKIPPED);
+        assertThat(ranOn).containsExactly(caller);
+        assertThat(queued.isDone()).isFalse();
+    }
+
+    @Test
+    void fastLaneProgressesWhileBulkLaneIsBusy() throws Exception {
+        scheduler = new IngestionScheduler("test", 1, 1, 10, (lane, nanos) -> { });
+        blockBulkWorker();
+
+        Future<FileOutcome> small = scheduler.submit(Lane.FAST, "A", () -> FileOutcome.SUCCEEDED);
+
+        assertThat(small.get(5, TimeUnit.SECONDS)).isEqualTo(FileOutcome.SUCCEEDED);
+        assertThat(scheduler.getQueued(Lane.BULK)).isZero();
+    }
+
+    @Test
+    void idleBulkWorkersTakeFastLaneFiles() throws Exception {
+        scheduler = new IngestionScheduler("test", 1, 1, 10, (lane, nanos) -> waits.add(lane));
+        List<String> ranOn = new CopyOnWriteArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(Lane.FAST, "A", () -> {
+            ranOn.add(Thread.currentThread().getName());
+            started.countDown();
+            release.await();
+            return FileOutcome.SUCCEEDED;
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Either worker may have taken the first file; the other one must take the second
+        Future<FileOutcome> small = scheduler.submit(Lane.FAST, "A", () -> {
+            ranOn.add(Thread.currentThread().getName());
+            return FileOutcome.SUCCEEDED;
+        });
+
+        assertThat(small.get(5, TimeUnit.SECONDS)).isEqualTo(FileOutcome.SUCCEEDED);
+        assertThat(ranOn).hasSize(2);
+        assertThat(ranOn).anyMatch(t -> t.startsWith("test-fast-")).anyMatch(t -> t.startsWith("test-bulk-"));
+        // The wait is recorded against the file's lane, not the worker's
+        assertThat(waits).containsOnly(Lane.FAST);
+    }
+
+    @Test
+    void shutdownRunsQueuedFilesAndRejectsNewOnes() throws Exception {
+        scheduler = new IngestionScheduler("test", 1, 1, 10, (lane, nanos) -> { });
+        blockBulkWorker();
+        Future<FileOutcome> queued = scheduler.submit(Lane.BULK, "A", () -> FileOutcome.SUCCEEDED);
+
+        scheduler.shutdown();
+        assertThat(scheduler.isShutdown()).isTrue();
+        assertThatThrownBy(() -> scheduler.submit(Lane.FAST, "A", () -> FileOutcome.SUCCEEDED))
+                .isInstanceOf(IllegalStateException.class);
+
+        release.countDown();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo(FileOutcome.SUCCEEDED);
+        assertThat(scheduler.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shutdownNowCancelsQueuedFiles() throws Exception {
+        scheduler = new IngestionScheduler("test", 1, 1, 10, (lane, nanos) -> { });
+        blockBulkWorker();
+        Future<FileOutcome> queued = scheduler.submit(Lane.BULK, "A", () -> FileOutcome.SUCCEEDED);
+
+        scheduler.shutdownNow();
+
+        assertThat(queued.isCancelled()).isTrue();
+        assertThat(scheduler.getQueued()).isZero();
+        assertThat(scheduler.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    /**
+     * Occupy the only bulk worker until {@link #release} opens.
+     */
+    private void blockBulkWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(Lane.BULK, "blocker", () -> {
+            started.countDown();
+            release.await();
+            return FileOutcome.SUCCEEDED;
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(scheduler.getActive()).isEqualTo(1);
+    }
+
+    private static Callable<FileOutcome> record(List<String> order, String file) {
+        return () -> {
+            order.add(file);
+            return FileOutcome.SUCCEEDED;
+        };
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.paymentreconciliation.dao.Mt940StatementBatchDao;
+import com.example.paymentreconciliation.entity.StatementTransaction;
+
+/**
+ * Intraday keys of MT942 entries must line up with the keys of the final MT940, however the
+ * day's entries were spread over reports. The statement_transaction table is stood in for by
+ * a list; insert and promotion follow the rules of Mt940StatementBatchDao.
+ */
+class IntradayKeysTest {
+
+    private static final String NONREF_ENTRY = """
+            :61:2401050105C100,00NTRFNONREF
+            :86:PAYMENT
+            """;
+
+    private final List<StatementTransaction> table = new ArrayList<>();
+
+    @Test
+    void identicalEntriesInSeparateIncrementalReportsAreBothKeptAndPromoted() throws Exception {
+        assertThat(ingestReport(mt942("INTRA1", NONREF_ENTRY), false)).isEqualTo(1);
+        assertThat(ingestReport(mt942("INTRA2", NONREF_ENTRY), false)).isEqualTo(1);
+        assertThat(table).hasSize(2);
+
+        List<String> finalKeys = Mt940Parser.intradayKeys(mt940(NONREF_ENTRY + NONREF_ENTRY));
+        assertThat(finalKeys).doesNotHaveDuplicates();
+        assertThat(intradayRowKeys()).containsExactlyInAnyOrderElementsOf(finalKeys);
+    }
+
+    @Test
+    void cumulativeReportDoesNotRepeatStoredEntries() throws Exception {
+        assertThat(ingestReport(mt942("INTRA1", NONREF_ENTRY), true)).isEqualTo(1);
+        assertThat(ingestReport(mt942("INTRA2", NONREF_ENTRY + NONREF_ENTRY), true)).isEqualTo(1);
+        assertThat(table).hasSize(2);
+
+        assertThat(intradayRowKeys())
+                .containsExactlyInAnyOrderElementsOf(Mt940Parser.intradayKeys(mt940(NONREF_ENTRY + NONREF_ENTRY)));
+    }
+
+    @Test
+    void reportAfterFinalStatementAddsNothing() throws Exception {
+        Mt940Parser.Statement stmt = mt940(NONREF_ENTRY);
+        List<String> baseKeys = Mt940Parser.intradayBaseKeys(stmt);
+        List<String> keys = Mt940Parser.intradayKeys(baseKeys);
+        StatementTransaction row = new StatementTransaction();
+        row.setIntradayBaseKey(baseKeys.get(0));
+        row.setIntradayKey(keys.get(0));
+        row.setExtIdempotencyHash(stmt.transactions.get(0).extIdempotencyHash);
+        table.add(row);
+
+        assertThat(ingestReport(mt942("INTRA1", NONREF_ENTRY), false)).isZero();
+    }
+
+    @Test
+    void entryReferenceAndSupplementaryDetailsTellEntriesApart() throws Exception {
+        List<String> keys = Mt940Parser.intradayBaseKeys(mt942("INTRA1", """
+                :61:2401050105C100,00NTRFNONREF
+                :86:PAYMENT
+                :61:2401050105C100,00NTRFNONREF//BANK1
+                :86:PAYMENT
+                :61:2401050105C100,00NTRFNONREF//BANK1
+                INVOICE 42
+                :86:PAYMENT
+                """));
+        assertThat(keys).doesNotHaveDuplicates();
+    }
+
+    /**
+     * Number the report against the table, as StatementIngestionService does, and insert what is new.
+     *
+     * @return rows inserted
+     */
+    private int ingestReport(Mt940Parser.Statement report, boolean cumulative) {
+        List<String> baseKeys = Mt940Parser.intradayBaseKeys(report);
+        List<StatementTransaction> transactions = new ArrayList<>();
+        for (String baseKey : baseKeys) {
+            StatementTransaction st = new StatementTransaction();
+            st.setIntradayBaseKey(baseKey);
+            transactions.add(st);
+        }
+        List<StatementTransaction> toInsert = StatementIngestionService.numberIntradayEntries(transactions,
+                storedRows(), cumulative);
+        int inserted = 0;
+        for (StatementTransaction st : toInsert) {
+            // ON CONFLICT (ext_idempotency_hash) DO NOTHING
+            if (table.stream().noneMatch(row -> row.getExtIdempotencyHash().equals(st.getExtIdempotencyHash()))) {
+                table.add(st);
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    private Map<String, Mt940StatementBatchDao.IntradayRows> storedRows() {
+        Map<String, Mt940StatementBatchDao.IntradayRows> rows = new HashMap<>();
+        Map<String, List<StatementTransaction>> byBaseKey = table.stream()
+                .collect(Collectors.groupingBy(StatementTransaction::getIntradayBaseKey));
+        byBaseKey.forEach((baseKey, group) -> rows.put(baseKey, new Mt940StatementBatchDao.IntradayRows(group.size(),
+                (int) group.stream().filter(row -> !row.getExtIdempotencyHash().equals(row.getIntradayKey())).count())));
+        return rows;
+    }
+
+    /**
+     * Keys of the rows promotion can still match: those carrying their intraday key as idempotency hash.
+     */
+    private List<String> intradayRowKeys() {
+        return table.stream()
+                .filter(row -> row.getExtIdempotencyHash().equals(row.getIntradayKey()))
+                .map(StatementTransaction::getIntradayKey)
+                .collect(Collectors.toList());
+    }
+
+    private static Mt940Parser.Statement mt942(String ref, String entries) throws Exception {
+        String msg = "{1:F01BANKBEBBAXXX0000000000}{2:O9421200240105BANKBEBBAXXX00000000002401051200N}{4:\n"
+                + ":20:" + ref + "\n"
+                + ":25:12345678\n"
+                + ":28C:1/1\n"
+                + ":34F:EUR0,\n"
+                + ":13D:2401051200+0100\n"
+                + entries
+                + "-}";
+        List<Mt940Parser.Statement> statements = new ArrayList<>();
+        new Mt942Parser().parse(new StringReader(msg), statements::add);
+        assertThat(statements).hasSize(1);
+        return statements.get(0);
+    }
+
+    private static Mt940Parser.Statement mt940(String entries) throws Exception {
+        String msg = "{1:F01BANKBEBBAXXX0000000000}{2:O9401200240105BANKBEBBAXXX00000000002401051200N}{4:\n"
+                + ":20:STMT1\n"
+                + ":25:12345678\n"
+                + ":28C:1/1\n"
+                + ":60F:C240104EUR0,00\n"
+                + entries
+                + ":62F:C240105EUR200,00\n"
+                + "-}";
+        List<Mt940Parser.Statement> statements = new ArrayList<>();
+        new Mt940Parser().parse(new StringReader(msg), statements::add);
+        assertThat(statements).hasSize(1);
+        return statements.get(0);
+    }
+}
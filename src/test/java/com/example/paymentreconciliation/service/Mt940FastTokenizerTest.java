@@ -0,0 +1,177 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * The fast tokenizer must produce exactly the statements Prowide does, and hand every
+ * message it does not fully understand back to Prowide. Besides the synthetic messages
+ * below, every file archived under mt940/archive is parsed both ways.
+ */
+class Mt940FastTokenizerTest {
+
+    private static final Path ARCHIVE = Path.of("mt940", "archive");
+
+    private static final String HEADER = "{1:F01BANKBEBBAXXX0000000000}{2:O9401200240105BANKBEBBAXXX00000000002401051200N}{4:\n";
+
+    private static final String COMMON = HEADER
+            + ":20:STMT20240105\n"
+            + ":25:BE68539007547034\n"
+            + ":28C:00001/001\n"
+            + ":60F:C240104EUR1000,00\n"
+            + ":61:2401050105C250,50NTRFINV-42//BANKREF1\n"
+            + ":86:NEFT/UTR123456/ACME LTD\n"
+            + ":61:240105D100,NCHKNONREF\n"
+            + ":86:CHEQUE 000123\n"
+            + ":61:2401050106RC10,00NMSCREVERSAL\n"
+            + ":62F:C240105EUR1160,50\n"
+            + ":64:C240105EUR1160,50\n"
+            + ":65:C240106EUR1160,50\n"
+            + ":65:C240107EUR1160,50\n"
+            + "-}";
+
+    private static final String INTERIM = HEADER
+            + ":20:STMT20240105B\n"
+            + ":25:BE68539007547034\n"
+            + ":28C:00002/002\n"
+            + ":60M:C240105EUR1160,50\n"
+            + ":61:240105C5,NTRFNONREF\n"
+            + ":62M:C240105EUR1165,50\n"
+            + "-}";
+
+    private static final String CONTINUATION_86 = HEADER
+            + ":20:STMT20240106\n"
+            + ":25:BE68539007547034\n"
+            + ":28C:00003/001\n"
+            + ":60F:C240105EUR1165,50\n"
+            + ":61:2401060106C20,00NTRFNONREF\n"
+            + ":86:FIRST LINE\n"
+            + "SECOND LINE\n"
+            + ":62F:C240106EUR1185,50\n"
+            + "-}";
+
+    private static final String CONTINUATION_61 = HEADER
+            + ":20:STMT20240107\n"
+            + ":25:BE68539007547034\n"
+            + ":28C:00004/001\n"
+            + ":60F:C240106EUR1185,50\n"
+            + ":61:2401070107C20,00NTRFNONREF//BANKREF2\n"
+            + "SUPPLEMENTARY DETAILS\n"
+            + ":86:PAYMENT\n"
+            + ":62F:C240107EUR1205,50\n"
+            + "-}";
+
+    private static final String FUNDS_CODE = HEADER
+            + ":20:STMT20240108\n"
+            + ":25:BE68539007547034\n"
+            + ":28C:00005/001\n"
+            + ":60F:C240107EUR1205,50\n"
+            + ":61:2401080108CE30,00NTRFNONREF\n"
+            + ":86:PAYMENT\n"
+            + ":62F:C240108EUR1235,50\n"
+            + "-}";
+
+    @Test
+    void commonMessagesTakeTheFastPath() {
+        assertThat(Mt940FastTokenizer.tokenize(COMMON, 1, false)).isNotNull();
+        assertThat(Mt940FastTokenizer.tokenize(INTERIM, 1, false)).isNotNull();
+    }
+
+    @Test
+    void fastPathMatchesProwide() throws Exception {
+        assertSameStatements(COMMON);
+        assertSameStatements(INTERIM);
+        assertSameStatements(COMMON + "\n" + INTERIM);
+    }
+
+    @Test
+    void fastPathKeepsComponentsOfProwide() throws Exception {
+        Mt940Parser.Statement stmt = parse(COMMON, true).get(0);
+        assertThat(stmt.currency).isEqualTo("EUR");
+        assertThat(stmt.otherBalances).extracting(b -> b.type).containsExactly("AVAILABLE", "FORWARD", "FORWARD");
+        Mt940Parser.Transaction first = stmt.transactions.get(0);
+        assertThat(first.valueDate).isEqualTo("240105");
+        assertThat(first.entryDate).isEqualTo("0105");
+        assertThat(first.amount).isEqualTo("250,50");
+        assertThat(first.customerReference).isEqualTo("INV-42");
+        assertThat(first.entryReference).isEqualTo("BANKREF1");
+        assertThat(stmt.transactions.get(1).entryDate).isNull();
+        assertThat(stmt.transactions.get(2).dc).isEqualTo("RC");
+    }
+
+    @Test
+    void continuationLinesFallBackToProwide() throws Exception {
+        assertThat(Mt940FastTokenizer.tokenize(CONTINUATION_86, 1, false)).isNull();
+        assertThat(Mt940FastTokenizer.tokenize(CONTINUATION_61, 1, false)).isNull();
+        assertSameStatements(CONTINUATION_86);
+        assertSameStatements(CONTINUATION_61);
+    }
+
+    @Test
+    void fundsCodeFallsBackToProwide() throws Exception {
+        assertThat(Mt940FastTokenizer.tokenize(FUNDS_CODE, 1, false)).isNull();
+        assertSameStatements(FUNDS_CODE);
+    }
+
+    @Test
+    void missingTrailerFallsBackToProwide() {
+        assertThat(Mt940FastTokenizer.tokenize(COMMON.substring(0, COMMON.length() - "-}".length()), 1, false)).isNull();
+    }
+
+    @Test
+    void rawLinesMatchProwidePath() throws Exception {
+        String both = COMMON + "\n" + CONTINUATION_86;
+        List<Mt940Parser.Statement> fast = new ArrayList<>();
+        new Mt940Parser(true, true).parse(new StringReader(both), fast::add);
+        List<Mt940Parser.Statement> prowide = new ArrayList<>();
+        new Mt940Parser(false, true).parse(new StringReader(both), prowide::add);
+        assertThat(fast).usingRecursiveComparison().isEqualTo(prowide);
+        assertThat(fast.get(1).rawLines).extracting(l -> l.rawText).contains(":86:FIRST LINE\nSECOND LINE");
+    }
+
+    @ParameterizedTest
+    @MethodSource("archivedFiles")
+    void archivedFileParsesTheSameBothWays(Path archived) throws Exception {
+        String file = Files.readString(archived, StandardCharsets.UTF_8);
+
+        assertThat(Mt940FastTokenizer.tokenize(file, 1, false)).as("fast path taken for %s", archived).isNotNull();
+        assertSameStatements(file);
+
+        List<Mt940Parser.Statement> fast = new ArrayList<>();
+        new Mt940Parser(true, true).parse(new StringReader(file), fast::add);
+        List<Mt940Parser.Statement> prowide = new ArrayList<>();
+        new Mt940Parser(false, true).parse(new StringReader(file), prowide::add);
+        assertThat(fast).usingRecursiveComparison().isEqualTo(prowide);
+    }
+
+    static Stream<Path> archivedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(ARCHIVE)) {
+            return files.filter(Files::isRegularFile).sorted().toList().stream();
+        }
+    }
+
+    private static void assertSameStatements(String file) throws Exception {
+        List<Mt940Parser.Statement> fast = parse(file, true);
+        List<Mt940Parser.Statement> prowide = parse(file, false);
+        assertThat(fast).isNotEmpty();
+        assertThat(fast).usingRecursiveComparison().isEqualTo(prowide);
+    }
+
+    private static List<Mt940Parser.Statement> parse(String file, boolean fastTokenizer) throws Exception {
+        List<Mt940Parser.Statement> statements = new ArrayList<>();
+        new Mt940Parser(fastTokenizer, false).parse(new StringReader(file), statements::add);
+        return statements;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * The :86: narratives of the archived BOB sample and the common UPI/IMPS layouts must yield
+ * channel, UTR, counterparty and VPA, with VPA and counterparty kept in their written case.
+ */
+class Mt940NarrativeTokenizerTest {
+
+    private static final Path SAMPLE = Path.of("mt940", "archive", "2025", "12", "29",
+            "sample_bob12.mt940_c3865a3b-83d2-422e-aa28-1ad05a5bfd1b");
+
+    @ParameterizedTest
+    @CsvSource({
+            "RTGS-HDFCR52025052674501425-XYZ PVT LTD, RTGS, HDFCR52025052674501425, XYZ PVT LTD",
+            "NEFT-AXISCN0981744025-XYZ PVT LTD,       NEFT, AXISCN0981744025,       XYZ PVT LTD",
+            "RTGS-UTIBR72035052600055575-XYZ PVT LTD, RTGS, UTIBR72035052600055575, XYZ PVT LTD",
+            "RTGS-UTIBR732025052600055579-XYZ PVT LTD, RTGS, UTIBR732025052600055579, XYZ PVT LTD",
+            "RTGS-KKBKR12025052600895460-ABC LTD,     RTGS, KKBKR12025052600895460, ABC LTD"
+    })
+    void sampleNarrativeYieldsChannelUtrAndCounterparty(String narrative, String channel, String utr,
+            String counterparty) {
+        assertThat(Mt940NarrativeTokenizer.tokenize(narrative)).containsExactly(
+                entry(Mt940NarrativeTokenizer.CHANNEL, channel),
+                entry(Mt940NarrativeTokenizer.UTR, utr),
+                entry(Mt940NarrativeTokenizer.COUNTERPARTY, counterparty));
+    }
+
+    @Test
+    void everyNarrativeOfTheArchivedSampleIsRecognised() throws Exception {
+        List<String> narratives;
+        try (Stream<String> lines = Files.lines(SAMPLE, StandardCharsets.UTF_8)) {
+            narratives = lines.filter(line -> line.startsWith(":86:")).map(line -> line.substring(4)).toList();
+        }
+
+        assertThat(narratives).hasSize(14).allSatisfy(narrative -> assertThat(Mt940NarrativeTokenizer.tokenize(narrative))
+                .containsKeys(Mt940NarrativeTokenizer.CHANNEL, Mt940NarrativeTokenizer.UTR,
+                        Mt940NarrativeTokenizer.COUNTERPARTY)
+                .containsEntry(Mt940NarrativeTokenizer.COUNTERPARTY, narrative.substring(narrative.lastIndexOf('-') + 1))
+                .containsEntry(Mt940NarrativeTokenizer.UTR,
+                        narrative.substring(narrative.indexOf('-') + 1, narrative.lastIndexOf('-'))));
+    }
+
+    @Test
+    void upiNarrativeKeepsTheCaseOfVpaAndName() {
+        Map<String, String> tokens = Mt940NarrativeTokenizer.tokenize("upi/412345678901/John Doe/john.doe@okaxis/HDFC BANK");
+
+        assertThat(tokens)
+                .containsEntry(Mt940NarrativeTokenizer.CHANNEL, "UPI")
+                .containsEntry(Mt940NarrativeTokenizer.UTR, "412345678901")
+                .containsEntry(Mt940NarrativeTokenizer.COUNTERPARTY, "John Doe")
+                .containsEntry(Mt940NarrativeTokenizer.VPA, "john.doe@okaxis");
+    }
+
+    @Test
+    void wrappedNeftNarrativeYieldsIfscAndAccount() {
+        Map<String, String> tokens = Mt940NarrativeTokenizer.tokenize(
+                "BY TRANSFER-NEFT*sbin0001234*N123456789012*Acme\r\n Ltd*123456789012345");
+
+        assertThat(tokens)
+                .containsEntry(Mt940NarrativeTokenizer.CHANNEL, "NEFT")
+                .containsEntry(Mt940NarrativeTokenizer.IFSC, "SBIN0001234")
+                .containsEntry(Mt940NarrativeTokenizer.UTR, "N123456789012")
+                .containsEntry(Mt940NarrativeTokenizer.COUNTERPARTY, "Acme Ltd")
+                .containsEntry(Mt940NarrativeTokenizer.ACCOUNT, "123456789012345");
+    }
+
+    @Test
+    void narrativeWithoutChannelYieldsNothing() {
+        assertThat(Mt940NarrativeTokenizer.tokenize("INTEREST CREDITED FOR MAY")).isEmpty();
+        assertThat(Mt940NarrativeTokenizer.toJson(Map.of())).isNull();
+    }
+
+    @Test
+    void tokensSerializeAsJsonInKeyOrder() {
+        String json = Mt940NarrativeTokenizer.toJson(
+                Mt940NarrativeTokenizer.tokenize("UPI/412345678901/O\"Brien/obrien@ybl"));
+
+        assertThat(json).isEqualTo(
+                "{\"channel\":\"UPI\",\"utr\":\"412345678901\",\"counterparty\":\"O\\\"Brien\",\"vpa\":\"obrien@ybl\"}");
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Statements must be handed over one message at a time while the file is still being
+ * read, whatever the line layout between messages, and raw lines must carry their file
+ * line and the transaction they belong to on both tokenizer paths. The idempotency hash
+ * of an entry must not change between imports of the same statement.
+ */
+class Mt940ParserTest {
+
+    private static final String HEADER = "{1:F01BANKBEBBAXXX0000000000}{2:O9401200240105BANKBEBBAXXX00000000002401051200N}{4:\n";
+
+    @Test
+    void eachStatementIsHandedOverBeforeTheRestOfTheFileIsRead() throws Exception {
+        String file = message("STMT1") + "\n" + message("STMT2") + "\n" + message("STMT3") + "\n" + message("STMT4") + "\n";
+        TricklingReader reader = new TricklingReader(file);
+        List<Integer> readWhenHandedOver = new ArrayList<>();
+        List<String> refs = new ArrayList<>();
+
+        new Mt940Parser().parse(reader, stmt -> {
+            refs.add(stmt.stmtRef20);
+            readWhenHandedOver.add(reader.served);
+        });
+
+        assertThat(refs).containsExactly("STMT1", "STMT2", "STMT3", "STMT4");
+        assertThat(readWhenHandedOver.get(0)).isLessThan(file.length() / 2);
+        assertThat(readWhenHandedOver).isSorted();
+    }
+
+    @Test
+    void preambleIsIgnoredAndMessagesMaySplitMidLine() throws Exception {
+        String file = "FILE HEADER 20240105\n\n" + message("STMT1") + message("STMT2") + "\n";
+
+        List<String> refs = new ArrayList<>();
+        new Mt940Parser().parse(new StringReader(file), stmt -> refs.add(stmt.stmtRef20));
+
+        assertThat(refs).containsExactly("STMT1", "STMT2");
+    }
+
+    @Test
+    void consumerFailureIsNotReportedAsAParseError() {
+        IllegalStateException failure = new IllegalStateException("database down");
+
+        assertThatThrownBy(() -> new Mt940Parser().parse(new StringReader(message("STMT1")), stmt -> {
+            throw failure;
+        })).isSameAs(failure);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void rawLinesCarryFileLineTagAndTransaction(boolean fastTokenizer) throws Exception {
+        String continued = HEADER
+                + ":20:STMT1\n"
+                + ":25:BE68539007547034\n"
+                + ":28C:00001/001\n"
+                + ":60F:C240104EUR1000,00\n"
+                + ":61:2401050105C250,50NTRFNONREF\n"
+                + ":86:NEFT/UTR123456\n"
+                + "ACME LTD\n"
+                + ":61:2401050105D50,00NTRFNONREF\n"
+                + ":86:CHARGES\n"
+                + ":62F:C240105EUR1200,50\n"
+                + "-}";
+        String file = "FILE HEADER\n" + continued + "\n" + message("STMT2") + "\n";
+
+        List<Mt940Parser.Statement> statements = new ArrayList<>();
+        new Mt940Parser(fastTokenizer, true).parse(new StringReader(file), statements::add);
+
+        assertThat(statements.get(0).rawLines)
+                .extracting(line -> line.lineNo, line -> line.tag, line -> line.txnLineNo)
+                .containsExactly(
+                        tuple(3, "20", 0), tuple(4, "25", 0), tuple(5, "28C", 0), tuple(6, "60F", 0),
+                        tuple(7, "61", 1), tuple(8, "86", 1), tuple(10, "61", 2), tuple(11, "86", 2),
+                        tuple(12, "62F", 0));
+        assertThat(statements.get(0).rawLines.get(5).rawText).isEqualTo(":86:NEFT/UTR123456\nACME LTD");
+        assertThat(statements.get(1).rawLines.get(0).lineNo).isEqualTo(15);
+        assertThat(statements.get(1).rawLines.get(0).rawText).isEqualTo(":20:STMT2");
+    }
+
+    @Test
+    void rawLinesAreOnlyCapturedWhenEnabled() throws Exception {
+        List<Mt940Parser.Statement> statements = new ArrayList<>();
+        new Mt940Parser(true, false).parse(new StringReader(message("STMT1")), statements::add);
+
+        assertThat(statements.get(0).rawLines).isEmpty();
+    }
+
+    @Test
+    void idempotencyHashIsStableAcrossImportsAndDistinctPerEntry() throws Exception {
+        String file = message("STMT1");
+
+        Mt940Parser.Transaction first = parseOne(file).transactions.get(0);
+        Mt940Parser.Transaction again = parseOne(file).transactions.get(0);
+        Mt940Parser.Transaction otherStatement = parseOne(message("STMT2")).transactions.get(0);
+        Mt940Parser.Transaction otherAmount = parseOne(file.replace("C250,50N", "C250,51N")).transactions.get(0);
+
+        assertThat(first.extIdempotencyHash).hasSize(64).isEqualTo(again.extIdempotencyHash);
+        assertThat(otherStatement.extIdempotencyHash).isNotEqualTo(first.extIdempotencyHash);
+        assertThat(otherAmount.extIdempotencyHash).isNotEqualTo(first.extIdempotencyHash);
+    }
+
+    private static Mt940Parser.Statement parseOne(String file) throws Exception {
+        List<Mt940Parser.Statement> statements = new ArrayList<>();
+        new Mt940Parser().parse(new StringReader(file), statements::add);
+        assertThat(statements).hasSize(1);
+        return statements.get(0);
+    }
+
+    static String message(String ref) {
+        return HEADER
+                + ":20:" + ref + "\n"
+                + ":25:BE68539007547034\n"
+                + ":28C:00001/001\n"
+                + ":60F:C240104EUR1000,00\n"
+                + ":61:2401050105C250,50NTRFINV-42//BANKREF1\n"
+                + ":86:NEFT/UTR123456/ACME LTD\n"
+                + ":62F:C240105EUR1250,50\n"
+                + "-}";
+    }
+
+    /**
+     * Serves the text one line per read call and counts the characters handed out so far.
+     */
+    static final class TricklingReader extends Reader {
+        private final String text;
+        int served;
+
+        TricklingReader(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) {
+            if (served >= text.length()) {
+                return -1;
+            }
+            int eol = text.indexOf('\n', served);
+            int end = Math.min(eol < 0 ? text.length() : eol + 1, served + len);
+            text.getChars(served, end, buf, off);
+            int n = end - served;
+            served = end;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
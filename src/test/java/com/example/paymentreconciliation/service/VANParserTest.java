@@ -0,0 +1,91 @@
+package com.example.paymentreconciliation.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The field parsing must accept exactly what van_parse_date / van_parse_timestamp and the
+ * amount check in van_stage_merge.sql accept, so JPA and COPY loads reject the same rows,
+ * and both must number the rows by the CSV line they came from.
+ */
+class VANParserTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesRealDatesOnly() {
+        assertThat(VANParser.parseDate("2024-02-29")).isEqualTo(LocalDate.of(2024, 2, 29));
+        assertThat(VANParser.parseDate(" 2024-01-05 ")).isEqualTo(LocalDate.of(2024, 1, 5));
+        assertThat(VANParser.parseDate("2023-02-29")).isNull();
+        assertThat(VANParser.parseDate("2024-02-30")).isNull();
+        assertThat(VANParser.parseDate("2024-13-01")).isNull();
+        assertThat(VANParser.parseDate("0000-01-01")).isNull();
+        assertThat(VANParser.parseDate("2024-1-05")).isNull();
+        assertThat(VANParser.parseDate("+2024-01-01")).isNull();
+    }
+
+    @Test
+    void blankDatesAreInvalid() {
+        assertThat(VANParser.parseDate("")).isNull();
+        assertThat(VANParser.parseDate("   ")).isNull();
+        assertThat(VANParser.parseDate(null)).isNull();
+        assertThat(VANParser.parseDateTime("")).isNull();
+    }
+
+    @Test
+    void parsesRealDateTimesOnly() {
+        assertThat(VANParser.parseDateTime("2024-01-05 23:59:59")).isEqualTo(LocalDateTime.of(2024, 1, 5, 23, 59, 59));
+        assertThat(VANParser.parseDateTime("2024-01-05 24:00:00")).isNull();
+        assertThat(VANParser.parseDateTime("2024-01-05 12:60:00")).isNull();
+        assertThat(VANParser.parseDateTime("2024-01-05 12:00:60")).isNull();
+        assertThat(VANParser.parseDateTime("2024-02-30 00:00:00")).isNull();
+        assertThat(VANParser.parseDateTime("2024-01-05T12:00:00")).isNull();
+    }
+
+    @Test
+    void parsesUnsignedDecimalAmountsOnly() {
+        assertThat(VANParser.parseAmount("10.50")).isEqualByComparingTo(new BigDecimal("10.50"));
+        assertThat(VANParser.parseAmount(" 5 ")).isEqualByComparingTo(BigDecimal.valueOf(5));
+        assertThat(VANParser.parseAmount("-1")).isNull();
+        assertThat(VANParser.parseAmount("1e3")).isNull();
+        assertThat(VANParser.parseAmount("1,000")).isNull();
+        assertThat(VANParser.parseAmount(null)).isNull();
+    }
+
+    @Test
+    void btrimStripsSpacesOnly() {
+        assertThat(VANParser.btrim("  a b  ")).isEqualTo("a b");
+        assertThat(VANParser.btrim("\ta\t")).isEqualTo("\ta\t");
+    }
+
+    @Test
+    void chunkedAndRawParsingNumberRowsByCsvLine() throws Exception {
+        String empty = String.join(",", Collections.nCopies(VANParser.COLUMNS.size(), ""));
+        File csv = Files.writeString(dir.resolve("van.csv"),
+                String.join(",", VANParser.COLUMNS.stream().map(c -> "\"" + c + "\"").toList()) + "\n"
+                        + empty + "\n" + empty + "\n" + empty + "\n",
+                StandardCharsets.UTF_8).toFile();
+
+        List<Integer> chunked = new ArrayList<>();
+        new VANParser().parse(csv, 2, rows -> rows.forEach(row -> chunked.add(row.lineNo)));
+        List<Long> raw = new ArrayList<>();
+        new VANParser().parseRaw(csv, (lineNo, values) -> raw.add(lineNo));
+
+        assertThat(chunked).containsExactly(2, 3, 4);
+        assertThat(raw).containsExactly(2L, 3L, 4L);
+    }
+}